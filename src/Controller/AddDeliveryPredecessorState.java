@@ -4,11 +4,12 @@ import java.awt.Point;
 
 import javax.swing.JOptionPane;
 
+import Model.InsertionRejection;
 import Model.Stop;
+import Model.Tour;
 import View.DrawnMap;
 import View.LandingPage;
 import View.LoadRequests;
-import View.RoadMap;
 
 /**
  * State to add a predecessor to the delivery stop a the request that will be
@@ -66,8 +67,10 @@ public class AddDeliveryPredecessorState implements State {
 	@Override
 	public void loadRequests(String xmlFile, DrawnMap drawnMap) {
 		try {
-			controller.parseFile(xmlFile);
-			new RoadMap(controller, drawnMap);
+			if (!controller.loadFile(xmlFile)) {
+				// cancelled by the user, nothing has changed
+				return;
+			}
 			controller.setCurrentState(controller.getRequestsLoadedState());
 			controller.getMenu().getLoadRequestsFrame().closeLoadRequests();
 			controller.getMenu().disableUndo();
@@ -94,16 +97,49 @@ public class AddDeliveryPredecessorState implements State {
 
 	/**
 	 * Adds a new request to the tour, placing the pickup and the delivery where the user specified it.
+	 * If the precomputed insertion cost of the selected stop says that the delivery cannot follow it, 
+	 * for example because a stop of the tour would be reached after its latest time, 
+	 * or if the capacity of the vehicle would be exceeded, a pop-up displays the reason and the user can select another stop.
+	 * The command is removed from the list of commands if the request could not be added.
 	 * 
 	 * @see Model.Tour
+	 * @see Model.Map#computeDeliveryInsertionCosts(Stop, Stop, Stop)
+	 * @see Model.InsertionRejection
+	 * @see Model.Map#respectsCapacity(int, int, int)
 	 */
 	@Override
 	public void addRequest(Stop deliveryPredecessor, ListOfCommands listOfCommands) {
 		try {
-			controller.getMap().getTour().setDeliveryStopPredecessor(deliveryPredecessor);
-			listOfCommands.add(new AddRequestCommand(controller.getMap(), controller.getMap().getTour().getPickupStop(),
-					controller.getMap().getTour().getDeliveryStop(),
-					controller.getMap().getTour().getPickupStopPredecessor(), deliveryPredecessor));
+			float[] insertionCosts = controller.getMap().getTour().getInsertionCosts();
+			int index = controller.getMap().getTour().getOrderedTravel().indexOf(deliveryPredecessor);
+			if (insertionCosts != null && index >= 0 && index < insertionCosts.length
+					&& insertionCosts[index] == Float.MAX_VALUE) {
+				InsertionRejection[] rejections = controller.getMap().getTour().getInsertionRejections();
+				String reason = rejections != null && rejections[index] != null
+						? ": " + rejections[index].getMessage() : "";
+				JOptionPane.showMessageDialog(null,
+						"The delivery stop cannot be placed after this stop" + reason + ". Select another stop.");
+				return;
+			}
+			Tour tour = controller.getMap().getTour();
+			if (!controller.getMap().respectsCapacity(tour.getOrderedTravel().indexOf(tour.getPickupStopPredecessor()),
+					index, tour.getRequestDemand())) {
+				JOptionPane.showMessageDialog(null,
+						"The capacity of the vehicle would be exceeded between the pickup and the delivery. "
+								+ "Select another stop.");
+				return;
+			}
+			AddRequestCommand command = new AddRequestCommand(controller.getMap(), tour.getPickupStop(),
+					tour.getDeliveryStop(), tour.getPickupStopPredecessor(), deliveryPredecessor);
+			listOfCommands.add(command);
+			if (command.getFailure() != null) {
+				listOfCommands.cancel();
+				JOptionPane.showMessageDialog(null,
+						"The request cannot be added: " + command.getFailure().getMessage() + ". Select another stop.");
+				return;
+			}
+			tour.setDeliveryStopPredecessor(deliveryPredecessor);
+			tour.setInsertionCosts(null);
 			controller.setCurrentState(controller.getComputedTourState());
 			controller.getMenu().getDrawnMap().add = false;
 			controller.getMenu().instructionsSetText("You can add and delete requests.");
@@ -150,6 +186,7 @@ public class AddDeliveryPredecessorState implements State {
 	 * @see Model.Tour
 	 */
 	public void cancel() {
+		controller.getMap().getTour().setInsertionCosts(null);
 		controller.setCurrentState(controller.getComputedTourState());
 		controller.getMenu().getDrawnMap().add = false;
 		controller.getMenu().instructionsSetText("You can add and delete requests.");
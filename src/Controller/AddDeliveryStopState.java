@@ -1,12 +1,16 @@
 package Controller;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+
 import javax.swing.JOptionPane;
 
+import Model.Insertion;
 import Model.Stop;
+import Model.Tour;
 import View.DrawnMap;
 import View.LandingPage;
 import View.LoadRequests;
-import View.RoadMap;
 
 /**
  * Implements the Interface State used for the state design pattern.
@@ -26,6 +30,11 @@ public class AddDeliveryStopState implements State {
 
 	protected Controller controller;
 
+	/**
+	 * The maximum number of placements proposed to the user when a request is placed automatically.
+	 */
+	private static final int MAX_ALTERNATIVES = 10;
+
 	/**
 	 * Constructor of AddDeliveryStopState. When the AddDeliveryStopState is created,its
 	 * controller is initialized with a controller passed as a parameter.
@@ -62,8 +71,10 @@ public class AddDeliveryStopState implements State {
 	@Override
 	public void loadRequests(String xmlFile, DrawnMap drawnMap) {
 		try {
-			controller.parseFile(xmlFile);
-			new RoadMap(controller, drawnMap);
+			if (!controller.loadFile(xmlFile)) {
+				// cancelled by the user, nothing has changed
+				return;
+			}
 			controller.setCurrentState(controller.getRequestsLoadedState());
 			controller.getMenu().getLoadRequestsFrame().closeLoadRequests();
 			controller.getMenu().disableUndo();
@@ -110,7 +121,13 @@ public class AddDeliveryStopState implements State {
 	}
 
 	/**
-	 * Changes state to AddDeliveryPredecessorState
+	 * Changes state to AddDeliveryPredecessorState.
+	 * If the request is placed automatically, the possible insertions in the tour are 
+	 * computed and the user chooses one of the cheapest, the cheapest being selected by default. 
+	 * The request is then added at once.
+	 * 
+	 * @see Controller#computeInsertions()
+	 * @see AddDeliveryStopState#chooseInsertion(ArrayList)
 	 */
 	@Override
 	public void clicIntersection(Stop stopCreated) {
@@ -119,12 +136,67 @@ public class AddDeliveryStopState implements State {
 			stop.setOriginatedSegments(stopCreated.getOriginatedSegments());
 			controller.getMap().getTour().setDeliveryStop(stop);
 			controller.setCurrentState(controller.getAddDeliveryPredecessorState());
-			controller.getMenu().instructionsSetText("Select the stop predecessor");
+			if (controller.isAutomaticInsertion()) {
+				ArrayList<Insertion> insertions = controller.computeInsertions();
+				if (insertions.isEmpty()) {
+					cancel();
+					JOptionPane.showMessageDialog(null, "The request cannot be placed in the tour");
+					return;
+				}
+				Insertion chosen = chooseInsertion(insertions);
+				if (chosen == null) {
+					cancel();
+					return;
+				}
+				controller.getMap().getTour().setPickupStopPredecessor(chosen.getPickupPredecessor());
+				controller.addRequest(chosen.getDeliveryPredecessor());
+				if (controller.getCurrentState() != controller.getComputedTourState()) {
+					// the request was refused, the user has been told why
+					controller.cancel();
+					return;
+				}
+				controller.getMenu().instructionsSetText("<html><body>Request placed (+"
+						+ Math.round(chosen.getAddedDuration() / 60) + " min).<br>" + insertions.size()
+						+ " positions were evaluated.</body></html>");
+			} else {
+				Tour tour = controller.getMap().getTour();
+				tour.setInsertionCosts(controller.getMap().computeDeliveryInsertionCosts(tour.getPickupStop(),
+						tour.getPickupStopPredecessor(), stop));
+				controller.getMenu().instructionsSetText("<html><body>Select the stop predecessor.<br>"
+						+ "Hover a stop to see the duration added to the tour.</body></html>");
+			}
 		} catch (Exception e) {
 			JOptionPane.showMessageDialog(null, e);
 		}
 	}
 
+	/**
+	 * Asks the user where the request is placed, among the cheapest insertions.
+	 * 
+	 * @param insertions The possible insertions, from the cheapest to the most expensive.
+	 * @return The insertion chosen by the user, null if the user cancelled.
+	 * 
+	 * @see Model.Insertion
+	 */
+	private Insertion chooseInsertion(ArrayList<Insertion> insertions) {
+		ArrayList<Stop> orderedTravel = controller.getMap().getTour().getOrderedTravel();
+		String[] choices = new String[Math.min(insertions.size(), MAX_ALTERNATIVES)];
+		for (int i = 0; i < choices.length; i++) {
+			Insertion insertion = insertions.get(i);
+			int pickupIndex = orderedTravel.indexOf(insertion.getPickupPredecessor());
+			int deliveryIndex = orderedTravel.indexOf(insertion.getDeliveryPredecessor());
+			choices[i] = "Pickup after " + (pickupIndex == 0 ? "the tour departure" : "stop n" + pickupIndex)
+					+ ", delivery " + (deliveryIndex == pickupIndex ? "right after the pickup" : "after stop n" + deliveryIndex)
+					+ " : +" + Math.round(insertion.getAddedDuration() / 60) + " min";
+		}
+		Object choice = JOptionPane.showInputDialog(null, "Choose where the request is placed in the tour:",
+				"Automatic placement", JOptionPane.QUESTION_MESSAGE, null, choices, choices[0]);
+		if (choice == null) {
+			return null;
+		}
+		return insertions.get(Arrays.asList(choices).indexOf(choice));
+	}
+
 	/**
 	 * Cancels the adding or deleting of a request in the tour.
 	 */
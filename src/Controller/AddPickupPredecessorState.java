@@ -2,11 +2,11 @@ package Controller;
 
 import javax.swing.JOptionPane;
 
+import Model.InsertionRejection;
 import Model.Stop;
 import View.DrawnMap;
 import View.LandingPage;
 import View.LoadRequests;
-import View.RoadMap;
 
 /**
  * Implements State interface.
@@ -59,8 +59,10 @@ public class AddPickupPredecessorState implements State {
 	@Override
 	public void loadRequests(String xmlFile, DrawnMap drawnMap) {
 		try {
-			controller.parseFile(xmlFile);
-			new RoadMap(controller, drawnMap);
+			if (!controller.loadFile(xmlFile)) {
+				// cancelled by the user, nothing has changed
+				return;
+			}
 			controller.setCurrentState(controller.getRequestsLoadedState());
 			System.out.println("change from ModifiedTourState to RequestLoadState");
 			controller.getMenu().getLoadRequestsFrame().closeLoadRequests();
@@ -110,16 +112,32 @@ public class AddPickupPredecessorState implements State {
 
 	/**
 	 * Saves the selected stop and changes state to AddDeliveryStopState.
+	 * If the precomputed insertion cost of the selected stop says that the pickup cannot follow it,
+	 * a pop-up displays the reason and the user can select another stop.
 	 * 
 	 * @param stop The selected pickup predecessor stop for the new request 
 	 * that will be added to the tour.
 	 * 
 	 * @see AddDeliveryStopState
+	 * @see Model.Map#computePickupInsertionCosts(Stop)
+	 * @see Model.InsertionRejection
 	 */
 	@Override
 	public void clicStop(Stop stop) {
 		try {
+			float[] insertionCosts = controller.getMap().getTour().getInsertionCosts();
+			int index = controller.getMap().getTour().getOrderedTravel().indexOf(stop);
+			if (insertionCosts != null && index >= 0 && index < insertionCosts.length
+					&& insertionCosts[index] == Float.MAX_VALUE) {
+				InsertionRejection[] rejections = controller.getMap().getTour().getInsertionRejections();
+				String reason = rejections != null && rejections[index] != null
+						? ": " + rejections[index].getMessage() : "";
+				JOptionPane.showMessageDialog(null,
+						"The pickup stop cannot be placed after this stop" + reason + ". Select another stop.");
+				return;
+			}
 			controller.getMap().getTour().setPickupStopPredecessor(stop);
+			controller.getMap().getTour().setInsertionCosts(null);
 			controller.setCurrentState(controller.getAddDeliveryStopState());
 			controller.getMenu().instructionsSetText("Select the delivery intersection.");
 		} catch (Exception e) {
@@ -136,6 +154,7 @@ public class AddPickupPredecessorState implements State {
 	 * @see Controller.ComputedTourState
 	 */
 	public void cancel() {
+		controller.getMap().getTour().setInsertionCosts(null);
 		controller.setCurrentState(controller.getComputedTourState());
 		controller.getMenu().getDrawnMap().add = false;
 		controller.getMenu().instructionsSetText("You can add and delete requests.");
@@ -6,7 +6,6 @@ import Model.Stop;
 import View.DrawnMap;
 import View.LandingPage;
 import View.LoadRequests;
-import View.RoadMap;
 
 /**
  * Implements the Interface State used for the state design pattern.
@@ -64,8 +63,10 @@ public class AddPickupStopState implements State {
 	@Override
 	public void loadRequests(String xmlFile, DrawnMap drawnMap) {
 		try {
-			controller.parseFile(xmlFile);
-			new RoadMap(controller, drawnMap);
+			if (!controller.loadFile(xmlFile)) {
+				// cancelled by the user, nothing has changed
+				return;
+			}
 			controller.setCurrentState(controller.getRequestsLoadedState());
 			controller.getMenu().getLoadRequestsFrame().closeLoadRequests();
 			controller.getMenu().disableUndo();
@@ -110,14 +111,42 @@ public class AddPickupStopState implements State {
 	}
 	
 	/**
-	 * Changes state to AddPickupPredecessorState.
+	 * Changes state to AddPickupPredecessorState, 
+	 * or directly to AddDeliveryStopState if the request is placed automatically.
+	 * When the capacity of the vehicle is limited, the demand of the request is asked first. 
+	 * It must be a number between 0 and the capacity, otherwise the user has to click again.
 	 */
 	@Override
 	public void clicIntersection(Stop stopCreated) {
 		try {
 			controller.getMap().getTour().setPickupStop(stopCreated);
-			controller.setCurrentState(controller.getAddPickupPredecessorState());
-			controller.getMenu().instructionsSetText("Select the stop predecessor");
+			controller.getMap().getTour().setRequestDemand(0);
+			if (controller.getMap().getTour().getCapacity() != Integer.MAX_VALUE) {
+				Object popUpDemand = JOptionPane.showInputDialog(null, "Enter demand:", 0);
+				if (popUpDemand != null) {
+					int demand;
+					try {
+						demand = Integer.parseInt(popUpDemand.toString().trim());
+					} catch (NumberFormatException e) {
+						demand = -1;
+					}
+					if (demand < 0 || demand > controller.getMap().getTour().getCapacity()) {
+						JOptionPane.showMessageDialog(null, "The demand must be a number between 0 and "
+								+ controller.getMap().getTour().getCapacity() + ", the capacity of the vehicle.");
+						return;
+					}
+					controller.getMap().getTour().setRequestDemand(demand);
+				}
+			}
+			if (controller.isAutomaticInsertion()) {
+				controller.setCurrentState(controller.getAddDeliveryStopState());
+				controller.getMenu().instructionsSetText("Select the delivery intersection.");
+			} else {
+				controller.getMap().getTour().setInsertionCosts(controller.getMap().computePickupInsertionCosts(stopCreated));
+				controller.setCurrentState(controller.getAddPickupPredecessorState());
+				controller.getMenu().instructionsSetText("<html><body>Select the stop predecessor.<br>"
+						+ "Hover a stop to see the duration added to the tour.</body></html>");
+			}
 		} catch (Exception e) {
 			JOptionPane.showMessageDialog(null, e);
 		}	
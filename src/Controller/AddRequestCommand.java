@@ -17,6 +17,7 @@ import Model.Stop;
  * request we want to add.</li>
  * <li>A delivery predecessor which is the predecessor of the delivery stop of
  * the request we want to add.</li>
+ * <li>The failure of the last execution, null if the request was added.</li>
  * </ul>
  * 
  * @see Command
@@ -29,6 +30,7 @@ public class AddRequestCommand implements Command {
 	private Request request;
 	private Stop pickupPredecessor;
 	private Stop deliveryPredecessor;
+	private Exception failure;
 	
 	/**
 	 * Constructor of AddRequestCommand. When the AddRequestCommand is
@@ -51,6 +53,7 @@ public class AddRequestCommand implements Command {
 	public AddRequestCommand(Map map,Stop pickupStop,Stop deliveryStop, Stop pickupPredecessor, Stop deliveryPredecessor) {
 		this.map = map;
 		this.request = new Request(pickupStop,deliveryStop);
+		this.request.setDemand(map.getTour().getRequestDemand());
 		this.pickupPredecessor = pickupPredecessor;
 		this.deliveryPredecessor = deliveryPredecessor;
 	}
@@ -69,20 +72,35 @@ public class AddRequestCommand implements Command {
 			this.map.getTour().setDeliveryStop(request.getDeliveryStop());
 			this.map.getTour().setPickupStopPredecessor(pickupPredecessor);
 			this.map.getTour().setDeliveryStopPredecessor(deliveryPredecessor);
+			this.map.getTour().setRequestDemand(request.getDemand());
 			this.map.addRequest();
+			failure = null;
 		}catch (Exception e) {
-			System.out.println(e);
+			failure = e;
 		}
 	}
 
+	/**
+	 * @return The exception thrown by the last execution of the command, 
+	 * null if the request was added to the tour.
+	 * 
+	 * @see Model.Map#addRequest()
+	 */
+	public Exception getFailure() {
+		return failure;
+	}
+
 	/**
 	 * Overrides undoCommand() of Command. It undoes the add request command and thus calls the method deleteRequest() in map
-	 * to delete the previously added request.
+	 * to delete the previously added request. Nothing is done if the request could not be added.
 	 * @see Command#undoCommand()
 	 * @see Model.Map#deleteRequest(Request)
 	 */
 	@Override
 	public void undoCommand() {
+		if (failure != null) {
+			return;
+		}
 		try {
 			this.map.deleteRequest(request);
 		}catch(Exception e) {
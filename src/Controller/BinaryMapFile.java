@@ -0,0 +1,285 @@
+package Controller;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import javax.xml.stream.XMLStreamReader;
+
+import Model.Intersection;
+import Model.Segment;
+
+/**
+ * BinaryMapFile reads and writes maps in a compact binary format, faster to open than an XML map file.
+ *
+ * A binary map file is composed of, in big-endian order:
+ * <ul>
+ * <li>A header: the magic number, the version of the format, the number of intersections,
+ * the number of segments, the number of street names and the size in bytes of the names.</li>
+ * <li>The ids of the intersections, sorted. The index of an intersection in this array is its dense id.</li>
+ * <li>The latitudes, then the longitudes of the intersections.</li>
+ * <li>The segments in compressed sparse rows: the offset of the first segment of each intersection
+ * (plus a last offset), then the dense id of the arrival intersection, the length and the name index of each segment.</li>
+ * <li>The street names table: the offset of each name (plus a last offset) followed by the UTF-8 bytes
+ * of the names. Each name is stored once.</li>
+ * </ul>
+ *
+ * The file is mapped in memory to be loaded, so no text is parsed.
+ * A binary map file is created from an XML map file with the main method of this class.
+ *
+ * @author H4122
+ *
+ * @see Controller.Controller#parseFile(String)
+ * @see Model.Map
+ */
+public class BinaryMapFile {
+
+	/**
+	 * The first four bytes of a binary map file ("DIFM").
+	 */
+	public static final int MAGIC = 0x4449464D;
+
+	/**
+	 * The version of the format, to be increased when the format changes.
+	 */
+	public static final int VERSION = 1;
+
+	private static final int HEADER_SIZE = 6 * Integer.BYTES;
+
+	/**
+	 * Tests if a file is a binary map file, by its first four bytes.
+	 *
+	 * @param fileName The path of the file.
+	 * @return TRUE if the file begins with the magic number of binary map files.
+	 *
+	 * @throws IOException If the file cannot be read.
+	 */
+	public static boolean isBinaryMapFile(String fileName) throws IOException {
+		try (InputStream input = new FileInputStream(fileName)) {
+			byte[] magic = new byte[Integer.BYTES];
+			return input.read(magic) == magic.length && ByteBuffer.wrap(magic).getInt() == MAGIC;
+		}
+	}
+
+	/**
+	 * Loads a binary map file by mapping it in memory.
+	 *
+	 * @param fileName The path of the binary map file.
+	 * @return The SortedMap of ids and intersections of the map, with their originated segments.
+	 *
+	 * @throws Exception If the file is not a valid binary map file.
+	 */
+	public static SortedMap<Long, Intersection> read(String fileName) throws Exception {
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+			if (channel.size() < HEADER_SIZE) {
+				throw new Exception("Unknown file type Exception");
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				throw new Exception("Unknown file type Exception");
+			}
+			int nbIntersections = buffer.getInt();
+			int nbSegments = buffer.getInt();
+			int nbNames = buffer.getInt();
+			int namesSize = buffer.getInt();
+			long expectedSize = HEADER_SIZE + (long) nbIntersections * (Long.BYTES + 2 * Float.BYTES + Integer.BYTES)
+					+ Integer.BYTES + (long) nbSegments * (Integer.BYTES + Float.BYTES + Integer.BYTES)
+					+ (long) (nbNames + 1) * Integer.BYTES + namesSize;
+			if (nbIntersections < 0 || nbSegments < 0 || nbNames < 0 || namesSize < 0
+					|| expectedSize != channel.size()) {
+				throw new Exception("Unknown file type Exception");
+			}
+
+			long[] ids = new long[nbIntersections];
+			float[] latitudes = new float[nbIntersections];
+			float[] longitudes = new float[nbIntersections];
+			int[] offsets = new int[nbIntersections + 1];
+			int[] arrivals = new int[nbSegments];
+			float[] lengths = new float[nbSegments];
+			int[] nameIndexes = new int[nbSegments];
+			int[] nameOffsets = new int[nbNames + 1];
+			byte[] nameBytes = new byte[namesSize];
+
+			buffer.asLongBuffer().get(ids);
+			buffer.position(buffer.position() + nbIntersections * Long.BYTES);
+			buffer.asFloatBuffer().get(latitudes);
+			buffer.position(buffer.position() + nbIntersections * Float.BYTES);
+			buffer.asFloatBuffer().get(longitudes);
+			buffer.position(buffer.position() + nbIntersections * Float.BYTES);
+			buffer.asIntBuffer().get(offsets);
+			buffer.position(buffer.position() + (nbIntersections + 1) * Integer.BYTES);
+			buffer.asIntBuffer().get(arrivals);
+			buffer.position(buffer.position() + nbSegments * Integer.BYTES);
+			buffer.asFloatBuffer().get(lengths);
+			buffer.position(buffer.position() + nbSegments * Float.BYTES);
+			buffer.asIntBuffer().get(nameIndexes);
+			buffer.position(buffer.position() + nbSegments * Integer.BYTES);
+			buffer.asIntBuffer().get(nameOffsets);
+			buffer.position(buffer.position() + (nbNames + 1) * Integer.BYTES);
+			buffer.get(nameBytes);
+
+			String[] names = new String[nbNames];
+			for (int k = 0; k < nbNames; k++) {
+				if (nameOffsets[k] < 0 || nameOffsets[k] > nameOffsets[k + 1] || nameOffsets[k + 1] > namesSize) {
+					throw new Exception("Unknown file type Exception");
+				}
+				names[k] = new String(nameBytes, nameOffsets[k], nameOffsets[k + 1] - nameOffsets[k],
+						StandardCharsets.UTF_8);
+			}
+
+			Intersection[] intersections = new Intersection[nbIntersections];
+			SortedMap<Long, Intersection> intersectionsById = new TreeMap<>();
+			for (int i = 0; i < nbIntersections; i++) {
+				intersections[i] = new Intersection(ids[i], latitudes[i], longitudes[i]);
+				intersectionsById.put(ids[i], intersections[i]);
+			}
+			if (offsets[0] != 0 || offsets[nbIntersections] != nbSegments) {
+				throw new Exception("Unknown file type Exception");
+			}
+			for (int i = 0; i < nbIntersections; i++) {
+				if (offsets[i] > offsets[i + 1]) {
+					throw new Exception("Unknown file type Exception");
+				}
+				for (int s = offsets[i]; s < offsets[i + 1]; s++) {
+					if (arrivals[s] < 0 || arrivals[s] >= nbIntersections) {
+						throw new Exception("Non existent intersection in MapFile Exception");
+					}
+					if (nameIndexes[s] < 0 || nameIndexes[s] >= nbNames) {
+						throw new Exception("Unknown file type Exception");
+					}
+					intersections[i].addSegment(
+							new Segment(intersections[i], intersections[arrivals[s]], lengths[s], names[nameIndexes[s]]));
+				}
+			}
+			return intersectionsById;
+		}
+	}
+
+	/**
+	 * Writes a map in a binary map file.
+	 *
+	 * @param intersections The SortedMap of ids and intersections of the map.
+	 * @param fileName The path of the binary map file to create.
+	 *
+	 * @throws IOException If the file cannot be written.
+	 */
+	public static void write(SortedMap<Long, Intersection> intersections, String fileName) throws IOException {
+		int nbIntersections = intersections.size();
+		HashMap<Long, Integer> denseIds = new HashMap<Long, Integer>();
+		for (Intersection intersection : intersections.values()) {
+			denseIds.put(intersection.getId(), denseIds.size());
+		}
+
+		// deduplicated street names
+		HashMap<String, Integer> nameIndexes = new HashMap<String, Integer>();
+		ArrayList<byte[]> names = new ArrayList<byte[]>();
+		int nbSegments = 0;
+		int namesSize = 0;
+		for (Intersection intersection : intersections.values()) {
+			for (Segment segment : intersection.getOriginatedSegments()) {
+				nbSegments++;
+				String name = segment.getName() == null ? "" : segment.getName();
+				if (!nameIndexes.containsKey(name)) {
+					nameIndexes.put(name, names.size());
+					byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+					names.add(bytes);
+					namesSize += bytes.length;
+				}
+			}
+		}
+
+		try (DataOutputStream output = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(fileName)))) {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeInt(nbIntersections);
+			output.writeInt(nbSegments);
+			output.writeInt(names.size());
+			output.writeInt(namesSize);
+			for (Intersection intersection : intersections.values()) {
+				output.writeLong(intersection.getId());
+			}
+			for (Intersection intersection : intersections.values()) {
+				output.writeFloat(intersection.getLatitude());
+			}
+			for (Intersection intersection : intersections.values()) {
+				output.writeFloat(intersection.getLongitude());
+			}
+			int offset = 0;
+			for (Intersection intersection : intersections.values()) {
+				output.writeInt(offset);
+				offset += intersection.getOriginatedSegments().size();
+			}
+			output.writeInt(offset);
+			for (Intersection intersection : intersections.values()) {
+				for (Segment segment : intersection.getOriginatedSegments()) {
+					output.writeInt(denseIds.get(segment.getArrivalIntersection().getId()));
+				}
+			}
+			for (Intersection intersection : intersections.values()) {
+				for (Segment segment : intersection.getOriginatedSegments()) {
+					output.writeFloat(segment.getLength());
+				}
+			}
+			for (Intersection intersection : intersections.values()) {
+				for (Segment segment : intersection.getOriginatedSegments()) {
+					output.writeInt(nameIndexes.get(segment.getName() == null ? "" : segment.getName()));
+				}
+			}
+			int nameOffset = 0;
+			for (byte[] name : names) {
+				output.writeInt(nameOffset);
+				nameOffset += name.length;
+			}
+			output.writeInt(nameOffset);
+			for (byte[] name : names) {
+				output.write(name);
+			}
+		}
+	}
+
+	/**
+	 * Converts an XML map file, compressed with gzip or not, into a binary map file.<br/>
+	 *
+	 * Usage: BinaryMapFile mapFile.xml [mapFile.map]
+	 *
+	 * @param args The path of the XML map file, and optionally the path of the binary map file to create
+	 * (the XML path with the extension .map by default).
+	 *
+	 * @throws Exception If the XML map file cannot be parsed or the binary file cannot be written.
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.out.println("Usage: BinaryMapFile mapFile.xml [mapFile.map]");
+			return;
+		}
+		String output = args.length > 1 ? args[1] : args[0].replaceFirst("\\.xml(\\.gz)?$", "") + ".map";
+		SortedMap<Long, Intersection> intersections;
+		try (InputStream input = Controller.openXMLStream(new FileInputStream(args[0]))) {
+			XMLStreamReader reader = Controller.createXMLStreamReader(input);
+			try {
+				if (!reader.getLocalName().equals("map")) {
+					throw new Exception("Unknown root tag in xml file Exception");
+				}
+				intersections = Controller.readMap(reader);
+			} finally {
+				reader.close();
+			}
+		}
+		write(intersections, output);
+		System.out.println(intersections.size() + " intersections written in " + output);
+	}
+}
@@ -1,12 +1,20 @@
 package Controller;
 
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 
 import Model.Request;
+import Model.Tour;
 import View.DrawnMap;
 import View.LandingPage;
 import View.LoadRequests;
-import View.RoadMap;
+import View.ProgressDialog;
 
 /**
  * Implements the Interface State used for the state design pattern.
@@ -24,6 +32,20 @@ import View.RoadMap;
  */
 public class ComputedTourState implements State {
 
+	/**
+	 * The time limit in milliseconds given to the optimisation of each vehicle route.
+	 */
+	private static final int FLEET_TIME_LIMIT = 5000;
+
+	/**
+	 * The thread sharing the requests of the tour between the vehicles.
+	 */
+	private static final ExecutorService FLEET_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "fleet-planner");
+		thread.setDaemon(true);
+		return thread;
+	});
+
 	protected Controller controller;
 
 	/**
@@ -64,8 +86,10 @@ public class ComputedTourState implements State {
 	@Override
 	public void loadRequests(String xmlFile, DrawnMap drawnMap) {
 		try {
-			controller.parseFile(xmlFile);
-			new RoadMap(controller, drawnMap);
+			if (!controller.loadFile(xmlFile)) {
+				// cancelled by the user, nothing has changed
+				return;
+			}
 			controller.setCurrentState(controller.getRequestsLoadedState());
 			controller.getMenu().getLoadRequestsFrame().closeLoadRequests();
 			controller.getMenu().disableUndo();
@@ -130,6 +154,63 @@ public class ComputedTourState implements State {
 		}
 	}
 
+	/**
+	 * Shares the requests of the tour between <code>fleetSize</code> vehicles in the background, 
+	 * then displays the number of requests and the return time of each vehicle.
+	 * A dialog lets the user cancel the sharing meanwhile.
+	 * The tours of the vehicles are saved in the map, the tour displayed is not modified.
+	 * 
+	 * @see Controller#computeFleetTours(int)
+	 * @see View.ProgressDialog
+	 */
+	@Override
+	public void shareTour(int fleetSize) {
+		controller.setFleetSize(fleetSize);
+		ProgressDialog dialog = new ProgressDialog("Sharing the tour between " + fleetSize + " vehicles...");
+		Future<?> sharing = FLEET_EXECUTOR.submit(() -> {
+			try {
+				ArrayList<Tour> fleetTours = controller.computeFleetTours(FLEET_TIME_LIMIT);
+				SwingUtilities.invokeLater(() -> {
+					dialog.dispose();
+					if (!dialog.isCancelled()) {
+						controller.getMap().setFleetTours(fleetTours);
+						showFleetTours(fleetTours);
+					}
+				});
+			} catch (Exception e) {
+				SwingUtilities.invokeLater(() -> {
+					dialog.dispose();
+					if (!dialog.isCancelled()) {
+						JOptionPane.showMessageDialog(null, e);
+					}
+				});
+			}
+		});
+		dialog.setCancelAction(() -> sharing.cancel(true));
+		// the dialog is modal: the events are dispatched until the end of the sharing
+		dialog.setVisible(true);
+	}
+
+	/**
+	 * Displays the number of requests and the return time of each vehicle.
+	 * 
+	 * @param fleetTours The tours of the vehicles.
+	 */
+	private void showFleetTours(ArrayList<Tour> fleetTours) {
+		SimpleDateFormat format = new SimpleDateFormat("HH:mm:ss");
+		String summary = "<html><body>";
+		for (int vehicle = 0; vehicle < fleetTours.size(); vehicle++) {
+			Tour tour = fleetTours.get(vehicle);
+			summary += "Vehicle " + (vehicle + 1) + ": " + tour.getTourRequests().size() + " request(s)";
+			if (tour.getArrivalTime() != null) {
+				summary += ", back at " + format.format(tour.getArrivalTime());
+			}
+			summary += "<br>";
+		}
+		JOptionPane.showMessageDialog(null, summary + "</body></html>", "Tours of the vehicles",
+				JOptionPane.INFORMATION_MESSAGE);
+	}
+
 	/**
 	 * Undoes the last command of the <code>listOfCommands</code>.
 	 */
@@ -1,38 +1,52 @@
 package Controller;
 
-import java.io.File;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
-
-import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import Model.CompleteGraph;
+import Model.DistanceMatrixPipeline;
+import Model.FleetPlanner;
+import Model.Insertion;
 import Model.Path;
 import Model.Intersection;
 import Model.Map;
 import Model.MapBoundaries;
 import Model.Request;
 import Model.Segment;
+import Model.ShortestPathTree;
+import Model.ShortestPathTreeStore;
 import Model.Stop;
 import Model.TSP;
 import Model.TSP1;
 import Model.Tour;
+import Model.WorkingRegion;
 import View.DrawnMap;
 import View.LandingPage;
+import View.LoadingDialog;
 import View.Menu;
 
 /**
@@ -45,6 +59,7 @@ import View.Menu;
  * <li>A matrix with shortest paths between two stops.</li>
  * <li>A class that helps to compute the tour using the TSP algorithm.</li>
  * <li>A list of commands.</li>
+ * <li>A cache of the maps and of the shortest paths already computed.</li>
  * </ul>
  * A list of states:
  * <ul>
@@ -68,6 +83,7 @@ import View.Menu;
  * @author H4122
  * 
  * @see Controller.ListOfCommands
+ * @see Controller.MapCache
  * @see Controller.State
  * @see Model.Map
  * @see Model.Path
@@ -206,6 +222,11 @@ public class Controller {
 	 */
 	private TSP tsp;
 
+	/**
+	 * The size in bytes of the buffers used to read and decompress the files.
+	 */
+	private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
 	/**
 	 * A matrix with shortest paths between two stops.
 	 * 
@@ -214,6 +235,119 @@ public class Controller {
 	 */
 	private Path[][] paths;
 
+	/**
+	 * Indicates if a new request is placed automatically at the cheapest position of the tour
+	 * instead of asking the user for the predecessors of its stops.
+	 * 
+	 * @see Controller#computeInsertions()
+	 */
+	private boolean automaticInsertion;
+
+	/**
+	 * The possible placements of the last request added automatically, from the cheapest to the most expensive.
+	 * 
+	 * @see Model.Insertion
+	 */
+	private ArrayList<Insertion> insertionAlternatives = new ArrayList<Insertion>();
+
+	/**
+	 * The number of vehicles leaving from the tour departure.
+	 * 
+	 * @see Controller#computeFleetTours(int)
+	 */
+	private int fleetSize = 1;
+
+	/**
+	 * Indicates if the shortest paths between the stops are searched in the working region 
+	 * of the stops instead of the whole map.
+	 * 
+	 * @see Model.WorkingRegion
+	 */
+	private boolean regionRouting;
+
+	/**
+	 * The working region of the stops of the tour, computed with the graph of the stops 
+	 * and grown when a path found inside it is not proven to be the shortest.
+	 * 
+	 * @see Controller#computeShortestPathsInRegion(Stop, ArrayList)
+	 */
+	private WorkingRegion workingRegion;
+
+	/**
+	 * The shortest paths being computed from the stops of the last requests file, 
+	 * started while the file was parsed. They are used by the next computation of the graph of the stops.
+	 * 
+	 * @see Model.DistanceMatrixPipeline
+	 */
+	private DistanceMatrixPipeline pipeline;
+
+	/**
+	 * The thread computing the graph of the stops in the background, with a low priority.
+	 * It also writes the new shortest paths in the cache of the maps.
+	 * 
+	 * @see Controller#startPrecomputation()
+	 */
+	private static final ExecutorService PRECOMPUTATION_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "stops-graph");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		return thread;
+	});
+
+	/**
+	 * The computation of the graph of the stops started in the background when the requests were loaded, 
+	 * null if there is none.
+	 * 
+	 * @see Controller#startPrecomputation()
+	 */
+	private volatile Future<CompleteGraph> precomputation;
+
+	/**
+	 * The computation of the shortest path trees of the stops of the computed tour, started in the background 
+	 * when the tour was computed or modified, null if there is none.
+	 * 
+	 * @see Controller#startTreePrecomputation()
+	 */
+	private volatile Future<?> treePrecomputation;
+
+	/**
+	 * The cache of the maps and of the shortest paths already computed, kept on disk between sessions.
+	 * 
+	 * @see Controller.MapCache
+	 */
+	private MapCache mapCache;
+
+	/**
+	 * The key in the cache of the loaded map file.
+	 * 
+	 * @see Controller.MapCache#computeKey(InputStream)
+	 */
+	private String mapKey;
+
+	/**
+	 * The shortest paths already computed on the loaded map, by id of their departure intersection, 
+	 * then by id of their arrival intersection. The stops of these paths are not set.
+	 * 
+	 * @see Controller#computeShortestPaths(Stop, ArrayList)
+	 */
+	private HashMap<Long, HashMap<Long, Path>> knownPaths = new HashMap<Long, HashMap<Long, Path>>();
+
+	/**
+	 * The ids of the departure intersections of the known paths. Unlike the known paths, they can be read 
+	 * while a file is parsed, when the computation in the background may add paths at the same time.
+	 * 
+	 * @see Controller#submitToPipeline(DistanceMatrixPipeline, Intersection)
+	 */
+	private Set<Long> knownDepartures = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * The shortest paths computed since the known paths were saved in the cache, 
+	 * by id of their departure intersection, then by id of their arrival intersection.
+	 * 
+	 * @see Controller.MapCache#appendPaths(String, HashMap)
+	 */
+	private HashMap<Long, HashMap<Long, Path>> newPaths = new HashMap<Long, HashMap<Long, Path>>();
+
 	// ------------------------------ CONSTRUCTORS
 	/**
 	 * Default class constructor.
@@ -237,6 +371,7 @@ public class Controller {
 		this.landingPage = new LandingPage(this);
 		this.menu = null;
 		this.listOfCommands = new ListOfCommands();
+		this.mapCache = new MapCache();
 	}
 
 	/**
@@ -264,6 +399,7 @@ public class Controller {
 		this.landingPage = new LandingPage(this);
 		this.menu = null;
 		this.listOfCommands = new ListOfCommands();
+		this.mapCache = new MapCache();
 	}
 	// ------------------------------ CONSTRUCTORS END
 
@@ -306,6 +442,10 @@ public class Controller {
 
 	public void setCurrentState(State currentState) {
 		this.currentState = currentState;
+		if (currentState == computedTourState) {
+			// the next operations are likely to be additions and deletions of requests
+			startTreePrecomputation();
+		}
 	}
 
 	public State getInitialState() {
@@ -359,6 +499,46 @@ public class Controller {
 	public ListOfCommands getListOfCommands() {
 		return listOfCommands;
 	}
+
+	public boolean isAutomaticInsertion() {
+		return automaticInsertion;
+	}
+
+	public void setAutomaticInsertion(boolean automaticInsertion) {
+		this.automaticInsertion = automaticInsertion;
+	}
+
+	public ArrayList<Insertion> getInsertionAlternatives() {
+		return insertionAlternatives;
+	}
+
+	public MapCache getMapCache() {
+		return mapCache;
+	}
+
+	public void setMapCache(MapCache mapCache) {
+		this.mapCache = mapCache;
+	}
+
+	public boolean isRegionRouting() {
+		return regionRouting;
+	}
+
+	public void setRegionRouting(boolean regionRouting) {
+		this.regionRouting = regionRouting;
+	}
+
+	public WorkingRegion getWorkingRegion() {
+		return workingRegion;
+	}
+
+	public int getFleetSize() {
+		return fleetSize;
+	}
+
+	public void setFleetSize(int fleetSize) {
+		this.fleetSize = fleetSize;
+	}
 	// ------------------------------ GETTERS AND SETTERS END
 
 	// ------------------------------STATE DESIGN PATTERN METHODS
@@ -404,6 +584,17 @@ public class Controller {
 	public void computeTour() {
 		currentState.computeTour();
 	}
+
+	/**
+	 * Calls the same-name method of current state.
+	 * 
+	 * @param fleetSize The number of vehicles sharing the requests of the tour.
+	 * 
+	 * @see Controller.State#shareTour(int)
+	 */
+	public void shareTour(int fleetSize) {
+		currentState.shareTour(fleetSize);
+	}
 	
 	/**
 	 * Calls the same-name method of current state.
@@ -508,6 +699,9 @@ public class Controller {
 	 */
 	public void undo() {
 		currentState.undo(listOfCommands);
+		if (currentState == computedTourState) {
+			startTreePrecomputation();
+		}
 	}
 	
 	/**
@@ -518,6 +712,9 @@ public class Controller {
 	 */
 	public void redo() {
 		currentState.redo(listOfCommands);
+		if (currentState == computedTourState) {
+			startTreePrecomputation();
+		}
 	}
 	
 	/**
@@ -534,211 +731,514 @@ public class Controller {
 
 	/**
 	 * Parses the xml file with a given path and calls parseMap if the file is a map file
-	 * or parseRequests if the file is a requests file
+	 * or parseRequests if the file is a requests file.
+	 * The file is read in a single pass with a StAX stream reader, DTD and external entities are disabled.
+	 * A binary map file is loaded directly.
 	 * 
 	 * @param fileName the path to the location of the file
 	 * 
 	 * @throws Exception when the file cannot be parsed for a given reason
 	 * 
-	 * @see Controller.Controller#parseMap(org.w3c.dom.Document)
-	 * @see Controller.Controller#parseRequests(org.w3c.dom.Document)
+	 * @see Controller.Controller#parseMap(XMLStreamReader)
+	 * @see Controller.Controller#parseRequests(XMLStreamReader)
+	 * @see Controller.BinaryMapFile
+	 * @see Controller.MapCache
 	 */
 	public void parseFile(String fileName) throws Exception {
+		readFile(fileName, null).run();
+	}
 
-		DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+	/**
+	 * Reads a map file or a requests file without modifying the model, so that it can be done 
+	 * outside the event dispatch thread. The file is read through the loader given in parameter, 
+	 * which reports the progress and can interrupt the reading.
+	 * 
+	 * @param fileName the path to the location of the file
+	 * @param loader The loader reading the file, null if the file is read directly.
+	 * @return The installation that sets the content of the file in the model.
+	 * 
+	 * @throws Exception when the file cannot be parsed for a given reason
+	 * 
+	 * @see Controller.Controller#parseFile(String)
+	 * @see Controller.FileLoader
+	 */
+	Installation readFile(String fileName, FileLoader loader) throws Exception {
+
+		String key = null;
+		if (currentState.equals(initialState) && mapCache != null) {
+			// a map already loaded in a previous session is not parsed again
+			// hashed through the loader, which reports the progress and can interrupt the reading
+			try (InputStream input = loader == null ? new FileInputStream(fileName) : loader.openFile()) {
+				key = mapCache.computeKey(input);
+			}
+			SortedMap<Long, Intersection> intersections = mapCache.loadMap(key);
+			if (intersections != null) {
+				return installMap(intersections, key, mapCache.loadPaths(key, intersections));
+			}
+		}
 
-		try {
+		if (BinaryMapFile.isBinaryMapFile(fileName)) {
+			if (!currentState.equals(initialState)) {
+				throw new Exception("Unknown root tag in xml file Exception");
+			}
+			return installMap(BinaryMapFile.read(fileName), key, new HashMap<Long, HashMap<Long, Path>>());
+		}
 
-			// process XML securely
-			dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+		try (InputStream input = openXMLStream(loader == null ? new FileInputStream(fileName) : loader.openFile())) {
+			XMLStreamReader reader = createXMLStreamReader(input);
+			try {
+				String rootTag = reader.getLocalName();
+
+				if (rootTag.equals("map") && currentState.equals(initialState)) {
+					SortedMap<Long, Intersection> intersections = readMap(reader);
+					// written here, outside the event dispatch thread
+					if (key != null) {
+						mapCache.saveMap(key, intersections);
+					}
+					return installMap(intersections, key, new HashMap<Long, HashMap<Long, Path>>());
+				} else if (rootTag.equals("planningRequest") && (currentState.equals(mapLoadedState)
+						|| currentState.equals(requestsLoadedState) || currentState.equals(computedTourState) ||
+						currentState.equals(addDeliveryPredecessorState) || currentState.equals(addDeliveryStopState)
+						|| currentState.equals(addPickupPredecessorState) || currentState.equals(addPickupStopState)
+						|| currentState.equals(deleteRequestState)
+						))
+					return readRequests(reader);
+				else
+					throw new Exception("Unknown root tag in xml file Exception");
+			} finally {
+				reader.close();
+			}
 
-			// parse XML file
-			DocumentBuilder db = dbf.newDocumentBuilder();
+		} catch (XMLStreamException | IOException e) {
+			throw new Exception("Unknown file type Exception");
+		}
+	}
 
-			Document doc = db.parse(new File(fileName));
+	/**
+	 * Gives the action that sets a map read from a file in the model.
+	 * 
+	 * @param intersections The SortedMap of ids and intersections of the map.
+	 * @param key The key of the map file in the cache, null if there is no cache.
+	 * @param paths The shortest paths already known on this map.
+	 * @return The action that sets the map in the model.
+	 * 
+	 * @see Controller.MapCache
+	 */
+	private Installation installMap(SortedMap<Long, Intersection> intersections, String key, 
+			HashMap<Long, HashMap<Long, Path>> paths) {
+		return () -> {
+			// the computations in the background would read the previous map
+			cancelPrecomputation();
+			map.setIntersections(intersections);
+			map.endLoadMap();
+			mapKey = key;
+			knownPaths = paths;
+			knownDepartures.clear();
+			knownDepartures.addAll(paths.keySet());
+			newPaths = new HashMap<Long, HashMap<Long, Path>>();
+		};
+	}
 
-			doc.getDocumentElement().normalize();
+	/**
+	 * Loads a map file or a requests file outside the event dispatch thread. The progress of the loading 
+	 * is displayed in a dialog that lets the user cancel it, the window stays responsive meanwhile.
+	 * The content of the file is set in the model once the file is entirely read.
+	 * 
+	 * @param fileName the path to the location of the file
+	 * @return TRUE if the file is loaded, FALSE if the loading was cancelled by the user. 
+	 * The model is not modified in this case.
+	 * 
+	 * @throws Exception when the file cannot be parsed for a given reason
+	 * 
+	 * @see Controller.FileLoader
+	 * @see View.LoadingDialog
+	 */
+	public boolean loadFile(String fileName) throws Exception {
+		FileLoader loader = new FileLoader(this, fileName);
+		LoadingDialog dialog = new LoadingDialog(loader);
+		loader.start();
+		// the dialog is modal: the events are dispatched until the end of the loading
+		dialog.setVisible(true);
+		return loader.install();
+	}
 
-			if (doc.getDocumentElement().getNodeName() == "map" && currentState.equals(initialState))
-				parseMap(doc);
-			else if (doc.getDocumentElement().getNodeName() == "planningRequest" && (currentState.equals(mapLoadedState)
-					|| currentState.equals(requestsLoadedState) || currentState.equals(computedTourState) ||
-					currentState.equals(addDeliveryPredecessorState) || currentState.equals(addDeliveryStopState)
-					|| currentState.equals(addPickupPredecessorState) || currentState.equals(addPickupStopState)
-					|| currentState.equals(deleteRequestState)
-					))
-				parseRequests(doc);
-			else
-				throw new Exception("Unknown root tag in xml file Exception");
+	/**
+	 * Prepares the content of an XML file to be streamed to the parser. A file compressed with gzip 
+	 * (such as a .xml.gz file) is recognised by its first two bytes and decompressed while it is read, 
+	 * so it is never entirely held in memory.
+	 * 
+	 * @param file The raw content of the file.
+	 * @return A buffered stream of the XML content of the file.
+	 * 
+	 * @throws IOException If the file cannot be read.
+	 */
+	static InputStream openXMLStream(InputStream file) throws IOException {
+		BufferedInputStream input = new BufferedInputStream(file, GZIP_BUFFER_SIZE);
+		input.mark(2);
+		int first = input.read();
+		int second = input.read();
+		input.reset();
+		if (first == (GZIPInputStream.GZIP_MAGIC & 0xff) && second == (GZIPInputStream.GZIP_MAGIC >> 8)) {
+			return new BufferedInputStream(new GZIPInputStream(input, GZIP_BUFFER_SIZE), GZIP_BUFFER_SIZE);
+		}
+		return input;
+	}
 
-		} catch (ParserConfigurationException | SAXException | IOException e) {
-			throw new Exception("Unknown file type Exception");
+	/**
+	 * Creates a secure StAX stream reader (no DTD, no external entities) and moves it to the root element.
+	 * 
+	 * @param input The content of an XML file.
+	 * @return The stream reader positioned on the root element.
+	 * 
+	 * @throws XMLStreamException If the content is not a well-formed XML document.
+	 */
+	static XMLStreamReader createXMLStreamReader(InputStream input) throws XMLStreamException {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+
+		// process XML securely
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+		XMLStreamReader reader = factory.createXMLStreamReader(input);
+		while (reader.hasNext() && reader.next() != XMLStreamConstants.START_ELEMENT) {
+			// skips the prolog
+		}
+		if (!reader.isStartElement()) {
+			throw new XMLStreamException("no root element");
 		}
+		return reader;
 	}
 
 	/**
-     * Parses a document that has been generated from a map XML file by parseFile().
-     * As a result, the intersections and the segments of the file are set in map.
-     * @param doc The document that has been generated from a map XML file by parseFile()
-     * @throws Exception when the map document cannot be parsed for a given reason
-     * @see Controller.Controller#parseFile(String)
-     */ 
-	public void parseMap(Document doc) throws Exception {
-		map.setIntersections(new TreeMap<>());
+	 * Returns the value of an attribute of the current element of a stream reader.
+	 * 
+	 * @param reader The stream reader positioned on a start element.
+	 * @param name The name of the attribute.
+	 * @return The value of the attribute, an empty string if the element has no such attribute.
+	 */
+	private static String getAttribute(XMLStreamReader reader, String name) {
+		String value = reader.getAttributeValue(null, name);
+		return value == null ? "" : value;
+	}
 
-		// get intersection nodes
-		NodeList list = doc.getElementsByTagName("intersection");
+	/**
+	 * Reads the intersection of a stop in a requests file. It is given by the id of an intersection, or by
+	 * coordinates, as a geocoded address: the intersection of the map the closest to them is then chosen.
+	 * 
+	 * @param reader The stream reader, positioned on the element of the stop.
+	 * @param address The name of the attribute giving the id of the intersection.
+	 * @param latitude The name of the attribute giving the latitude, used when there is no id.
+	 * @param longitude The name of the attribute giving the longitude, used when there is no id.
+	 * @return The intersection of the stop, null if no intersection has the id given.
+	 * @throws Exception when neither the id nor the coordinates are given, or when they are not numbers
+	 * 
+	 * @see Model.Map#findNearestIntersection(float, float)
+	 */
+	private Intersection readAddress(XMLStreamReader reader, String address, String latitude, String longitude)
+			throws Exception {
+		String id = getAttribute(reader, address).trim();
+		if (!id.isEmpty()) {
+			return map.getIntersectionById(Long.parseLong(id));
+		}
+		String latitudeValue = getAttribute(reader, latitude).trim();
+		String longitudeValue = getAttribute(reader, longitude).trim();
+		if (latitudeValue.isEmpty() || longitudeValue.isEmpty()) {
+			throw new Exception("missing attribute in RequestsFile Exception");
+		}
+		try {
+			return map.findNearestIntersection(Float.parseFloat(latitudeValue), Float.parseFloat(longitudeValue));
+		} catch (NumberFormatException e) {
+			throw new Exception("Aberrant value in requestsFile Exception");
+		}
+	}
 
-		for (int temp = 0; temp < list.getLength(); temp++) {
-			Node node = list.item(temp);
-			if (node.getNodeType() == Node.ELEMENT_NODE) {
-				Element element = (Element) node;
+	/**
+     * Parses a map XML file from a stream reader positioned on its root element, in a single pass.
+     * Segments are attached to their origin as soon as both ends are known, 
+     * the other ones are resolved at the end of the file.
+     * As a result, the intersections and the segments of the file are set in map. 
+     * The map is not modified if the file is not valid.
+     * @param reader The stream reader of a map XML file, opened by parseFile()
+     * @throws Exception when the map file cannot be parsed for a given reason
+     * @see Controller.Controller#parseFile(String)
+     * @see Controller.Controller#readMap(XMLStreamReader)
+     */ 
+	public void parseMap(XMLStreamReader reader) throws Exception {
+		map.setIntersections(readMap(reader));
+		map.endLoadMap();
+	}
 
-				String id = element.getAttribute("id");
-				String latitude = element.getAttribute("latitude");
-				String longitude = element.getAttribute("longitude");
+	/**
+	 * Reads the intersections and the segments of a map XML file from a stream reader 
+	 * positioned on its root element.
+	 * 
+	 * @param reader The stream reader of a map XML file.
+	 * @return The SortedMap of ids and intersections of the file, with their originated segments.
+	 * @throws Exception when the map file cannot be parsed for a given reason
+	 * @see Controller.Controller#parseMap(XMLStreamReader)
+	 * @see Controller.BinaryMapFile#main(String[])
+	 */
+	static SortedMap<Long, Intersection> readMap(XMLStreamReader reader) throws Exception {
+		SortedMap<Long, Intersection> intersections = new TreeMap<>();
+		ArrayList<long[]> pendingEnds = new ArrayList<long[]>();
+		ArrayList<Float> pendingLengths = new ArrayList<Float>();
+		ArrayList<String> pendingNames = new ArrayList<String>();
+
+		while (reader.hasNext()) {
+			if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+				continue;
+			}
+			String tag = reader.getLocalName();
+			if (tag.equals("intersection")) {
+				String id = getAttribute(reader, "id");
+				String latitude = getAttribute(reader, "latitude");
+				String longitude = getAttribute(reader, "longitude");
 
 				if (id.isEmpty() || latitude.isEmpty() || longitude.isEmpty()) {
 					throw new Exception("missing attribute in MapFile Exception");
 				}
-				if (Float.parseFloat(latitude) < -180 || Float.parseFloat(latitude) > 180
-						|| Float.parseFloat(longitude) < -180 || Float.parseFloat(longitude) > 180) {
+				float latitudeValue = Float.parseFloat(latitude);
+				float longitudeValue = Float.parseFloat(longitude);
+				if (latitudeValue < -180 || latitudeValue > 180 || longitudeValue < -180 || longitudeValue > 180) {
 					throw new Exception("Aberrant value in MapFile Exception");
 				}
-				Intersection intersection = new Intersection(Long.parseLong(id), Float.parseFloat(latitude),
-						Float.parseFloat(longitude));
-				map.addIntersection(intersection);
-			}
-		}
-
-		// get segment nodes
-		list = doc.getElementsByTagName("segment");
-
-		for (int temp = 0; temp < list.getLength(); temp++) {
-			Node node = list.item(temp);
-			if (node.getNodeType() == Node.ELEMENT_NODE) {
-				Element element = (Element) node;
+				long idValue = Long.parseLong(id);
+				intersections.put(idValue, new Intersection(idValue, latitudeValue, longitudeValue));
 
-				String idDestination = element.getAttribute("destination");
-
-				String length = element.getAttribute("length");
-				String name = element.getAttribute("name");
-				String idOrigin = element.getAttribute("origin");
+			} else if (tag.equals("segment")) {
+				String idDestination = getAttribute(reader, "destination");
+				String length = getAttribute(reader, "length");
+				String name = getAttribute(reader, "name");
+				String idOrigin = getAttribute(reader, "origin");
 
 				if (idDestination.isEmpty() || length.isEmpty() || idOrigin.isEmpty()) {// name can be empty (cf
 																						// smallMap.xml)
 					throw new Exception("missing attribute in MapFile Exception");
 				}
-				if (Float.parseFloat(length) < 0) {
+				float lengthValue = Float.parseFloat(length);
+				if (lengthValue < 0) {
 					throw new Exception("Aberrant value in MapFile Exception");
 				}
-				if (!map.getIntersections().containsKey(Long.parseLong(idOrigin))
-						|| !map.getIntersections().containsKey(Long.parseLong(idDestination))) {
-					throw new Exception("Non existent intersection in MapFile Exception");
+				Intersection origin = intersections.get(Long.parseLong(idOrigin));
+				Intersection destination = intersections.get(Long.parseLong(idDestination));
+				if (origin != null && destination != null) {
+					origin.addSegment(new Segment(origin, destination, lengthValue, name));
+				} else {
+					// an end may be declared later in the file
+					pendingEnds.add(new long[] { Long.parseLong(idOrigin), Long.parseLong(idDestination) });
+					pendingLengths.add(lengthValue);
+					pendingNames.add(name);
 				}
-				Intersection origin = map.getIntersectionById(Long.parseLong(idOrigin));
-				Intersection destination = map.getIntersectionById(Long.parseLong(idDestination));
-
-				Segment segment = new Segment(origin, destination, Float.parseFloat(length), name);
-				map.getIntersectionById(Long.parseLong(idOrigin)).addSegment(segment);
+			}
+		}
 
+		for (int i = 0; i < pendingEnds.size(); i++) {
+			Intersection origin = intersections.get(pendingEnds.get(i)[0]);
+			Intersection destination = intersections.get(pendingEnds.get(i)[1]);
+			if (origin == null || destination == null) {
+				throw new Exception("Non existent intersection in MapFile Exception");
 			}
+			origin.addSegment(new Segment(origin, destination, pendingLengths.get(i), pendingNames.get(i)));
 		}
-		map.endLoadMap();
+		return intersections;
 	}
 
 	/**
-     * Parses a document that has been generated from a requests XML file by parseFile().
+     * Parses a requests XML file from a stream reader positioned on its root element, in a single pass.
      * As a result, the tour requests, the tour departure and the departure time are set in map's tour.
-     * @param doc The document that has been generated from a requests XML file by parseFile()
-     * @throws Exception when the requests document cannot be parsed for a given reason
+     * The tour is not modified if the file is not valid.
+     * @param reader The stream reader of a requests XML file, opened by parseFile()
+     * @throws Exception when the requests file cannot be parsed for a given reason
      * @see Controller.Controller#parseFile(String)
      */
-	public void parseRequests(Document doc) throws Exception {
-		map.getTour().setTourRequests(new ArrayList<>());
-
-		// get depot
-		NodeList list = doc.getElementsByTagName("depot");
-		Node node = list.item(0);
-		if (node.getNodeType() == Node.ELEMENT_NODE) {
-			try {
-				Element depotElement = (Element) node;
+	public void parseRequests(XMLStreamReader reader) throws Exception {
+		readRequests(reader).run();
+	}
 
-				String depotAddress = depotElement.getAttribute("address");
-				String departureTimeStr = depotElement.getAttribute("departureTime");
+	/**
+	 * Reads the requests of a requests XML file from a stream reader positioned on its root element, 
+	 * without modifying the tour. The shortest paths from each stop are searched in a pipeline 
+	 * as soon as the stop is parsed.
+	 * 
+	 * @param reader The stream reader of a requests XML file.
+	 * @return The action that sets the requests, the departure and the departure time in map's tour.
+	 * @throws Exception when the requests file cannot be parsed for a given reason
+	 * @see Controller.Controller#parseRequests(XMLStreamReader)
+	 */
+	private Installation readRequests(XMLStreamReader reader) throws Exception {
+		ArrayList<Request> requests = new ArrayList<>();
+		Stop departureStop = null;
+		Date departureTime = null;
+		int tourCapacity = Integer.MAX_VALUE;
+		// the shortest paths from each stop are computed as soon as it is parsed
+		DistanceMatrixPipeline newPipeline = new DistanceMatrixPipeline(map);
 
-				if (depotAddress.isEmpty() || departureTimeStr.isEmpty()) {
-					throw new Exception("missing attribute in RequestsFile Exception");
+		try {
+			while (reader.hasNext()) {
+				if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+					continue;
 				}
-
-				if (!map.getIntersections().containsKey(Long.parseLong(depotAddress))) {
-					throw new Exception("Non existant intersection Exception");
+				String tag = reader.getLocalName();
+
+				// get depot
+				if (tag.equals("depot")) {
+					String departureTimeStr = getAttribute(reader, "departureTime");
+
+					if (departureTimeStr.isEmpty()) {
+						throw new Exception("missing attribute in RequestsFile Exception");
+					}
+
+					Intersection departureIntersection = readAddress(reader, "address", "latitude", "longitude");
+					if (departureIntersection == null) {
+						throw new Exception("Non existant intersection Exception");
+					}
+
+					departureStop = new Stop(departureIntersection.getId(), departureIntersection.getLatitude(),
+							departureIntersection.getLongitude(), (float) 0.0);
+					departureStop.setOriginatedSegments(departureIntersection.getOriginatedSegments());
+					submitToPipeline(newPipeline, departureIntersection);
+
+					try {
+						departureTime = new SimpleDateFormat("H:m:s").parse(departureTimeStr);
+					} catch (ParseException e) {
+						e.printStackTrace();
+					}
+
+					// optional capacity of the vehicle
+					String capacity = getAttribute(reader, "capacity").trim();
+					if (!capacity.isEmpty()) {
+						try {
+							tourCapacity = Integer.parseInt(capacity);
+						} catch (NumberFormatException e) {
+							throw new Exception("Aberrant value in requestsFile Exception");
+						}
+						if (tourCapacity <= 0) {
+							throw new Exception("Aberrant value in requestsFile Exception");
+						}
+					}
+
+				// get requests
+				} else if (tag.equals("request")) {
+					String pickupDuration = getAttribute(reader, "pickupDuration");
+					String deliveryDuration = getAttribute(reader, "deliveryDuration");
+
+					if (pickupDuration.isEmpty() || deliveryDuration.isEmpty()) {
+						throw new Exception("missing attribute in RequestsFile Exception");
+					}
+
+					float pickupDurationValue = Float.parseFloat(pickupDuration);
+					float deliveryDurationValue = Float.parseFloat(deliveryDuration);
+					if (pickupDurationValue < 0.0 || deliveryDurationValue < 0.0) {
+						throw new Exception("Aberrant value in requestsFile Exception");
+					}
+
+					Intersection pickupIntersection = readAddress(reader, "pickupAddress", "pickupLatitude",
+							"pickupLongitude");
+					Intersection deliveryIntersection = readAddress(reader, "deliveryAddress", "deliveryLatitude",
+							"deliveryLongitude");
+					if (pickupIntersection == null || deliveryIntersection == null) {
+						throw new Exception("Non existant intersection Exception");
+					}
+
+					Stop pickupStop = new Stop(pickupIntersection.getId(), pickupIntersection.getLatitude(),
+							pickupIntersection.getLongitude(), pickupDurationValue);
+					pickupStop.setOriginatedSegments(pickupIntersection.getOriginatedSegments());
+					Stop deliveryStop = new Stop(deliveryIntersection.getId(), deliveryIntersection.getLatitude(),
+							deliveryIntersection.getLongitude(), deliveryDurationValue);
+					deliveryStop.setOriginatedSegments(deliveryIntersection.getOriginatedSegments());
+
+					// optional delivery time window
+					String earliest = getAttribute(reader, "earliest").trim();
+					String latest = getAttribute(reader, "latest").trim();
+					try {
+						if (!earliest.isEmpty()) {
+							deliveryStop.setEarliestTime(new SimpleDateFormat("H:m:s").parse(earliest));
+						}
+						if (!latest.isEmpty()) {
+							deliveryStop.setLatestTime(new SimpleDateFormat("H:m:s").parse(latest));
+						}
+					} catch (ParseException e) {
+						throw new Exception("Aberrant value in requestsFile Exception");
+					}
+					if (deliveryStop.getEarliestTime() != null && deliveryStop.getLatestTime() != null
+							&& deliveryStop.getEarliestTime().after(deliveryStop.getLatestTime())) {
+						throw new Exception("Aberrant value in requestsFile Exception");
+					}
+					Request request = new Request(pickupStop, deliveryStop);
+
+					// optional demand of the request
+					String demand = getAttribute(reader, "demand").trim();
+					if (!demand.isEmpty()) {
+						try {
+							request.setDemand(Integer.parseInt(demand));
+						} catch (NumberFormatException e) {
+							throw new Exception("Aberrant value in requestsFile Exception");
+						}
+						if (request.getDemand() < 0 || request.getDemand() > tourCapacity) {
+							throw new Exception("Aberrant value in requestsFile Exception");
+						}
+					}
+					requests.add(request);
+					submitToPipeline(newPipeline, pickupIntersection);
+					submitToPipeline(newPipeline, deliveryIntersection);
 				}
-
-				Intersection departureIntersection = map.getIntersectionById(Long.parseLong(depotAddress));
-
-				Stop departureStop = new Stop(Long.parseLong(depotAddress), departureIntersection.getLatitude(),
-						departureIntersection.getLongitude(), (float) 0.0);
-				departureStop.setOriginatedSegments(departureIntersection.getOriginatedSegments());
-				map.getTour().setTourDeparture(departureStop);
-
-				Date departureTime = new SimpleDateFormat("H:m:s").parse(departureTimeStr);
-
-				map.getTour().setDepartureTime(departureTime);
-
-			} catch (ParseException e) {
-				e.printStackTrace();
 			}
 
+			if (departureStop == null) {
+				throw new Exception("missing attribute in RequestsFile Exception");
+			}
+			// the trees of the pipeline are only kept towards the stops
+			ArrayList<Stop> stops = new ArrayList<Stop>();
+			stops.add(departureStop);
+			for (Request request : requests) {
+				stops.add(request.getPickupStop());
+				stops.add(request.getDeliveryStop());
+			}
+			newPipeline.setTargets(stops);
+		} catch (Exception e) {
+			newPipeline.shutdown();
+			throw e;
 		}
-
-		// get requests
-
-		list = doc.getElementsByTagName("request");
-
-		for (int temp = 0; temp < list.getLength(); temp++) {
-			node = list.item(temp);
-
-			if (node.getNodeType() == Node.ELEMENT_NODE) {
-
-				Element element = (Element) node;
-
-				String pickup = element.getAttribute("pickupAddress").trim();
-				String delivery = element.getAttribute("deliveryAddress").trim();
-				String pickupDuration = element.getAttribute("pickupDuration");
-				String deliveryDuration = element.getAttribute("deliveryDuration");
-
-				if (pickup.isEmpty() || delivery.isEmpty() || pickupDuration.isEmpty() || deliveryDuration.isEmpty()) {
-					throw new Exception("missing attribute in RequestsFile Exception");
+		Stop tourDeparture = departureStop;
+		Date tourDepartureTime = departureTime;
+		int capacity = tourCapacity;
+		return new Installation() {
+			@Override
+			public void run() {
+				// the graph of the stops being computed will not be used
+				cancelPrecomputation();
+				map.getTour().setTourDeparture(tourDeparture);
+				map.getTour().setDepartureTime(tourDepartureTime);
+				map.getTour().setCapacity(capacity);
+				map.getTour().setTourRequests(requests);
+				map.getTour().getOrderedTravel().clear();
+				map.getTour().endLoadRequests();
+				if (pipeline != null) {
+					pipeline.shutdown();
 				}
+				pipeline = newPipeline;
+				startPrecomputation();
+			}
 
-				if (Float.parseFloat(pickupDuration) < 0.0 || Float.parseFloat(deliveryDuration) < 0.0) {
-					throw new Exception("Aberrant value in requestsFile Exception");
-				}
-
-				if (!map.getIntersections().containsKey(Long.parseLong(pickup))
-						|| !map.getIntersections().containsKey(Long.parseLong(delivery))) {
-					throw new Exception("Non existant intersection Exception");
-				}
-
-				Stop pickupStop = new Stop(Long.parseLong(pickup),
-						map.getIntersectionById(Long.parseLong(pickup)).getLatitude(),
-						map.getIntersectionById(Long.parseLong(pickup)).getLongitude(),
-						Float.parseFloat(pickupDuration));
-				pickupStop
-						.setOriginatedSegments(map.getIntersectionById(Long.parseLong(pickup)).getOriginatedSegments());
-				Stop deliveryStop = new Stop(Long.parseLong(delivery),
-						map.getIntersectionById(Long.parseLong(delivery)).getLatitude(),
-						map.getIntersectionById(Long.parseLong(delivery)).getLongitude(),
-						Float.parseFloat(deliveryDuration));
-				deliveryStop.setOriginatedSegments(
-						map.getIntersectionById(Long.parseLong(delivery)).getOriginatedSegments());
-				map.getTour().addRequest(new Request(pickupStop, deliveryStop));
-
+			@Override
+			public void discard() {
+				newPipeline.shutdown();
 			}
+		};
+	}
+
+	/**
+	 * Starts the search of the shortest paths from a stop in a pipeline, unless they are already known.
+	 * 
+	 * @param pipeline The pipeline of the requests file being parsed.
+	 * @param intersection The intersection of a stop that has just been parsed.
+	 * 
+	 * @see Model.DistanceMatrixPipeline#submit(Intersection)
+	 */
+	private void submitToPipeline(DistanceMatrixPipeline pipeline, Intersection intersection) {
+		if (!knownDepartures.contains(intersection.getId())) {
+			pipeline.submit(intersection);
 		}
-		map.getTour().getOrderedTravel().clear();
-		map.getTour().endLoadRequests();
 	}
 
 	/**
@@ -757,7 +1257,189 @@ public class Controller {
 	 * @see Model.TemplateTSP#searchSolution(int, Model.Graph)
 	 */
 	public int computeOptimisedTour(Map tourMap) {
+		CompleteGraph stopsGraph = getStopsGraph();
+		tsp = new TSP1();
+		setTimeWindows(tsp, stopsGraph.getNbVertices());
+		setCapacity(tsp, stopsGraph.getNbVertices());
+		return tsp.searchSolution(20000, stopsGraph);
+		
+	}
 
+	/**
+	 * Gives the capacity of the vehicle and the demands of the requests to the tsp, 
+	 * if the capacity of the vehicle is limited.
+	 * 
+	 * @param tsp The tsp that will search a solution.
+	 * @param nbVertices The number of vertices of the graph of the stops.
+	 * 
+	 * @see Model.TSP#setCapacity(int, int[], int[])
+	 * @see Model.Request#getDemand()
+	 */
+	private void setCapacity(TSP tsp, int nbVertices) {
+		Tour ourTour = this.getMap().getTour();
+		if (ourTour.getCapacity() == Integer.MAX_VALUE) {
+			return;
+		}
+		int[] demands = new int[nbVertices];
+		int[] pickupVertices = new int[nbVertices];
+		pickupVertices[0] = -1;
+		for (int k = 0; k < ourTour.getTourRequests().size(); k++) {
+			demands[2 * k + 1] = ourTour.getTourRequests().get(k).getDemand();
+			demands[2 * k + 2] = -ourTour.getTourRequests().get(k).getDemand();
+			pickupVertices[2 * k + 1] = -1;
+			pickupVertices[2 * k + 2] = 2 * k + 1;
+		}
+		tsp.setCapacity(ourTour.getCapacity(), demands, pickupVertices);
+	}
+
+	/**
+	 * Gives the time windows of the stops of the tour to the tsp, if at least one stop has a time window.
+	 * Times are converted in seconds since the departure time of the tour.
+	 * 
+	 * @param tsp The tsp that will search a solution.
+	 * @param nbVertices The number of vertices of the graph of the stops.
+	 * 
+	 * @see Model.TSP#setTimeWindows(float[], float[], float[])
+	 * @see Model.Stop#getEarliestTime()
+	 * @see Model.Stop#getLatestTime()
+	 */
+	private void setTimeWindows(TSP tsp, int nbVertices) {
+		Tour ourTour = this.getMap().getTour();
+		float[] serviceDurations = new float[nbVertices];
+		float[] earliestTimes = new float[nbVertices];
+		float[] latestTimes = new float[nbVertices];
+		boolean timeWindows = false;
+		long departureTime = ourTour.getDepartureTime().getTime();
+		for (int vertex = 1; vertex < nbVertices; vertex++) {
+			Request request = ourTour.getTourRequests().get((vertex - 1) / 2);
+			Stop stop = vertex % 2 == 1 ? request.getPickupStop() : request.getDeliveryStop();
+			serviceDurations[vertex] = stop.getStopDuration();
+			latestTimes[vertex] = Float.MAX_VALUE;
+			if (stop.getEarliestTime() != null) {
+				earliestTimes[vertex] = (stop.getEarliestTime().getTime() - departureTime) / 1000;
+				timeWindows = true;
+			}
+			if (stop.getLatestTime() != null) {
+				latestTimes[vertex] = (stop.getLatestTime().getTime() - departureTime) / 1000;
+				timeWindows = true;
+			}
+		}
+		if (timeWindows) {
+			tsp.setTimeWindows(serviceDurations, earliestTimes, latestTimes);
+		}
+	}
+
+	/**
+	 * Starts computing the graph of the stops of the tour in the background, while the user has not asked 
+	 * for the tour yet. The thread has a low priority so that the application stays responsive.
+	 * 
+	 * @see Controller#getStopsGraph()
+	 */
+	public void startPrecomputation() {
+		cancelPrecomputation();
+		precomputation = PRECOMPUTATION_EXECUTOR.submit(() -> computeStopsGraph());
+	}
+
+	/**
+	 * Cancels the computation of the graph of the stops started in the background, and waits for its end. 
+	 * The paths already found stay known.
+	 * 
+	 * @see Controller#startPrecomputation()
+	 */
+	public void cancelPrecomputation() {
+		Future<CompleteGraph> job = precomputation;
+		Future<?> treeJob = treePrecomputation;
+		precomputation = null;
+		treePrecomputation = null;
+		if (job != null || treeJob != null) {
+			if (job != null) {
+				job.cancel(true);
+			}
+			if (treeJob != null) {
+				treeJob.cancel(true);
+			}
+			synchronized (this) {
+				// the computations hold the lock of the controller until they stop
+			}
+		}
+	}
+
+	/**
+	 * Starts computing in the background the forward and reverse shortest path trees of the stops 
+	 * of the computed tour that are not in the tree store of the map yet. The paths needed 
+	 * to add or delete a request can then be built without any search.
+	 * Nothing is computed if the trees of all the stops could not be kept together in the store, 
+	 * since the last trees computed would evict the first ones.
+	 * 
+	 * @see Model.ShortestPathTreeStore
+	 * @see Model.Map#getTreeStore()
+	 */
+	public void startTreePrecomputation() {
+		if (treePrecomputation != null) {
+			treePrecomputation.cancel(true);
+			treePrecomputation = null;
+		}
+		// the departure is both the first and the last stop of the tour
+		LinkedHashMap<Long, Stop> stopsById = new LinkedHashMap<Long, Stop>();
+		for (Stop stop : map.getTour().getOrderedTravel()) {
+			stopsById.putIfAbsent(stop.getId(), stop);
+		}
+		ArrayList<Stop> stops = new ArrayList<Stop>(stopsById.values());
+		ShortestPathTreeStore treeStore = map.getTreeStore();
+		// each tree can settle every intersection of the map
+		if (2L * stops.size() * map.getIntersections().size() > treeStore.getCapacity()) {
+			return;
+		}
+		treePrecomputation = PRECOMPUTATION_EXECUTOR.submit(() -> {
+			synchronized (this) {
+				for (Stop stop : stops) {
+					for (boolean reverse : new boolean[] { false, true }) {
+						if (Thread.currentThread().isInterrupted()) {
+							return;
+						}
+						if (!treeStore.contains(stop.getId(), reverse)) {
+							treeStore.put(map.computeShortestPathTree(stop, null, reverse));
+						}
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Gives the graph of the stops of the tour. The result of the computation started in the background 
+	 * is used if there is one, waiting for its end if needed. Otherwise the graph is computed now.
+	 * 
+	 * @return The complete graph of the stops of the tour.
+	 * 
+	 * @see Controller#startPrecomputation()
+	 * @see Controller#computeStopsGraph()
+	 */
+	private CompleteGraph getStopsGraph() {
+		Future<CompleteGraph> job = precomputation;
+		precomputation = null;
+		if (job != null) {
+			try {
+				return job.get();
+			} catch (InterruptedException | ExecutionException | CancellationException e) {
+				// the graph is computed again, reusing the paths already found
+			}
+		}
+		return computeStopsGraph();
+	}
+
+	/**
+	 * Computes the shortest paths between the stops of the tour and the complete graph of their durations.
+	 * The tour departure is the vertex 0, the pickup stop and the delivery stop of the k-th request 
+	 * are the vertices 2k+1 and 2k+2.
+	 * The matrix of paths is kept to build the tours from the solutions.
+	 * 
+	 * @return The complete graph of the stops of the tour.
+	 * 
+	 * @see Controller#computeStopPaths(ArrayList, ArrayList)
+	 * @see Controller#generateCompleteGraph(ArrayList, Path[][])
+	 */
+	private synchronized CompleteGraph computeStopsGraph() {
 		// initialization of parameters
 		Tour ourTour = this.getMap().getTour();
 		ArrayList<Stop> stopList = new ArrayList<Stop>();
@@ -771,11 +1453,110 @@ public class Controller {
 			stopList.add(request.getDeliveryStop());
 		}
 
+		workingRegion = regionRouting ? map.computeWorkingRegion(stopList) : null;
 		this.paths = computeStopPaths(stopList, pickupList);
-		CompleteGraph stopsGraph = generateCompleteGraph(stopList, paths);
-		tsp = new TSP1();
-		return tsp.searchSolution(20000, stopsGraph);
-		
+		if (pipeline != null) {
+			// the paths of the pipeline are now known paths
+			pipeline.shutdown();
+			pipeline = null;
+		}
+		return generateCompleteGraph(stopList, paths);
+	}
+
+	/**
+	 * Shares the requests of the tour between the vehicles of the fleet and computes the tour of each vehicle.
+	 * Each vehicle has the capacity of the tour.
+	 * The shortest paths between the stops are computed once and shared by all the vehicles, 
+	 * then the routes are optimised in parallel.<br/>
+	 * 
+	 * Each vehicle tour has its own copy of the tour departure, of the stops and of the requests it serves, 
+	 * so that the tour of the map is not modified. The paths and the working region of the computed tour 
+	 * are not modified either, so the sharing can run outside the event dispatch thread.
+	 * 
+	 * @param timeLimit The time limit in milliseconds given to each route optimisation.
+	 * @return The tour of each vehicle.
+	 * 
+	 * @throws Exception If a request cannot be placed in any route, or if a route optimisation failed.
+	 * 
+	 * @see Model.FleetPlanner
+	 * @see Model.Map#getFleetTours()
+	 */
+	public ArrayList<Tour> computeFleetTours(int timeLimit) throws Exception {
+		Tour ourTour = map.getTour();
+		CompleteGraph stopsGraph;
+		Path[][] fleetPaths;
+		synchronized (this) {
+			Path[][] tourPaths = paths;
+			WorkingRegion tourRegion = workingRegion;
+			stopsGraph = computeStopsGraph();
+			fleetPaths = paths;
+			paths = tourPaths;
+			workingRegion = tourRegion;
+		}
+		float[] stopDurations = new float[stopsGraph.getNbVertices()];
+		int[] demands = new int[stopsGraph.getNbVertices()];
+		for (int k = 0; k < ourTour.getTourRequests().size(); k++) {
+			Request request = ourTour.getTourRequests().get(k);
+			stopDurations[2 * k + 1] = request.getPickupStop().getStopDuration();
+			stopDurations[2 * k + 2] = request.getDeliveryStop().getStopDuration();
+			demands[2 * k + 1] = request.getDemand();
+			demands[2 * k + 2] = -request.getDemand();
+		}
+		FleetPlanner planner = new FleetPlanner(stopsGraph, stopDurations, ourTour.getCapacity(), demands, fleetSize,
+				timeLimit);
+
+		ArrayList<Tour> fleetTours = new ArrayList<Tour>();
+		Stop departure = ourTour.getTourDeparture();
+		for (ArrayList<Integer> route : planner.plan()) {
+			Stop vehicleDeparture = copyStop(departure);
+			ArrayList<Request> vehicleRequests = new ArrayList<Request>();
+			Stop[] vehicleStops = new Stop[stopsGraph.getNbVertices()];
+			for (int vertex : route) {
+				if (vertex % 2 == 1) {
+					Request request = ourTour.getTourRequests().get((vertex - 1) / 2);
+					vehicleStops[vertex] = copyStop(request.getPickupStop());
+					vehicleStops[vertex + 1] = copyStop(request.getDeliveryStop());
+					Request vehicleRequest = new Request(vehicleStops[vertex], vehicleStops[vertex + 1]);
+					vehicleRequest.setDemand(request.getDemand());
+					vehicleRequests.add(vehicleRequest);
+				}
+			}
+			Tour vehicleTour = new Tour(vehicleDeparture, ourTour.getDepartureTime(), null, vehicleRequests);
+			vehicleTour.addInOrderedTravel(vehicleDeparture);
+			if (!route.isEmpty()) {
+				Stop previousStop = vehicleDeparture;
+				int previous = 0;
+				for (int vertex : route) {
+					Path path = fleetPaths[previous][vertex];
+					Stop arrivalStop = vehicleStops[vertex];
+					previousStop.setNextPath(new Path(previousStop, arrivalStop, path.getPathSegments(),
+							path.getPathDuration()));
+					vehicleTour.addInOrderedTravel(arrivalStop);
+					previousStop = arrivalStop;
+					previous = vertex;
+				}
+				Path path = fleetPaths[previous][0];
+				previousStop.setNextPath(new Path(previousStop, vehicleDeparture, path.getPathSegments(),
+						path.getPathDuration()));
+				vehicleTour.addInOrderedTravel(vehicleDeparture);
+			}
+			vehicleTour.computeArrivalTimes();
+			fleetTours.add(vehicleTour);
+		}
+		return fleetTours;
+	}
+
+	/**
+	 * @param stop A stop of the tour.
+	 * @return A new stop at the same intersection, with the same duration and time window, 
+	 * without arrival time nor next path.
+	 */
+	private Stop copyStop(Stop stop) {
+		Stop copy = new Stop(stop.getId(), stop.getLatitude(), stop.getLongitude(), stop.getStopDuration());
+		copy.setOriginatedSegments(stop.getOriginatedSegments());
+		copy.setEarliestTime(stop.getEarliestTime());
+		copy.setLatestTime(stop.getLatestTime());
+		return copy;
 	}
 	
 	/**
@@ -796,20 +1577,30 @@ public class Controller {
 		Path[][] paths = new Path[nbStops][nbStops];
 		Tour ourTour = this.getMap().getTour();
 
+		// index of each stop in the list, found by reference
+		IdentityHashMap<Stop, Integer> stopIndexes = new IdentityHashMap<Stop, Integer>();
+		for (int i = 0; i < nbStops; i++) {
+			stopIndexes.put(stopList.get(i), i);
+		}
+
 		// for the tour Departure
 
-		int departureIndex = stopList.indexOf(ourTour.getTourDeparture());
+		int departureIndex = stopIndexes.get(ourTour.getTourDeparture());
 		int arrivalIndex;
 		// Dijkstra Call
-		ArrayList<Path> dijkstraPathList = this.getMap().computeShortestPath(ourTour.getTourDeparture(), pickupList);
+		ArrayList<Path> dijkstraPathList = computeShortestPaths(ourTour.getTourDeparture(), pickupList);
 		for (Path path : dijkstraPathList) {
-			arrivalIndex = stopList.indexOf(path.getArrivalStop());
+			arrivalIndex = stopIndexes.get(path.getArrivalStop());
 			paths[departureIndex][arrivalIndex] = path;
 		}
 
 		ArrayList<Stop> dijkstraStopList = new ArrayList<Stop>();
 
 		for (Request request : ourTour.getTourRequests()) {
+			if (Thread.currentThread().isInterrupted()) {
+				// the computation in the background was cancelled
+				throw new CancellationException();
+			}
 
 			// pickup
 
@@ -819,11 +1610,11 @@ public class Controller {
 			dijkstraStopList.remove(request.getPickupStop());
 			dijkstraStopList.remove(ourTour.getTourDeparture());
 
-			dijkstraPathList = this.getMap().computeShortestPath(request.getPickupStop(), dijkstraStopList);
-			departureIndex = stopList.indexOf(request.getPickupStop());
+			dijkstraPathList = computeShortestPaths(request.getPickupStop(), dijkstraStopList);
+			departureIndex = stopIndexes.get(request.getPickupStop());
 
 			for (Path path : dijkstraPathList) {
-				arrivalIndex = stopList.indexOf(path.getArrivalStop());
+				arrivalIndex = stopIndexes.get(path.getArrivalStop());
 				paths[departureIndex][arrivalIndex] = path;
 			}
 
@@ -834,19 +1625,128 @@ public class Controller {
 			dijkstraStopList.add(ourTour.getTourDeparture());
 
 			// dijkstra
-			dijkstraPathList = this.getMap().computeShortestPath(request.getDeliveryStop(), dijkstraStopList);
-			departureIndex = stopList.indexOf(request.getDeliveryStop());
+			dijkstraPathList = computeShortestPaths(request.getDeliveryStop(), dijkstraStopList);
+			departureIndex = stopIndexes.get(request.getDeliveryStop());
 
 			for (Path path : dijkstraPathList) {
-				arrivalIndex = stopList.indexOf(path.getArrivalStop());
+				arrivalIndex = stopIndexes.get(path.getArrivalStop());
 				paths[departureIndex][arrivalIndex] = path;
 
 			}
 		}
 
+		if (!newPaths.isEmpty() && mapCache != null && mapKey != null) {
+			// written once the lock of the controller is released, since the disk can be slow
+			MapCache cache = mapCache;
+			String key = mapKey;
+			HashMap<Long, HashMap<Long, Path>> rows = newPaths;
+			PRECOMPUTATION_EXECUTOR.submit(() -> cache.appendPaths(key, rows));
+		}
+		newPaths = new HashMap<Long, HashMap<Long, Path>>();
 		return paths;
 	}
 
+	/**
+	 * Gives the shortest paths from a stop to a list of stops. The paths already known on the map 
+	 * are reused, Dijkstra is only called if one of them is missing, and its results are kept.
+	 * 
+	 * @param departureStop The departure stop of the paths.
+	 * @param arrivalStops The arrival stops of the paths.
+	 * @return The shortest path from the departure stop to each arrival stop, in the order of the list.
+	 * 
+	 * @see Model.Map#computeShortestPath(Stop, ArrayList)
+	 * @see Controller.MapCache#loadPaths(String, SortedMap)
+	 */
+	private ArrayList<Path> computeShortestPaths(Stop departureStop, ArrayList<Stop> arrivalStops) {
+		HashMap<Long, Path> row = knownPaths.get(departureStop.getId());
+		boolean known = row != null;
+		for (int i = 0; known && i < arrivalStops.size(); i++) {
+			known = row.containsKey(arrivalStops.get(i).getId());
+		}
+
+		ArrayList<Path> pathList = new ArrayList<Path>();
+		if (known) {
+			for (Stop arrivalStop : arrivalStops) {
+				Path knownPath = row.get(arrivalStop.getId());
+				pathList.add(new Path(departureStop, arrivalStop, new ArrayList<Segment>(knownPath.getPathSegments()),
+						knownPath.getPathDuration()));
+			}
+			return pathList;
+		}
+
+		if (row == null) {
+			row = new HashMap<Long, Path>();
+			knownPaths.put(departureStop.getId(), row);
+			knownDepartures.add(departureStop.getId());
+		}
+		ShortestPathTree tree = null;
+		if (pipeline != null) {
+			try {
+				tree = pipeline.getTree(departureStop.getId());
+			} catch (InterruptedException e) {
+				// the computation in the background was cancelled
+				throw new CancellationException();
+			} catch (ExecutionException e) {
+				// the paths are computed again below
+			}
+		}
+		ArrayList<Path> computedPaths;
+		if (tree != null) {
+			computedPaths = new ArrayList<Path>();
+			for (Stop arrivalStop : arrivalStops) {
+				computedPaths.add(tree.buildPath(departureStop, arrivalStop));
+			}
+		} else if (workingRegion != null) {
+			computedPaths = computeShortestPathsInRegion(departureStop, arrivalStops);
+		} else {
+			computedPaths = map.computeShortestPath(departureStop, arrivalStops);
+		}
+		HashMap<Long, Path> newRow = newPaths.computeIfAbsent(departureStop.getId(), id -> new HashMap<Long, Path>());
+		for (Path path : computedPaths) {
+			Path knownPath = new Path();
+			knownPath.setPathSegments(new ArrayList<Segment>(path.getPathSegments()));
+			knownPath.setPathDuration(path.getPathDuration());
+			if (row.put(path.getArrivalStop().getId(), knownPath) == null) {
+				newRow.put(path.getArrivalStop().getId(), knownPath);
+			}
+			pathList.add(path);
+		}
+		return pathList;
+	}
+
+	/**
+	 * Computes the shortest paths from a stop to a list of stops inside the working region of the tour.
+	 * While one of the paths found is not proven to be a shortest path of the whole map, 
+	 * the working region is grown and the search is done again.
+	 * 
+	 * @param departureStop The departure stop of the paths.
+	 * @param arrivalStops The arrival stops of the paths.
+	 * @return The shortest path from the departure stop to each arrival stop, in the order of the list.
+	 * 
+	 * @see Model.WorkingRegion#isShortest(float, Intersection, Intersection)
+	 * @see Model.Map#computeShortestPathTree(Intersection, java.util.Collection, boolean, WorkingRegion)
+	 */
+	private ArrayList<Path> computeShortestPathsInRegion(Stop departureStop, ArrayList<Stop> arrivalStops) {
+		while (true) {
+			ShortestPathTree tree = map.computeShortestPathTree(departureStop, arrivalStops, false, workingRegion);
+			boolean proven = true;
+			for (Stop arrivalStop : arrivalStops) {
+				if (!workingRegion.isShortest(tree.getDistance(arrivalStop.getId()), departureStop, arrivalStop)) {
+					proven = false;
+					break;
+				}
+			}
+			if (proven) {
+				ArrayList<Path> pathList = new ArrayList<Path>();
+				for (Stop arrivalStop : arrivalStops) {
+					pathList.add(tree.buildPath(departureStop, arrivalStop));
+				}
+				return pathList;
+			}
+			workingRegion = workingRegion.grow();
+		}
+	}
+
 	/**
 	 * Generates a graph with the stops of the tour as vertices, the arches as paths
 	 * and the cost as path durations
@@ -864,10 +1764,9 @@ public class Controller {
 		int arrivalIndex;
 
 		Path temporaryPath = new Path();
-		for (Stop departureStop : stopList) {
-			for (Stop arrivalStop : stopList) {
-				departureIndex = stopList.indexOf(departureStop);
-				arrivalIndex = stopList.indexOf(arrivalStop);
+		// the stops are the vertices in the order of the list
+		for (departureIndex = 0; departureIndex < stopList.size(); departureIndex++) {
+			for (arrivalIndex = 0; arrivalIndex < stopList.size(); arrivalIndex++) {
 				temporaryPath = paths[departureIndex][arrivalIndex];
 
 				if (temporaryPath != null) {
@@ -881,6 +1780,22 @@ public class Controller {
 		return new CompleteGraph(nbVertices, cost);
 	}
 
+	/**
+	 * Ranks every possible placement in the computed tour of the request being added, 
+	 * whose stops are the pickup stop and the delivery stop of the tour.
+	 * The result is kept as the insertion alternatives of the controller.
+	 * 
+	 * @return The possible insertions, from the cheapest to the most expensive.
+	 * 
+	 * @see Model.Map#computeInsertions(Stop, Stop)
+	 * @see Model.Insertion
+	 */
+	public ArrayList<Insertion> computeInsertions() {
+		Tour ourTour = map.getTour();
+		insertionAlternatives = map.computeInsertions(ourTour.getPickupStop(), ourTour.getDeliveryStop());
+		return insertionAlternatives;
+	}
+
 	/**
 	 * Resumes computation of tsp after a timeout with the parameters calculated at the last iteration
 	 *
@@ -8,7 +8,6 @@ import Model.Stop;
 import View.DrawnMap;
 import View.LandingPage;
 import View.LoadRequests;
-import View.RoadMap;
 
 /**
  * Implements State interface.
@@ -62,8 +61,10 @@ public class DeleteRequestState implements State {
 	@Override
 	public void loadRequests(String xmlFile, DrawnMap drawnMap) {
 		try {
-			controller.parseFile(xmlFile);
-			new RoadMap(controller, drawnMap);
+			if (!controller.loadFile(xmlFile)) {
+				// cancelled by the user, nothing has changed
+				return;
+			}
 			controller.setCurrentState(controller.getRequestsLoadedState());
 			System.out.println("change from ModifiedTourState to RequestLoadState");
 			controller.getMenu().getLoadRequestsFrame().closeLoadRequests();
@@ -0,0 +1,200 @@
+package Controller;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.swing.SwingUtilities;
+
+import ObserverDP.Observable;
+
+/**
+ * FileLoader reads a map file or a requests file in a background thread, so that the window
+ * stays responsive while a large file is loaded.
+ *
+ * A file loader is composed of:
+ * <ul>
+ * <li>The controller whose model receives the content of the file.</li>
+ * <li>The path and the size of the file.</li>
+ * <li>The number of bytes already read.</li>
+ * <li>The installation that sets the content of the file in the model, once it is read,
+ * or the exception raised while reading it.</li>
+ * </ul>
+ *
+ * Observers are notified on the event dispatch thread with "loadProgress" when a new percent of the file
+ * is read, and with "loadEnd" when the reading is over, cancelled or not.
+ * The model is only modified by install(), on the event dispatch thread. So cancelling the loading
+ * leaves the application in its previous state.
+ *
+ * @author H4122
+ *
+ * @see Controller.Controller#loadFile(String)
+ * @see Controller.Controller#readFile(String, FileLoader)
+ * @see View.LoadingDialog
+ */
+public class FileLoader extends Observable {
+
+	/**
+	 * The thread reading the files, one file at a time.
+	 */
+	private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "file-loader");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private Controller controller;
+	private String fileName;
+	private long fileSize;
+	private volatile long bytesRead;
+	private volatile boolean cancelled;
+	private Future<?> future;
+	private Installation installation;
+	private Exception error;
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param controller The controller whose model receives the content of the file.
+	 * @param fileName The path of the file to load.
+	 */
+	public FileLoader(Controller controller, String fileName) {
+		this.controller = controller;
+		this.fileName = fileName;
+		this.fileSize = new File(fileName).length();
+	}
+
+	/**
+	 * @return The path of the file to load.
+	 */
+	public String getFileName() {
+		return fileName;
+	}
+
+	/**
+	 * @return The percentage of the file already read.
+	 */
+	public int getProgress() {
+		return fileSize == 0 ? 0 : (int) Math.min(100, bytesRead * 100 / fileSize);
+	}
+
+	/**
+	 * @return TRUE if the loading was cancelled.
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Starts reading the file in the background thread.
+	 */
+	public void start() {
+		future = EXECUTOR.submit(() -> {
+			try {
+				Installation result = controller.readFile(fileName, this);
+				synchronized (this) {
+					if (cancelled) {
+						result.discard();
+					} else {
+						installation = result;
+					}
+				}
+			} catch (Exception e) {
+				synchronized (this) {
+					error = e;
+				}
+			}
+			SwingUtilities.invokeLater(() -> notifyObservers("loadEnd"));
+		});
+	}
+
+	/**
+	 * Cancels the loading. The reading of the file is interrupted and its content will not be installed.
+	 * If the file is already read, what was prepared for its installation is discarded.
+	 */
+	public void cancel() {
+		Installation discarded;
+		synchronized (this) {
+			cancelled = true;
+			discarded = installation;
+			installation = null;
+		}
+		if (discarded != null) {
+			discarded.discard();
+		}
+		if (future != null) {
+			future.cancel(true);
+		}
+		notifyObservers("loadEnd");
+	}
+
+	/**
+	 * Sets the content of the file in the model. Must be called on the event dispatch thread,
+	 * once the reading is over.
+	 *
+	 * @return TRUE if the content of the file was set in the model, FALSE if the loading was cancelled.
+	 *
+	 * @throws Exception If the file could not be read.
+	 */
+	public synchronized boolean install() throws Exception {
+		if (cancelled) {
+			return false;
+		}
+		if (error != null) {
+			throw error;
+		}
+		installation.run();
+		return true;
+	}
+
+	/**
+	 * Opens the file to load. The bytes read from the returned stream are counted to report the progress,
+	 * and the reading is interrupted if the loading is cancelled.
+	 *
+	 * @return A stream of the content of the file.
+	 *
+	 * @throws IOException If the file cannot be opened.
+	 */
+	InputStream openFile() throws IOException {
+		bytesRead = 0;
+		return new FilterInputStream(new FileInputStream(fileName)) {
+			private int lastProgress;
+
+			@Override
+			public int read() throws IOException {
+				int b = super.read();
+				if (b >= 0) {
+					count(1);
+				}
+				return b;
+			}
+
+			@Override
+			public int read(byte[] buffer, int offset, int length) throws IOException {
+				int read = super.read(buffer, offset, length);
+				if (read > 0) {
+					count(read);
+				}
+				return read;
+			}
+
+			private void count(int read) throws IOException {
+				if (cancelled) {
+					throw new InterruptedIOException("loading cancelled");
+				}
+				bytesRead += read;
+				int progress = getProgress();
+				if (progress != lastProgress) {
+					lastProgress = progress;
+					SwingUtilities.invokeLater(() -> notifyObservers("loadProgress"));
+				}
+			}
+		};
+	}
+}
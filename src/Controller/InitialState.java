@@ -58,7 +58,10 @@ public class InitialState implements State {
 	public void loadMap(String xmlFile) {
 		
 		try {
-			controller.parseFile(xmlFile);
+			if (!controller.loadFile(xmlFile)) {
+				// cancelled by the user, nothing has changed
+				return;
+			}
 			controller.getLandingPage().closeLandingPage();
 			controller.setMenu(new Menu(controller, xmlFile));
 			controller.setCurrentState(controller.getMapLoadedState());
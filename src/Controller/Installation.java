@@ -0,0 +1,26 @@
+package Controller;
+
+/**
+ * Interface Installation is the action that sets the content of a file in the model, once the file
+ * is entirely read. It is run on the event dispatch thread, or discarded if the loading is cancelled.
+ * 
+ * @see Controller#readFile(String, FileLoader)
+ * @see FileLoader#install()
+ * 
+ * @author H4122
+ */
+public interface Installation extends Runnable {
+	/**
+	 * Sets the content of the file in the model.
+	 */
+	@Override
+	void run();
+
+	/**
+	 * Releases what was prepared while the file was read, when its content will never be set in the model.
+	 * 
+	 * @see FileLoader#cancel()
+	 */
+	default void discard() {
+	}
+}
@@ -0,0 +1,319 @@
+package Controller;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+
+import Model.Intersection;
+import Model.Path;
+import Model.Segment;
+
+/**
+ * MapCache keeps on disk the maps already loaded and the shortest paths already computed on them,
+ * so that a known map is neither parsed nor routed again in the next sessions.
+ *
+ * The entries of the cache are identified by the SHA-256 hash of the content of the map file,
+ * whatever its name or location. An entry is composed of:
+ * <ul>
+ * <li>A snapshot of the map in the binary map format (key.map).</li>
+ * <li>The rows of shortest paths computed from intersections of the map (key.paths). Each path is
+ * stored as the sequence of its intersections and its duration. The new paths are appended at the end 
+ * of the file, a departure intersection can have several rows.</li>
+ * </ul>
+ *
+ * The cache is stored in a directory named after the version of its format, the directories
+ * of the other versions are deleted. When the cache exceeds its size limit, the least recently used
+ * files are deleted first.<br/>
+ *
+ * The cache is only an optimisation: a missing, corrupted or unwritable entry is ignored.
+ *
+ * @author H4122
+ *
+ * @see Controller.BinaryMapFile
+ * @see Controller.Controller#parseFile(String)
+ */
+public class MapCache {
+
+	/**
+	 * The version of the format of the cache, to be increased when the binary map format
+	 * or the format of the paths files changes.
+	 */
+	public static final int VERSION = 2;
+
+	/**
+	 * The default maximum size in bytes of the cache (64 MB).
+	 */
+	public static final long DEFAULT_SIZE_LIMIT = 64L * 1024 * 1024;
+
+	private static final int PATHS_MAGIC = 0x44494650;
+
+	private File rootDirectory;
+	private File directory;
+	private long sizeLimit;
+
+	/**
+	 * Default class constructor. The cache is stored in the directory .deliveryif/cache of the user home,
+	 * with the default size limit.
+	 */
+	public MapCache() {
+		this(new File(new File(System.getProperty("user.home"), ".deliveryif"), "cache"), DEFAULT_SIZE_LIMIT);
+	}
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param rootDirectory The directory of the cache.
+	 * @param sizeLimit The maximum size in bytes of the cache.
+	 */
+	public MapCache(File rootDirectory, long sizeLimit) {
+		this.rootDirectory = rootDirectory;
+		this.directory = new File(rootDirectory, "v" + VERSION);
+		this.sizeLimit = sizeLimit;
+	}
+
+	/**
+	 * @return The directory where the entries of the current version are stored.
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * @return The maximum size in bytes of the cache.
+	 */
+	public long getSizeLimit() {
+		return sizeLimit;
+	}
+
+	/**
+	 * Computes the key of a map file, that is the SHA-256 hash of its content.
+	 * The stream is read to its end but not closed.
+	 *
+	 * @param input The content of the map file.
+	 * @return The hash of the file in hexadecimal.
+	 *
+	 * @throws IOException If the file cannot be read.
+	 */
+	public String computeKey(InputStream input) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+		byte[] buffer = new byte[64 * 1024];
+		int read;
+		while ((read = input.read(buffer)) > 0) {
+			digest.update(buffer, 0, read);
+		}
+		StringBuilder key = new StringBuilder();
+		for (byte b : digest.digest()) {
+			key.append(String.format("%02x", b));
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Loads the snapshot of a map from the cache.
+	 *
+	 * @param key The key of the map file.
+	 * @return The SortedMap of ids and intersections of the map, null if the map is not in the cache.
+	 */
+	public SortedMap<Long, Intersection> loadMap(String key) {
+		File file = new File(directory, key + ".map");
+		if (!file.isFile()) {
+			return null;
+		}
+		try {
+			SortedMap<Long, Intersection> intersections = BinaryMapFile.read(file.getPath());
+			touch(file);
+			return intersections;
+		} catch (Exception e) {
+			// corrupted entry
+			file.delete();
+			return null;
+		}
+	}
+
+	/**
+	 * Saves the snapshot of a map in the cache, if it is not already there.
+	 *
+	 * @param key The key of the map file.
+	 * @param intersections The SortedMap of ids and intersections of the map.
+	 */
+	public void saveMap(String key, SortedMap<Long, Intersection> intersections) {
+		File file = new File(directory, key + ".map");
+		if (file.isFile()) {
+			touch(file);
+			return;
+		}
+		try {
+			directory.mkdirs();
+			File temporaryFile = new File(directory, key + ".map.tmp");
+			BinaryMapFile.write(intersections, temporaryFile.getPath());
+			if (!temporaryFile.renameTo(file)) {
+				temporaryFile.delete();
+			}
+			evict();
+		} catch (IOException e) {
+			// the map is simply not cached
+		}
+	}
+
+	/**
+	 * Loads the shortest paths computed on a map from the cache.
+	 * The departure and arrival stops of the loaded paths are not set.
+	 *
+	 * @param key The key of the map file.
+	 * @param intersections The SortedMap of ids and intersections of the map the paths were computed on.
+	 * @return The paths by id of their departure intersection, then by id of their arrival intersection.
+	 * The result is empty if no path of this map is in the cache.
+	 */
+	public HashMap<Long, HashMap<Long, Path>> loadPaths(String key, SortedMap<Long, Intersection> intersections) {
+		HashMap<Long, HashMap<Long, Path>> rows = new HashMap<Long, HashMap<Long, Path>>();
+		File file = new File(directory, key + ".paths");
+		if (!file.isFile()) {
+			return rows;
+		}
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (input.readInt() != PATHS_MAGIC || input.readInt() != VERSION) {
+				throw new IOException("Unknown file type");
+			}
+			while (true) {
+				long departureId;
+				try {
+					departureId = input.readLong();
+				} catch (EOFException e) {
+					// end of the last row
+					break;
+				}
+				int nbPaths = input.readInt();
+				HashMap<Long, Path> row = rows.computeIfAbsent(departureId, id -> new HashMap<Long, Path>());
+				for (int p = 0; p < nbPaths; p++) {
+					long arrivalId = input.readLong();
+					Path path = new Path();
+					path.setPathDuration(input.readFloat());
+					int nbSegments = input.readInt();
+					ArrayList<Segment> pathSegments = new ArrayList<Segment>();
+					Intersection current = intersections.get(departureId);
+					for (int s = 0; s < nbSegments; s++) {
+						Intersection next = intersections.get(input.readLong());
+						Segment segment = current == null || next == null ? null : current.getIntersectionSegment(next);
+						if (segment == null) {
+							throw new IOException("Non existent segment");
+						}
+						pathSegments.add(segment);
+						current = next;
+					}
+					path.setPathSegments(pathSegments);
+					row.put(arrivalId, path);
+				}
+			}
+			touch(file);
+		} catch (IOException e) {
+			// corrupted entry
+			file.delete();
+			rows.clear();
+		}
+		return rows;
+	}
+
+	/**
+	 * Appends shortest paths computed on a map to the ones already in the cache. 
+	 * Only the new paths are written, the paths already saved are not written again.
+	 *
+	 * @param key The key of the map file.
+	 * @param rows The new paths by id of their departure intersection, then by id of their arrival intersection.
+	 */
+	public void appendPaths(String key, HashMap<Long, HashMap<Long, Path>> rows) {
+		try {
+			directory.mkdirs();
+			File file = new File(directory, key + ".paths");
+			boolean newFile = !file.isFile() || file.length() == 0;
+			try (DataOutputStream output = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(file, true)))) {
+				if (newFile) {
+					output.writeInt(PATHS_MAGIC);
+					output.writeInt(VERSION);
+				}
+				for (Entry<Long, HashMap<Long, Path>> row : rows.entrySet()) {
+					if (row.getValue().isEmpty()) {
+						continue;
+					}
+					output.writeLong(row.getKey());
+					output.writeInt(row.getValue().size());
+					for (Entry<Long, Path> path : row.getValue().entrySet()) {
+						output.writeLong(path.getKey());
+						output.writeFloat(path.getValue().getPathDuration());
+						output.writeInt(path.getValue().getPathSegments().size());
+						for (Segment segment : path.getValue().getPathSegments()) {
+							output.writeLong(segment.getArrivalIntersection().getId());
+						}
+					}
+				}
+			}
+			evict();
+		} catch (IOException e) {
+			// the paths are simply not cached
+		}
+	}
+
+	/**
+	 * Marks a file of the cache as the most recently used one.
+	 *
+	 * @param file A file of the cache.
+	 */
+	private void touch(File file) {
+		file.setLastModified(System.currentTimeMillis());
+	}
+
+	/**
+	 * Deletes the directories of the other versions of the cache, then the least recently used files
+	 * until the size of the cache is under its limit.
+	 */
+	private void evict() {
+		File[] versions = rootDirectory.listFiles();
+		if (versions != null) {
+			for (File version : versions) {
+				if (version.isDirectory() && !version.equals(directory)) {
+					File[] files = version.listFiles();
+					if (files != null) {
+						for (File file : files) {
+							file.delete();
+						}
+					}
+					version.delete();
+				}
+			}
+		}
+
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		long size = 0;
+		for (File file : files) {
+			size += file.length();
+		}
+		Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+		for (int i = 0; i < files.length && size > sizeLimit; i++) {
+			size -= files[i].length();
+			files[i].delete();
+		}
+	}
+}
@@ -5,7 +5,6 @@ import javax.swing.JOptionPane;
 import View.DrawnMap;
 import View.LandingPage;
 import View.LoadRequests;
-import View.RoadMap;
 
 /**
  * MapLoadedState is state with a loaded map (after loading a map file).
@@ -61,8 +60,10 @@ public class MapLoadedState implements State {
 	@Override
 	public void loadRequests(String xmlFile, DrawnMap drawnMap) {
 		try {
-			controller.parseFile(xmlFile);
-			new RoadMap(controller, drawnMap);
+			if (!controller.loadFile(xmlFile)) {
+				// cancelled by the user, nothing has changed
+				return;
+			}
 			controller.setCurrentState(controller.getRequestsLoadedState());
 			controller.getMenu().getLoadRequestsFrame().closeLoadRequests();
 			controller.getMenu().instructionsSetText("<html><body>You can compute a tour and display it on the map.<br>"
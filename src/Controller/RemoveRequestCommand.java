@@ -86,6 +86,7 @@ public class RemoveRequestCommand implements Command {
 			this.map.getTour().setDeliveryStop(request.getDeliveryStop());
 			this.map.getTour().setPickupStopPredecessor(pickupPredecessor);
 			this.map.getTour().setDeliveryStopPredecessor(deliveryPredecessor);
+			this.map.getTour().setRequestDemand(request.getDemand());
 			this.map.addRequest();
 		} catch (Exception e) {
 			System.out.println(e);
@@ -5,7 +5,6 @@ import javax.swing.JOptionPane;
 import View.DrawnMap;
 import View.LandingPage;
 import View.LoadRequests;
-import View.RoadMap;
 
 /**
  * State when requests are loaded (after loading a request file).
@@ -58,8 +57,10 @@ public class RequestsLoadedState implements State {
 	@Override
 	public void loadRequests(String xmlFile, DrawnMap drawnMap) {
 		try {
-			controller.parseFile(xmlFile);
-			new RoadMap(controller, drawnMap);
+			if (!controller.loadFile(xmlFile)) {
+				// cancelled by the user, nothing has changed
+				return;
+			}
 			controller.setCurrentState(controller.getRequestsLoadedState());
 			controller.getMenu().getLoadRequestsFrame().closeLoadRequests();
 		} catch (Exception e) {
@@ -83,7 +84,9 @@ public class RequestsLoadedState implements State {
 	@Override
 	public void computeTour() {
 		int finishCompute = controller.computeOptimisedTour(controller.getMap());
-		if (finishCompute == 0) {
+		if (finishCompute == 0 && controller.getTsp().getSolution(0) == null) {
+			JOptionPane.showMessageDialog(null, "No tour respects the time windows of the requests.");
+		} else if (finishCompute == 0) {
 			controller.saveTSPSolution(controller.getTsp(), controller.getPaths());
 			controller.setCurrentState(controller.getComputedTourState());
 			controller.getMenu().instructionsSetText("You can add and delete requests.");
@@ -94,7 +94,7 @@ public interface State {
 	 * </ul>
 	 * 
 	 * @param xmlFile  is the path to the xml request file.
-	 * @param drawnMap is used to create a road map.
+	 * @param drawnMap is the map on which the requests are drawn.
 	 * 
 	 * @see MapLoadedState
 	 * @see RequestsLoadedState
@@ -146,6 +146,19 @@ public interface State {
 		JOptionPane.showMessageDialog(null, "You can't delete a request at this state");
 	};
 
+	/**
+	 * Shares the requests of the tour between several vehicles only if current state is
+	 * ComputedTourState. The tour displayed is not modified.
+	 * 
+	 * @param fleetSize is the number of vehicles.
+	 * 
+	 * @see ComputedTourState
+	 * @see Controller#computeFleetTours(int)
+	 */
+	public default void shareTour(int fleetSize) {
+		JOptionPane.showMessageDialog(null, "You can't share the tour between vehicles at this state");
+	};
+
 	/**
 	 * Changes state to AddPickupPredecessorState only if current state is
 	 * AddPickupStopState OR changes state to AddDeliveryPredecessorState only if
@@ -0,0 +1,166 @@
+package Model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DistanceMatrixPipeline computes the shortest paths from the stops of a requests file while the file
+ * is still being parsed, so that the matrix of the paths between the stops is almost ready when the
+ * parsing ends.
+ *
+ * A pipeline is composed of:
+ * <ul>
+ * <li>The map the paths are computed on.</li>
+ * <li>A pool of worker threads.</li>
+ * <li>The search started from each intersection submitted, by id. As the other stops are not known yet 
+ * when a stop is parsed, each search settles all the intersections reachable from it.</li>
+ * <li>A capacity, that is the maximum number of intersections settled by all these searches. 
+ * The intersections submitted beyond it wait for the end of the parsing.</li>
+ * <li>The stops of the requests file, once it is entirely parsed. Each tree is then reduced to 
+ * the shortest paths towards the stops, and the waiting searches stop once all the stops are reached.</li>
+ * </ul>
+ *
+ * The trees are only read once the parsing is over, to build the paths between the stops.
+ *
+ * @author H4122
+ *
+ * @see Model.ShortestPathTree
+ * @see Controller.Controller#parseRequests(javax.xml.stream.XMLStreamReader)
+ */
+public class DistanceMatrixPipeline {
+
+	/**
+	 * The default capacity of a pipeline, in settled intersections.
+	 */
+	public static final int DEFAULT_CAPACITY = 1000000;
+
+	private Map map;
+	private ThreadPoolExecutor executor;
+	private int maxFullTrees;
+	private ConcurrentHashMap<Long, Future<?>> searches = new ConcurrentHashMap<Long, Future<?>>();
+	private ConcurrentHashMap<Long, ShortestPathTree> trees = new ConcurrentHashMap<Long, ShortestPathTree>();
+	private ArrayList<Intersection> waitingOrigins = new ArrayList<Intersection>();
+	private ArrayList<Intersection> targets;
+
+	/**
+	 * Class constructor. The pipeline has the default capacity.
+	 *
+	 * @param map The map the paths are computed on.
+	 */
+	public DistanceMatrixPipeline(Map map) {
+		this(map, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Class constructor. Creates a pool with one worker thread by processor. 
+	 * The threads stop by themselves when there is nothing left to compute.
+	 *
+	 * @param map The map the paths are computed on.
+	 * @param capacity The maximum number of intersections settled by the searches started during the parsing.
+	 */
+	public DistanceMatrixPipeline(Map map, int capacity) {
+		this.map = map;
+		this.maxFullTrees = capacity / Math.max(1, map.getIntersections().size());
+		int nbThreads = Math.max(1, Runtime.getRuntime().availableProcessors());
+		this.executor = new ThreadPoolExecutor(nbThreads, nbThreads, 1, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), runnable -> {
+					Thread thread = new Thread(runnable, "distance-matrix");
+					thread.setDaemon(true);
+					return thread;
+				});
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Starts the search of the shortest paths from an intersection, if it is not already started.
+	 * If the capacity of the pipeline is reached, the search waits for the stops to be known.
+	 *
+	 * @param origin The intersection of a stop that has just been parsed.
+	 *
+	 * @see Model.DistanceMatrixPipeline#setTargets(Collection)
+	 */
+	public synchronized void submit(Intersection origin) {
+		if (contains(origin.getId())) {
+			return;
+		}
+		if (targets == null && searches.size() >= maxFullTrees) {
+			waitingOrigins.add(origin);
+		} else {
+			start(origin);
+		}
+	}
+
+	/**
+	 * Gives the stops of the requests file once it is parsed. The trees already computed are reduced 
+	 * to the shortest paths towards the stops, and the searches waiting for the stops are started.
+	 *
+	 * @param stops The intersections of all the stops of the requests file.
+	 */
+	public synchronized void setTargets(Collection<? extends Intersection> stops) {
+		targets = new ArrayList<Intersection>(stops);
+		trees.replaceAll((id, tree) -> tree.prune(targets));
+		for (Intersection origin : waitingOrigins) {
+			start(origin);
+		}
+		waitingOrigins.clear();
+	}
+
+	/**
+	 * Starts a search in the pool, towards the stops if they are known.
+	 *
+	 * @param origin The intersection the search is originated from.
+	 */
+	private void start(Intersection origin) {
+		Collection<Intersection> searchTargets = targets;
+		searches.put(origin.getId(),
+				executor.submit(() -> keep(map.computeShortestPathTree(origin, searchTargets, false))));
+	}
+
+	/**
+	 * Keeps the tree found by a search, reduced to the paths towards the stops if they are known.
+	 *
+	 * @param tree The shortest path tree of an intersection.
+	 */
+	private synchronized void keep(ShortestPathTree tree) {
+		trees.put(tree.getOrigin().getId(), targets == null ? tree : tree.prune(targets));
+	}
+
+	/**
+	 * @param id The id of an intersection.
+	 * @return TRUE if the search of the shortest paths from this intersection was submitted.
+	 */
+	public synchronized boolean contains(long id) {
+		return searches.containsKey(id) || waitingOrigins.stream().anyMatch(origin -> origin.getId() == id);
+	}
+
+	/**
+	 * Gives the shortest path tree of an intersection, waiting for the end of its search if needed.
+	 *
+	 * @param id The id of an intersection submitted to the pipeline.
+	 * @return The shortest path tree from this intersection, null if its search was not started.
+	 *
+	 * @throws InterruptedException If the thread is interrupted while waiting.
+	 * @throws ExecutionException If the search failed.
+	 */
+	public ShortestPathTree getTree(long id) throws InterruptedException, ExecutionException {
+		Future<?> search = searches.get(id);
+		if (search == null) {
+			return null;
+		}
+		search.get();
+		return trees.get(id);
+	}
+
+	/**
+	 * Stops the worker threads. The searches not started yet are abandoned.
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+}
@@ -0,0 +1,401 @@
+package Model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * FleetPlanner is the class that shares the requests of a tour between several vehicles
+ * leaving from the same tour departure, and optimises the route of each vehicle.
+ *
+ * A fleet planner is composed of:
+ * <ul>
+ * <li>The graph of the stops, shared by all the vehicles. Vertex 0 is the tour departure,
+ * vertices 2k+1 and 2k+2 are the pickup stop and the delivery stop of the k-th request.</li>
+ * <li>The duration spent at each vertex.</li>
+ * <li>The capacity of each vehicle, and the demand of each vertex: positive at a pickup stop, 
+ * negative at a delivery stop.</li>
+ * <li>The number of vehicles.</li>
+ * <li>The time limit in milliseconds given to each route optimisation.</li>
+ * <li>The route of each vehicle, that is the list of the vertices it visits after the tour departure.</li>
+ * </ul>
+ *
+ * Requests are first assigned one by one to the vehicle whose route stays the shortest after a cheapest insertion
+ * respecting its capacity.
+ * Then rounds are repeated: the routes that changed are optimised with a TSP, all in parallel,
+ * and requests are moved from a route to another while the longest route gets shorter
+ * (or, for the same longest route, while the total duration gets shorter).<br/>
+ *
+ * The graph is only read, every vehicle uses a SubGraph view of it.
+ *
+ * @author H4122
+ *
+ * @see Model.SubGraph
+ * @see Model.TSP1
+ * @see Controller.Controller#computeFleetTours(int)
+ */
+public class FleetPlanner {
+
+	/**
+	 * Maximum number of optimisation and relocation rounds.
+	 */
+	private static final int MAX_ROUNDS = 10;
+
+	private Graph graph;
+	private float[] stopDurations;
+	private int capacity;
+	private int[] demands;
+	private int fleetSize;
+	private int timeLimit;
+	private ArrayList<ArrayList<Integer>> routes;
+	private float[] routeDurations;
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param graph The graph of the stops, vertex 0 being the tour departure.
+	 * @param stopDurations The duration in seconds spent at each vertex.
+	 * @param capacity The capacity of each vehicle, Integer.MAX_VALUE if it is not limited.
+	 * @param demands The demand of each vertex, the opposite of the pickup demand at a delivery stop.
+	 * @param fleetSize The number of vehicles.
+	 * @param timeLimit The time limit in milliseconds given to each route optimisation.
+	 */
+	public FleetPlanner(Graph graph, float[] stopDurations, int capacity, int[] demands, int fleetSize,
+			int timeLimit) {
+		this.graph = graph;
+		this.stopDurations = stopDurations;
+		this.capacity = capacity;
+		this.demands = demands;
+		this.fleetSize = fleetSize;
+		this.timeLimit = timeLimit;
+	}
+
+	/**
+	 * @return The route of each vehicle.
+	 */
+	public ArrayList<ArrayList<Integer>> getRoutes() {
+		return routes;
+	}
+
+	/**
+	 * @param vehicle The index of a vehicle.
+	 * @return The duration in seconds of the route of this vehicle, stop durations included.
+	 */
+	public float getRouteDuration(int vehicle) {
+		return routeDurations[vehicle];
+	}
+
+	/**
+	 * Assigns the requests to the vehicles and optimises their routes.
+	 *
+	 * @return The route of each vehicle, that is the list of the vertices it visits after the tour departure.
+	 *
+	 * @throws Exception If a request cannot be placed in any route, or if a route optimisation failed.
+	 */
+	public ArrayList<ArrayList<Integer>> plan() throws Exception {
+		assignRequests();
+		ExecutorService executor = Executors
+				.newFixedThreadPool(Math.max(1, Math.min(fleetSize, Runtime.getRuntime().availableProcessors())));
+		try {
+			boolean[] changed = new boolean[fleetSize];
+			Arrays.fill(changed, true);
+			for (int round = 0; round < MAX_ROUNDS; round++) {
+				optimiseRoutes(executor, changed);
+				Arrays.fill(changed, false);
+				if (!relocateRequests(changed)) {
+					break;
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		return routes;
+	}
+
+	/**
+	 * Builds the first routes, inserting the requests from the farthest to the nearest pickup stop.
+	 *
+	 * @throws Exception If a request cannot be placed in any route.
+	 */
+	private void assignRequests() throws Exception {
+		routes = new ArrayList<ArrayList<Integer>>();
+		routeDurations = new float[fleetSize];
+		for (int vehicle = 0; vehicle < fleetSize; vehicle++) {
+			routes.add(new ArrayList<Integer>());
+		}
+		ArrayList<Integer> pickups = new ArrayList<Integer>();
+		for (int pickup = 1; pickup < graph.getNbVertices(); pickup += 2) {
+			pickups.add(pickup);
+		}
+		Collections.sort(pickups, (a, b) -> Float.compare(arcCost(0, b), arcCost(0, a)));
+
+		for (int pickup : pickups) {
+			int bestVehicle = -1;
+			ArrayList<Integer> bestRoute = null;
+			float bestDuration = Float.MAX_VALUE;
+			for (int vehicle = 0; vehicle < fleetSize; vehicle++) {
+				ArrayList<Integer> route = insertRequest(routes.get(vehicle), pickup);
+				if (route != null) {
+					float duration = computeDuration(route);
+					if (duration < bestDuration) {
+						bestVehicle = vehicle;
+						bestRoute = route;
+						bestDuration = duration;
+					}
+				}
+			}
+			if (bestRoute == null) {
+				throw new Exception("the request " + (pickup - 1) / 2 + " cannot be placed in any route");
+			}
+			routes.set(bestVehicle, bestRoute);
+			routeDurations[bestVehicle] = bestDuration;
+		}
+	}
+
+	/**
+	 * Optimises the order of the routes that changed, one TSP per route, all in parallel.
+	 * A route is only replaced if the TSP found a shorter order.
+	 *
+	 * @param executor The threads running the TSP.
+	 * @param changed The vehicles whose route must be optimised.
+	 *
+	 * @throws InterruptedException If the planning was interrupted.
+	 * @throws ExecutionException If a TSP failed.
+	 */
+	private void optimiseRoutes(ExecutorService executor, boolean[] changed)
+			throws InterruptedException, ExecutionException {
+		ArrayList<Future<ArrayList<Integer>>> results = new ArrayList<Future<ArrayList<Integer>>>();
+		for (int vehicle = 0; vehicle < fleetSize; vehicle++) {
+			final ArrayList<Integer> route = routes.get(vehicle);
+			if (!changed[vehicle] || route.size() < 3) {
+				results.add(null);
+				continue;
+			}
+			results.add(executor.submit(new Callable<ArrayList<Integer>>() {
+				@Override
+				public ArrayList<Integer> call() {
+					return solveRoute(route);
+				}
+			}));
+		}
+		for (int vehicle = 0; vehicle < fleetSize; vehicle++) {
+			if (results.get(vehicle) == null) {
+				continue;
+			}
+			ArrayList<Integer> route = results.get(vehicle).get();
+			if (route != null) {
+				float duration = computeDuration(route);
+				if (duration < routeDurations[vehicle]) {
+					routes.set(vehicle, route);
+					routeDurations[vehicle] = duration;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runs a TSP on the tour departure and the vertices of a route,
+	 * the delivery stop of each request being visited after its pickup stop, without exceeding the capacity.
+	 *
+	 * @param route The route to optimise.
+	 * @return The best order found, null if the TSP found none.
+	 *
+	 * @see Model.TSP#setCapacity(int, int[], int[])
+	 */
+	private ArrayList<Integer> solveRoute(ArrayList<Integer> route) {
+		int[] vertices = new int[route.size() + 1];
+		for (int i = 0; i < route.size(); i++) {
+			vertices[i + 1] = route.get(i);
+		}
+		// the pickup vertex of each delivery, as an index of the sub graph
+		int[] pickupVertices = new int[vertices.length];
+		int[] subDemands = new int[vertices.length];
+		pickupVertices[0] = -1;
+		for (int i = 1; i < vertices.length; i++) {
+			pickupVertices[i] = vertices[i] % 2 == 0 ? route.indexOf(vertices[i] - 1) + 1 : -1;
+			subDemands[i] = demands[vertices[i]];
+		}
+		SubGraph subGraph = new SubGraph(graph, vertices);
+		TSP tsp = new TSP1();
+		tsp.setCapacity(capacity, subDemands, pickupVertices);
+		tsp.searchSolution(timeLimit, subGraph);
+		if (tsp.getSolution(0) == null) {
+			return null;
+		}
+		ArrayList<Integer> solution = new ArrayList<Integer>(route.size());
+		for (int i = 1; i < vertices.length; i++) {
+			solution.add(subGraph.getVertex(tsp.getSolution(i)));
+		}
+		return solution;
+	}
+
+	/**
+	 * Moves each request to another route when it shortens the longest route,
+	 * or the total duration for the same longest route.
+	 *
+	 * @param changed Set to TRUE for the vehicles whose route was modified.
+	 * @return TRUE if at least one request was moved.
+	 */
+	private boolean relocateRequests(boolean[] changed) {
+		boolean moved = false;
+		for (int pickup = 1; pickup < graph.getNbVertices(); pickup += 2) {
+			int from = 0;
+			while (!routes.get(from).contains(pickup)) {
+				from++;
+			}
+			ArrayList<Integer> reduced = new ArrayList<Integer>(routes.get(from));
+			reduced.remove(Integer.valueOf(pickup));
+			reduced.remove(Integer.valueOf(pickup + 1));
+			float reducedDuration = computeDuration(reduced);
+			if (reducedDuration == Float.MAX_VALUE) {
+				continue;
+			}
+			for (int to = 0; to < fleetSize; to++) {
+				if (to == from) {
+					continue;
+				}
+				ArrayList<Integer> extended = insertRequest(routes.get(to), pickup);
+				if (extended == null) {
+					continue;
+				}
+				float extendedDuration = computeDuration(extended);
+				if (isImprovement(from, reducedDuration, to, extendedDuration)) {
+					routes.set(from, reduced);
+					routes.set(to, extended);
+					routeDurations[from] = reducedDuration;
+					routeDurations[to] = extendedDuration;
+					changed[from] = true;
+					changed[to] = true;
+					moved = true;
+					break;
+				}
+			}
+		}
+		return moved;
+	}
+
+	/**
+	 * @return TRUE if replacing the durations of two routes shortens the longest route,
+	 * or the total duration for the same longest route.
+	 */
+	private boolean isImprovement(int first, float firstDuration, int second, float secondDuration) {
+		float currentMax = 0;
+		float newMax = 0;
+		for (int vehicle = 0; vehicle < fleetSize; vehicle++) {
+			currentMax = Math.max(currentMax, routeDurations[vehicle]);
+			float duration = vehicle == first ? firstDuration
+					: vehicle == second ? secondDuration : routeDurations[vehicle];
+			newMax = Math.max(newMax, duration);
+		}
+		if (newMax != currentMax) {
+			return newMax < currentMax;
+		}
+		return firstDuration + secondDuration < routeDurations[first] + routeDurations[second];
+	}
+
+	/**
+	 * Inserts a request at the cheapest position of a route, its delivery stop after its pickup stop.
+	 * The vehicle must be able to carry the request from its pickup stop to its delivery stop.
+	 *
+	 * @param route The route to insert the request in, which is not modified.
+	 * @param pickup The pickup vertex of the request, its delivery vertex being the next one.
+	 * @return A new route containing the request, null if no position is possible.
+	 */
+	private ArrayList<Integer> insertRequest(ArrayList<Integer> route, int pickup) {
+		int delivery = pickup + 1;
+		int n = route.size();
+		// the load of the vehicle when it arrives at each position of the route
+		int[] loads = new int[n + 1];
+		for (int k = 0; k < n; k++) {
+			loads[k + 1] = loads[k] + demands[route.get(k)];
+		}
+		float bestDelta = Float.MAX_VALUE;
+		int bestPickupPosition = -1;
+		int bestDeliveryPosition = -1;
+		for (int p = 0; p <= n; p++) {
+			if (loads[p] + demands[pickup] > capacity) {
+				continue;
+			}
+			int previous = p == 0 ? 0 : route.get(p - 1);
+			int next = p == n ? 0 : route.get(p);
+			// delivery right after the pickup
+			float delta = sum(arcCost(previous, pickup), arcCost(pickup, delivery), arcCost(delivery, next));
+			if (delta != Float.MAX_VALUE && delta - arcCost(previous, next) < bestDelta) {
+				bestDelta = delta - arcCost(previous, next);
+				bestPickupPosition = p;
+				bestDeliveryPosition = p;
+			}
+			float pickupDelta = sum(arcCost(previous, pickup), arcCost(pickup, next), 0);
+			if (pickupDelta == Float.MAX_VALUE) {
+				continue;
+			}
+			pickupDelta -= arcCost(previous, next);
+			for (int d = p + 1; d <= n; d++) {
+				// the vehicle carries the request until the delivery
+				if (loads[d] + demands[pickup] > capacity) {
+					break;
+				}
+				int a = route.get(d - 1);
+				int b = d == n ? 0 : route.get(d);
+				float deliveryDelta = sum(arcCost(a, delivery), arcCost(delivery, b), 0);
+				if (deliveryDelta != Float.MAX_VALUE && pickupDelta + deliveryDelta - arcCost(a, b) < bestDelta) {
+					bestDelta = pickupDelta + deliveryDelta - arcCost(a, b);
+					bestPickupPosition = p;
+					bestDeliveryPosition = d;
+				}
+			}
+		}
+		if (bestPickupPosition < 0) {
+			return null;
+		}
+		ArrayList<Integer> extended = new ArrayList<Integer>(route);
+		extended.add(bestDeliveryPosition, delivery);
+		extended.add(bestPickupPosition, pickup);
+		return extended;
+	}
+
+	/**
+	 * @param route A route.
+	 * @return The duration in seconds of the route from and back to the tour departure, stop durations included.
+	 * Float.MAX_VALUE if an arc of the route does not exist.
+	 */
+	private float computeDuration(ArrayList<Integer> route) {
+		float duration = 0;
+		int previous = 0;
+		for (int vertex : route) {
+			float cost = arcCost(previous, vertex);
+			if (cost == Float.MAX_VALUE) {
+				return Float.MAX_VALUE;
+			}
+			duration += cost + stopDurations[vertex];
+			previous = vertex;
+		}
+		float cost = arcCost(previous, 0);
+		return cost == Float.MAX_VALUE ? Float.MAX_VALUE : duration + cost;
+	}
+
+	/**
+	 * @return The cost of the arc (i,j), 0 if i equals j, Float.MAX_VALUE if the arc does not exist.
+	 */
+	private float arcCost(int i, int j) {
+		if (i == j) {
+			return 0;
+		}
+		return graph.isArc(i, j) ? graph.getCost(i, j) : Float.MAX_VALUE;
+	}
+
+	/**
+	 * @return The sum of three costs, Float.MAX_VALUE if one of them is Float.MAX_VALUE.
+	 */
+	private float sum(float a, float b, float c) {
+		if (a == Float.MAX_VALUE || b == Float.MAX_VALUE || c == Float.MAX_VALUE) {
+			return Float.MAX_VALUE;
+		}
+		return a + b + c;
+	}
+}
@@ -0,0 +1,82 @@
+package Model;
+
+/**
+ * Insertion is a possible placement of a new request in a computed tour.
+ *
+ * An insertion is composed of:
+ * <ul>
+ * <li>The stop of the tour after which the new pickup stop is placed.</li>
+ * <li>The stop of the tour after which the new delivery stop is placed. It is the same
+ * as the pickup predecessor when the delivery stop directly follows the pickup stop.</li>
+ * <li>The duration in seconds added to the tour by this placement.</li>
+ * </ul>
+ *
+ * Insertions are sorted by increasing added duration.
+ *
+ * @author H4122
+ *
+ * @see Model.Map#computeInsertions(Stop, Stop)
+ * @see Model.Tour#getOrderedTravel()
+ */
+public class Insertion implements Comparable<Insertion> {
+	private Stop pickupPredecessor;
+	private Stop deliveryPredecessor;
+	private float addedDuration;
+
+	/**
+	 * Class constructor. Creates the insertion with the predecessors and the duration given in parameters.
+	 *
+	 * @param pickupPredecessor The stop after which the new pickup stop is placed.
+	 * @param deliveryPredecessor The stop after which the new delivery stop is placed.
+	 * @param addedDuration The duration in seconds added to the tour.
+	 */
+	public Insertion(Stop pickupPredecessor, Stop deliveryPredecessor, float addedDuration) {
+		this.pickupPredecessor = pickupPredecessor;
+		this.deliveryPredecessor = deliveryPredecessor;
+		this.addedDuration = addedDuration;
+	}
+
+	/**
+	 * @return The stop after which the new pickup stop is placed.
+	 */
+	public Stop getPickupPredecessor() {
+		return pickupPredecessor;
+	}
+
+	/**
+	 * @return The stop after which the new delivery stop is placed.
+	 */
+	public Stop getDeliveryPredecessor() {
+		return deliveryPredecessor;
+	}
+
+	/**
+	 * @return The duration in seconds added to the tour, stop durations included.
+	 */
+	public float getAddedDuration() {
+		return addedDuration;
+	}
+
+	/**
+	 * Compares the added durations of two insertions.
+	 *
+	 * @param other The insertion to be compared with.
+	 * @return A negative number if this insertion is cheaper than the other one,
+	 * a positive number if it is more expensive, zero otherwise.
+	 */
+	@Override
+	public int compareTo(Insertion other) {
+		return Float.compare(addedDuration, other.addedDuration);
+	}
+
+	/**
+	 * Overrides toString method in class Object.
+	 *
+	 * @return A String with the information of this insertion, that can be printed.
+	 */
+	@Override
+	public String toString() {
+		return "Insertion [pickupPredecessor=" + pickupPredecessor.getId() + ", deliveryPredecessor="
+				+ deliveryPredecessor.getId() + ", addedDuration=" + addedDuration + "]";
+	}
+}
@@ -0,0 +1,44 @@
+package Model;
+
+/**
+ * InsertionRejection is the reason why a stop of the tour cannot be the predecessor of a new stop.
+ * 
+ * The reasons are:
+ * <ul>
+ * <li>UNREACHABLE : no road leads from the stop to the new stop, or from the new stop to the
+ * next stops.</li>
+ * <li>TIME_WINDOW : a following stop of the tour would be reached after its latest time.</li>
+ * <li>CAPACITY : the vehicle would carry more than its capacity.</li>
+ * <li>ORDER : the delivery stop would be placed before the pickup stop of its request.</li>
+ * </ul>
+ * 
+ * @see Model.Map#computePickupInsertionCosts(Stop)
+ * @see Model.Map#computeDeliveryInsertionCosts(Stop, Stop, Stop)
+ * @see Model.Tour#getInsertionRejections()
+ * 
+ * @author H4122
+ */
+public enum InsertionRejection {
+	UNREACHABLE("the new stop cannot be reached from this stop, or cannot reach the next stops"),
+	TIME_WINDOW("a stop of the tour would be reached after its latest time"),
+	CAPACITY("the vehicle would be overloaded"),
+	ORDER("the delivery stop must be placed after the pickup stop");
+
+	private String message;
+
+	/**
+	 * Enum constructor.
+	 * 
+	 * @param message The explanation displayed to the user.
+	 */
+	private InsertionRejection(String message) {
+		this.message = message;
+	}
+
+	/**
+	 * @return The explanation displayed to the user.
+	 */
+	public String getMessage() {
+		return message;
+	}
+}
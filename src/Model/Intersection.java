@@ -31,6 +31,8 @@ enum Visited {WHITE, GREY, BLACK};
  * <li>The list of all segments that are originated from this intersection.</li>
  * <li>An indication about if the intersection was visited when computing the shortest path
  * (Dijkstra algorithm), updated at each call of Dijkstra.</li>
+ * <li>Its index in the map: the intersections of a map are numbered from 0, in the order of their ids
+ * once the map is loaded. -1 if the intersection is not in a map.</li>
  * </ul>
  * 
  * Intersections are created when loading a map by parsing an XML map file.<br/>
@@ -42,7 +44,7 @@ enum Visited {WHITE, GREY, BLACK};
  * @see Model.Stop
  * @see Model.Segment
  * @see Model.Map#computeShortestPath(Stop, ArrayList)
- * @see Controller.Controller#parseMap(org.w3c.dom.Document)
+ * @see Controller.Controller#parseMap(javax.xml.stream.XMLStreamReader)
  */
 
 public class Intersection {
@@ -52,6 +54,7 @@ public class Intersection {
 	protected float longitude;
 	protected ArrayList<Segment> originatedSegments;
 	protected Visited intersectionVisited;
+	protected int index = -1;
 
 	/**
 	 * Default Class constructor.
@@ -131,6 +134,22 @@ public class Intersection {
 		this.longitude = longitude;
 	}
 	
+	/**
+	 * @return The index of this intersection in its map, -1 if it is not in a map.
+	 * 
+	 * @see Model.Map#setIntersections(java.util.SortedMap)
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * @param index The new index of this intersection in its map.
+	 */
+	public void setIndex(int index) {
+		this.index = index;
+	}
+
 	/**
 	 * intersectionVisited indicates if an intersection was visited when computing the shortest path
 	 * (Dijkstra algorithm).
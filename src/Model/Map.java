@@ -12,6 +12,7 @@ import ObserverDP.Observable;
  * <ul>
  * <li>A SortedMap of intersection ids and intersections (a TreeMap).</li>
  * <li>A tour.</li>
+ * <li>The tours of the vehicles, when the requests of the tour are shared between several vehicles.</li>
  * </ul>
  * 
  * Map is created when loading a map by parsing an XML map file.
@@ -26,12 +27,17 @@ import ObserverDP.Observable;
  * @see Model.Intersection
  * @see Model.Segment
  * @see Model.Tour
- * @see Controller.Controller#parseMap(org.w3c.dom.Document)
+ * @see Controller.Controller#parseMap(javax.xml.stream.XMLStreamReader)
  *
  */
 public class Map extends Observable {
 	private SortedMap<Long, Intersection> intersections;
 	private Tour tour;
+	private ArrayList<Tour> fleetTours;
+	private HashMap<Long, ArrayList<Segment>> incomingSegments;
+	private Float detourRatio;
+	private SpatialIndex spatialIndex;
+	private ShortestPathTreeStore treeStore = new ShortestPathTreeStore();
 
 	/**
 	 * Default class constructor.
@@ -42,6 +48,7 @@ public class Map extends Observable {
 	public Map() {
 		intersections = new TreeMap<>();
 		tour = new Tour();
+		fleetTours = new ArrayList<Tour>();
 	}
 
 	/* ------------- GETTERS AND SETTERS ----------------- */
@@ -64,6 +71,22 @@ public class Map extends Observable {
 		this.tour = tour;
 	}
 	
+	/**
+	 * @return The tours of the vehicles sharing the requests of the tour.
+	 * 
+	 * @see Controller.Controller#computeFleetTours(int)
+	 */
+	public ArrayList<Tour> getFleetTours() {
+		return fleetTours;
+	}
+
+	/**
+	 * @param fleetTours The new tours of the vehicles sharing the requests of the tour.
+	 */
+	public void setFleetTours(ArrayList<Tour> fleetTours) {
+		this.fleetTours = fleetTours;
+	}
+	
 	/**
 	 * @return The SortedMap of ids and intersections of this map.
 	 */
@@ -83,12 +106,41 @@ public class Map extends Observable {
 	}
 
 	/**
+	 * Sets the intersections of this map, and numbers them from 0 in the order of their ids.
+	 * 
 	 * @param intersections The new SortedMap of ids and intersections of this map.
 	 * 
 	 * @see Model.Intersection
+	 * @see Model.Intersection#getIndex()
 	 */
 	public void setIntersections(SortedMap<Long, Intersection> intersections) {
 		this.intersections = intersections;
+		numberIntersections();
+		this.incomingSegments = null;
+		this.detourRatio = null;
+		this.spatialIndex = null;
+		this.treeStore.clear();
+	}
+
+	/**
+	 * Numbers the intersections of this map from 0, in the order of their ids.
+	 * 
+	 * @see Model.Intersection#getIndex()
+	 */
+	private void numberIntersections() {
+		int index = 0;
+		for (Intersection intersection : intersections.values()) {
+			intersection.setIndex(index++);
+		}
+	}
+
+	/**
+	 * @return The shortest path trees already computed on this map.
+	 * 
+	 * @see Model.ShortestPathTreeStore
+	 */
+	public ShortestPathTreeStore getTreeStore() {
+		return treeStore;
 	}
 
 	/* ------------ END GETTERS AND SETTERS --------------- */
@@ -101,7 +153,9 @@ public class Map extends Observable {
 	 * @see Model.Intersection
 	 */
 	public void addIntersection(Intersection intersection) {
-		intersections.put(intersection.getId(), intersection);
+		if (intersections.put(intersection.getId(), intersection) == null) {
+			intersection.setIndex(intersections.size() - 1);
+		}
 	}
 	
 	/**
@@ -110,6 +164,10 @@ public class Map extends Observable {
 	 * @see ObserverDP.Observable#notifyObservers(Object)
 	 */
 	public void endLoadMap() {
+		numberIntersections();
+		incomingSegments = null;
+		detourRatio = null;
+		spatialIndex = null;
 		notifyObservers("loadMap");
 	}
 
@@ -287,6 +345,255 @@ public class Map extends Observable {
 		return lowestDistanceIntersection;
 	}
 	
+	/**
+	 * Computes the shortest paths between an intersection and the other intersections of this map,
+	 * using Dijkstra algorithm with a priority queue.
+	 * A forward search gives the shortest paths from the origin, a reverse search follows the segments 
+	 * backwards and gives the shortest paths to the origin.<br/>
+	 * 
+	 * The search stops as soon as all the targets are settled. If there is no target, 
+	 * all the intersections that can be reached are settled.<br/>
+	 * 
+	 * Contrary to computeShortestPath, the intersections of this map are not modified,
+	 * so that several searches can run at the same time.
+	 * 
+	 * @param origin The intersection from where (or to where, if reverse) the paths are computed.
+	 * @param targets The intersections to compute the shortest path to (or from, if reverse), 
+	 * null to settle all the reachable intersections.
+	 * @param reverse TRUE to compute the shortest paths to the origin.
+	 * 
+	 * @return The shortest path tree of the origin.
+	 * 
+	 * @see Model.ShortestPathTree
+	 * @see Model.Map#computeShortestPath(Stop, ArrayList)
+	 */
+	public ShortestPathTree computeShortestPathTree(Intersection origin, Collection<? extends Intersection> targets,
+			boolean reverse) {
+		return computeShortestPathTree(origin, targets, reverse, null);
+	}
+
+	/**
+	 * Computes the shortest paths between an intersection and other intersections, using only the 
+	 * intersections of a working region. The targets outside the region are not reached.
+	 * 
+	 * @param origin The intersection from where (or to where, if reverse) the paths are computed.
+	 * @param targets The intersections to compute the shortest path to (or from, if reverse), 
+	 * null to settle all the reachable intersections.
+	 * @param reverse TRUE to compute the shortest paths to the origin.
+	 * @param region The region the search is restricted to, null to search the whole map.
+	 * 
+	 * @return The shortest path tree of the origin inside the region.
+	 * 
+	 * @see Model.Map#computeShortestPathTree(Intersection, Collection, boolean)
+	 * @see Model.WorkingRegion
+	 */
+	public ShortestPathTree computeShortestPathTree(Intersection origin, Collection<? extends Intersection> targets,
+			boolean reverse, WorkingRegion region) {
+		HashMap<Long, Float> distances = new HashMap<Long, Float>();
+		HashMap<Long, Segment> treeSegments = new HashMap<Long, Segment>();
+		HashMap<Long, Float> tentative = new HashMap<Long, Float>();
+		HashSet<Long> remainingTargets = new HashSet<Long>();
+		if (targets != null) {
+			for (Intersection target : targets) {
+				remainingTargets.add(target.getId());
+			}
+		}
+		HashMap<Long, ArrayList<Segment>> incoming = reverse ? getIncomingSegments() : null;
+
+		PriorityQueue<Entry<Long, Float>> queue = new PriorityQueue<Entry<Long, Float>>(
+				(a, b) -> Float.compare(a.getValue(), b.getValue()));
+		tentative.put(origin.getId(), (float) 0);
+		queue.add(new AbstractMap.SimpleEntry<Long, Float>(origin.getId(), (float) 0));
+
+		while (!queue.isEmpty()) {
+			Entry<Long, Float> nearest = queue.poll();
+			long nearestId = nearest.getKey();
+			if (distances.containsKey(nearestId)) {
+				// outdated entry of the queue
+				continue;
+			}
+			float nearestDistance = nearest.getValue();
+			distances.put(nearestId, nearestDistance);
+			remainingTargets.remove(nearestId);
+			if (targets != null && remainingTargets.isEmpty()) {
+				break;
+			}
+
+			ArrayList<Segment> segments;
+			if (reverse) {
+				segments = incoming.get(nearestId);
+			} else {
+				Intersection nearestIntersection = intersections.get(nearestId);
+				segments = nearestIntersection == null ? null : nearestIntersection.getOriginatedSegments();
+			}
+			if (segments == null) {
+				continue;
+			}
+			for (Segment segment : segments) {
+				Intersection next = reverse ? segment.getDepartureIntersection() : segment.getArrivalIntersection();
+				long nextId = next.getId();
+				if (distances.containsKey(nextId) || (region != null && !region.contains(next))) {
+					continue;
+				}
+				float nextDistance = nearestDistance + segment.getLength();
+				Float known = tentative.get(nextId);
+				if (known == null || nextDistance < known) {
+					tentative.put(nextId, nextDistance);
+					treeSegments.put(nextId, segment);
+					queue.add(new AbstractMap.SimpleEntry<Long, Float>(nextId, nextDistance));
+				}
+			}
+		}
+		return new ShortestPathTree(origin, reverse, distances, treeSegments);
+	}
+
+	/**
+	 * Computes the working region of a set of stops: the rectangle around the stops, enlarged by a margin 
+	 * of half its largest side (and at least 200 meters). The region can then be grown 
+	 * until the shortest paths found inside it are proven.
+	 * 
+	 * @param stops The intersections of the stops of a tour, including its departure.
+	 * @return The working region of the stops.
+	 * 
+	 * @see Model.WorkingRegion
+	 */
+	public WorkingRegion computeWorkingRegion(Collection<? extends Intersection> stops) {
+		MapBoundaries mapBoundaries = computeMapBoundaries();
+		double scaleX = WorkingRegion.METERS_PER_DEGREE
+				* Math.cos(Math.toRadians((mapBoundaries.getMinLat() + mapBoundaries.getMaxLat()) / 2));
+		double minX = Double.MAX_VALUE;
+		double maxX = -Double.MAX_VALUE;
+		double minY = Double.MAX_VALUE;
+		double maxY = -Double.MAX_VALUE;
+		for (Intersection stop : stops) {
+			minX = Math.min(minX, stop.getLongitude() * scaleX);
+			maxX = Math.max(maxX, stop.getLongitude() * scaleX);
+			minY = Math.min(minY, stop.getLatitude() * WorkingRegion.METERS_PER_DEGREE);
+			maxY = Math.max(maxY, stop.getLatitude() * WorkingRegion.METERS_PER_DEGREE);
+		}
+		double margin = Math.max(200, Math.max(maxX - minX, maxY - minY) / 2);
+		return new WorkingRegion(scaleX, minX, maxX, minY, maxY, margin, getDetourRatio(scaleX), mapBoundaries);
+	}
+
+	/**
+	 * Finds the intersection of this map the closest to a position, for example to attach a geocoded
+	 * address to the road network.
+	 * 
+	 * @param latitude The latitude of the position.
+	 * @param longitude The longitude of the position.
+	 * @return The closest intersection, null if the map is empty.
+	 * 
+	 * @see Model.SpatialIndex
+	 */
+	public Intersection findNearestIntersection(float latitude, float longitude) {
+		return getSpatialIndex().findNearestIntersection(latitude, longitude);
+	}
+
+	/**
+	 * Finds the segment of this map the closest to a position.
+	 * 
+	 * @param latitude The latitude of the position.
+	 * @param longitude The longitude of the position.
+	 * @return The closest segment, null if the map has no segment.
+	 * 
+	 * @see Model.SpatialIndex
+	 */
+	public Segment findNearestSegment(float latitude, float longitude) {
+		return getSpatialIndex().findNearestSegment(latitude, longitude);
+	}
+
+	/**
+	 * @param latitude The latitude of a position.
+	 * @param longitude The longitude of a position.
+	 * @param radius A distance in meters.
+	 * @return The intersections of this map at less than this distance from the position.
+	 * 
+	 * @see Model.SpatialIndex
+	 */
+	public ArrayList<Intersection> findIntersectionsWithin(float latitude, float longitude, double radius) {
+		return getSpatialIndex().findIntersectionsWithin(latitude, longitude, radius);
+	}
+
+	/**
+	 * @param latitude The latitude of a position.
+	 * @param longitude The longitude of a position.
+	 * @param radius A distance in meters.
+	 * @return The segments of this map at less than this distance from the position.
+	 * 
+	 * @see Model.SpatialIndex
+	 */
+	public ArrayList<Segment> findSegmentsWithin(float latitude, float longitude, double radius) {
+		return getSpatialIndex().findSegmentsWithin(latitude, longitude, radius);
+	}
+
+	/**
+	 * Builds, if it is not done yet, the spatial index of the intersections and the segments of this map.
+	 * 
+	 * @return The spatial index of this map.
+	 */
+	private synchronized SpatialIndex getSpatialIndex() {
+		if (spatialIndex == null) {
+			double scaleX = WorkingRegion.METERS_PER_DEGREE;
+			if (!intersections.isEmpty()) {
+				MapBoundaries mapBoundaries = computeMapBoundaries();
+				scaleX *= Math.cos(Math.toRadians((mapBoundaries.getMinLat() + mapBoundaries.getMaxLat()) / 2));
+			}
+			spatialIndex = new SpatialIndex(intersections.values(), scaleX);
+		}
+		return spatialIndex;
+	}
+
+	/**
+	 * Computes, if it is not done yet, the detour ratio of this map: the lowest ratio between the length 
+	 * of a segment and the straight distance between its ends.
+	 * 
+	 * @param scaleX The length in meters of a degree of longitude.
+	 * @return The detour ratio of this map.
+	 * 
+	 * @see Model.WorkingRegion
+	 */
+	private synchronized float getDetourRatio(double scaleX) {
+		if (detourRatio == null) {
+			double ratio = 1;
+			for (Intersection intersection : intersections.values()) {
+				for (Segment segment : intersection.getOriginatedSegments()) {
+					double distance = Math.hypot(
+							(segment.getArrivalIntersection().getLongitude() - intersection.getLongitude()) * scaleX,
+							(segment.getArrivalIntersection().getLatitude() - intersection.getLatitude())
+									* WorkingRegion.METERS_PER_DEGREE);
+					if (distance > 0) {
+						ratio = Math.min(ratio, segment.getLength() / distance);
+					}
+				}
+			}
+			// rounds down, so that the bounds of the working regions stay lower bounds
+			detourRatio = (float) (ratio * 0.999);
+		}
+		return detourRatio;
+	}
+
+	/**
+	 * Builds, if it is not done yet, the list of the segments arriving at each intersection of this map.
+	 * It is needed to follow the segments backwards.
+	 * 
+	 * @return The lists of incoming segments by intersection id.
+	 * 
+	 * @see Model.Map#computeShortestPathTree(Intersection, Collection, boolean)
+	 */
+	private synchronized HashMap<Long, ArrayList<Segment>> getIncomingSegments() {
+		if (incomingSegments == null) {
+			HashMap<Long, ArrayList<Segment>> incoming = new HashMap<Long, ArrayList<Segment>>();
+			for (Intersection intersection : intersections.values()) {
+				for (Segment segment : intersection.getOriginatedSegments()) {
+					incoming.computeIfAbsent(segment.getArrivalIntersection().getId(), k -> new ArrayList<Segment>())
+							.add(segment);
+				}
+			}
+			incomingSegments = incoming;
+		}
+		return incomingSegments;
+	}
+
 	/**
 	 * Searches if the given list of stops contains a stop located on the intersection in parameter.
 	 * 
@@ -309,6 +616,263 @@ public class Map extends Observable {
 		return res;
 	}
 
+	/**
+	 * Computes and ranks every possible placement of a new request in the computed tour.<br/>
+	 * 
+	 * The durations between the new stops and the stops of the tour are computed once, 
+	 * with a forward and a reverse search from each new stop. 
+	 * Then every pair of predecessors respecting the order pickup before delivery is evaluated 
+	 * by difference with the paths of the tour they replace.
+	 * Placements exceeding the capacity of the vehicle with the demand of the new request are skipped, 
+	 * as well as placements delaying a stop of the tour after its latest time.
+	 * 
+	 * @param pickupStop The pickup stop of the new request.
+	 * @param deliveryStop The delivery stop of the new request.
+	 * 
+	 * @return The list of possible insertions, sorted by increasing added duration. 
+	 * It is empty if the tour is not computed.
+	 * 
+	 * @see Model.Insertion
+	 * @see Model.Map#computeShortestPathTree(Intersection, Collection, boolean)
+	 * @see Model.Tour#getOrderedTravel()
+	 * @see Model.Tour#computeSlacks()
+	 */
+	public ArrayList<Insertion> computeInsertions(Stop pickupStop, Stop deliveryStop) {
+		ArrayList<Insertion> insertions = new ArrayList<Insertion>();
+		ArrayList<Stop> orderedTravel = tour.getOrderedTravel();
+		int nbPredecessors = orderedTravel.size() - 1;
+		if (nbPredecessors < 1) {
+			return insertions;
+		}
+
+		ArrayList<Intersection> targets = new ArrayList<Intersection>(orderedTravel);
+		targets.add(deliveryStop);
+		ShortestPathTree fromPickup = computeShortestPathTree(pickupStop, targets, false);
+		ShortestPathTree toPickup = computeShortestPathTree(pickupStop, orderedTravel, true);
+		ShortestPathTree fromDelivery = computeShortestPathTree(deliveryStop, orderedTravel, false);
+		ShortestPathTree toDelivery = computeShortestPathTree(deliveryStop, orderedTravel, true);
+
+		float pickupToDelivery = fromPickup.getDuration(deliveryStop.getId());
+		float stopDurations = pickupStop.getStopDuration() + deliveryStop.getStopDuration();
+		int[] loads = tour.computeLoads();
+		float[] slacks = tour.computeSlacks();
+		int demand = tour.getRequestDemand();
+		float[] toP = new float[nbPredecessors];
+		float[] fromP = new float[nbPredecessors];
+		float[] toD = new float[nbPredecessors];
+		float[] fromD = new float[nbPredecessors];
+		float[] leg = new float[nbPredecessors];
+		for (int i = 0; i < nbPredecessors; i++) {
+			toP[i] = toPickup.getDuration(orderedTravel.get(i).getId());
+			toD[i] = toDelivery.getDuration(orderedTravel.get(i).getId());
+			fromP[i] = fromPickup.getDuration(orderedTravel.get(i + 1).getId());
+			fromD[i] = fromDelivery.getDuration(orderedTravel.get(i + 1).getId());
+			leg[i] = orderedTravel.get(i).getNextPath().getPathDuration();
+		}
+
+		for (int i = 0; i < nbPredecessors; i++) {
+			if (toP[i] == Float.MAX_VALUE || (demand > 0 && loads[i] + demand > tour.getCapacity())) {
+				continue;
+			}
+			// delivery right after the pickup (the tour departure cannot be the delivery predecessor)
+			if (i > 0 && pickupToDelivery != Float.MAX_VALUE && fromD[i] != Float.MAX_VALUE) {
+				float added = toP[i] + pickupToDelivery + fromD[i] - leg[i] + stopDurations;
+				if (added <= slacks[i]) {
+					insertions.add(new Insertion(orderedTravel.get(i), orderedTravel.get(i), added));
+				}
+			}
+			if (fromP[i] == Float.MAX_VALUE) {
+				continue;
+			}
+			float pickupDetour = toP[i] + fromP[i] - leg[i];
+			// the stops between the pickup and the delivery are delayed by the pickup only
+			if (pickupDetour + pickupStop.getStopDuration() > slacks[i]) {
+				continue;
+			}
+			for (int j = i + 1; j < nbPredecessors; j++) {
+				// the vehicle carries the request until the delivery
+				if (demand > 0 && loads[j] + demand > tour.getCapacity()) {
+					break;
+				}
+				if (toD[j] == Float.MAX_VALUE || fromD[j] == Float.MAX_VALUE) {
+					continue;
+				}
+				float added = pickupDetour + toD[j] + fromD[j] - leg[j] + stopDurations;
+				if (added <= slacks[j]) {
+					insertions.add(new Insertion(orderedTravel.get(i), orderedTravel.get(j), added));
+				}
+			}
+		}
+		Collections.sort(insertions);
+		return insertions;
+	}
+
+	/**
+	 * Computes, for each stop of the computed tour, the duration added to the tour if the 
+	 * pickup stop in parameter is placed right after it.
+	 * Uses one forward and one reverse shortest path search from the pickup stop.
+	 * 
+	 * @param pickupStop The pickup stop of the request to add.
+	 * 
+	 * @return The added durations in seconds, stop duration included, indexed like the ordered travel
+	 * of the tour. Float.MAX_VALUE when the stop cannot be the pickup predecessor, 
+	 * when the vehicle cannot load the demand of the request after it, 
+	 * or when a following stop would be reached after its latest time. 
+	 * The reason of each Float.MAX_VALUE is saved in the tour.
+	 * 
+	 * @see Model.Map#computeShortestPathTree(Intersection, Collection, boolean)
+	 * @see Model.Tour#getOrderedTravel()
+	 * @see Model.Tour#computeSlacks()
+	 * @see Model.Tour#getInsertionRejections()
+	 */
+	public float[] computePickupInsertionCosts(Stop pickupStop) {
+		ArrayList<Stop> orderedTravel = tour.getOrderedTravel();
+		float[] costs = new float[orderedTravel.size()];
+		Arrays.fill(costs, Float.MAX_VALUE);
+		InsertionRejection[] rejections = new InsertionRejection[orderedTravel.size()];
+		tour.setInsertionRejections(rejections);
+
+		ShortestPathTree fromPickup = computeShortestPathTree(pickupStop, orderedTravel, false);
+		ShortestPathTree toPickup = computeShortestPathTree(pickupStop, orderedTravel, true);
+		float[] slacks = tour.computeSlacks();
+		int[] loads = tour.computeLoads();
+		for (int i = 0; i < orderedTravel.size() - 1; i++) {
+			if (tour.getRequestDemand() > 0 && loads[i] + tour.getRequestDemand() > tour.getCapacity()) {
+				rejections[i] = InsertionRejection.CAPACITY;
+				continue;
+			}
+			float toP = toPickup.getDuration(orderedTravel.get(i).getId());
+			float fromP = fromPickup.getDuration(orderedTravel.get(i + 1).getId());
+			if (toP == Float.MAX_VALUE || fromP == Float.MAX_VALUE) {
+				rejections[i] = InsertionRejection.UNREACHABLE;
+				continue;
+			}
+			float cost = toP + fromP - orderedTravel.get(i).getNextPath().getPathDuration()
+					+ pickupStop.getStopDuration();
+			if (cost <= slacks[i]) {
+				costs[i] = cost;
+			} else {
+				rejections[i] = InsertionRejection.TIME_WINDOW;
+			}
+		}
+		return costs;
+	}
+
+	/**
+	 * Computes, for each stop of the computed tour, the duration added to the tour if the 
+	 * delivery stop in parameter is placed right after it, the pickup stop being already 
+	 * placed after its predecessor.
+	 * When the delivery predecessor is the pickup predecessor, the delivery stop directly follows the pickup stop.
+	 * 
+	 * @param pickupStop The pickup stop of the request to add.
+	 * @param pickupStopPredecessor The stop of the tour chosen as predecessor of the pickup stop.
+	 * @param deliveryStop The delivery stop of the request to add.
+	 * 
+	 * @return The durations in seconds added to the tour once the pickup stop is placed, stop duration included,
+	 * indexed like the ordered travel of the tour. 
+	 * Float.MAX_VALUE when the stop cannot be the delivery predecessor, 
+	 * or when a stop of the tour would be reached after its latest time. 
+	 * The reason of each Float.MAX_VALUE is saved in the tour.
+	 * 
+	 * @see Model.Map#computeShortestPathTree(Intersection, Collection, boolean)
+	 * @see Model.Tour#getOrderedTravel()
+	 * @see Model.Tour#computeSlacks()
+	 * @see Model.Tour#getInsertionRejections()
+	 */
+	public float[] computeDeliveryInsertionCosts(Stop pickupStop, Stop pickupStopPredecessor, Stop deliveryStop) {
+		ArrayList<Stop> orderedTravel = tour.getOrderedTravel();
+		float[] costs = new float[orderedTravel.size()];
+		Arrays.fill(costs, Float.MAX_VALUE);
+		InsertionRejection[] rejections = new InsertionRejection[orderedTravel.size()];
+		tour.setInsertionRejections(rejections);
+		int pickupIndex = orderedTravel.indexOf(pickupStopPredecessor);
+		if (pickupIndex < 0 || pickupIndex >= orderedTravel.size() - 1) {
+			return costs;
+		}
+		Arrays.fill(rejections, 0, pickupIndex, InsertionRejection.ORDER);
+
+		ArrayList<Intersection> targets = new ArrayList<Intersection>(orderedTravel);
+		targets.add(pickupStop);
+		int[] loads = tour.computeLoads();
+		ShortestPathTree fromDelivery = computeShortestPathTree(deliveryStop, orderedTravel, false);
+		ShortestPathTree toDelivery = computeShortestPathTree(deliveryStop, targets, true);
+		Intersection successor = orderedTravel.get(pickupIndex + 1);
+		float pickupToSuccessor = computeShortestPathTree(pickupStop, Arrays.asList(successor), false)
+				.getDuration(successor.getId());
+		float predecessorToPickup = computeShortestPathTree(pickupStopPredecessor, Arrays.asList(pickupStop), false)
+				.getDuration(pickupStop.getId());
+		if (pickupToSuccessor == Float.MAX_VALUE || predecessorToPickup == Float.MAX_VALUE) {
+			Arrays.fill(rejections, Math.max(pickupIndex, 1), rejections.length, InsertionRejection.UNREACHABLE);
+			return costs;
+		}
+		// the stops following the pickup stop are delayed by the pickup, then by the delivery
+		float[] slacks = tour.computeSlacks();
+		float pickupDelay = predecessorToPickup + pickupToSuccessor
+				- pickupStopPredecessor.getNextPath().getPathDuration() + pickupStop.getStopDuration();
+		if (pickupDelay > slacks[pickupIndex]) {
+			Arrays.fill(rejections, Math.max(pickupIndex, 1), rejections.length, InsertionRejection.TIME_WINDOW);
+			return costs;
+		}
+		for (int j = Math.max(pickupIndex, 1); j < orderedTravel.size() - 1; j++) {
+			if (tour.getRequestDemand() > 0 && loads[j] + tour.getRequestDemand() > tour.getCapacity()) {
+				// the request would still be carried at the following stops
+				Arrays.fill(rejections, j, rejections.length, InsertionRejection.CAPACITY);
+				break;
+			}
+			float fromD = fromDelivery.getDuration(orderedTravel.get(j + 1).getId());
+			if (fromD == Float.MAX_VALUE) {
+				rejections[j] = InsertionRejection.UNREACHABLE;
+				continue;
+			}
+			if (j == pickupIndex) {
+				// the path from the pickup stop to the successor is replaced
+				float pickupToDelivery = toDelivery.getDuration(pickupStop.getId());
+				if (pickupToDelivery != Float.MAX_VALUE) {
+					costs[j] = pickupToDelivery + fromD - pickupToSuccessor + deliveryStop.getStopDuration();
+				}
+			} else {
+				float toD = toDelivery.getDuration(orderedTravel.get(j).getId());
+				if (toD != Float.MAX_VALUE) {
+					costs[j] = toD + fromD - orderedTravel.get(j).getNextPath().getPathDuration()
+							+ deliveryStop.getStopDuration();
+				}
+			}
+			if (costs[j] == Float.MAX_VALUE) {
+				rejections[j] = InsertionRejection.UNREACHABLE;
+			} else if (pickupDelay + costs[j] > slacks[j]) {
+				costs[j] = Float.MAX_VALUE;
+				rejections[j] = InsertionRejection.TIME_WINDOW;
+			}
+		}
+		return costs;
+	}
+
+	/**
+	 * Tests if the capacity of the vehicle is respected when a request is added to the computed tour.
+	 * The load is increased by the demand from the pickup stop to the delivery stop.
+	 * 
+	 * @param pickupPredecessorIndex The index in the tour of the predecessor of the pickup stop.
+	 * @param deliveryPredecessorIndex The index in the tour of the predecessor of the delivery stop.
+	 * @param demand The demand of the request.
+	 * 
+	 * @return TRUE if the load never exceeds the capacity, FALSE otherwise.
+	 * 
+	 * @see Model.Tour#computeLoads()
+	 * @see Model.Tour#getCapacity()
+	 */
+	public boolean respectsCapacity(int pickupPredecessorIndex, int deliveryPredecessorIndex, int demand) {
+		if (demand <= 0 || pickupPredecessorIndex < 0) {
+			return true;
+		}
+		int[] loads = tour.computeLoads();
+		for (int k = pickupPredecessorIndex; k <= deliveryPredecessorIndex && k < loads.length; k++) {
+			if (loads[k] + demand > tour.getCapacity()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * Adds a request in the computed tour.
 	 * Tests if the request and the predecessors of its stop are correct and consistent.
@@ -317,8 +881,11 @@ public class Map extends Observable {
 	 * 
 	 * The four stops needed are attributes of the tour.
 	 * 
-	 * @throws Exception If the request or the predecessors are not valid.
+	 * @throws Exception If the request or the predecessors are not valid, 
+	 * if the capacity of the vehicle would be exceeded, or if a stop would be reached after its latest time. 
+	 * In this last case the request is removed from the tour.
 	 * 
+	 * @see Model.Map#respectsCapacity(int, int, int)
 	 * @see Model.Map#addStopInTour(int, Stop)
 	 * @see Model.Stop
 	 * @see Model.Tour
@@ -345,16 +912,26 @@ public class Map extends Observable {
 			throw new Exception("the tour departure cannot be a pickup or delivery point");
 		}
 		
-		tour.getTourRequests().add(new Request(tour.getPickupStop(), tour.getDeliveryStop()));
-
 		int indexPickupPredecessor = tour.getOrderedTravel().indexOf(tour.getPickupStopPredecessor());
 		int indexDeliveryPredecessor = tour.getOrderedTravel().indexOf(tour.getDeliveryStopPredecessor());
+
+		if (!respectsCapacity(indexPickupPredecessor, indexDeliveryPredecessor, tour.getRequestDemand())) {
+			throw new Exception("the capacity of the vehicle is exceeded");
+		}
+
+		Request request = new Request(tour.getPickupStop(), tour.getDeliveryStop());
+		request.setDemand(tour.getRequestDemand());
+		tour.getTourRequests().add(request);
 		// DELIVERY
 		addStopInTour(indexDeliveryPredecessor, tour.getDeliveryStop());
 		// PICKUP
 		addStopInTour(indexPickupPredecessor, tour.getPickupStop());
 
 		tour.computeArrivalTimes();
+		if (!tour.respectsTimeWindows()) {
+			deleteRequest(request);
+			throw new Exception("a stop of the tour would be reached after its latest time");
+		}
 	}
 
 	/**
@@ -377,18 +954,43 @@ public class Map extends Observable {
 		// shortest Path from predecessor to new stop
 		ArrayList<Stop> dijkstraStopList = new ArrayList<Stop>(Arrays.asList(newStop));
 
-		Path pathPredecessorStop = computeShortestPath(tour.getOrderedTravel().get(stopPredecessorIndex),
-				dijkstraStopList).get(0);
+		Path pathPredecessorStop = findShortestPath(tour.getOrderedTravel().get(stopPredecessorIndex),
+				dijkstraStopList);
 		tour.getOrderedTravel().get(stopPredecessorIndex).setNextPath(pathPredecessorStop);
 		// shortest Path from new stop to successor
 
 		dijkstraStopList = new ArrayList<Stop>(Arrays.asList(tour.getOrderedTravel().get(stopSuccessorIndex)));
-		Path pathSuccessorStop = computeShortestPath(newStop, dijkstraStopList).get(0);
+		Path pathSuccessorStop = findShortestPath(newStop, dijkstraStopList);
 		newStop.setNextPath(pathSuccessorStop);
 		// add the stop in orderedTravel
 		tour.getOrderedTravel().add(stopSuccessorIndex, newStop);
 	}
 
+	/**
+	 * Gives the shortest path between two stops. It is built from the forward tree of the departure stop 
+	 * or from the reverse tree of the arrival stop if one of them is in the tree store, 
+	 * otherwise it is computed.
+	 * 
+	 * @param departureStop The departure stop of the path.
+	 * @param arrivalStopList A list containing the arrival stop of the path.
+	 * @return The shortest path between the two stops.
+	 * 
+	 * @see Model.ShortestPathTreeStore
+	 * @see Model.Map#computeShortestPath(Stop, ArrayList)
+	 */
+	private Path findShortestPath(Stop departureStop, ArrayList<Stop> arrivalStopList) {
+		Stop arrivalStop = arrivalStopList.get(0);
+		ShortestPathTree tree = treeStore.get(departureStop.getId(), false);
+		if (tree != null && tree.contains(arrivalStop.getId())) {
+			return tree.buildPath(departureStop, arrivalStop);
+		}
+		tree = treeStore.get(arrivalStop.getId(), true);
+		if (tree != null && tree.contains(departureStop.getId())) {
+			return tree.buildPath(departureStop, arrivalStop);
+		}
+		return computeShortestPath(departureStop, arrivalStopList).get(0);
+	}
+
 	/**
 	 * Deletes a request from the computed tour.
 	 * Tests if the request is correct.
@@ -417,14 +1019,14 @@ public class Map extends Observable {
 		Stop deliveryPredecessor = orderedTravel.get(indexDelivery - 1);
 		Stop deliverySuccessor = orderedTravel.get(indexDelivery + 1);
 		ArrayList<Stop> dijkstraStopList = new ArrayList<Stop>(Arrays.asList(deliverySuccessor));
-		Path deliveryPath = computeShortestPath(deliveryPredecessor, dijkstraStopList).get(0);
+		Path deliveryPath = findShortestPath(deliveryPredecessor, dijkstraStopList);
 		orderedTravel.get(indexDelivery - 1).setNextPath(deliveryPath);
 		this.tour.getOrderedTravel().remove(indexDelivery);
 
 		Stop pickupPredecessor = orderedTravel.get(indexPickup - 1);
 		Stop pickupSuccessor = orderedTravel.get(indexPickup + 1);
 		dijkstraStopList = new ArrayList<Stop>(Arrays.asList(pickupSuccessor));
-		Path pickupPath = computeShortestPath(pickupPredecessor, dijkstraStopList).get(0);
+		Path pickupPath = findShortestPath(pickupPredecessor, dijkstraStopList);
 		orderedTravel.get(indexPickup - 1).setNextPath(pickupPath);
 		this.tour.getOrderedTravel().remove(indexPickup);
 
@@ -5,6 +5,7 @@ package Model;
  * <ul>
  * <li>A pickup stop.</li>
  * <li>A delivery stop.</li>
+ * <li>A demand, that is the room taken in the vehicle between the pickup and the delivery (0 by default).</li>
  * </ul>
  * 
  * From several requests, a tour can be computed respecting the constraint that 
@@ -16,11 +17,12 @@ package Model;
  *
  * @see Model.Stop
  * @see Model.Tour
- * @see Controller.Controller#parseRequests(org.w3c.dom.Document)
+ * @see Controller.Controller#parseRequests(javax.xml.stream.XMLStreamReader)
  */
 public class Request {
 	private Stop pickupStop;
 	private Stop deliveryStop;
+	private int demand;
 
 	/**
 	 * Default class constructor. Attributes are not initialized.
@@ -42,6 +44,20 @@ public class Request {
 		this.deliveryStop = deliveryStop;
 	}
 
+	/**
+	 * @return The room taken in the vehicle by the request.
+	 */
+	public int getDemand() {
+		return demand;
+	}
+
+	/**
+	 * @param demand The new room taken in the vehicle by the request.
+	 */
+	public void setDemand(int demand) {
+		this.demand = demand;
+	}
+
 	/**
 	 * @return The pickup stop of the request.
 	 */
@@ -15,7 +15,7 @@ import java.util.Objects;
  * 
  * Segments are created when loading a map by parsing an XML map file.<br/>
  * 
- * @see Controller.Controller#parseMap(org.w3c.dom.Document)
+ * @see Controller.Controller#parseMap(javax.xml.stream.XMLStreamReader)
  * 
  * @author H4122
  */
@@ -0,0 +1,167 @@
+package Model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+
+/**
+ * ShortestPathTree is the result of a one-to-many shortest path search on the map.
+ *
+ * A shortest path tree is composed of:
+ * <ul>
+ * <li>The intersection the search was originated from.</li>
+ * <li>An indication about the direction of the search. A forward tree gives the shortest paths
+ * from the origin to the other intersections, a reverse tree gives the shortest paths
+ * from the other intersections to the origin.</li>
+ * <li>The shortest distance in meters found for each settled intersection.</li>
+ * <li>The segment used to reach each settled intersection (forward tree) or
+ * to leave it towards the origin (reverse tree).</li>
+ * </ul>
+ *
+ * Unlike Map#computeShortestPath(Stop, ArrayList), the search does not store anything in the
+ * intersections of the map, so several trees can be computed at the same time.
+ *
+ * @author H4122
+ *
+ * @see Model.Map#computeShortestPathTree(Intersection, java.util.Collection, boolean)
+ * @see Model.Path
+ */
+public class ShortestPathTree {
+
+	/**
+	 * Factor converting a length in meters into a duration in seconds (15 km/h).
+	 */
+	public static final float SECONDS_PER_METER = (float) (3600.0 / 15000.0);
+
+	private Intersection origin;
+	private boolean reverse;
+	private HashMap<Long, Float> distances;
+	private HashMap<Long, Segment> treeSegments;
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param origin The intersection the search was originated from.
+	 * @param reverse TRUE if the search followed the segments backwards.
+	 * @param distances The shortest distance in meters of each settled intersection.
+	 * @param treeSegments The segment of the tree attached to each settled intersection.
+	 */
+	public ShortestPathTree(Intersection origin, boolean reverse, HashMap<Long, Float> distances,
+			HashMap<Long, Segment> treeSegments) {
+		this.origin = origin;
+		this.reverse = reverse;
+		this.distances = distances;
+		this.treeSegments = treeSegments;
+	}
+
+	/**
+	 * @return The intersection the search was originated from.
+	 */
+	public Intersection getOrigin() {
+		return origin;
+	}
+
+	/**
+	 * @return TRUE if this tree gives the shortest paths towards the origin.
+	 */
+	public boolean isReverse() {
+		return reverse;
+	}
+
+	/**
+	 * @return The number of intersections settled by the search.
+	 */
+	public int size() {
+		return distances.size();
+	}
+
+	/**
+	 * @param id The id of an intersection.
+	 * @return TRUE if the shortest path between the origin and this intersection is known.
+	 */
+	public boolean contains(long id) {
+		return distances.containsKey(id);
+	}
+
+	/**
+	 * @param id The id of an intersection.
+	 * @return The shortest distance in meters between the origin and this intersection,
+	 * Float.MAX_VALUE if it has not been reached.
+	 */
+	public float getDistance(long id) {
+		Float distance = distances.get(id);
+		return distance == null ? Float.MAX_VALUE : distance;
+	}
+
+	/**
+	 * @param id The id of an intersection.
+	 * @return The duration in seconds of the shortest path between the origin and this intersection,
+	 * Float.MAX_VALUE if it has not been reached.
+	 */
+	public float getDuration(long id) {
+		Float distance = distances.get(id);
+		return distance == null ? Float.MAX_VALUE : distance * SECONDS_PER_METER;
+	}
+
+	/**
+	 * Gives the part of this tree made of the shortest paths between the origin and some intersections.
+	 * The other settled intersections are dropped, so the tree can be kept at a small cost.
+	 *
+	 * @param targets The intersections whose shortest paths are kept.
+	 * @return A tree containing only the intersections on the shortest paths of the targets reached.
+	 */
+	public ShortestPathTree prune(Collection<? extends Intersection> targets) {
+		HashMap<Long, Float> keptDistances = new HashMap<Long, Float>();
+		HashMap<Long, Segment> keptSegments = new HashMap<Long, Segment>();
+		for (Intersection target : targets) {
+			long currentId = target.getId();
+			// the path is followed back to the origin, or to a path already kept
+			while (distances.containsKey(currentId) && !keptDistances.containsKey(currentId)) {
+				keptDistances.put(currentId, distances.get(currentId));
+				Segment segment = treeSegments.get(currentId);
+				if (segment == null || currentId == origin.getId()) {
+					break;
+				}
+				keptSegments.put(currentId, segment);
+				currentId = reverse ? segment.getArrivalIntersection().getId() : segment.getDepartureIntersection().getId();
+			}
+		}
+		return new ShortestPathTree(origin, reverse, keptDistances, keptSegments);
+	}
+
+	/**
+	 * Builds the path between two stops, one of them being located on the origin of this tree.
+	 * For a forward tree, the departure stop must be the origin. For a reverse tree,
+	 * the arrival stop must be the origin.
+	 *
+	 * @param departureStop The departure stop of the path.
+	 * @param arrivalStop The arrival stop of the path.
+	 * @return The shortest path between the two stops. Its list of segments is empty if
+	 * the other stop has not been reached.
+	 *
+	 * @see Model.Path
+	 */
+	public Path buildPath(Stop departureStop, Stop arrivalStop) {
+		Path path = new Path();
+		path.setDepartureStop(departureStop);
+		path.setArrivalStop(arrivalStop);
+		long otherId = reverse ? departureStop.getId() : arrivalStop.getId();
+		path.setPathDuration(getDuration(otherId));
+
+		ArrayList<Segment> pathSegments = new ArrayList<Segment>();
+		long currentId = otherId;
+		Segment segment = treeSegments.get(currentId);
+		while (segment != null && currentId != origin.getId()) {
+			pathSegments.add(segment);
+			currentId = reverse ? segment.getArrivalIntersection().getId() : segment.getDepartureIntersection().getId();
+			segment = treeSegments.get(currentId);
+		}
+		if (!reverse) {
+			// the segments were collected from the arrival back to the origin
+			Collections.reverse(pathSegments);
+		}
+		path.setPathSegments(pathSegments);
+		return path;
+	}
+}
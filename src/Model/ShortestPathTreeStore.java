@@ -0,0 +1,115 @@
+package Model;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+
+/**
+ * ShortestPathTreeStore keeps the shortest path trees already computed on a map, so that the paths
+ * needed to modify a tour can be built without any search.
+ *
+ * A store is composed of:
+ * <ul>
+ * <li>The forward and reverse trees of some intersections, from the least to the most recently used.</li>
+ * <li>A capacity, that is the maximum number of intersections settled by all the trees of the store.
+ * The least recently used trees are removed to respect it.</li>
+ * </ul>
+ *
+ * The store can be used by several threads at the same time.
+ *
+ * @author H4122
+ *
+ * @see Model.ShortestPathTree
+ * @see Model.Map#getTreeStore()
+ */
+public class ShortestPathTreeStore {
+
+	/**
+	 * The default capacity of a store, in settled intersections (a few tens of MB).
+	 */
+	public static final int DEFAULT_CAPACITY = 250000;
+
+	private int capacity;
+	private int size;
+	private LinkedHashMap<Entry<Long, Boolean>, ShortestPathTree> trees = new LinkedHashMap<Entry<Long, Boolean>, ShortestPathTree>(
+			16, 0.75f, true);
+
+	/**
+	 * Default class constructor. The store has the default capacity.
+	 */
+	public ShortestPathTreeStore() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param capacity The maximum number of intersections settled by all the trees of the store.
+	 */
+	public ShortestPathTreeStore(int capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * @return The maximum number of intersections settled by all the trees of the store.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return The number of intersections settled by all the trees of the store.
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * @param id The id of an intersection.
+	 * @param reverse TRUE for the tree of the paths towards the intersection.
+	 * @return TRUE if the tree is in the store.
+	 */
+	public synchronized boolean contains(long id, boolean reverse) {
+		return trees.containsKey(new SimpleImmutableEntry<Long, Boolean>(id, reverse));
+	}
+
+	/**
+	 * Gives a tree of the store, which becomes the most recently used one.
+	 *
+	 * @param id The id of the origin of the tree.
+	 * @param reverse TRUE for the tree of the paths towards the origin.
+	 * @return The tree, null if it is not in the store.
+	 */
+	public synchronized ShortestPathTree get(long id, boolean reverse) {
+		return trees.get(new SimpleImmutableEntry<Long, Boolean>(id, reverse));
+	}
+
+	/**
+	 * Adds a tree to the store, then removes the least recently used trees until the capacity is respected.
+	 * The tree added is always kept.
+	 *
+	 * @param tree A shortest path tree computed on the map of the store.
+	 */
+	public synchronized void put(ShortestPathTree tree) {
+		ShortestPathTree previous = trees.put(
+				new SimpleImmutableEntry<Long, Boolean>(tree.getOrigin().getId(), tree.isReverse()), tree);
+		if (previous != null) {
+			size -= previous.size();
+		}
+		size += tree.size();
+		Iterator<ShortestPathTree> eldest = trees.values().iterator();
+		while (size > capacity && trees.size() > 1) {
+			size -= eldest.next().size();
+			eldest.remove();
+		}
+	}
+
+	/**
+	 * Removes all the trees of the store.
+	 */
+	public synchronized void clear() {
+		trees.clear();
+		size = 0;
+	}
+}
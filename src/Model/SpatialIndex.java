@@ -0,0 +1,389 @@
+package Model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * SpatialIndex finds the intersections and the segments of a map near a position, without looking at
+ * all the intersections of the map. It is used to attach a position given by its coordinates, as a geocoded
+ * address, to the road network.
+ *
+ * A spatial index is composed of:
+ * <ul>
+ * <li>The scale of the projection: the coordinates are projected in meters on a plane, with a scale
+ * fixed for the whole map, as in a WorkingRegion.</li>
+ * <li>A k-d tree of the intersections: the intersections are sorted so that the middle one of each range
+ * splits the range in two, alternately along the x and the y axis.</li>
+ * <li>An R-tree of the segments, packed by the Sort-Tile-Recursive method: the segments are grouped
+ * by nodes of NODE_SIZE neighbours, themselves grouped by NODE_SIZE, until a single node remains.
+ * Each node keeps the rectangle around its content.</li>
+ * </ul>
+ *
+ * The queries take a logarithmic time in the size of the map. The index is built once and can be used
+ * by several threads at the same time.
+ *
+ * @author H4122
+ *
+ * @see Model.Map#findNearestIntersection(float, float)
+ * @see Model.Map#findNearestSegment(float, float)
+ * @see Model.WorkingRegion
+ */
+public class SpatialIndex {
+
+	/**
+	 * The number of children of a node of the R-tree.
+	 */
+	public static final int NODE_SIZE = 16;
+
+	private double scaleX;
+
+	// k-d tree of the intersections
+	private Intersection[] intersections;
+	private double[] intersectionX;
+	private double[] intersectionY;
+
+	// R-tree of the segments: level 0 contains the segments, the last level the root
+	private Segment[] segments;
+	private double[][] minX;
+	private double[][] minY;
+	private double[][] maxX;
+	private double[][] maxY;
+	private int[][] childStart;
+
+	/**
+	 * Class constructor. Builds the trees of the intersections and of the segments of a map.
+	 *
+	 * @param intersections The intersections of the map, with the segments originated from them.
+	 * @param scaleX The length in meters of a degree of longitude, fixed for the whole map.
+	 */
+	public SpatialIndex(Collection<Intersection> intersections, double scaleX) {
+		this.scaleX = scaleX;
+		buildIntersectionTree(intersections);
+		buildSegmentTree(intersections);
+	}
+
+	/* ------------- INTERSECTIONS ----------------- */
+
+	private void buildIntersectionTree(Collection<Intersection> mapIntersections) {
+		intersections = mapIntersections.toArray(new Intersection[mapIntersections.size()]);
+		splitIntersections(0, intersections.length, 0);
+		intersectionX = new double[intersections.length];
+		intersectionY = new double[intersections.length];
+		for (int i = 0; i < intersections.length; i++) {
+			intersectionX[i] = x(intersections[i]);
+			intersectionY[i] = y(intersections[i]);
+		}
+	}
+
+	private void splitIntersections(int start, int end, int depth) {
+		if (end - start <= 1) {
+			return;
+		}
+		Comparator<Intersection> axis = depth % 2 == 0 ? Comparator.comparingDouble(this::x)
+				: Comparator.comparingDouble(this::y);
+		Arrays.sort(intersections, start, end, axis);
+		int middle = (start + end) >>> 1;
+		splitIntersections(start, middle, depth + 1);
+		splitIntersections(middle + 1, end, depth + 1);
+	}
+
+	/**
+	 * @param latitude The latitude of a position.
+	 * @param longitude The longitude of a position.
+	 * @return The intersection of the map the closest to the position, null if the map is empty.
+	 */
+	public Intersection findNearestIntersection(float latitude, float longitude) {
+		if (intersections.length == 0) {
+			return null;
+		}
+		int[] best = { -1 };
+		double[] bestDistance = { Double.MAX_VALUE };
+		searchNearest(longitude * scaleX, latitude * WorkingRegion.METERS_PER_DEGREE, 0, intersections.length, 0,
+				best, bestDistance);
+		return intersections[best[0]];
+	}
+
+	private void searchNearest(double x, double y, int start, int end, int depth, int[] best, double[] bestDistance) {
+		if (start >= end) {
+			return;
+		}
+		int middle = (start + end) >>> 1;
+		double distance = (intersectionX[middle] - x) * (intersectionX[middle] - x)
+				+ (intersectionY[middle] - y) * (intersectionY[middle] - y);
+		if (distance < bestDistance[0]) {
+			bestDistance[0] = distance;
+			best[0] = middle;
+		}
+		double side = depth % 2 == 0 ? x - intersectionX[middle] : y - intersectionY[middle];
+		// the side of the position first, the other side only if it can be closer
+		if (side < 0) {
+			searchNearest(x, y, start, middle, depth + 1, best, bestDistance);
+			if (side * side < bestDistance[0]) {
+				searchNearest(x, y, middle + 1, end, depth + 1, best, bestDistance);
+			}
+		} else {
+			searchNearest(x, y, middle + 1, end, depth + 1, best, bestDistance);
+			if (side * side < bestDistance[0]) {
+				searchNearest(x, y, start, middle, depth + 1, best, bestDistance);
+			}
+		}
+	}
+
+	/**
+	 * @param latitude The latitude of a position.
+	 * @param longitude The longitude of a position.
+	 * @param radius A distance in meters.
+	 * @return The intersections of the map at less than this distance from the position.
+	 */
+	public ArrayList<Intersection> findIntersectionsWithin(float latitude, float longitude, double radius) {
+		ArrayList<Intersection> found = new ArrayList<Intersection>();
+		searchWithin(longitude * scaleX, latitude * WorkingRegion.METERS_PER_DEGREE, radius, 0, intersections.length,
+				0, found);
+		return found;
+	}
+
+	private void searchWithin(double x, double y, double radius, int start, int end, int depth,
+			ArrayList<Intersection> found) {
+		if (start >= end) {
+			return;
+		}
+		int middle = (start + end) >>> 1;
+		if (Math.hypot(intersectionX[middle] - x, intersectionY[middle] - y) <= radius) {
+			found.add(intersections[middle]);
+		}
+		double side = depth % 2 == 0 ? x - intersectionX[middle] : y - intersectionY[middle];
+		if (side - radius <= 0) {
+			searchWithin(x, y, radius, start, middle, depth + 1, found);
+		}
+		if (side + radius >= 0) {
+			searchWithin(x, y, radius, middle + 1, end, depth + 1, found);
+		}
+	}
+
+	/* ------------- SEGMENTS ----------------- */
+
+	private void buildSegmentTree(Collection<Intersection> mapIntersections) {
+		ArrayList<Segment> allSegments = new ArrayList<Segment>();
+		for (Intersection intersection : mapIntersections) {
+			allSegments.addAll(intersection.getOriginatedSegments());
+		}
+		segments = allSegments.toArray(new Segment[allSegments.size()]);
+		int count = segments.length;
+		double[] boxMinX = new double[count];
+		double[] boxMinY = new double[count];
+		double[] boxMaxX = new double[count];
+		double[] boxMaxY = new double[count];
+		Integer[] order = sortTileRecursive(count, i -> centerX(segments[i]), i -> centerY(segments[i]));
+		Segment[] sorted = new Segment[count];
+		for (int i = 0; i < count; i++) {
+			sorted[i] = segments[order[i]];
+			Intersection departure = sorted[i].getDepartureIntersection();
+			Intersection arrival = sorted[i].getArrivalIntersection();
+			boxMinX[i] = Math.min(x(departure), x(arrival));
+			boxMinY[i] = Math.min(y(departure), y(arrival));
+			boxMaxX[i] = Math.max(x(departure), x(arrival));
+			boxMaxY[i] = Math.max(y(departure), y(arrival));
+		}
+		segments = sorted;
+
+		ArrayList<double[][]> levels = new ArrayList<double[][]>();
+		ArrayList<int[]> starts = new ArrayList<int[]>();
+		levels.add(new double[][] { boxMinX, boxMinY, boxMaxX, boxMaxY });
+		starts.add(null);
+		int size = count;
+		while (size > 1 || levels.size() == 1) {
+			double[][] children = levels.get(levels.size() - 1);
+			if (levels.size() > 1) {
+				// orders the nodes of the previous level, then groups them by NODE_SIZE
+				double[][] boxes = children;
+				Integer[] nodeOrder = sortTileRecursive(size, i -> (boxes[0][i] + boxes[2][i]) / 2,
+						i -> (boxes[1][i] + boxes[3][i]) / 2);
+				double[][] reordered = new double[4][size];
+				int[] previousStarts = starts.get(starts.size() - 1);
+				int[] reorderedStarts = new int[size];
+				int[] reorderedEnds = new int[size];
+				for (int i = 0; i < size; i++) {
+					for (int k = 0; k < 4; k++) {
+						reordered[k][i] = boxes[k][nodeOrder[i]];
+					}
+					reorderedStarts[i] = previousStarts[nodeOrder[i]];
+					reorderedEnds[i] = previousStarts[size + nodeOrder[i]];
+				}
+				int[] packedStarts = new int[2 * size];
+				System.arraycopy(reorderedStarts, 0, packedStarts, 0, size);
+				System.arraycopy(reorderedEnds, 0, packedStarts, size, size);
+				levels.set(levels.size() - 1, reordered);
+				starts.set(starts.size() - 1, packedStarts);
+				children = reordered;
+			}
+			int parents = Math.max(1, (size + NODE_SIZE - 1) / NODE_SIZE);
+			double[][] boxes = new double[4][parents];
+			int[] parentStarts = new int[2 * parents];
+			for (int p = 0; p < parents; p++) {
+				int first = p * NODE_SIZE;
+				int last = Math.min(size, first + NODE_SIZE);
+				boxes[0][p] = Double.MAX_VALUE;
+				boxes[1][p] = Double.MAX_VALUE;
+				boxes[2][p] = -Double.MAX_VALUE;
+				boxes[3][p] = -Double.MAX_VALUE;
+				for (int i = first; i < last; i++) {
+					boxes[0][p] = Math.min(boxes[0][p], children[0][i]);
+					boxes[1][p] = Math.min(boxes[1][p], children[1][i]);
+					boxes[2][p] = Math.max(boxes[2][p], children[2][i]);
+					boxes[3][p] = Math.max(boxes[3][p], children[3][i]);
+				}
+				parentStarts[p] = first;
+				parentStarts[parents + p] = last;
+			}
+			levels.add(boxes);
+			starts.add(parentStarts);
+			size = parents;
+		}
+
+		int height = levels.size();
+		minX = new double[height][];
+		minY = new double[height][];
+		maxX = new double[height][];
+		maxY = new double[height][];
+		childStart = new int[height][];
+		for (int level = 0; level < height; level++) {
+			minX[level] = levels.get(level)[0];
+			minY[level] = levels.get(level)[1];
+			maxX[level] = levels.get(level)[2];
+			maxY[level] = levels.get(level)[3];
+			childStart[level] = starts.get(level);
+		}
+	}
+
+	/**
+	 * Orders elements by the Sort-Tile-Recursive method: the elements are sorted along the x axis and cut
+	 * in vertical slices, then each slice is sorted along the y axis. So each run of NODE_SIZE elements of the
+	 * order gathers neighbours.
+	 *
+	 * @param count The number of elements.
+	 * @param centerX The x position of the center of each element.
+	 * @param centerY The y position of the center of each element.
+	 * @return The numbers of the elements in the new order.
+	 */
+	private static Integer[] sortTileRecursive(int count, IntToDoubleFunction centerX, IntToDoubleFunction centerY) {
+		Integer[] order = new Integer[count];
+		for (int i = 0; i < count; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, Comparator.comparingDouble(i -> centerX.applyAsDouble(i)));
+		int nodes = (count + NODE_SIZE - 1) / NODE_SIZE;
+		int slices = (int) Math.ceil(Math.sqrt(nodes));
+		int sliceSize = slices * NODE_SIZE;
+		for (int start = 0; start < count; start += sliceSize) {
+			Arrays.sort(order, start, Math.min(count, start + sliceSize),
+					Comparator.comparingDouble(i -> centerY.applyAsDouble(i)));
+		}
+		return order;
+	}
+
+	/**
+	 * @param latitude The latitude of a position.
+	 * @param longitude The longitude of a position.
+	 * @return The segment of the map the closest to the position, null if the map has no segment.
+	 */
+	public Segment findNearestSegment(float latitude, float longitude) {
+		if (segments.length == 0) {
+			return null;
+		}
+		double x = longitude * scaleX;
+		double y = latitude * WorkingRegion.METERS_PER_DEGREE;
+		int root = minX.length - 1;
+		// the nodes and the segments by increasing lowest possible distance: {distance, level, index}
+		PriorityQueue<double[]> queue = new PriorityQueue<double[]>(Comparator.comparingDouble(entry -> entry[0]));
+		queue.add(new double[] { boxDistance(x, y, root, 0), root, 0 });
+		while (!queue.isEmpty()) {
+			double[] entry = queue.poll();
+			int level = (int) entry[1];
+			int index = (int) entry[2];
+			if (level < 0) {
+				return segments[index];
+			}
+			int[] starts = childStart[level];
+			int nodes = starts.length / 2;
+			for (int child = starts[index]; child < starts[nodes + index]; child++) {
+				if (level == 1) {
+					queue.add(new double[] { segmentDistance(x, y, segments[child]), -1, child });
+				} else {
+					queue.add(new double[] { boxDistance(x, y, level - 1, child), level - 1, child });
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param latitude The latitude of a position.
+	 * @param longitude The longitude of a position.
+	 * @param radius A distance in meters.
+	 * @return The segments of the map at less than this distance from the position.
+	 */
+	public ArrayList<Segment> findSegmentsWithin(float latitude, float longitude, double radius) {
+		ArrayList<Segment> found = new ArrayList<Segment>();
+		if (segments.length > 0) {
+			searchSegmentsWithin(longitude * scaleX, latitude * WorkingRegion.METERS_PER_DEGREE, radius,
+					minX.length - 1, 0, found);
+		}
+		return found;
+	}
+
+	private void searchSegmentsWithin(double x, double y, double radius, int level, int index,
+			ArrayList<Segment> found) {
+		if (boxDistance(x, y, level, index) > radius) {
+			return;
+		}
+		if (level == 0) {
+			if (segmentDistance(x, y, segments[index]) <= radius) {
+				found.add(segments[index]);
+			}
+			return;
+		}
+		int[] starts = childStart[level];
+		int nodes = starts.length / 2;
+		for (int child = starts[index]; child < starts[nodes + index]; child++) {
+			searchSegmentsWithin(x, y, radius, level - 1, child, found);
+		}
+	}
+
+	/* ------------- GEOMETRY ----------------- */
+
+	private double boxDistance(double x, double y, int level, int index) {
+		double dx = Math.max(0, Math.max(minX[level][index] - x, x - maxX[level][index]));
+		double dy = Math.max(0, Math.max(minY[level][index] - y, y - maxY[level][index]));
+		return Math.hypot(dx, dy);
+	}
+
+	private double segmentDistance(double x, double y, Segment segment) {
+		double x1 = x(segment.getDepartureIntersection());
+		double y1 = y(segment.getDepartureIntersection());
+		double dx = x(segment.getArrivalIntersection()) - x1;
+		double dy = y(segment.getArrivalIntersection()) - y1;
+		double length = dx * dx + dy * dy;
+		double t = length == 0 ? 0 : Math.max(0, Math.min(1, ((x - x1) * dx + (y - y1) * dy) / length));
+		return Math.hypot(x - (x1 + t * dx), y - (y1 + t * dy));
+	}
+
+	private double x(Intersection intersection) {
+		return intersection.getLongitude() * scaleX;
+	}
+
+	private double y(Intersection intersection) {
+		return intersection.getLatitude() * WorkingRegion.METERS_PER_DEGREE;
+	}
+
+	private double centerX(Segment segment) {
+		return (x(segment.getDepartureIntersection()) + x(segment.getArrivalIntersection())) / 2;
+	}
+
+	private double centerY(Segment segment) {
+		return (y(segment.getDepartureIntersection()) + y(segment.getArrivalIntersection())) / 2;
+	}
+}
@@ -19,6 +19,7 @@ import java.util.Date;
  * <li>The duration in seconds spent by the deliverer at this location.</li>
  * <li>The time when the deliverer reaches the stop.</li>
  * <li>The path to follow to reach the next stop of the tour.</li>
+ * <li>An optional time window: the earliest and the latest time when the deliverer can reach the stop.</li>
  * </ul>
  * 
  * Stops are created when loading requests by parsing an XML requests file.<br/>
@@ -32,13 +33,15 @@ import java.util.Date;
  * @see Model.Segment
  * @see Model.Path
  * @see Model.Map#computeShortestPath(Stop, ArrayList)
- * @see Controller.Controller#parseRequests(org.w3c.dom.Document)
+ * @see Controller.Controller#parseRequests(javax.xml.stream.XMLStreamReader)
  */
 public class Stop extends Intersection{
 
 	private float stopDuration;
 	private Date arrivalTime = null;
 	private Path nextPath = null;
+	private Date earliestTime = null;
+	private Date latestTime = null;
 
 	/**
 	 * Default class constructor. Calls the constructor of its ancestor Intersection.
@@ -115,6 +118,34 @@ public class Stop extends Intersection{
 		this.nextPath = nextPath;
 	}
 
+	/**
+	 * @return The earliest time when the deliverer can visit the stop. If null, there is no earliest time.
+	 */
+	public Date getEarliestTime() {
+		return earliestTime;
+	}
+
+	/**
+	 * @param earliestTime The new earliest time when the deliverer can visit the stop.
+	 */
+	public void setEarliestTime(Date earliestTime) {
+		this.earliestTime = earliestTime;
+	}
+
+	/**
+	 * @return The latest time when the deliverer can reach the stop. If null, there is no latest time.
+	 */
+	public Date getLatestTime() {
+		return latestTime;
+	}
+
+	/**
+	 * @param latestTime The new latest time when the deliverer can reach the stop.
+	 */
+	public void setLatestTime(Date latestTime) {
+		this.latestTime = latestTime;
+	}
+
 	/**
 	 * Overrides toString method in class Intersection.
 	 * 
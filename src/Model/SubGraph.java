@@ -0,0 +1,63 @@
+package Model;
+
+/**
+ * SubGraph is a view of some vertices of another graph, used to run a TSP on a
+ * part of the stops without copying the costs.
+ *
+ * A sub graph is composed of:
+ * <ul>
+ * <li>The graph it is extracted from.</li>
+ * <li>The vertices of this graph that are kept. The i-th vertex of the sub graph
+ * is the i-th vertex of the array.</li>
+ * </ul>
+ *
+ * The sub graph is never modified, so it can be read by several threads at the same time.
+ *
+ * @author H4122
+ *
+ * @see Model.Graph
+ * @see Model.FleetPlanner
+ */
+public class SubGraph implements Graph {
+	private Graph graph;
+	private int[] vertices;
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param graph The graph the sub graph is extracted from.
+	 * @param vertices The vertices of the graph kept in the sub graph, the first one being the departure of the TSP.
+	 */
+	public SubGraph(Graph graph, int[] vertices) {
+		this.graph = graph;
+		this.vertices = vertices;
+	}
+
+	/**
+	 * @param i A vertex of the sub graph.
+	 * @return The corresponding vertex in the original graph.
+	 */
+	public int getVertex(int i) {
+		return vertices[i];
+	}
+
+	@Override
+	public int getNbVertices() {
+		return vertices.length;
+	}
+
+	@Override
+	public float getCost(int i, int j) {
+		if (i < 0 || i >= vertices.length || j < 0 || j >= vertices.length)
+			return -1;
+		return graph.getCost(vertices[i], vertices[j]);
+	}
+
+	@Override
+	public boolean isArc(int i, int j) {
+		if (i < 0 || i >= vertices.length || j < 0 || j >= vertices.length)
+			return false;
+		return graph.isArc(vertices[i], vertices[j]);
+	}
+
+}
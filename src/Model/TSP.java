@@ -26,6 +26,33 @@ public interface TSP {
 	 */
 	public float getSolutionCost();
 
+	/**
+	 * Restricts the solutions of <code>searchSolution</code> to the ones reaching
+	 * every vertex before the end of its time window. Times are in seconds since
+	 * the departure from vertex 0. A vertex reached before the beginning of its
+	 * time window is left after waiting for it and its service duration.
+	 * Must be called before <code>searchSolution</code>.
+	 * 
+	 * @param serviceDurations the duration spent at each vertex
+	 * @param earliestTimes    the beginning of the time window of each vertex
+	 * @param latestTimes      the end of the time window of each vertex
+	 */
+	public void setTimeWindows(float[] serviceDurations, float[] earliestTimes, float[] latestTimes);
+
+	/**
+	 * Restricts the solutions of <code>searchSolution</code> to the ones where the
+	 * load of the vehicle never exceeds <code>capacity</code>. A delivery vertex
+	 * can then only be visited after its pickup vertex. Must be called before
+	 * <code>searchSolution</code>.
+	 * 
+	 * @param capacity       the capacity of the vehicle
+	 * @param demands        the load change at each vertex (positive for a pickup,
+	 *                       negative for a delivery)
+	 * @param pickupVertices the pickup vertex of each delivery vertex, -1 for the
+	 *                       other vertices
+	 */
+	public void setCapacity(int capacity, int[] demands, int[] pickupVertices);
+
 	/**
 	 * 
 	 * @param timeLimit indicates the execution duration allowed for the TSP (if the
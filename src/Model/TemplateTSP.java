@@ -12,15 +12,38 @@ public abstract class TemplateTSP implements TSP {
 	private long startTime;
 	private int lastVertex;
 	private float lastCost;
+	private float lastTime;
+	private float[] serviceDurations;
+	private float[] earliestTimes;
+	private float[] latestTimes;
+	private int capacity;
+	private int lastLoad;
+	private int[] demands;
+	private int[] pickupVertices;
+	private boolean[] isVisited;
 	private Collection<Integer> unvisited;
 	private Collection<Integer> visited;
 
+	public void setTimeWindows(float[] serviceDurations, float[] earliestTimes, float[] latestTimes) {
+		this.serviceDurations = serviceDurations;
+		this.earliestTimes = earliestTimes;
+		this.latestTimes = latestTimes;
+	}
+
+	public void setCapacity(int capacity, int[] demands, int[] pickupVertices) {
+		this.capacity = capacity;
+		this.demands = demands;
+		this.pickupVertices = pickupVertices;
+	}
+
 	public int searchSolution(int timeLimit, Graph g) {
 		if (timeLimit <= 0)
 			return -1;
 		if (bestSol == null) {
 			lastVertex = 0;
 			lastCost = 0;
+			lastTime = 0;
+			lastLoad = 0;
 			this.g = g;
 			bestSol = new Integer[g.getNbVertices()];
 			unvisited = new ArrayList<Integer>(g.getNbVertices() - 1);
@@ -32,7 +55,10 @@ public abstract class TemplateTSP implements TSP {
 		}
 		this.timeLimit = timeLimit;
 		startTime = System.currentTimeMillis();
-		return branchAndBound(lastVertex, unvisited, visited, lastCost);
+		isVisited = new boolean[g.getNbVertices()];
+		for (Integer vertex : visited)
+			isVisited[vertex] = true;
+		return branchAndBound(lastVertex, unvisited, visited, lastCost, lastTime, lastLoad);
 
 	}
 	
@@ -42,7 +68,10 @@ public abstract class TemplateTSP implements TSP {
 			return -1;
 		this.timeLimit = timeLimit;
 		startTime = System.currentTimeMillis();
-		return branchAndBound(lastVertex, unvisited, visited, lastCost);
+		isVisited = new boolean[g.getNbVertices()];
+		for (Integer vertex : visited)
+			isVisited[vertex] = true;
+		return branchAndBound(lastVertex, unvisited, visited, lastCost, lastTime, lastLoad);
 	}
 
 	public Integer getSolution(int i) {
@@ -80,6 +109,33 @@ public abstract class TemplateTSP implements TSP {
 	 */
 	protected abstract Iterator<Integer> iterator(Integer currentVertex, Collection<Integer> unvisited, Graph g);
 
+	/**
+	 * Computes the time when the vertex <code>nextVertex</code> is left if it is
+	 * visited right after <code>currentVertex</code>, waiting for the beginning of
+	 * its time window if needed.
+	 * 
+	 * @param currentVertex the last visited vertex
+	 * @param nextVertex    the vertex to visit
+	 * @param unvisited     the set of vertex that have not yet been visited
+	 * @param currentTime   the time when <code>currentVertex</code> is left
+	 * @return the time when <code>nextVertex</code> is left, -1 if it is reached
+	 *         after the end of its time window, or if a vertex of
+	 *         <code>unvisited</code> could not be reached in time any more
+	 */
+	private float leavingTime(int currentVertex, int nextVertex, Collection<Integer> unvisited, float currentTime) {
+		float time = currentTime + g.getCost(currentVertex, nextVertex);
+		if (time > latestTimes[nextVertex])
+			return -1;
+		time = Math.max(time, earliestTimes[nextVertex]) + serviceDurations[nextVertex];
+		// forward slack: going straight to a vertex is never slower than a detour
+		for (Integer vertex : unvisited) {
+			if (vertex != nextVertex && g.isArc(nextVertex, vertex)
+					&& time + g.getCost(nextVertex, vertex) > latestTimes[vertex])
+				return -1;
+		}
+		return time;
+	}
+
 	/**
 	 * Template method of a branch and bound algorithm for solving the TSP in
 	 * <code>g</code>.
@@ -90,12 +146,19 @@ public abstract class TemplateTSP implements TSP {
 	 *                      (including currentVertex)
 	 * @param currentCost   the cost of the path corresponding to
 	 *                      <code>visited</code>
+	 * @param currentTime   the time elapsed since the departure when
+	 *                      <code>currentVertex</code> is left (only used with
+	 *                      time windows)
+	 * @param currentLoad   the load of the vehicle when <code>currentVertex</code>
+	 *                      is left (only used with a capacity)
 	 */
 	private int branchAndBound(int currentVertex, Collection<Integer> unvisited, Collection<Integer> visited,
-			float currentCost) {
+			float currentCost, float currentTime, int currentLoad) {
 		if (System.currentTimeMillis() - startTime > timeLimit) {
 			this.lastVertex = currentVertex;
 			this.lastCost = currentCost;
+			this.lastTime = currentTime;
+			this.lastLoad = currentLoad;
 			this.unvisited = new ArrayList<Integer>(unvisited);
 			this.visited = new ArrayList<Integer>(visited);
 			return 1;
@@ -112,10 +175,27 @@ public abstract class TemplateTSP implements TSP {
 			Iterator<Integer> it = iterator(currentVertex, unvisited, g);
 			while (it.hasNext()) {
 				Integer nextVertex = it.next();
+				float nextTime = 0;
+				if (latestTimes != null) {
+					nextTime = leavingTime(currentVertex, nextVertex, unvisited, currentTime);
+					if (nextTime < 0)
+						continue;
+				}
+				int nextLoad = 0;
+				if (demands != null) {
+					// a delivery needs its pickup, and the load must fit in the vehicle
+					if (pickupVertices[nextVertex] >= 0 && !isVisited[pickupVertices[nextVertex]])
+						continue;
+					nextLoad = currentLoad + demands[nextVertex];
+					if (nextLoad > capacity)
+						continue;
+				}
 				visited.add(nextVertex);
 				unvisited.remove(nextVertex);
+				isVisited[nextVertex] = true;
 				timeout = branchAndBound(nextVertex, unvisited, visited,
-						currentCost + g.getCost(currentVertex, nextVertex));
+						currentCost + g.getCost(currentVertex, nextVertex), nextTime, nextLoad);
+				isVisited[nextVertex] = false;
 				visited.remove(nextVertex);
 				unvisited.add(nextVertex);
 			}
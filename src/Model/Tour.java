@@ -3,6 +3,7 @@ package Model;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.IdentityHashMap;
 
 import Controller.AddRequestCommand;
 import ObserverDP.Observable;
@@ -31,6 +32,14 @@ import ObserverDP.Observable;
  * will be added to the tour when calling an add request command.</li>
  * <li>A delivery stop predecessor that is the predecessor of the delivery stop
  * that will be added to the tour when calling an add request command.</li>
+ * <li>The insertion costs that are the durations added to the tour for each
+ * stop of the ordered travel chosen as predecessor of the stop being added. They are
+ * only known while a predecessor is selected.</li>
+ * <li>The reason why each stop whose insertion cost is Float.MAX_VALUE cannot be
+ * the predecessor, computed with the insertion costs.</li>
+ * <li>The capacity of the vehicle, unlimited by default.</li>
+ * <li>The demand of the request that will be added to the tour when calling an
+ * add request command.</li>
  * </ul>
  * 
  * @see ObserverDP.Observable
@@ -49,6 +58,10 @@ public class Tour extends Observable {
 	private Stop deliveryStop;
 	private Stop pickupStopPredecessor;
 	private Stop deliveryStopPredecessor;
+	private float[] insertionCosts;
+	private InsertionRejection[] insertionRejections;
+	private int capacity = Integer.MAX_VALUE;
+	private int requestDemand;
 
 	/**
 	 * Default Tour constructor. Calls the constructor of Observable interface it
@@ -136,6 +149,38 @@ public class Tour extends Observable {
 		this.deliveryStopPredecessor = deliveryStopPredecessor;
 	}
 
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public void setCapacity(int capacity) {
+		this.capacity = capacity;
+	}
+
+	public int getRequestDemand() {
+		return requestDemand;
+	}
+
+	public void setRequestDemand(int requestDemand) {
+		this.requestDemand = requestDemand;
+	}
+
+	public float[] getInsertionCosts() {
+		return insertionCosts;
+	}
+
+	public void setInsertionCosts(float[] insertionCosts) {
+		this.insertionCosts = insertionCosts;
+	}
+
+	public InsertionRejection[] getInsertionRejections() {
+		return insertionRejections;
+	}
+
+	public void setInsertionRejections(InsertionRejection[] insertionRejections) {
+		this.insertionRejections = insertionRejections;
+	}
+
 	public Stop getTourDeparture() {
 		return tourDeparture;
 	}
@@ -234,10 +279,93 @@ public class Tour extends Observable {
 		tourRequests.add(req);
 	}
 
+	/**
+	 * Computes the load of the vehicle when it leaves each stop of the ordered travel.
+	 * 
+	 * @return The load after each stop, indexed like the ordered travel.
+	 * 
+	 * @see Request#getDemand()
+	 */
+	public int[] computeLoads() {
+		IdentityHashMap<Stop, Integer> demands = new IdentityHashMap<Stop, Integer>();
+		for (Request request : tourRequests) {
+			demands.put(request.getPickupStop(), request.getDemand());
+			demands.put(request.getDeliveryStop(), -request.getDemand());
+		}
+		int[] loads = new int[orderedTravel.size()];
+		int load = 0;
+		for (int i = 0; i < orderedTravel.size(); i++) {
+			Integer demand = demands.get(orderedTravel.get(i));
+			if (demand != null) {
+				load += demand;
+			}
+			loads[i] = load;
+		}
+		return loads;
+	}
+
+	/**
+	 * Computes, for each stop of the ordered travel, the delay in seconds that can be added 
+	 * when the vehicle leaves it without any following stop being reached after its latest time.
+	 * A delay is partly absorbed by the waits for the earliest times of the following stops.
+	 * The arrival times must be computed.
+	 * 
+	 * @return The slack after each stop, indexed like the ordered travel. 
+	 * Float.MAX_VALUE if no following stop has a latest time.
+	 * 
+	 * @see Stop#getLatestTime()
+	 * @see Tour#computeArrivalTimes()
+	 */
+	public float[] computeSlacks() {
+		float[] slacks = new float[orderedTravel.size()];
+		if (slacks.length == 0) {
+			return slacks;
+		}
+		slacks[slacks.length - 1] = Float.MAX_VALUE;
+		for (int i = slacks.length - 2; i >= 0; i--) {
+			Stop stop = orderedTravel.get(i);
+			Stop next = orderedTravel.get(i + 1);
+			Date leaving = i == 0 ? departureTime : stop.getArrivalTime();
+			if (leaving == null || next.getArrivalTime() == null) {
+				slacks[i] = Float.MAX_VALUE;
+				continue;
+			}
+			// same rounding as the arrival times
+			long reached = leaving.getTime() / 1000 + (int) stop.getStopDuration()
+					+ (int) stop.getNextPath().getPathDuration();
+			float wait = next.getArrivalTime().getTime() / 1000 - reached;
+			float slack = slacks[i + 1] == Float.MAX_VALUE ? Float.MAX_VALUE : slacks[i + 1] + wait;
+			if (next.getLatestTime() != null) {
+				slack = Math.min(slack, next.getLatestTime().getTime() / 1000 - reached);
+			}
+			slacks[i] = slack;
+		}
+		return slacks;
+	}
+
+	/**
+	 * @return TRUE if no stop of the ordered travel is reached after its latest time, FALSE otherwise.
+	 * The arrival times must be computed.
+	 * 
+	 * @see Stop#getLatestTime()
+	 */
+	public boolean respectsTimeWindows() {
+		for (Stop stop : orderedTravel) {
+			if (stop.getLatestTime() != null && stop.getArrivalTime() != null
+					&& stop.getArrivalTime().after(stop.getLatestTime())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * Computes the arrival time of each stop from ordered travel, and then computes
 	 * the arrival time of the tour.
+	 * When a stop is reached before its earliest time, the deliverer waits for it, 
+	 * so the arrival time is the earliest time.
 	 * 
+	 * @see Stop#getEarliestTime()
 	 */
 	public void computeArrivalTimes() {
 		Calendar calendar = Calendar.getInstance();
@@ -245,6 +373,10 @@ public class Tour extends Observable {
 		for (int i = 1; i < orderedTravel.size(); i++) {
 			calendar.add(Calendar.SECOND, (int) orderedTravel.get(i - 1).getNextPath().getPathDuration());
 			calendar.add(Calendar.SECOND, (int) orderedTravel.get(i - 1).getStopDuration());
+			Date earliestTime = orderedTravel.get(i).getEarliestTime();
+			if (earliestTime != null && calendar.getTime().before(earliestTime)) {
+				calendar.setTime(earliestTime);
+			}
 			orderedTravel.get(i).setArrivalTime(calendar.getTime());
 
 		}
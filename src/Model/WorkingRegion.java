@@ -0,0 +1,138 @@
+package Model;
+
+/**
+ * WorkingRegion is the part of the map the shortest paths between the stops of a tour are searched in,
+ * so that the cost of the searches depends on the area actually served rather than on the size of the map.
+ *
+ * A working region is composed of:
+ * <ul>
+ * <li>A rectangle around the stops of the tour, enlarged by a margin. The coordinates are
+ * projected in meters on a plane, with a scale fixed for the whole map.</li>
+ * <li>The detour ratio of the map, that is the lowest ratio between the length of a segment and
+ * the straight distance between its ends.</li>
+ * <li>An indication telling if the rectangle contains the whole map.</li>
+ * </ul>
+ *
+ * A path that leaves the rectangle is at least as long as the detour ratio multiplied by the
+ * straight distances from its ends to the border of the rectangle. So a path found inside the region
+ * that is shorter than this bound is a shortest path of the whole map. If it is not, the region has to
+ * be grown until the bound holds or the region contains the whole map.
+ *
+ * @author H4122
+ *
+ * @see Model.Map#computeWorkingRegion(java.util.Collection)
+ * @see Model.Map#computeShortestPathTree(Intersection, java.util.Collection, boolean, WorkingRegion)
+ */
+public class WorkingRegion {
+
+	/**
+	 * The length in meters of a degree of latitude.
+	 */
+	public static final double METERS_PER_DEGREE = 111320;
+
+	private double scaleX;
+	private double minX;
+	private double maxX;
+	private double minY;
+	private double maxY;
+	private double margin;
+	private float detourRatio;
+	private boolean wholeMap;
+	private MapBoundaries mapBoundaries;
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param scaleX The length in meters of a degree of longitude, fixed for the whole map.
+	 * @param minX The projected west border of the stops, in meters.
+	 * @param maxX The projected east border of the stops, in meters.
+	 * @param minY The projected south border of the stops, in meters.
+	 * @param maxY The projected north border of the stops, in meters.
+	 * @param margin The margin in meters around the stops.
+	 * @param detourRatio The detour ratio of the map.
+	 * @param mapBoundaries The boundaries of the whole map.
+	 */
+	public WorkingRegion(double scaleX, double minX, double maxX, double minY, double maxY, double margin,
+			float detourRatio, MapBoundaries mapBoundaries) {
+		this.scaleX = scaleX;
+		this.minX = minX;
+		this.maxX = maxX;
+		this.minY = minY;
+		this.maxY = maxY;
+		this.margin = margin;
+		this.detourRatio = detourRatio;
+		this.mapBoundaries = mapBoundaries;
+		this.wholeMap = minX - margin <= mapBoundaries.getMinLong() * scaleX
+				&& maxX + margin >= mapBoundaries.getMaxLong() * scaleX
+				&& minY - margin <= mapBoundaries.getMinLat() * METERS_PER_DEGREE
+				&& maxY + margin >= mapBoundaries.getMaxLat() * METERS_PER_DEGREE;
+	}
+
+	/**
+	 * @return The margin in meters around the stops.
+	 */
+	public double getMargin() {
+		return margin;
+	}
+
+	/**
+	 * @return TRUE if the region contains the whole map.
+	 */
+	public boolean isWholeMap() {
+		return wholeMap;
+	}
+
+	/**
+	 * @param intersection An intersection of the map.
+	 * @return TRUE if the intersection is inside the region.
+	 */
+	public boolean contains(Intersection intersection) {
+		if (wholeMap) {
+			return true;
+		}
+		double x = intersection.getLongitude() * scaleX;
+		double y = intersection.getLatitude() * METERS_PER_DEGREE;
+		return x >= minX - margin && x <= maxX + margin && y >= minY - margin && y <= maxY + margin;
+	}
+
+	/**
+	 * Computes the lowest length of a path between an intersection of the region and the outside of the region.
+	 *
+	 * @param intersection An intersection inside the region.
+	 * @return The lowest length in meters of a path that leaves the region from this intersection
+	 * (or that enters the region to reach it).
+	 */
+	public float getExitLength(Intersection intersection) {
+		if (wholeMap) {
+			return Float.MAX_VALUE;
+		}
+		double x = intersection.getLongitude() * scaleX;
+		double y = intersection.getLatitude() * METERS_PER_DEGREE;
+		double border = Math.min(Math.min(x - (minX - margin), (maxX + margin) - x),
+				Math.min(y - (minY - margin), (maxY + margin) - y));
+		return (float) Math.max(0, border * detourRatio);
+	}
+
+	/**
+	 * Tells if a path found inside the region is proven to be a shortest path of the whole map.
+	 *
+	 * @param length The length in meters of the shortest path found inside the region,
+	 * Float.MAX_VALUE if there is none.
+	 * @param departure The departure intersection of the path.
+	 * @param arrival The arrival intersection of the path.
+	 * @return TRUE if no path leaving the region can be shorter.
+	 */
+	public boolean isShortest(float length, Intersection departure, Intersection arrival) {
+		if (wholeMap) {
+			return true;
+		}
+		return length <= (double) getExitLength(departure) + getExitLength(arrival);
+	}
+
+	/**
+	 * @return A region around the same stops, with a margin twice as large.
+	 */
+	public WorkingRegion grow() {
+		return new WorkingRegion(scaleX, minX, maxX, minY, maxY, 2 * margin, detourRatio, mapBoundaries);
+	}
+}
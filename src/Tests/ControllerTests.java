@@ -16,7 +16,9 @@ import Controller.Controller;
 import Model.Intersection;
 import Model.Segment;
 import Model.Stop;
+import Model.Path;
 import Model.Request;
+import Model.Tour;
 
 /**
  * ControllerTests is a class that tests different scenarios for the parseFile
@@ -40,6 +42,8 @@ class ControllerTests {
 	@BeforeEach
 	void initController() throws Exception {
 		controller = new Controller();
+		// the files are parsed, not loaded from the cache of the user
+		controller.setMapCache(null);
 	}
 
 	/**
@@ -243,4 +247,251 @@ class ControllerTests {
 
 	}
 
+	/**
+	 * Nature of test (parseRequest) : the requests have optional time windows on their delivery stop 
+	 * -> the earliest and latest times should be parsed, the stops without time window having none.
+	 */
+	@Test
+	void parseRequestsTimeWindowsTest() throws Exception {
+		controller.parseFile(System.getProperty("user.dir").toString()
+				+ "\\src\\tests\\fichiersXML2020\\smallMapDijkstraTest.xml");
+		controller.setCurrentState(controller.getMapLoadedState());
+		controller.parseFile(System.getProperty("user.dir").toString()
+				+ "\\src\\tests\\fichiersXML2020\\requestsTimeWindows.xml");
+		SimpleDateFormat format = new SimpleDateFormat("H:m:s");
+		ArrayList<Request> requests = controller.getMap().getTour().getTourRequests();
+		assertEquals(2, requests.size());
+		assertEquals(format.parse("8:20:0"), requests.get(0).getDeliveryStop().getEarliestTime());
+		assertEquals(format.parse("9:0:0"), requests.get(0).getDeliveryStop().getLatestTime());
+		assertNull(requests.get(1).getDeliveryStop().getEarliestTime());
+		assertEquals(format.parse("8:10:0"), requests.get(1).getDeliveryStop().getLatestTime());
+		for (Request r : requests) {
+			assertNull(r.getPickupStop().getEarliestTime());
+			assertNull(r.getPickupStop().getLatestTime());
+		}
+	}
+
+	/**
+	 * Nature of test (parseRequest) : The given file contains a malformed earliest time : 
+	 * earliest="8:h:0" -> an aberrant value error should be thrown.
+	 */
+	@Test
+	void parseRequestsTimeWindowsAberrantValueTest() throws Exception {
+		controller.parseFile(System.getProperty("user.dir").toString()
+				+ "\\src\\tests\\fichiersXML2020\\smallMapDijkstraTest.xml");
+		controller.setCurrentState(controller.getMapLoadedState());
+		try {
+			controller.parseFile(System.getProperty("user.dir").toString()
+					+ "\\src\\tests\\fichiersXML2020\\requestsTimeWindowsAberrantValue.xml");
+			fail("Aberrant time window not detected");
+		} catch (Exception e) {
+			assertEquals("Aberrant value in requestsFile Exception", e.getMessage());
+		}
+	}
+
+	/**
+	 * Nature of test (parseRequest) : The given file contains a time window whose earliest time 
+	 * is after its latest time : earliest="9:0:0" latest="8:30:0" -> an aberrant value error should be thrown.
+	 */
+	@Test
+	void parseRequestsTimeWindowsEarliestAfterLatestTest() throws Exception {
+		controller.parseFile(System.getProperty("user.dir").toString()
+				+ "\\src\\tests\\fichiersXML2020\\smallMapDijkstraTest.xml");
+		controller.setCurrentState(controller.getMapLoadedState());
+		try {
+			controller.parseFile(System.getProperty("user.dir").toString()
+					+ "\\src\\tests\\fichiersXML2020\\requestsTimeWindowsEarliestAfterLatest.xml");
+			fail("Inverted time window not detected");
+		} catch (Exception e) {
+			assertEquals("Aberrant value in requestsFile Exception", e.getMessage());
+		}
+	}
+
+	/**
+	 * Nature of test (computeOptimisedTour) : without time windows the optimal tour is 2, 4, 6, 8. 
+	 * The delivery stop 8 must be reached before 8:10 -> the tour should begin with 4 and 8, 
+	 * and every stop should be reached in its time window.
+	 */
+	@Test
+	void computeTourTimeWindowsTest() throws Exception {
+		controller.parseFile(System.getProperty("user.dir").toString()
+				+ "\\src\\tests\\fichiersXML2020\\smallMapDijkstraTest.xml");
+		controller.setCurrentState(controller.getMapLoadedState());
+		controller.parseFile(System.getProperty("user.dir").toString()
+				+ "\\src\\tests\\fichiersXML2020\\requestsTimeWindows.xml");
+		controller.setCurrentState(controller.getRequestsLoadedState());
+
+		assertEquals(0, controller.computeOptimisedTour(controller.getMap()));
+		assertNotNull(controller.getTsp().getSolution(0));
+		controller.saveTSPSolution(controller.getTsp(), controller.getPaths());
+		Tour tour = controller.getMap().getTour();
+		long[] expectedIds = { 1, 4, 8, 2, 6, 1 };
+		assertEquals(expectedIds.length, tour.getOrderedTravel().size());
+		for (int i = 0; i < expectedIds.length; i++) {
+			assertEquals(expectedIds[i], tour.getOrderedTravel().get(i).getId());
+		}
+		assertTrue(tour.respectsTimeWindows());
+		Stop delivery = tour.getTourRequests().get(0).getDeliveryStop();
+		assertFalse(delivery.getArrivalTime().before(delivery.getEarliestTime()));
+	}
+
+	/**
+	 * Nature of test (computeOptimisedTour) : the delivery stop 8 must be reached before 8:05 
+	 * but its pickup lasts 7 minutes -> the search should end without any tour, which is 
+	 * reported to the user as "No tour respects the time windows of the requests."
+	 */
+	@Test
+	void computeTourInfeasibleTimeWindowsTest() throws Exception {
+		controller.parseFile(System.getProperty("user.dir").toString()
+				+ "\\src\\tests\\fichiersXML2020\\smallMapDijkstraTest.xml");
+		controller.setCurrentState(controller.getMapLoadedState());
+		controller.parseFile(System.getProperty("user.dir").toString()
+				+ "\\src\\tests\\fichiersXML2020\\requestsTimeWindowsInfeasible.xml");
+		controller.setCurrentState(controller.getRequestsLoadedState());
+
+		assertEquals(0, controller.computeOptimisedTour(controller.getMap()));
+		assertNull(controller.getTsp().getSolution(0));
+	}
+
+	/**
+	 * Nature of test (parseRequest) : the depot has a capacity and the requests have a demand 
+	 * -> they should be parsed, and the optimal tour 2, 4, 6, 8 which would carry 3 units 
+	 * should be replaced by a tour never carrying more than the capacity.
+	 */
+	@Test
+	void parseRequestsCapacityTest() throws Exception {
+		controller.parseFile(System.getProperty("user.dir").toString()
+				+ "\\src\\tests\\fichiersXML2020\\smallMapDijkstraTest.xml");
+		controller.setCurrentState(controller.getMapLoadedState());
+		controller.parseFile(System.getProperty("user.dir").toString()
+				+ "\\src\\tests\\fichiersXML2020\\requestsCapacity.xml");
+		controller.setCurrentState(controller.getRequestsLoadedState());
+		Tour tour = controller.getMap().getTour();
+		assertEquals(2, tour.getCapacity());
+		assertEquals(2, tour.getTourRequests().get(0).getDemand());
+		assertEquals(1, tour.getTourRequests().get(1).getDemand());
+
+		assertEquals(0, controller.computeOptimisedTour(controller.getMap()));
+		controller.saveTSPSolution(controller.getTsp(), controller.getPaths());
+		for (int load : tour.computeLoads()) {
+			assertTrue(load <= tour.getCapacity());
+		}
+	}
+
+	/**
+	 * Nature of test (parseRequest) : The given file contains a demand greater than the capacity :
+	 * capacity="2" and demand="3" -> an aberrant value error should be thrown.
+	 */
+	@Test
+	void parseRequestsCapacityAberrantValueTest() throws Exception {
+		controller.parseFile(System.getProperty("user.dir").toString()
+				+ "\\src\\tests\\fichiersXML2020\\smallMapDijkstraTest.xml");
+		controller.setCurrentState(controller.getMapLoadedState());
+		try {
+			controller.parseFile(System.getProperty("user.dir").toString()
+					+ "\\src\\tests\\fichiersXML2020\\requestsCapacityAberrantValue.xml");
+			fail("Demand greater than the capacity not detected");
+		} catch (Exception e) {
+			assertEquals("Aberrant value in requestsFile Exception", e.getMessage());
+		}
+	}
+
+	/**
+	 * Nature of test (parseRequest) : The given file contains a negative demand : demand="-1" 
+	 * -> an aberrant value error should be thrown.
+	 */
+	@Test
+	void parseRequestsNegativeDemandTest() throws Exception {
+		controller.parseFile(System.getProperty("user.dir").toString()
+				+ "\\src\\tests\\fichiersXML2020\\smallMapDijkstraTest.xml");
+		controller.setCurrentState(controller.getMapLoadedState());
+		try {
+			controller.parseFile(System.getProperty("user.dir").toString()
+					+ "\\src\\tests\\fichiersXML2020\\requestsCapacityNegativeDemand.xml");
+			fail("Negative demand not detected");
+		} catch (Exception e) {
+			assertEquals("Aberrant value in requestsFile Exception", e.getMessage());
+		}
+	}
+
+	/**
+	 * Nature of test (computeFleetTours) : the requests of a computed tour are shared 
+	 * between two vehicles -> each request should be in exactly one vehicle tour, 
+	 * its pickup stop before its delivery stop, each vehicle tour should begin and end 
+	 * at its own copy of the tour departure, and the computed tour and its paths should not be modified.
+	 */
+	@Test
+	void computeFleetToursTest() {
+		try {
+			controller.parseFile(
+					System.getProperty("user.dir").toString() + "\\src\\tests\\fichiersXML2020\\smallMap.xml");
+			controller.setCurrentState(controller.getMapLoadedState());
+			controller.parseFile(
+					System.getProperty("user.dir").toString() + "\\src\\tests\\fichiersXML2020\\requestsSmall1.xml");
+			controller.setCurrentState(controller.getRequestsLoadedState());
+			controller.computeOptimisedTour(controller.getMap());
+			controller.saveTSPSolution(controller.getTsp(), controller.getPaths());
+			Tour mainTour = controller.getMap().getTour();
+			ArrayList<Stop> mainTravel = new ArrayList<Stop>(mainTour.getOrderedTravel());
+			ArrayList<Date> mainArrivalTimes = new ArrayList<Date>();
+			ArrayList<Stop> mainNextStops = new ArrayList<Stop>();
+			for (Stop stop : mainTravel) {
+				mainArrivalTimes.add(stop.getArrivalTime());
+				mainNextStops.add(stop.getNextPath() == null ? null : stop.getNextPath().getArrivalStop());
+			}
+			Path[][] mainPaths = controller.getPaths();
+			controller.setFleetSize(2);
+
+			ArrayList<Tour> fleetTours = controller.computeFleetTours(1000);
+			assertSame(mainPaths, controller.getPaths());
+			assertEquals(2, fleetTours.size());
+			for (Request r : mainTour.getTourRequests()) {
+				int nbTours = 0;
+				for (Tour tour : fleetTours) {
+					for (Request vehicleRequest : tour.getTourRequests()) {
+						if (vehicleRequest.getPickupStop().getId() == r.getPickupStop().getId()
+								&& vehicleRequest.getDeliveryStop().getId() == r.getDeliveryStop().getId()) {
+							assertNotSame(r.getPickupStop(), vehicleRequest.getPickupStop());
+							assertNotSame(r.getDeliveryStop(), vehicleRequest.getDeliveryStop());
+							nbTours++;
+						}
+					}
+				}
+				assertEquals(1, nbTours);
+			}
+			for (Tour tour : fleetTours) {
+				ArrayList<Stop> orderedTravel = tour.getOrderedTravel();
+				assertSame(tour.getTourDeparture(), orderedTravel.get(0));
+				assertSame(tour.getTourDeparture(), orderedTravel.get(orderedTravel.size() - 1));
+				assertEquals(2 * tour.getTourRequests().size() + (tour.getTourRequests().isEmpty() ? 1 : 2),
+						orderedTravel.size());
+				for (Request vehicleRequest : tour.getTourRequests()) {
+					int pickupIndex = -1;
+					int deliveryIndex = -1;
+					for (int i = 0; i < orderedTravel.size(); i++) {
+						if (orderedTravel.get(i) == vehicleRequest.getPickupStop()) {
+							pickupIndex = i;
+						}
+						if (orderedTravel.get(i) == vehicleRequest.getDeliveryStop()) {
+							deliveryIndex = i;
+						}
+					}
+					assertTrue(pickupIndex > 0);
+					assertTrue(pickupIndex < deliveryIndex);
+				}
+			}
+
+			assertEquals(mainTravel, mainTour.getOrderedTravel());
+			for (int i = 0; i < mainTravel.size(); i++) {
+				assertSame(mainTravel.get(i), mainTour.getOrderedTravel().get(i));
+				assertEquals(mainArrivalTimes.get(i), mainTravel.get(i).getArrivalTime());
+				assertSame(mainNextStops.get(i),
+						mainTravel.get(i).getNextPath() == null ? null : mainTravel.get(i).getNextPath().getArrivalStop());
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail("Unintented computeFleetTours error");
+		}
+	}
+
 }
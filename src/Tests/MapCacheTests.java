@@ -0,0 +1,113 @@
+package Tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.SortedMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import Controller.Controller;
+import Controller.MapCache;
+import Model.Intersection;
+import Model.Path;
+import Model.Segment;
+
+/**
+ * MapCacheTests is a class that tests the paths saved in the cache of the maps,
+ * in a temporary directory instead of the cache of the user.
+ *
+ * A MapCacheTests is composed of:
+ * <ul>
+ * <li>A MapCache stored in a temporary directory.</li>
+ * <li>The intersections of the map the paths are computed on.</li>
+ * </ul>
+ *
+ * @author H4122
+ * @see Controller.MapCache
+ */
+class MapCacheTests {
+
+	@TempDir
+	File directory;
+
+	MapCache mapCache;
+	SortedMap<Long, Intersection> intersections;
+
+	/**
+	 * Before any test a new cache is created and the test map is parsed.
+	 */
+	@BeforeEach
+	void initCache() throws Exception {
+		mapCache = new MapCache(directory, MapCache.DEFAULT_SIZE_LIMIT);
+		Controller controller = new Controller();
+		controller.setMapCache(null);
+		controller.parseFile(System.getProperty("user.dir").toString()
+				+ "\\src\\tests\\fichiersXML2020\\smallMapDijkstraTest.xml");
+		intersections = controller.getMap().getIntersections();
+	}
+
+	/**
+	 * @return A row of one path following the given intersections.
+	 */
+	private HashMap<Long, HashMap<Long, Path>> row(long... ids) {
+		ArrayList<Segment> segments = new ArrayList<Segment>();
+		for (int i = 1; i < ids.length; i++) {
+			segments.add(intersections.get(ids[i - 1]).getIntersectionSegment(intersections.get(ids[i])));
+		}
+		Path path = new Path();
+		path.setPathSegments(segments);
+		path.setPathDuration(ids.length - 1);
+		HashMap<Long, Path> paths = new HashMap<Long, Path>();
+		paths.put(ids[ids.length - 1], path);
+		HashMap<Long, HashMap<Long, Path>> rows = new HashMap<Long, HashMap<Long, Path>>();
+		rows.put(ids[0], paths);
+		return rows;
+	}
+
+	/**
+	 * Nature of test : paths are appended twice from the same departure -> the content already
+	 * written should not change, and both paths should be loaded in the same row.
+	 */
+	@Test
+	void appendPathsTest() throws Exception {
+		File file = new File(mapCache.getDirectory(), "key.paths");
+		mapCache.appendPaths("key", row(1, 2, 3));
+		byte[] firstContent = Files.readAllBytes(file.toPath());
+		mapCache.appendPaths("key", row(1, 2, 3, 4));
+		mapCache.appendPaths("key", row(4, 3));
+		byte[] content = Files.readAllBytes(file.toPath());
+		assertTrue(content.length > firstContent.length);
+		assertArrayEquals(firstContent, Arrays.copyOf(content, firstContent.length));
+
+		HashMap<Long, HashMap<Long, Path>> rows = mapCache.loadPaths("key", intersections);
+		assertEquals(2, rows.size());
+		assertEquals(2, rows.get(1L).size());
+		assertEquals(2, rows.get(1L).get(3L).getPathSegments().size());
+		assertEquals(3, rows.get(1L).get(4L).getPathSegments().size());
+		assertEquals(1, rows.get(4L).get(3L).getPathDuration());
+	}
+
+	/**
+	 * Nature of test : the last row of the paths file is cut, as if the application stopped
+	 * while appending it -> the entry should be ignored and deleted.
+	 */
+	@Test
+	void truncatedPathsTest() throws Exception {
+		File file = new File(mapCache.getDirectory(), "key.paths");
+		mapCache.appendPaths("key", row(1, 2, 3));
+		mapCache.appendPaths("key", row(4, 3));
+		try (RandomAccessFile access = new RandomAccessFile(file, "rw")) {
+			access.setLength(file.length() - 4);
+		}
+		assertTrue(mapCache.loadPaths("key", intersections).isEmpty());
+		assertFalse(file.exists());
+	}
+}
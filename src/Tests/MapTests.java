@@ -6,11 +6,18 @@ import java.util.ArrayList;
 
 import org.junit.jupiter.api.*;
 
+import Controller.AddRequestCommand;
 import Controller.Controller;
+import Model.DistanceMatrixPipeline;
+import Model.Insertion;
+import Model.InsertionRejection;
+import Model.Intersection;
 import Model.Path;
 import Model.Request;
 import Model.Segment;
+import Model.ShortestPathTree;
 import Model.Stop;
+import Model.Tour;
 
 /**
  * MapTests is a class that tests different scenarios for the
@@ -36,6 +43,8 @@ class MapTests {
 	@BeforeEach
 	void initController() throws Exception {
 		controller = new Controller();
+		// the files are parsed, not loaded from the cache of the user
+		controller.setMapCache(null);
 		controller.parseFile(
 				System.getProperty("user.dir").toString() + "\\src\\tests\\fichiersXML2020\\smallMapDijkstraTest.xml");// DijkstraTest
 		controller.setCurrentState(controller.getMapLoadedState());
@@ -188,4 +197,236 @@ class MapTests {
 		ArrayList<Path> shortestPaths = controller.getMap().computeShortestPath(dstop, listStop);
 		assertTrue(shortestPaths.equals(shrtPaths));
 	}
+
+	/**
+	 * Nature of test : computeShortestPathTree from a delivery stop -> the paths
+	 * built from the tree should be the ones given by computeShortestPath
+	 */
+	@Test
+	void computeShortestPathTreeTest() {
+		Stop dstop = controller.getMap().getTour().getStopById(6);
+		ArrayList<Stop> listStop = new ArrayList<Stop>();
+		listStop.add(controller.getMap().getTour().getTourDeparture());
+		for (Request r : controller.getMap().getTour().getTourRequests()) {
+			if (r.getDeliveryStop().getId() != dstop.getId()) {
+				listStop.add(r.getPickupStop());
+				listStop.add(r.getDeliveryStop());
+			}
+		}
+		ShortestPathTree tree = controller.getMap().computeShortestPathTree(dstop, listStop, false);
+		for (Path path : controller.getMap().computeShortestPath(dstop, listStop)) {
+			assertTrue(tree.buildPath(dstop, path.getArrivalStop()).equals(path));
+		}
+	}
+
+	/**
+	 * Nature of test : a full shortest path tree from a delivery stop is pruned to the other stops
+	 * -> the paths built from the pruned tree should be the same, with fewer intersections kept
+	 */
+	@Test
+	void pruneShortestPathTreeTest() {
+		Stop dstop = controller.getMap().getTour().getStopById(6);
+		ArrayList<Stop> listStop = new ArrayList<Stop>();
+		listStop.add(controller.getMap().getTour().getStopById(2));
+		listStop.add(controller.getMap().getTour().getStopById(8));
+		ShortestPathTree tree = controller.getMap().computeShortestPathTree(dstop, null, false);
+		ShortestPathTree prunedTree = tree.prune(listStop);
+		assertTrue(prunedTree.size() < tree.size());
+		for (Stop stop : listStop) {
+			assertTrue(prunedTree.buildPath(dstop, stop).equals(tree.buildPath(dstop, stop)));
+		}
+	}
+
+	/**
+	 * Nature of test : a pipeline whose capacity is too small for any full tree -> the searches
+	 * should wait for the stops, then the paths built from the trees should be the shortest ones
+	 */
+	@Test
+	void distanceMatrixPipelineTest() throws Exception {
+		Stop dstop = controller.getMap().getTour().getStopById(6);
+		ArrayList<Stop> listStop = new ArrayList<Stop>();
+		listStop.add(controller.getMap().getTour().getTourDeparture());
+		listStop.add(dstop);
+		DistanceMatrixPipeline pipeline = new DistanceMatrixPipeline(controller.getMap(), 0);
+		try {
+			pipeline.submit(dstop);
+			assertTrue(pipeline.contains(dstop.getId()));
+			assertNull(pipeline.getTree(dstop.getId()));
+			pipeline.setTargets(listStop);
+			ShortestPathTree tree = pipeline.getTree(dstop.getId());
+			for (Path path : controller.getMap().computeShortestPath(dstop, listStop)) {
+				assertTrue(tree.buildPath(dstop, path.getArrivalStop()).equals(path));
+			}
+		} finally {
+			pipeline.shutdown();
+		}
+	}
+
+	/**
+	 * Nature of test : computeInsertions on the computed tour, then addRequest at
+	 * the cheapest insertion -> the tour should be longer by the added duration of
+	 * the insertion, the durations of the paths being rounded to the second
+	 */
+	@Test
+	void computeInsertionsTest() throws Exception {
+		controller.computeOptimisedTour(controller.getMap());
+		controller.saveTSPSolution(controller.getTsp(), controller.getPaths());
+		Tour tour = controller.getMap().getTour();
+		long durationBefore = tour.getArrivalTime().getTime() - tour.getDepartureTime().getTime();
+
+		Intersection pickupIntersection = controller.getMap().getIntersectionById(5);
+		Intersection deliveryIntersection = controller.getMap().getIntersectionById(7);
+		Stop pickupStop = new Stop(5, pickupIntersection.getLatitude(), pickupIntersection.getLongitude(), 60);
+		pickupStop.setOriginatedSegments(pickupIntersection.getOriginatedSegments());
+		Stop deliveryStop = new Stop(7, deliveryIntersection.getLatitude(), deliveryIntersection.getLongitude(), 120);
+		deliveryStop.setOriginatedSegments(deliveryIntersection.getOriginatedSegments());
+		ArrayList<Insertion> insertions = controller.getMap().computeInsertions(pickupStop, deliveryStop);
+		assertFalse(insertions.isEmpty());
+		for (int i = 1; i < insertions.size(); i++) {
+			assertTrue(insertions.get(i - 1).getAddedDuration() <= insertions.get(i).getAddedDuration());
+		}
+
+		Insertion cheapest = insertions.get(0);
+		tour.setPickupStop(pickupStop);
+		tour.setDeliveryStop(deliveryStop);
+		tour.setPickupStopPredecessor(cheapest.getPickupPredecessor());
+		tour.setDeliveryStopPredecessor(cheapest.getDeliveryPredecessor());
+		controller.getMap().addRequest();
+		long durationAfter = tour.getArrivalTime().getTime() - tour.getDepartureTime().getTime();
+		assertEquals(cheapest.getAddedDuration(), (durationAfter - durationBefore) / 1000.0,
+				tour.getOrderedTravel().size());
+	}
+
+	/**
+	 * Nature of test : computeInsertions on a tour whose delivery stop 8 must be reached before 8:10, 
+	 * with a pickup stop lasting 5 minutes -> no insertion should place the pickup stop before 
+	 * the delivery stop 8 because of its time window, and adding the request there should fail 
+	 * and leave the tour unchanged.
+	 */
+	@Test
+	void computeInsertionsTimeWindowsTest() throws Exception {
+		controller = new Controller();
+		controller.setMapCache(null);
+		controller.parseFile(
+				System.getProperty("user.dir").toString() + "\\src\\tests\\fichiersXML2020\\smallMapDijkstraTest.xml");
+		controller.setCurrentState(controller.getMapLoadedState());
+		controller.parseFile(
+				System.getProperty("user.dir").toString() + "\\src\\tests\\fichiersXML2020\\requestsTimeWindows.xml");
+		controller.setCurrentState(controller.getRequestsLoadedState());
+		controller.computeOptimisedTour(controller.getMap());
+		controller.saveTSPSolution(controller.getTsp(), controller.getPaths());
+		Tour tour = controller.getMap().getTour();
+		ArrayList<Stop> travelBefore = new ArrayList<Stop>(tour.getOrderedTravel());
+		int deliveryIndex = tour.getOrderedTravel().indexOf(tour.getStopById(8));
+
+		Intersection pickupIntersection = controller.getMap().getIntersectionById(5);
+		Intersection deliveryIntersection = controller.getMap().getIntersectionById(7);
+		Stop pickupStop = new Stop(5, pickupIntersection.getLatitude(), pickupIntersection.getLongitude(), 300);
+		pickupStop.setOriginatedSegments(pickupIntersection.getOriginatedSegments());
+		Stop deliveryStop = new Stop(7, deliveryIntersection.getLatitude(), deliveryIntersection.getLongitude(), 120);
+		deliveryStop.setOriginatedSegments(deliveryIntersection.getOriginatedSegments());
+		ArrayList<Insertion> insertions = controller.getMap().computeInsertions(pickupStop, deliveryStop);
+		assertFalse(insertions.isEmpty());
+		for (Insertion insertion : insertions) {
+			assertTrue(tour.getOrderedTravel().indexOf(insertion.getPickupPredecessor()) >= deliveryIndex);
+		}
+		float[] pickupCosts = controller.getMap().computePickupInsertionCosts(pickupStop);
+		for (int i = 0; i < deliveryIndex; i++) {
+			assertEquals(Float.MAX_VALUE, pickupCosts[i]);
+			assertEquals(InsertionRejection.TIME_WINDOW, tour.getInsertionRejections()[i]);
+		}
+		assertNull(tour.getInsertionRejections()[deliveryIndex]);
+		controller.getMap().computeDeliveryInsertionCosts(pickupStop, tour.getOrderedTravel().get(deliveryIndex),
+				deliveryStop);
+		for (int i = 0; i < deliveryIndex; i++) {
+			assertEquals(InsertionRejection.ORDER, tour.getInsertionRejections()[i]);
+		}
+
+		tour.setPickupStop(pickupStop);
+		tour.setDeliveryStop(deliveryStop);
+		tour.setPickupStopPredecessor(tour.getOrderedTravel().get(0));
+		tour.setDeliveryStopPredecessor(tour.getOrderedTravel().get(deliveryIndex));
+		assertThrows(Exception.class, () -> controller.getMap().addRequest());
+		assertEquals(travelBefore, tour.getOrderedTravel());
+		assertEquals(2, tour.getTourRequests().size());
+		assertTrue(tour.respectsTimeWindows());
+	}
+
+	/**
+	 * Nature of test : the vehicle of capacity 2 leaves the stop 2 full, a request of demand 1 is added 
+	 * -> no insertion should pick it up there, addRequest should refuse it, and the command adding it 
+	 * should keep the failure and not change the tour when undone.
+	 */
+	@Test
+	void addRequestCapacityTest() throws Exception {
+		controller = new Controller();
+		controller.setMapCache(null);
+		controller.parseFile(
+				System.getProperty("user.dir").toString() + "\\src\\tests\\fichiersXML2020\\smallMapDijkstraTest.xml");
+		controller.setCurrentState(controller.getMapLoadedState());
+		controller.parseFile(
+				System.getProperty("user.dir").toString() + "\\src\\tests\\fichiersXML2020\\requestsCapacity.xml");
+		controller.setCurrentState(controller.getRequestsLoadedState());
+		controller.computeOptimisedTour(controller.getMap());
+		controller.saveTSPSolution(controller.getTsp(), controller.getPaths());
+		Tour tour = controller.getMap().getTour();
+		ArrayList<Stop> travelBefore = new ArrayList<Stop>(tour.getOrderedTravel());
+		Stop fullStop = tour.getStopById(2);
+		int fullIndex = tour.getOrderedTravel().indexOf(fullStop);
+		assertEquals(tour.getCapacity(), tour.computeLoads()[fullIndex]);
+
+		Intersection pickupIntersection = controller.getMap().getIntersectionById(5);
+		Intersection deliveryIntersection = controller.getMap().getIntersectionById(7);
+		Stop pickupStop = new Stop(5, pickupIntersection.getLatitude(), pickupIntersection.getLongitude(), 60);
+		pickupStop.setOriginatedSegments(pickupIntersection.getOriginatedSegments());
+		Stop deliveryStop = new Stop(7, deliveryIntersection.getLatitude(), deliveryIntersection.getLongitude(), 120);
+		deliveryStop.setOriginatedSegments(deliveryIntersection.getOriginatedSegments());
+		tour.setRequestDemand(1);
+		for (Insertion insertion : controller.getMap().computeInsertions(pickupStop, deliveryStop)) {
+			assertNotSame(fullStop, insertion.getPickupPredecessor());
+		}
+		assertEquals(Float.MAX_VALUE, controller.getMap().computePickupInsertionCosts(pickupStop)[fullIndex]);
+		assertEquals(InsertionRejection.CAPACITY, tour.getInsertionRejections()[fullIndex]);
+		assertFalse(controller.getMap().respectsCapacity(fullIndex, fullIndex, 1));
+
+		tour.setPickupStop(pickupStop);
+		tour.setDeliveryStop(deliveryStop);
+		tour.setPickupStopPredecessor(fullStop);
+		tour.setDeliveryStopPredecessor(fullStop);
+		Exception exception = assertThrows(Exception.class, () -> controller.getMap().addRequest());
+		assertEquals("the capacity of the vehicle is exceeded", exception.getMessage());
+		assertEquals(travelBefore, tour.getOrderedTravel());
+
+		AddRequestCommand command = new AddRequestCommand(controller.getMap(), pickupStop, deliveryStop, fullStop,
+				fullStop);
+		command.doCommand();
+		assertNotNull(command.getFailure());
+		command.undoCommand();
+		assertEquals(travelBefore, tour.getOrderedTravel());
+		assertEquals(2, tour.getTourRequests().size());
+	}
+
+	/**
+	 * Nature of test : findNearestIntersection and findNearestSegment at the
+	 * position of the intersections and of the middle of the segments -> should
+	 * give back the same intersection and a segment between the same ends
+	 */
+	@Test
+	void findNearestTest() {
+		for (Intersection intersection : controller.getMap().getIntersections().values()) {
+			Intersection nearest = controller.getMap().findNearestIntersection(intersection.getLatitude(),
+					intersection.getLongitude());
+			assertEquals(intersection.getLatitude(), nearest.getLatitude());
+			assertEquals(intersection.getLongitude(), nearest.getLongitude());
+			for (Segment segment : intersection.getOriginatedSegments()) {
+				Segment found = controller.getMap().findNearestSegment(
+						(segment.getDepartureIntersection().getLatitude()
+								+ segment.getArrivalIntersection().getLatitude()) / 2,
+						(segment.getDepartureIntersection().getLongitude()
+								+ segment.getArrivalIntersection().getLongitude()) / 2);
+				assertTrue(found.getDepartureIntersection().getId() == segment.getDepartureIntersection().getId()
+						|| found.getDepartureIntersection().getId() == segment.getArrivalIntersection().getId());
+			}
+		}
+	}
 }
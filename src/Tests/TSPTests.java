@@ -0,0 +1,132 @@
+package Tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+
+import org.junit.jupiter.api.Test;
+
+import Model.CompleteGraph;
+import Model.Graph;
+import Model.TSP1;
+
+/**
+ * TSPTests is a class that tests the constraints given to the branch and bound
+ * of the TemplateTSP class, on small complete graphs.
+ *
+ * @author H4122
+ * @see Model.TemplateTSP
+ * @see Model.TSP1
+ */
+class TSPTests {
+
+	/**
+	 * A TSP1 recording if a branch was explored while vertex 1 was not visited yet,
+	 * that is after leaving the departure towards another vertex.
+	 */
+	private static class RecordingTSP extends TSP1 {
+		private boolean lateBranchExplored = false;
+
+		@Override
+		protected Iterator<Integer> iterator(Integer currentVertex, Collection<Integer> unvisited, Graph g) {
+			if (currentVertex != 0 && unvisited.contains(1)) {
+				lateBranchExplored = true;
+			}
+			return super.iterator(currentVertex, unvisited, g);
+		}
+	}
+
+	/**
+	 * @return A complete graph of <code>nbVertices</code> vertices where every arc costs 10 seconds.
+	 */
+	private CompleteGraph uniformGraph(int nbVertices) {
+		float[][] cost = new float[nbVertices][nbVertices];
+		for (float[] row : cost) {
+			Arrays.fill(row, 10);
+		}
+		return new CompleteGraph(nbVertices, cost);
+	}
+
+	/**
+	 * Nature of test : every arc costs 10 seconds and vertex 1 must be reached before 10 seconds
+	 * -> the tour should begin with vertex 1, and the forward slack should prune every other
+	 * first vertex without exploring it.
+	 */
+	@Test
+	void forwardSlackTest() {
+		CompleteGraph graph = uniformGraph(5);
+		RecordingTSP withoutWindows = new RecordingTSP();
+		assertEquals(0, withoutWindows.searchSolution(1000, graph));
+		assertNotEquals(1, withoutWindows.getSolution(1));
+
+		float[] latestTimes = new float[5];
+		Arrays.fill(latestTimes, Float.MAX_VALUE);
+		latestTimes[1] = 10;
+		RecordingTSP tsp = new RecordingTSP();
+		tsp.setTimeWindows(new float[5], new float[5], latestTimes);
+		assertEquals(0, tsp.searchSolution(1000, graph));
+		assertEquals(1, tsp.getSolution(1));
+		assertEquals(50, tsp.getSolutionCost());
+		assertFalse(tsp.lateBranchExplored);
+	}
+
+	/**
+	 * Nature of test : vertex 1 must be reached before 5 seconds but every arc costs 10 seconds
+	 * -> no solution should be found.
+	 */
+	@Test
+	void infeasibleTimeWindowsTest() {
+		float[] latestTimes = new float[5];
+		Arrays.fill(latestTimes, Float.MAX_VALUE);
+		latestTimes[1] = 5;
+		TSP1 tsp = new TSP1();
+		tsp.setTimeWindows(new float[5], new float[5], latestTimes);
+		assertEquals(0, tsp.searchSolution(1000, uniformGraph(5)));
+		assertNull(tsp.getSolution(0));
+	}
+
+	/**
+	 * Nature of test : two requests (1, 2) and (3, 4) of demand 1, the cheapest tour 1, 3, 2, 4 
+	 * carrying both of them -> with a capacity of 2 this tour should be found, with a capacity of 1 
+	 * the requests should be carried one after the other, each pickup before its delivery.
+	 */
+	@Test
+	void capacityTest() {
+		float[][] cost = new float[5][5];
+		for (float[] row : cost) {
+			Arrays.fill(row, 10);
+		}
+		cost[1][3] = 1;
+		cost[3][2] = 1;
+		cost[2][4] = 1;
+		CompleteGraph graph = new CompleteGraph(5, cost);
+		int[] demands = { 0, 1, -1, 1, -1 };
+		int[] pickupVertices = { -1, -1, 1, -1, 3 };
+
+		TSP1 large = new TSP1();
+		large.setCapacity(2, demands, pickupVertices);
+		assertEquals(0, large.searchSolution(1000, graph));
+		int[] interleaved = { 0, 1, 3, 2, 4 };
+		for (int i = 0; i < interleaved.length; i++) {
+			assertEquals(interleaved[i], large.getSolution(i));
+		}
+
+		TSP1 small = new TSP1();
+		small.setCapacity(1, demands, pickupVertices);
+		assertEquals(0, small.searchSolution(1000, graph));
+		int load = 0;
+		boolean[] visited = new boolean[5];
+		for (int i = 1; i < 5; i++) {
+			int vertex = small.getSolution(i);
+			if (pickupVertices[vertex] >= 0) {
+				assertTrue(visited[pickupVertices[vertex]]);
+			}
+			visited[vertex] = true;
+			load += demands[vertex];
+			assertTrue(load <= 1);
+		}
+		assertTrue(small.getSolutionCost() > large.getSolutionCost());
+	}
+}
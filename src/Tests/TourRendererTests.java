@@ -0,0 +1,118 @@
+package Tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import Controller.Controller;
+import Model.Tour;
+import View.TourRenderer;
+
+/**
+ * TourRendererTests is a class that tests the drawings of a tour written without any window,
+ * in PNG and in SVG.
+ *
+ * A TourRendererTests is composed of:
+ * <ul>
+ * <li>A Controller whose tour is computed on a small map.</li>
+ * </ul>
+ *
+ * @author H4122
+ * @see View.TourRenderer
+ */
+class TourRendererTests {
+
+	@TempDir
+	File directory;
+
+	Controller controller;
+
+	/**
+	 * Before any test the small map and its requests are loaded, and the tour is computed.
+	 */
+	@BeforeEach
+	void computeTour() throws Exception {
+		controller = new Controller();
+		controller.setMapCache(null);
+		controller.parseFile(System.getProperty("user.dir").toString() + "\\src\\tests\\fichiersXML2020\\smallMap.xml");
+		controller.setCurrentState(controller.getMapLoadedState());
+		controller.parseFile(
+				System.getProperty("user.dir").toString() + "\\src\\tests\\fichiersXML2020\\requestsSmall1.xml");
+		controller.setCurrentState(controller.getRequestsLoadedState());
+		controller.computeOptimisedTour(controller.getMap());
+		controller.saveTSPSolution(controller.getTsp(), controller.getPaths());
+	}
+
+	/**
+	 * Nature of test : the computed tour is written in PNG -> the file should begin with the PNG
+	 * signature and the image should have the size asked.
+	 */
+	@Test
+	void writePngTest() throws Exception {
+		TourRenderer renderer = new TourRenderer(controller.getMap(), controller.getMap().getTour(), 300, 200);
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		renderer.writePng(stream);
+		byte[] content = stream.toByteArray();
+		byte[] signature = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n' };
+		assertArrayEquals(signature, Arrays.copyOf(content, signature.length));
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(content));
+		assertEquals(300, image.getWidth());
+		assertEquals(200, image.getHeight());
+	}
+
+	/**
+	 * Nature of test : the computed tour is written in SVG -> the file should begin with the XML
+	 * declaration, have the size asked, and contain a circle for each pickup stop.
+	 */
+	@Test
+	void writeSvgTest() throws Exception {
+		TourRenderer renderer = new TourRenderer(controller.getMap(), controller.getMap().getTour(), 300, 200);
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		renderer.writeSvg(stream);
+		String content = new String(stream.toByteArray(), StandardCharsets.UTF_8);
+		assertTrue(content.startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<svg "));
+		assertTrue(content.contains("width=\"300\" height=\"200\""));
+		assertTrue(content.trim().endsWith("</svg>"));
+		int nbRequests = controller.getMap().getTour().getTourRequests().size();
+		assertEquals(nbRequests, content.split("<circle ", -1).length - 1);
+	}
+
+	/**
+	 * Nature of test : the tours of two vehicles are written in PNG in the same directory
+	 * -> a file of the size asked should be written for each tour.
+	 */
+	@Test
+	void renderAllTest() throws Exception {
+		controller.setFleetSize(2);
+		ArrayList<Tour> fleetTours = controller.computeFleetTours(1000);
+		ArrayList<File> files = TourRenderer.renderAll(controller.getMap(), fleetTours, 300, 200, directory, "png");
+		assertEquals(2, files.size());
+		for (File file : files) {
+			BufferedImage image = ImageIO.read(file);
+			assertEquals(300, image.getWidth());
+			assertEquals(200, image.getHeight());
+		}
+	}
+
+	/**
+	 * Nature of test : a drawing of width 0 -> an exception should be thrown.
+	 */
+	@Test
+	void invalidSizeTest() {
+		Exception exception = assertThrows(Exception.class,
+				() -> new TourRenderer(controller.getMap(), controller.getMap().getTour(), 0, 200));
+		assertEquals("The size of the drawing must be positive", exception.getMessage());
+	}
+}
@@ -0,0 +1,78 @@
+package View;
+
+import java.io.IOException;
+
+import Model.Path;
+import Model.Stop;
+import Model.Tour;
+
+/**
+ * CsvTourExporter writes the stops of a tour in a CSV file, readable by a spreadsheet.
+ *
+ * The file has one line per stop, in the visiting order, with the columns: index, id, type, request,
+ * latitude, longitude, arrival, departure, duration (in seconds), and the length (in meters) and the
+ * duration (in seconds) of the path to the next stop. These two columns are empty when the next stop
+ * cannot be reached.
+ *
+ * @author H4122
+ *
+ * @see View.TourExporter
+ */
+public class CsvTourExporter extends TourExporter {
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param tour The computed tour to export.
+	 */
+	public CsvTourExporter(Tour tour) {
+		super(tour);
+	}
+
+	@Override
+	public String getExtension() {
+		return "csv";
+	}
+
+	@Override
+	protected void writeHeader() throws IOException {
+		out.write("index,id,type,request,latitude,longitude,arrival,departure,duration,nextPathLength,nextPathDuration\n");
+	}
+
+	@Override
+	protected void writeStop(int index) throws IOException {
+		Stop stop = getStop(index);
+		Path nextPath = getNextPath(index);
+		int request = Math.abs(getRequestNumber(index));
+		out.write(Integer.toString(index));
+		out.write(',');
+		out.write(Long.toString(stop.getId()));
+		out.write(',');
+		out.write(getStopType(index));
+		out.write(',');
+		out.write(request == 0 ? "" : Integer.toString(request));
+		out.write(',');
+		out.write(Float.toString(stop.getLatitude()));
+		out.write(',');
+		out.write(Float.toString(stop.getLongitude()));
+		out.write(',');
+		out.write(formatTime(getArrivalTime(index)));
+		out.write(',');
+		out.write(formatTime(getDepartureTime(index)));
+		out.write(',');
+		out.write(Integer.toString((int) stop.getStopDuration()));
+		out.write(',');
+		if (nextPath != null && !isUnreachable(nextPath)) {
+			out.write(Integer.toString(Math.round(getLength(nextPath))));
+			out.write(',');
+			out.write(Integer.toString(Math.round(nextPath.getPathDuration())));
+		} else {
+			out.write(',');
+		}
+		out.write('\n');
+	}
+
+	@Override
+	protected void writeFooter() throws IOException {
+	}
+}
@@ -1,17 +1,27 @@
 package View;
 
 import java.awt.Color;
-import java.awt.Component;
+import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
 import java.awt.RenderingHints;
 import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
 import java.awt.event.MouseEvent;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 
 import javax.swing.JFrame;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 import javax.swing.event.MouseInputListener;
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
@@ -21,6 +31,7 @@ import Model.MapBoundaries;
 import Model.Request;
 import Model.Segment;
 import Model.Stop;
+import Model.Tour;
 
 /**
  * DrawnMap is the panel where the map is drawn. Inside this Panel are drawn the
@@ -57,16 +68,32 @@ import Model.Stop;
  * <li>A list of GraphicalSegments that allow to draw the segments of map</li>
  * <li>A list of GraphicalIntersections that allow to draw the intersections of
  * map</li>
+ * <li>The GraphicalSegment and the GraphicalIntersection under the mouse, if
+ * any</li>
+ * <li>A SpatialGrid of the GraphicalSegments and one of the
+ * GraphicalIntersections, to find those near the mouse</li>
+ * <li>The images of the segments and intersections of the map already drawn,
+ * by zoom level</li>
  * <li>A list of Colors that are used to paint our requests on the Map</li>
  * <li>A mapBounderies that sets the maximum and minimum coordinates of the
  * map</li>
- * <li>A variable that represents the zoom factor of the map</li>
+ * <li>A MapProjection that keeps the position on screen of each intersection</li>
+ * <li>A TourOverlay that keeps the shapes of the paths of the computed tour</li>
+ * <li>A RepaintScheduler that gathers the repaints of the panel</li>
+ * <li>The zoom level of the map, and the zoom factor it represents</li>
+ * <li>The offset on screen of the top left corner of the map, changed by
+ * dragging the map</li>
  * <li>A MouseState that controls the mouse for the drawnMap panel</li>
  * </ul>
  * 
  * DrawnMap is created when after loading a map by parsing an XML map file. Once
  * the DrawnMap created, the intersection and segments are drawn.<br>
  * 
+ * Zooming projects the map again at a larger size, so that the roads stay sharp
+ * and the points keep their size on screen. All the positions kept by the
+ * DrawnMap, such as pointClicked, are positions on the projected map: the
+ * offset is only added when painting.<br>
+ * 
  * DrawnMap inherits observer in order to repaint easily when the map or the
  * tour have been modified
  * 
@@ -90,6 +117,43 @@ public class DrawnMap extends JPanel implements ObserverDP.Observer {
 
 	private static final long serialVersionUID = 1L;
 
+	/**
+	 * The size in pixels of the drawing of the map, when it is not zoomed.
+	 */
+	private static final int MAP_WIDTH = 600;
+	private static final int MAP_HEIGHT = 600;
+
+	/**
+	 * The margin in pixels around the map in the images of the map, so that the
+	 * intersections on the border are not cut.
+	 */
+	private static final int LAYER_MARGIN = 4;
+
+	/**
+	 * The maximum number of pixels of all the images of the map kept (about 32 MB).
+	 */
+	private static final long LAYER_CACHE_PIXELS = 8L * 1024 * 1024;
+
+	/**
+	 * The maximum number of pixels of an image of the map (about 16 MB). When the
+	 * map is more zoomed, drawing its visible part is faster than drawing the
+	 * image.
+	 */
+	private static final long LAYER_MAX_PIXELS = 4L * 1024 * 1024;
+
+	/**
+	 * The side in pixels of a cell of the grids of the segments and the
+	 * intersections.
+	 */
+	private static final int GRID_CELL_SIZE = 16;
+
+	/**
+	 * The zoom factor applied by each move of the mouse wheel, and the number of
+	 * moves from the whole map to the most zoomed view.
+	 */
+	private static final double ZOOM_STEP = 1.1;
+	private static final int MAX_ZOOM_LEVEL = 36;
+
 	private Controller controller;
 	public boolean repaint = false;
 	public boolean clicked = false;
@@ -108,9 +172,20 @@ public class DrawnMap extends JPanel implements ObserverDP.Observer {
 	GraphicalIntersection stopOver;
 	private ArrayList<GraphicalSegment> graphicalSegments = new ArrayList<>();
 	private ArrayList<GraphicalIntersection> graphicalIntersections = new ArrayList<>();
-	private ArrayList<Color> colors = new ArrayList<>();
+	private GraphicalSegment selectedSegment;
+	private GraphicalIntersection selectedIntersection;
+	private SpatialGrid segmentGrid;
+	private SpatialGrid intersectionGrid;
+	private LinkedHashMap<Integer, BufferedImage> baseLayers = new LinkedHashMap<Integer, BufferedImage>(16, 0.75f, true);
+	private ArrayList<Color> colors;
 	private MapBoundaries mapBoundaries;
+	private MapProjection projection;
+	private TourOverlay tourOverlay;
+	private RepaintScheduler repaintScheduler = new RepaintScheduler(this);
+	private int zoomLevel = 0;
 	private double zoomFactor = 1;
+	private int offsetX = 0;
+	private int offsetY = 0;
 
 	/**
 	 * MouseState is MouseListener class that defines new classes for the methods
@@ -122,6 +197,7 @@ public class DrawnMap extends JPanel implements ObserverDP.Observer {
 	 * <li>A boolean that indicates if the the mouse is released</li>
 	 * <li>A float that indicate the x-axis position of the mouse on the screen</li>
 	 * <li>A float that indicate the y-axis position of the mouse on the screen</li>
+	 * <li>The last position on screen of the mouse while the map is dragged</li>
 	 * <li>A boolean that indicates if a segment is selected</li>
 	 * <li>A boolean that indicates if an intersection is selected</li>
 	 * <li>A boolean that indicates if we are performing a zoom</li>
@@ -138,7 +214,7 @@ public class DrawnMap extends JPanel implements ObserverDP.Observer {
 	 * @see Model.Intersection
 	 * @see Model.Segment
 	 * @see View.DrawnMap
-	 * @see Controller.Controller#parseMap(org.w3c.dom.Document)
+	 * @see Controller.Controller#parseMap(javax.xml.stream.XMLStreamReader)
 	 *
 	 */
 	public class MouseState implements MouseInputListener, MouseWheelListener {
@@ -147,6 +223,8 @@ public class DrawnMap extends JPanel implements ObserverDP.Observer {
 		private boolean released;
 		private float positionX;
 		private float positionY;
+		private int dragX;
+		private int dragY;
 		private boolean segmentSelected = false;
 		private boolean interSelected = false;
 		@SuppressWarnings("unused")
@@ -174,13 +252,20 @@ public class DrawnMap extends JPanel implements ObserverDP.Observer {
 		/**
 		 * Overrides mouseDragged method in class MouseInputListener.
 		 * 
-		 * Describes the behavior of the mouse when it's dragged
+		 * Describes the behavior of the mouse when it's dragged: the map follows
+		 * the mouse.
 		 * 
 		 * @param e The mouse event
 		 */
 		@Override
 		public void mouseDragged(MouseEvent e) {
 			pressed = true;
+			offsetX += e.getX() - dragX;
+			offsetY += e.getY() - dragY;
+			dragX = e.getX();
+			dragY = e.getY();
+			clampOffset();
+			repaintScheduler.repaintAll();
 		}
 
 		/**
@@ -192,28 +277,42 @@ public class DrawnMap extends JPanel implements ObserverDP.Observer {
 		 */
 		@Override
 		public void mouseMoved(MouseEvent e) {
+			GraphicalSegment previousSegment = selectedSegment;
+			GraphicalIntersection previousIntersection = selectedIntersection;
+			GraphicalIntersection previousStopOver = stopOver;
 			segmentSelected = false;
 			interSelected = false;
-			positionX = e.getX();
-			positionY = e.getY();
-			for (GraphicalSegment graphicalSegment : graphicalSegments) {
-				if (!segmentSelected && pDistance(positionX, positionY, graphicalSegment.getCoordinatesDeparture().x,
+			positionX = e.getX() - offsetX;
+			positionY = e.getY() - offsetY;
+			// only the segments of the cells around the mouse can be under it
+			if (selectedSegment != null) {
+				selectedSegment.setSelected(false);
+				selectedSegment = null;
+			}
+			for (int index : segmentGrid.query(positionX, positionY, 2)) {
+				GraphicalSegment graphicalSegment = graphicalSegments.get(index);
+				if (pDistance(positionX, positionY, graphicalSegment.getCoordinatesDeparture().x,
 						graphicalSegment.getCoordinatesDeparture().y, graphicalSegment.getCoordinatesArrival().x,
 						graphicalSegment.getCoordinatesArrival().y) <= 2) {
 					graphicalSegment.setSelected(true);
 					segmentSelected = true;
-				} else {
-					graphicalSegment.setSelected(false);
+					selectedSegment = graphicalSegment;
+					break;
 				}
 			}
 			if (add) {
-				for (GraphicalIntersection graphicalIntersection : graphicalIntersections) {
-					if (!interSelected && Math.abs(positionX - graphicalIntersection.getCoordinates().x) <= 2
+				if (selectedIntersection != null) {
+					selectedIntersection.setSelected(false);
+					selectedIntersection = null;
+				}
+				for (int index : intersectionGrid.query(positionX, positionY, 2)) {
+					GraphicalIntersection graphicalIntersection = graphicalIntersections.get(index);
+					if (Math.abs(positionX - graphicalIntersection.getCoordinates().x) <= 2
 							&& Math.abs(positionY - graphicalIntersection.getCoordinates().y) <= 2) {
 						graphicalIntersection.setSelected(true);
 						interSelected = true;
-					} else {
-						graphicalIntersection.setSelected(false);
+						selectedIntersection = graphicalIntersection;
+						break;
 					}
 				}
 			}
@@ -222,15 +321,22 @@ public class DrawnMap extends JPanel implements ObserverDP.Observer {
 				boolean over = false;
 				int iterator = 0;
 				for (Stop stop : controller.getMap().getTour().getOrderedTravel()) {
-					if (Math.abs(getPositionOnScreen(stop.getLongitude(), stop.getLatitude()).x - positionX) <= 6
+					if (Math.abs(projection.getX(stop) - positionX) <= 6
 							&& Math.abs(
-									getPositionOnScreen(stop.getLongitude(), stop.getLatitude()).y - positionY) <= 6) {
+									projection.getY(stop) - positionY) <= 6) {
 						stopOver = new GraphicalIntersection(stop,
-								new Point(getPositionOnScreen(stop.getLongitude(), stop.getLatitude()).x,
-										getPositionOnScreen(stop.getLongitude(), stop.getLatitude()).y));
+								new Point(projection.getX(stop),
+										projection.getY(stop)));
 						stopOver.setOver(true);
 						stopOver.setNumber(iterator);
+						// precomputed when entering the predecessor selection, no routing here
+						float[] insertionCosts = controller.getMap().getTour().getInsertionCosts();
+						if (insertionCosts != null && iterator < insertionCosts.length) {
+							stopOver.setInsertionCost(insertionCosts[iterator]);
+						}
 						over = true;
+						// the tour departure is also the last stop, whose cost is not the one of the departure
+						break;
 					}
 					iterator++;
 				}
@@ -238,7 +344,7 @@ public class DrawnMap extends JPanel implements ObserverDP.Observer {
 					stopOver = null;
 				}
 			}
-			repaint();
+			repaintHover(previousSegment, previousIntersection, previousStopOver);
 
 		}
 
@@ -297,7 +403,7 @@ public class DrawnMap extends JPanel implements ObserverDP.Observer {
 		 */
 		@Override
 		public void mouseClicked(MouseEvent e) {
-			pointClicked = new Point(e.getX(), e.getY());
+			pointClicked = new Point(e.getX() - offsetX, e.getY() - offsetY);
 			clicked = true;
 			pointSelected = true;
 			controller.getMenu().getRoadMap().repaint();
@@ -325,6 +431,8 @@ public class DrawnMap extends JPanel implements ObserverDP.Observer {
 		public void mousePressed(MouseEvent e) {
 			pressed = true;
 			released = false;
+			dragX = e.getX();
+			dragY = e.getY();
 		}
 
 		/**
@@ -351,14 +459,12 @@ public class DrawnMap extends JPanel implements ObserverDP.Observer {
 		public void mouseWheelMoved(MouseWheelEvent e) {
 			zoomer = true;
 			// Zoom in
-			if (e.getWheelRotation() < 0 && zoomFactor < 3) {
-				zoomFactor *= 1.1;
-				repaint();
+			if (e.getWheelRotation() < 0 && zoomLevel < MAX_ZOOM_LEVEL) {
+				zoom(zoomLevel + 1, e.getX(), e.getY());
 			}
 			// Zoom out
-			if (e.getWheelRotation() > 0 && zoomFactor > 1) {
-				zoomFactor /= 1.1;
-				repaint();
+			if (e.getWheelRotation() > 0 && zoomLevel > 0) {
+				zoom(zoomLevel - 1, e.getX(), e.getY());
 			}
 		}
 	}
@@ -383,31 +489,180 @@ public class DrawnMap extends JPanel implements ObserverDP.Observer {
 		this.controller.getMap().getTour().addObserver(this);
 		this.controller.getMap().addObserver(this);
 		mapBoundaries = controller.computeMapBoundaries();
+		projection = new MapProjection(controller.getMap(), mapBoundaries, MAP_WIDTH, MAP_HEIGHT);
 		this.addMouseListener(mouseState);
 		this.addMouseMotionListener(mouseState);
 		this.addMouseWheelListener(mouseState);
-		boolean sameSegment = false;
+		buildGraphicalMap();
+		colors = defaultColors();
+	}
 
-		for (Intersection intersection : controller.getMapIntersections().values()) {
-			Point intersectionPoint = getPositionOnScreen(intersection.getLongitude(), intersection.getLatitude());
+	/**
+	 * Creates the graphical intersections and the graphical segments of the map.
+	 * The positions of the intersections are read from the projection of the map. A segment is not drawn when the segment
+	 * in the other direction, between the same points on screen, is already drawn: the pairs of points
+	 * already drawn are kept in a set, so that the map is built in a time linear in its number of segments.
+	 * The grids used to find the elements under the mouse are built at the same time.
+	 * The map is built again at each zoom, from the projection at the new size.
+	 *
+	 * @see View.MapProjection
+	 */
+	private void buildGraphicalMap() {
+		graphicalIntersections.clear();
+		graphicalSegments.clear();
+		selectedSegment = null;
+		selectedIntersection = null;
+		stopOver = null;
+		Collection<Intersection> intersections = controller.getMapIntersections().values();
+		Point[] positions = new Point[intersections.size()];
+		for (Intersection intersection : intersections) {
+			Point intersectionPoint = new Point(projection.getX(intersection), projection.getY(intersection));
+			positions[intersection.getIndex()] = intersectionPoint;
 			graphicalIntersections.add(new GraphicalIntersection(intersection, intersectionPoint));
+		}
+		HashSet<Long> drawnPairs = new HashSet<Long>();
+		for (Intersection intersection : intersections) {
+			Point startPoint = positions[intersection.getIndex()];
 			for (Segment segment : intersection.getOriginatedSegments()) {
-				sameSegment = false;
-				Point startPoint = getPositionOnScreen(segment.getDepartureIntersection().getLongitude(),
-						segment.getDepartureIntersection().getLatitude());
-				Point endPoint = getPositionOnScreen(segment.getArrivalIntersection().getLongitude(),
-						segment.getArrivalIntersection().getLatitude());
-				for (GraphicalSegment graphicalSegment : graphicalSegments) {
-					if (graphicalSegment.getCoordinatesDeparture().equals(endPoint)
-							&& graphicalSegment.getCoordinatesArrival().equals(startPoint)) {
-						sameSegment = true;
-					}
-				}
-				if (!sameSegment) {
+				Intersection arrival = segment.getArrivalIntersection();
+				Point endPoint = arrival.getIndex() >= 0 ? positions[arrival.getIndex()]
+						: new Point(projection.getX(arrival), projection.getY(arrival));
+				if (!drawnPairs.contains(pointPairKey(endPoint, startPoint))) {
+					drawnPairs.add(pointPairKey(startPoint, endPoint));
 					graphicalSegments.add(new GraphicalSegment(segment, startPoint, endPoint, false));
 				}
 			}
 		}
+
+		int[] minX = new int[graphicalSegments.size()];
+		int[] minY = new int[graphicalSegments.size()];
+		int[] maxX = new int[graphicalSegments.size()];
+		int[] maxY = new int[graphicalSegments.size()];
+		for (int i = 0; i < graphicalSegments.size(); i++) {
+			Point departure = graphicalSegments.get(i).getCoordinatesDeparture();
+			Point arrival = graphicalSegments.get(i).getCoordinatesArrival();
+			minX[i] = Math.min(departure.x, arrival.x);
+			minY[i] = Math.min(departure.y, arrival.y);
+			maxX[i] = Math.max(departure.x, arrival.x);
+			maxY[i] = Math.max(departure.y, arrival.y);
+		}
+		// the cells cover the same part of the map at every zoom
+		int cellSize = (int) Math.ceil(GRID_CELL_SIZE * zoomFactor);
+		segmentGrid = new SpatialGrid(minX, minY, maxX, maxY, cellSize);
+		int[] x = new int[graphicalIntersections.size()];
+		int[] y = new int[graphicalIntersections.size()];
+		for (int i = 0; i < graphicalIntersections.size(); i++) {
+			x[i] = graphicalIntersections.get(i).getCoordinates().x;
+			y[i] = graphicalIntersections.get(i).getCoordinates().y;
+		}
+		intersectionGrid = new SpatialGrid(x, y, x, y, cellSize);
+	}
+
+	/**
+	 * Repaints the regions of the panel where the elements under the mouse were
+	 * drawn and are now drawn. Nothing is repainted when the mouse stays over the
+	 * same elements.
+	 * 
+	 * @param previousSegment      The segment under the mouse before it moved.
+	 * @param previousIntersection The intersection under the mouse before it moved.
+	 * @param previousStopOver     The stop under the mouse before it moved.
+	 * 
+	 * @see View.RepaintScheduler
+	 */
+	private void repaintHover(GraphicalSegment previousSegment, GraphicalIntersection previousIntersection,
+			GraphicalIntersection previousStopOver) {
+		FontMetrics metrics = getFontMetrics(getFont());
+		// a rectangle of negative size is replaced by the first rectangle added
+		Rectangle dirtyRegion = new Rectangle(0, 0, -1, -1);
+		if (previousSegment != selectedSegment) {
+			if (previousSegment != null) {
+				dirtyRegion.add(previousSegment.getSelectedBounds(metrics));
+			}
+			if (selectedSegment != null) {
+				dirtyRegion.add(selectedSegment.getSelectedBounds(metrics));
+			}
+		}
+		if (previousIntersection != selectedIntersection) {
+			if (previousIntersection != null) {
+				dirtyRegion.add(previousIntersection.getSelectedBounds());
+			}
+			if (selectedIntersection != null) {
+				dirtyRegion.add(selectedIntersection.getSelectedBounds());
+			}
+		}
+		if (stopOver == null ? previousStopOver != null : !stopOver.isSameOver(previousStopOver)) {
+			if (previousStopOver != null) {
+				dirtyRegion.add(previousStopOver.getOverBounds(metrics));
+			}
+			if (stopOver != null) {
+				dirtyRegion.add(stopOver.getOverBounds(metrics));
+			}
+		}
+		dirtyRegion.translate(offsetX, offsetY);
+		repaintScheduler.repaint(dirtyRegion);
+	}
+
+	/**
+	 * Changes the zoom level of the map. The point of the map under the mouse stays
+	 * under the mouse.
+	 * 
+	 * @param level The new zoom level, between 0 (the whole map) and MAX_ZOOM_LEVEL.
+	 * @param x     The x position of the mouse on the panel.
+	 * @param y     The y position of the mouse on the panel.
+	 */
+	private void zoom(int level, int x, int y) {
+		double scale = Math.pow(ZOOM_STEP, level) / zoomFactor;
+		zoomLevel = level;
+		zoomFactor = Math.pow(ZOOM_STEP, level);
+		offsetX = (int) Math.round(x - (x - offsetX) * scale);
+		offsetY = (int) Math.round(y - (y - offsetY) * scale);
+		if (!pointClicked.equals(new Point())) {
+			pointClicked = new Point((int) Math.round(pointClicked.x * scale), (int) Math.round(pointClicked.y * scale));
+		}
+		projection.resize((int) Math.round(MAP_WIDTH * zoomFactor), (int) Math.round(MAP_HEIGHT * zoomFactor));
+		tourOverlay = null;
+		buildGraphicalMap();
+		clampOffset();
+		repaintScheduler.repaintAll();
+	}
+
+	/**
+	 * Keeps the map on the panel: it can only be dragged until one of its borders
+	 * reaches the border of the panel.
+	 */
+	private void clampOffset() {
+		int mapWidth = (int) Math.round(MAP_WIDTH * zoomFactor);
+		int mapHeight = (int) Math.round(MAP_HEIGHT * zoomFactor);
+		offsetX = Math.max(Math.min(0, getViewWidth() - mapWidth), Math.min(0, offsetX));
+		offsetY = Math.max(Math.min(0, getViewHeight() - mapHeight), Math.min(0, offsetY));
+	}
+
+	private int getViewWidth() {
+		return getWidth() > 0 ? getWidth() : MAP_WIDTH;
+	}
+
+	private int getViewHeight() {
+		return getHeight() > 0 ? getHeight() : MAP_HEIGHT;
+	}
+
+	/**
+	 * @param start The position on screen of the departure of a segment.
+	 * @param end The position on screen of the arrival of a segment.
+	 * @return A key identifying the pair of positions, 16 bits by coordinate being enough for the map at
+	 * the largest zoom.
+	 */
+	static long pointPairKey(Point start, Point end) {
+		return ((long) (start.x & 0xFFFF) << 48) | ((long) (start.y & 0xFFFF) << 32) | ((long) (end.x & 0xFFFF) << 16)
+				| (end.y & 0xFFFF);
+	}
+
+	/**
+	 * @return The colors given to the requests of a tour, one after the other.
+	 * 
+	 * @see View.TourRenderer
+	 */
+	public static ArrayList<Color> defaultColors() {
+		ArrayList<Color> colors = new ArrayList<>();
 		colors.add(new Color(44, 117, 255));
 		colors.add(new Color(223, 109, 20));
 		colors.add(new Color(153, 122, 144));
@@ -439,6 +694,7 @@ public class DrawnMap extends JPanel implements ObserverDP.Observer {
 		colors.add(new Color(109, 7, 26));
 		colors.add(new Color(129, 20, 83));
 		colors.add(new Color(27, 79, 8));
+		return colors;
 	}
 
 	public ArrayList<Color> getColors() {
@@ -480,18 +736,16 @@ public class DrawnMap extends JPanel implements ObserverDP.Observer {
 
 		this.setBackground(Color.white);
 
-		graphics2D.translate(mouseState.positionX, mouseState.positionY);
-		graphics2D.scale(zoomFactor, zoomFactor);
-		graphics2D.translate(-mouseState.positionX, -mouseState.positionY);
+		graphics2D.translate(offsetX, offsetY);
 
 		g.setColor(Color.black);
 
-		for (GraphicalIntersection graphicalIntersection : graphicalIntersections) {
-			graphicalIntersection.draw(g);
+		drawBaseLayer(graphics2D);
+		if (selectedIntersection != null && selectedIntersection.isSelected()) {
+			selectedIntersection.draw(g);
 		}
-
-		for (GraphicalSegment graphicalSegment : graphicalSegments) {
-			graphicalSegment.draw(g);
+		if (selectedSegment != null) {
+			selectedSegment.draw(g);
 		}
 
 		if (stopOver != null) {
@@ -499,54 +753,37 @@ public class DrawnMap extends JPanel implements ObserverDP.Observer {
 		}
 
 		if (!controller.getMap().getTour().getOrderedTravel().isEmpty()) {
-			for (Stop stop : controller.getMap().getTour().getOrderedTravel()) {
-				for (Segment segment : stop.getNextPath().getPathSegments()) {
-
-					Point startPoint = getPositionOnScreen(segment.getDepartureIntersection().getLongitude(),
-							segment.getDepartureIntersection().getLatitude());
-					Point endPoint = getPositionOnScreen(segment.getArrivalIntersection().getLongitude(),
-							segment.getArrivalIntersection().getLatitude());
-
-					GraphicalSegment graphicalSegment = new GraphicalSegment(segment, startPoint, endPoint, false);
-					graphicalSegment.drawPath(g);
-
-				}
+			Tour tour = controller.getMap().getTour();
+			TourOverlay overlay = tourOverlay;
+			if (overlay == null || !overlay.isBuiltFrom(tour)) {
+				overlay = new TourOverlay(tour, projection);
+				tourOverlay = overlay;
 			}
+			overlay.draw(graphics2D, new Rectangle(-offsetX, -offsetY, getViewWidth(), getViewHeight()),
+					getGraphicsConfiguration());
 		}
 
 		if (repaint) {
 			g.setColor(Color.black);
-			Point DeparturePoint = getPositionOnScreen(controller.getMap().getTour().getTourDeparture().getLongitude(),
-					controller.getMap().getTour().getTourDeparture().getLatitude());
-			GraphicalIntersection graphicalIntersection = new GraphicalIntersection(
-					controller.getMap().getTour().getTourDeparture(), DeparturePoint);
-			graphicalIntersection.drawDeparture(g, this);
+			Stop tourDeparture = controller.getMap().getTour().getTourDeparture();
+			GraphicalIntersection.drawDeparture(g, this, projection.getX(tourDeparture), projection.getY(tourDeparture));
 			int iterator = 0;
 			for (Request request : controller.getMap().getTour().getTourRequests()) {
-				Color randomColor = colors.get(iterator);
+				Color randomColor = colors.get(iterator % colors.size());
 				iterator++;
 				if (iterator >= controller.getMap().getTour().getTourRequests().size()) {
 					iterator = 0;
 				}
 
-				Point requestPickUpPoint = getPositionOnScreen(request.getPickupStop().getLongitude(),
-						request.getPickupStop().getLatitude());
-				GraphicalIntersection graphicalIntersectionPickup = new GraphicalIntersection(request.getPickupStop(),
-						requestPickUpPoint);
-				graphicalIntersectionPickup.drawStopRequest(g, "Pickup", randomColor);
-
-				Point requestDeliveryPoint = getPositionOnScreen(request.getDeliveryStop().getLongitude(),
-						request.getDeliveryStop().getLatitude());
-				GraphicalIntersection graphicalIntersectionDelivery = new GraphicalIntersection(
-						request.getDeliveryStop(), requestDeliveryPoint);
-				graphicalIntersectionDelivery.drawStopRequest(g, "Delivery", randomColor);
+				GraphicalIntersection.drawStopRequest(g, projection.getX(request.getPickupStop()),
+						projection.getY(request.getPickupStop()), "Pickup", randomColor);
+				GraphicalIntersection.drawStopRequest(g, projection.getX(request.getDeliveryStop()),
+						projection.getY(request.getDeliveryStop()), "Delivery", randomColor);
 
 				if ((clicked || pointSelected) && (!add && !delete && !tourCalculated)) {
 
-					if ((Math.abs(getPositionOnScreen(request.getPickupStop().getLongitude(),
-							request.getPickupStop().getLatitude()).x - pointClicked.x) < 6)
-							&& (Math.abs(getPositionOnScreen(request.getPickupStop().getLongitude(),
-									request.getPickupStop().getLatitude()).y - pointClicked.y) < 6)) {
+					if ((Math.abs(projection.getX(request.getPickupStop()) - pointClicked.x) < 6)
+							&& (Math.abs(projection.getY(request.getPickupStop()) - pointClicked.y) < 6)) {
 						clicked = false;
 						pointSelected = false;
 						intersectionClicked = request.getPickupStop();
@@ -556,14 +793,12 @@ public class DrawnMap extends JPanel implements ObserverDP.Observer {
 								intersectionClicked, pointClicked);
 						graphicalIntersectionPickupBigger.drawBiggerPoint(g, "Pickup");
 						GraphicalIntersection graphicalIntersectionDeliveryBigger = new GraphicalIntersection(
-								request.getDeliveryStop(), getPositionOnScreen(request.getDeliveryStop().getLongitude(),
-										request.getDeliveryStop().getLatitude()));
+								request.getDeliveryStop(), new Point(projection.getX(request.getDeliveryStop()),
+										projection.getY(request.getDeliveryStop())));
 						graphicalIntersectionDeliveryBigger.drawBiggerPoint(g, "Delivery");
 
-					} else if ((Math.abs(getPositionOnScreen(request.getDeliveryStop().getLongitude(),
-							request.getDeliveryStop().getLatitude()).x - pointClicked.x) < 6)
-							&& (Math.abs(getPositionOnScreen(request.getDeliveryStop().getLongitude(),
-									request.getDeliveryStop().getLatitude()).y - pointClicked.y) < 6)) {
+					} else if ((Math.abs(projection.getX(request.getDeliveryStop()) - pointClicked.x) < 6)
+							&& (Math.abs(projection.getY(request.getDeliveryStop()) - pointClicked.y) < 6)) {
 						clicked = false;
 						pointSelected = false;
 						intersectionClicked = request.getDeliveryStop();
@@ -573,53 +808,18 @@ public class DrawnMap extends JPanel implements ObserverDP.Observer {
 								intersectionClicked, pointClicked);
 						graphicalIntersectionDeliveryBigger.drawBiggerPoint(g, "Delivery");
 						GraphicalIntersection graphicalIntersectionPickupBigger = new GraphicalIntersection(
-								request.getPickupStop(), getPositionOnScreen(request.getPickupStop().getLongitude(),
-										request.getPickupStop().getLatitude()));
+								request.getPickupStop(), new Point(projection.getX(request.getPickupStop()),
+										projection.getY(request.getPickupStop())));
 						graphicalIntersectionPickupBigger.drawBiggerPoint(g, "Pickup");
 					} else {
-						for (Component tmp : this.controller.getMenu().getRoadMap().panel.getComponents()) {
-							if (!controller.getMap().getTour().getOrderedTravel().isEmpty()) {
-								int index = 0;
-								Color c = controller.getMenu().getRoadMap().panel.getBackground();
-								if (tmp.getBackground() == Color.red) {
-									for (Request r : controller.getMap().getTour().getTourRequests()) {
-										if (controller.getMenu().getRoadMap().getStopPanel().get(tmp)
-												.equals(r.getPickupStop())
-												|| controller.getMenu().getRoadMap().getStopPanel().get(tmp)
-														.equals(r.getDeliveryStop())) {
-											c = colors.get(index);
-											tmp.setBackground(c);
-										}
-										index++;
-									}
-
-								}
-
-							} else {
-								int index = 0;
-								Color c = controller.getMenu().getRoadMap().getBackground();
-								if (tmp.getBackground() == Color.red) {
-									for (Request r : controller.getMap().getTour().getTourRequests()) {
-										if (controller.getMenu().getRoadMap().getRequestsPanel().get(tmp).equals(r)) {
-											c = colors.get(index);
-											tmp.setBackground(c);
-										}
-										index++;
-									}
-								}
-
-							}
-
-						}
+						controller.getMenu().getRoadMap().clearSelection();
 					}
 				}
 
 				if ((clicked || pointSelected) && (!add && !delete && tourCalculated)) {
 
-					if ((Math.abs(getPositionOnScreen(request.getPickupStop().getLongitude(),
-							request.getPickupStop().getLatitude()).x - pointClicked.x) < 6)
-							&& (Math.abs(getPositionOnScreen(request.getPickupStop().getLongitude(),
-									request.getPickupStop().getLatitude()).y - pointClicked.y) < 6)) {
+					if ((Math.abs(projection.getX(request.getPickupStop()) - pointClicked.x) < 6)
+							&& (Math.abs(projection.getY(request.getPickupStop()) - pointClicked.y) < 6)) {
 						clicked = false;
 						pointSelected = false;
 						intersectionClicked = request.getPickupStop();
@@ -631,10 +831,8 @@ public class DrawnMap extends JPanel implements ObserverDP.Observer {
 						@SuppressWarnings("unused")
 						Stop stopClicked = (Stop) intersectionClicked;
 
-					} else if ((Math.abs(getPositionOnScreen(request.getDeliveryStop().getLongitude(),
-							request.getDeliveryStop().getLatitude()).x - pointClicked.x) < 6)
-							&& (Math.abs(getPositionOnScreen(request.getDeliveryStop().getLongitude(),
-									request.getDeliveryStop().getLatitude()).y - pointClicked.y) < 6)) {
+					} else if ((Math.abs(projection.getX(request.getDeliveryStop()) - pointClicked.x) < 6)
+							&& (Math.abs(projection.getY(request.getDeliveryStop()) - pointClicked.y) < 6)) {
 						clicked = false;
 						pointSelected = false;
 						intersectionClicked = request.getDeliveryStop();
@@ -647,39 +845,7 @@ public class DrawnMap extends JPanel implements ObserverDP.Observer {
 						Stop stopClicked = (Stop) intersectionClicked;
 
 					} else {
-						for (Component tmp : this.controller.getMenu().getRoadMap().panel.getComponents()) {
-							if (!controller.getMap().getTour().getOrderedTravel().isEmpty()) {
-								int index = 0;
-								Color c = controller.getMenu().getRoadMap().panel.getBackground();
-								if (tmp.getBackground() == Color.red) {
-									for (Request r : controller.getMap().getTour().getTourRequests()) {
-										if (controller.getMenu().getRoadMap().getStopPanel().get(tmp)
-												.equals(r.getPickupStop())
-												|| controller.getMenu().getRoadMap().getStopPanel().get(tmp)
-														.equals(r.getDeliveryStop())) {
-											c = colors.get(index);
-											tmp.setBackground(c);
-										}
-										index++;
-									}
-
-								}
-
-							} else {
-								int index = 0;
-								Color c = controller.getMenu().getRoadMap().getBackground();
-								if (tmp.getBackground() == Color.red) {
-									for (Request r : controller.getMap().getTour().getTourRequests()) {
-										if (controller.getMenu().getRoadMap().getRequestsPanel().get(tmp).equals(r)) {
-											c = colors.get(index);
-											tmp.setBackground(c);
-										}
-										index++;
-									}
-								}
-
-							}
-						}
+						controller.getMenu().getRoadMap().clearSelection();
 					}
 				}
 			}
@@ -687,10 +853,11 @@ public class DrawnMap extends JPanel implements ObserverDP.Observer {
 			if (clicked && add) {
 				Stop stopClicked = new Stop();
 				if (selectIntersection) {
-					for (Intersection inter : controller.getMap().getIntersections().values()) {
+					for (int index : intersectionGrid.query(pointClicked.x, pointClicked.y, 6)) {
+						Intersection inter = graphicalIntersections.get(index).getIntersection();
 						if (Math.abs(
-								getPositionOnScreen(inter.getLongitude(), inter.getLatitude()).x - pointClicked.x) < 6
-								&& Math.abs(getPositionOnScreen(inter.getLongitude(), inter.getLatitude()).y
+								projection.getX(inter) - pointClicked.x) < 6
+								&& Math.abs(projection.getY(inter)
 										- pointClicked.y) < 6) {
 							intersectionClicked = inter;
 							if (controller.getMap().getTour().getStopById(intersectionClicked.getId())
@@ -737,12 +904,16 @@ public class DrawnMap extends JPanel implements ObserverDP.Observer {
 								intersectionClicked.getLongitude(), duration);
 						stopClicked.setOriginatedSegments(intersectionClicked.getOriginatedSegments());
 						controller.addRequestFinal(stopClicked);
+						if (controller.isAutomaticInsertion()) {
+							// no predecessor to select, the next click is the delivery intersection
+							selectIntersection = true;
+						}
 					}
 				} else {
 					for (Stop stop : controller.getMap().getTour().getOrderedTravel()) {
 						if (Math.abs(
-								getPositionOnScreen(stop.getLongitude(), stop.getLatitude()).x - pointClicked.x) < 6
-								&& Math.abs(getPositionOnScreen(stop.getLongitude(), stop.getLatitude()).y
+								projection.getX(stop) - pointClicked.x) < 6
+								&& Math.abs(projection.getY(stop)
 										- pointClicked.y) < 6) {
 							intersectionClicked = stop;
 							if (controller.getMap().getTour().getStopById(intersectionClicked.getId())
@@ -790,10 +961,8 @@ public class DrawnMap extends JPanel implements ObserverDP.Observer {
 				Request deleteRequest = new Request();
 				int nbStop = 0;
 				for (Request request : controller.getMap().getTour().getTourRequests()) {
-					if ((Math.abs(getPositionOnScreen(request.getPickupStop().getLongitude(),
-							request.getPickupStop().getLatitude()).x - pointClicked.x) < 6)
-							&& (Math.abs(getPositionOnScreen(request.getPickupStop().getLongitude(),
-									request.getPickupStop().getLatitude()).y - pointClicked.y) < 6)) {
+					if ((Math.abs(projection.getX(request.getPickupStop()) - pointClicked.x) < 6)
+							&& (Math.abs(projection.getY(request.getPickupStop()) - pointClicked.y) < 6)) {
 						clicked = false;
 						requestClicked = request;
 						controller.getMenu().getRoadMap().clickedOnMap(request);
@@ -804,10 +973,8 @@ public class DrawnMap extends JPanel implements ObserverDP.Observer {
 						controller.getMenu().instructionsSetText("");
 						nbStop++;
 					}
-					if ((Math.abs(getPositionOnScreen(request.getDeliveryStop().getLongitude(),
-							request.getDeliveryStop().getLatitude()).x - pointClicked.x) < 6)
-							&& (Math.abs(getPositionOnScreen(request.getDeliveryStop().getLongitude(),
-									request.getDeliveryStop().getLatitude()).y - pointClicked.y) < 6)) {
+					if ((Math.abs(projection.getX(request.getDeliveryStop()) - pointClicked.x) < 6)
+							&& (Math.abs(projection.getY(request.getDeliveryStop()) - pointClicked.y) < 6)) {
 						clicked = false;
 						intersectionClicked = request.getDeliveryStop();
 						requestClicked = request;
@@ -833,6 +1000,111 @@ public class DrawnMap extends JPanel implements ObserverDP.Observer {
 
 	}
 
+	/**
+	 * Draws the segments and the intersections of the map, not selected. They are
+	 * drawn once for each zoom level in an image, then the image is copied at each
+	 * repaint: only the stops, the tour and the elements under the mouse are drawn
+	 * again over it. When the map is too zoomed to be kept in an image, only the
+	 * elements in the visible part of the map are drawn.
+	 * 
+	 * @param graphics2D The Graphics of the panel, already moved by the offset.
+	 * 
+	 * @see DrawnMap#getBaseLayer()
+	 */
+	private void drawBaseLayer(Graphics2D graphics2D) {
+		BufferedImage layer = getBaseLayer();
+		if (layer == null) {
+			drawMapElements(graphics2D, -offsetX - LAYER_MARGIN, -offsetY - LAYER_MARGIN,
+					-offsetX + getViewWidth() + LAYER_MARGIN, -offsetY + getViewHeight() + LAYER_MARGIN);
+			return;
+		}
+		graphics2D.drawImage(layer, -LAYER_MARGIN, -LAYER_MARGIN, null);
+	}
+
+	/**
+	 * Gives the image of the segments and the intersections of the map at the
+	 * current zoom level, drawing it if needed. The least recently used images are
+	 * removed when the images kept are too large.
+	 * 
+	 * @return The image, whose pixel (LAYER_MARGIN, LAYER_MARGIN) is the top left
+	 *         corner of the map. Null if the image would be too large to be kept.
+	 */
+	private BufferedImage getBaseLayer() {
+		BufferedImage layer = baseLayers.get(zoomLevel);
+		if (layer != null) {
+			return layer;
+		}
+		int mapWidth = (int) Math.round(MAP_WIDTH * zoomFactor);
+		int mapHeight = (int) Math.round(MAP_HEIGHT * zoomFactor);
+		int width = mapWidth + 2 * LAYER_MARGIN;
+		int height = mapHeight + 2 * LAYER_MARGIN;
+		if ((long) width * height > LAYER_MAX_PIXELS) {
+			return null;
+		}
+		GraphicsConfiguration configuration = getGraphicsConfiguration();
+		layer = configuration != null
+				? configuration.createCompatibleImage(width, height, Transparency.TRANSLUCENT)
+				: new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D layerGraphics = layer.createGraphics();
+		layerGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		layerGraphics.translate(LAYER_MARGIN, LAYER_MARGIN);
+		drawMapElements(layerGraphics, -LAYER_MARGIN, -LAYER_MARGIN, mapWidth + LAYER_MARGIN,
+				mapHeight + LAYER_MARGIN);
+		layerGraphics.dispose();
+
+		baseLayers.put(zoomLevel, layer);
+		long pixels = 0;
+		for (BufferedImage image : baseLayers.values()) {
+			pixels += (long) image.getWidth() * image.getHeight();
+		}
+		Iterator<BufferedImage> eldest = baseLayers.values().iterator();
+		while (pixels > LAYER_CACHE_PIXELS && baseLayers.size() > 1) {
+			BufferedImage image = eldest.next();
+			pixels -= (long) image.getWidth() * image.getHeight();
+			eldest.remove();
+		}
+		return layer;
+	}
+
+	/**
+	 * Draws the segments and the intersections of the map that are in a rectangle,
+	 * found with the grids. When the map is not zoomed, many of them are smaller
+	 * than a pixel: an intersection is only drawn once for each pixel, and a
+	 * segment whose ends are on the same or on neighbouring pixels is hidden by the
+	 * points of its ends, so it is not drawn.
+	 * 
+	 * @param g    The Graphics to draw on, whose origin is the top left corner of
+	 *             the map.
+	 * @param minX The left side of the rectangle.
+	 * @param minY The top side of the rectangle.
+	 * @param maxX The right side of the rectangle.
+	 * @param maxY The bottom side of the rectangle.
+	 */
+	private void drawMapElements(Graphics g, int minX, int minY, int maxX, int maxY) {
+		int width = maxX - minX + 1;
+		BitSet drawnPixels = new BitSet(width * (maxY - minY + 1));
+		for (int index : intersectionGrid.query(minX, minY, maxX, maxY)) {
+			GraphicalIntersection graphicalIntersection = graphicalIntersections.get(index);
+			Point point = graphicalIntersection.getCoordinates();
+			if (point.x < minX || point.x > maxX || point.y < minY || point.y > maxY) {
+				continue;
+			}
+			int pixel = (point.y - minY) * width + point.x - minX;
+			if (!drawnPixels.get(pixel)) {
+				drawnPixels.set(pixel);
+				graphicalIntersection.drawPlain(g);
+			}
+		}
+		for (int index : segmentGrid.query(minX, minY, maxX, maxY)) {
+			GraphicalSegment graphicalSegment = graphicalSegments.get(index);
+			Point departure = graphicalSegment.getCoordinatesDeparture();
+			Point arrival = graphicalSegment.getCoordinatesArrival();
+			if (Math.abs(departure.x - arrival.x) > 1 || Math.abs(departure.y - arrival.y) > 1) {
+				graphicalSegment.drawPlain(g);
+			}
+		}
+	}
+
 	/**
 	 * Allows to transform the longitude and the latitude of a stop to on screen
 	 * coordinates
@@ -842,34 +1114,20 @@ public class DrawnMap extends JPanel implements ObserverDP.Observer {
 	 * 
 	 * @return A Point with the coordinates on screen of the stop whose attributes
 	 *         where given in parameters
+	 * 
+	 * @see View.MapProjection
 	 */
 	public Point getPositionOnScreen(double longitude, double latitude) {
-
-		int mapWidth = 600;
-		int mapHeight = 600;
-		// offsets
-
-		float mapLongitudeStart = mapBoundaries.getMinLong();
-		float mapLatitudeStart = mapBoundaries.getMaxLat();
-
-		float mapLongitude = mapBoundaries.getMaxLong() - mapLongitudeStart;
-		float mapLatitude = mapLatitudeStart - mapBoundaries.getMinLat();
-
-		longitude -= mapLongitudeStart;
-		latitude = mapLatitudeStart - latitude;
-
-		// set x & y using conversion
-		int x = (int) (mapWidth * (longitude / mapLongitude));
-		int y = (int) (mapHeight * (latitude / mapLatitude));
-
-		return new Point(x, y);
+		return new Point(projection.projectX(longitude), projection.projectY(latitude));
 	}
 
 	/**
 	 * Method linked to the pattern Observable Observer.
 	 * 
 	 * Allows the update of the view drawnMap whenever the observable ( Map or Tour)
-	 * is modified.
+	 * is modified. The shapes of the tour are built again at the next repaint. The
+	 * notifications received during a frame cause a single repaint. A notification
+	 * sent outside the event dispatch thread is handled on it, where the shapes are drawn.
 	 * 
 	 * @param observed An Observable to which Observer is subscribed.
 	 * @param arg      An Object. Usually a String describing what has changed in
@@ -877,8 +1135,12 @@ public class DrawnMap extends JPanel implements ObserverDP.Observer {
 	 */
 	@Override
 	public void update(ObserverDP.Observable observed, Object arg) {
-
-		this.repaint();
+		if (!SwingUtilities.isEventDispatchThread()) {
+			SwingUtilities.invokeLater(() -> update(observed, arg));
+			return;
+		}
+		tourOverlay = null;
+		repaintScheduler.repaintAll();
 
 	}
 
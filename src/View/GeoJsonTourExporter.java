@@ -0,0 +1,122 @@
+package View;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import Model.Intersection;
+import Model.Path;
+import Model.Segment;
+import Model.Stop;
+import Model.Tour;
+
+/**
+ * GeoJsonTourExporter writes a tour in a GeoJSON file, readable by mapping tools.
+ *
+ * The file is a FeatureCollection containing, in the visiting order, a Point for each stop
+ * and a LineString for each path between two stops. The LineString follows the intersections of
+ * the segments of the path. The coordinates are written as [longitude, latitude].
+ * The length and the duration of a path are null when its arrival stop cannot be reached.
+ *
+ * @author H4122
+ *
+ * @see View.TourExporter
+ */
+public class GeoJsonTourExporter extends TourExporter {
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param tour The computed tour to export.
+	 */
+	public GeoJsonTourExporter(Tour tour) {
+		super(tour);
+	}
+
+	@Override
+	public String getExtension() {
+		return "geojson";
+	}
+
+	@Override
+	protected void writeHeader() throws IOException {
+		out.write("{\"type\":\"FeatureCollection\",\"features\":[\n");
+	}
+
+	@Override
+	protected void writeStop(int index) throws IOException {
+		Stop stop = getStop(index);
+		int request = Math.abs(getRequestNumber(index));
+		if (index > 0) {
+			out.write(",\n");
+		}
+		out.write("{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":");
+		writeCoordinates(stop);
+		out.write("},\"properties\":{\"index\":");
+		out.write(Integer.toString(index));
+		out.write(",\"id\":");
+		out.write(Long.toString(stop.getId()));
+		out.write(",\"type\":\"");
+		out.write(getStopType(index));
+		out.write('"');
+		if (request != 0) {
+			out.write(",\"request\":");
+			out.write(Integer.toString(request));
+		}
+		out.write(",\"arrival\":\"");
+		out.write(formatTime(getArrivalTime(index)));
+		out.write("\",\"departure\":\"");
+		out.write(formatTime(getDepartureTime(index)));
+		out.write("\",\"duration\":");
+		out.write(Integer.toString((int) stop.getStopDuration()));
+		out.write("}}");
+
+		Path nextPath = getNextPath(index);
+		if (nextPath == null) {
+			return;
+		}
+		ArrayList<Segment> segments = nextPath.getPathSegments();
+		out.write(",\n{\"type\":\"Feature\",\"geometry\":{\"type\":\"LineString\",\"coordinates\":[");
+		writeCoordinates(segments.isEmpty() ? stop : segments.get(0).getDepartureIntersection());
+		if (segments.isEmpty()) {
+			out.write(',');
+			writeCoordinates(stop);
+		}
+		for (Segment segment : segments) {
+			out.write(',');
+			writeCoordinates(segment.getArrivalIntersection());
+		}
+		out.write("]},\"properties\":{\"from\":");
+		out.write(Integer.toString(index));
+		out.write(",\"to\":");
+		out.write(Integer.toString(index + 1));
+		if (isUnreachable(nextPath)) {
+			out.write(",\"length\":null,\"duration\":null,\"unreachable\":true}}");
+			return;
+		}
+		out.write(",\"length\":");
+		out.write(Integer.toString(Math.round(getLength(nextPath))));
+		out.write(",\"duration\":");
+		out.write(Integer.toString(Math.round(nextPath.getPathDuration())));
+		out.write("}}");
+	}
+
+	@Override
+	protected void writeFooter() throws IOException {
+		out.write("\n]}\n");
+	}
+
+	/**
+	 * Writes the position of an intersection as a GeoJSON position.
+	 *
+	 * @param intersection An intersection of the map.
+	 *
+	 * @throws IOException If the file cannot be written.
+	 */
+	private void writeCoordinates(Intersection intersection) throws IOException {
+		out.write('[');
+		out.write(Float.toString(intersection.getLongitude()));
+		out.write(',');
+		out.write(Float.toString(intersection.getLatitude()));
+		out.write(']');
+	}
+}
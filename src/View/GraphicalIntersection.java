@@ -1,8 +1,10 @@
 package View;
 
 import java.awt.Color;
+import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.net.URL;
 import javax.swing.ImageIcon;
 import Model.Intersection;
@@ -18,6 +20,7 @@ import Ressources.FileDrop;
  * <li>An indication about if it is selected or not (used when adding a request).</li>
  * <li>An indication about if a mouse is over, when the intersection is a stop in a tour (used when a tour is computed).</li>
  * <li>A number that indicates its position if the intersection is a stop in a tour. </li>
+ * <li>The duration added to the tour if the new stop is placed after this stop (used when adding a request).</li>
  * </ul>
  * 
  * Graphical Intersections are created to display the intersection.<br/>
@@ -34,12 +37,18 @@ import Ressources.FileDrop;
 
 public class GraphicalIntersection {
 
-	@SuppressWarnings("unused")
 	private Intersection intersection;
 	private Point coordinates;
 	private boolean selected;
 	private boolean over;
 	private int number;
+	private Float insertionCost;
+	private static ImageIcon departureIcon;
+
+	/**
+	 * The name of the image of the tourDeparture, in the package Ressources.
+	 */
+	public static final String DEPARTURE_ICON = "Map_pin_icon.svg.png";
 
 	/**
 	 * Class constructor.
@@ -58,6 +67,10 @@ public class GraphicalIntersection {
 		this.number=0;
 	}
 	
+	public Intersection getIntersection() {
+		return intersection;
+	}
+
 	public Point getCoordinates() {
 		return coordinates;
 	}
@@ -87,6 +100,10 @@ public class GraphicalIntersection {
 		this.number = number;
 	}
 
+	public void setInsertionCost(Float insertionCost) {
+		this.insertionCost = insertionCost;
+	}
+
 	/**
 	 * Represents graphically the intersection on a map.
 	 * It is a black oval. It is red when selected.
@@ -105,6 +122,41 @@ public class GraphicalIntersection {
 		}
 
 	}
+
+	/**
+	 * Represents graphically the intersection as it is when it is not selected: a small black point.
+	 * 
+	 * @param g an object of the graphics class.
+	 */
+
+	public void drawPlain(Graphics g) {
+		drawPlain(g, coordinates.x, coordinates.y);
+	}
+
+	/**
+	 * Draws an intersection as it is when it is not selected, without creating a graphical intersection.
+	 * 
+	 * @param g an object of the graphics class.
+	 * @param x position of the intersection in the x-axis.
+	 * @param y position of the intersection in the y-axis.
+	 * 
+	 * @see View.TourRenderer
+	 */
+
+	public static void drawPlain(Graphics g, int x, int y) {
+		g.setColor(Color.black);
+		g.fillOval(x-1, y-1, 3, 3);
+	}
+	
+	/**
+	 * Gives the region of the screen where the intersection is drawn when it is selected.
+	 * 
+	 * @return the rectangle containing the drawing, in the coordinates of the map.
+	 */
+
+	public Rectangle getSelectedBounds() {
+		return new Rectangle(coordinates.x-2, coordinates.y-2, 7, 7);
+	}
 	
 	/**
 	 * Represents graphically a particular intersection which is the tourDeparture with an icon.
@@ -116,11 +168,49 @@ public class GraphicalIntersection {
 	 */
 
 	public void drawDeparture(Graphics g, DrawnMap drawnMap) {
+		drawDeparture(g, drawnMap, coordinates.x, coordinates.y);
+	}
+
+	/**
+	 * Draws the icon of the tourDeparture from its position on screen, without creating a graphical intersection.
+	 * 
+	 * @param g an object of the graphics class.
+	 * @param drawnMap the graphical map containing the tourDeparture, null when it is drawn outside of a window.
+	 * @param x position of the tourDeparture in the x-axis.
+	 * @param y position of the tourDeparture in the y-axis.
+	 */
+
+	public static void drawDeparture(Graphics g, DrawnMap drawnMap, int x, int y) {
 		g.setColor(Color.RED);
-		URL path = FileDrop.class.getResource("Map_pin_icon.svg.png");
-		ImageIcon icon = new ImageIcon(path);
-		icon.paintIcon(drawnMap, g, coordinates.x-17, coordinates.y-12);
-	
+		Rectangle bounds = getDepartureBounds(x, y);
+		getDepartureIcon().paintIcon(drawnMap, g, bounds.x, bounds.y);
+	}
+
+	/**
+	 * Gives the region of the screen where the icon of the tourDeparture is drawn.
+	 * 
+	 * @param x position of the tourDeparture in the x-axis.
+	 * @param y position of the tourDeparture in the y-axis.
+	 * @return the rectangle containing the icon.
+	 */
+
+	public static Rectangle getDepartureBounds(int x, int y) {
+		ImageIcon icon = getDepartureIcon();
+		return new Rectangle(x-17, y-12, icon.getIconWidth(), icon.getIconHeight());
+	}
+
+	/**
+	 * The icon is only loaded the first time, by one thread when several tours are drawn at the same time.
+	 * 
+	 * @return the icon of the tourDeparture.
+	 */
+
+	private static synchronized ImageIcon getDepartureIcon() {
+		if (departureIcon == null) {
+			URL path = FileDrop.class.getResource(DEPARTURE_ICON);
+			departureIcon = new ImageIcon(path);
+		}
+		return departureIcon;
 	}
 	
 	/**
@@ -136,12 +226,26 @@ public class GraphicalIntersection {
 	 */
 
 	public void drawStopRequest(Graphics g, String type, Color color) {
+		drawStopRequest(g, coordinates.x, coordinates.y, type, color);
+	}
+
+	/**
+	 * Draws a stop of a tour from its position on screen, without creating a graphical intersection.
+	 * 
+	 * @param g an object of the graphics class.
+	 * @param x position of the stop in the x-axis.
+	 * @param y position of the stop in the y-axis.
+	 * @param type defined whether it's a delivery or a pickup stop.
+	 * @param color defined the color of the graphical stop.
+	 */
+
+	public static void drawStopRequest(Graphics g, int x, int y, String type, Color color) {
 
 		g.setColor(color);
-		if (type == "Pickup")
-			g.fillOval(coordinates.x-6, coordinates.y-6, 13, 13);
-		else if (type == "Delivery")
-			g.fillRect(coordinates.x-6, coordinates.y-6, 13, 13);
+		if ("Pickup".equals(type))
+			g.fillOval(x-6, y-6, 13, 13);
+		else if ("Delivery".equals(type))
+			g.fillRect(x-6, y-6, 13, 13);
 	}
 	
 	/**
@@ -166,15 +270,60 @@ public class GraphicalIntersection {
 	
 	/**
 	 * Draws a number that indicates the visiting order of the stop in a tour.
+	 * When a predecessor is being selected, the duration added to the tour is drawn below.
 	 * 
 	 * @param g an object of the graphics class.
 	 * 
 	 * @see Model.Stop
 	 * @see Model.Tour
+	 * @see Model.Tour#getInsertionCosts()
 	 */
 	
 	public void drawOver(Graphics g) {
 		g.drawString(Integer.toString(this.number), coordinates.x+10,coordinates.y+10);
+		if (insertionCost != null) {
+			g.drawString(getCostText(), coordinates.x+10,coordinates.y+24);
+		}
+	}
+
+	/**
+	 * @return the duration added to the tour, as drawn below the visiting order.
+	 */
+
+	private String getCostText() {
+		return insertionCost == Float.MAX_VALUE ? "not possible" : "+" + Math.round(insertionCost / 60) + " min";
+	}
+
+	/**
+	 * Gives the region of the screen where the visiting order of the stop, and the duration added to the
+	 * tour, are drawn.
+	 * 
+	 * @param metrics the metrics of the font used to draw the texts.
+	 * @return the rectangle containing the drawing, in the coordinates of the map.
+	 * 
+	 * @see GraphicalIntersection#drawOver(Graphics)
+	 */
+
+	public Rectangle getOverBounds(FontMetrics metrics) {
+		int width = metrics.stringWidth(Integer.toString(this.number));
+		int height = metrics.getAscent() + metrics.getDescent();
+		if (insertionCost != null) {
+			width = Math.max(width, metrics.stringWidth(getCostText()));
+			height += 14;
+		}
+		Rectangle bounds = new Rectangle(coordinates.x+10, coordinates.y+10-metrics.getAscent(), width, height);
+		bounds.grow(2, 2);
+		return bounds;
+	}
+
+	/**
+	 * @param other another graphical intersection, or null.
+	 * @return TRUE if both draw the same visiting order of the same stop.
+	 */
+
+	public boolean isSameOver(GraphicalIntersection other) {
+		return other != null && other.intersection == intersection && other.number == number
+				&& (insertionCost == null ? other.insertionCost == null : insertionCost.equals(other.insertionCost));
 	}
 
 }
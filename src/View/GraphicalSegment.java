@@ -4,7 +4,7 @@ import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Point;
 import java.awt.*;
-import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
 
 import Model.Segment;
 
@@ -93,6 +93,53 @@ public class GraphicalSegment {
 		g.drawLine(coordinatesDeparture.x, coordinatesDeparture.y, coordinatesArrival.x, coordinatesArrival.y);
 	}
 
+	/**
+	 * Gives the region of the screen where the segment is drawn when it is selected: its line and the
+	 * name of its road.
+	 * 
+	 * @param metrics the metrics of the font used to draw the name of the road.
+	 * @return the rectangle containing the drawing, in the coordinates of the map.
+	 */
+	
+	public Rectangle getSelectedBounds(FontMetrics metrics) {
+		Rectangle bounds = new Rectangle(coordinatesDeparture);
+		bounds.add(coordinatesArrival);
+		int nameX = (coordinatesArrival.x+coordinatesDeparture.x)/2;
+		int nameY = (coordinatesArrival.y+coordinatesDeparture.y)/2;
+		bounds.add(new Rectangle(nameX, nameY - metrics.getAscent(), metrics.stringWidth(segment.getName()),
+				metrics.getAscent() + metrics.getDescent()));
+		bounds.grow(2, 2);
+		return bounds;
+	}
+
+	/**
+	 * Represents graphically the segment as it is when it is not selected: a black line.
+	 * 
+	 * @param g an object of the graphics class.
+	 * 
+	 */
+	
+	public void drawPlain(Graphics g) {
+		drawPlain(g, coordinatesDeparture.x, coordinatesDeparture.y, coordinatesArrival.x, coordinatesArrival.y);
+	}
+
+	/**
+	 * Draws a segment as it is when it is not selected, without creating a graphical segment.
+	 * 
+	 * @param g an object of the graphics class.
+	 * @param x1 position of the departure of the segment in the x-axis.
+	 * @param y1 position of the departure of the segment in the y-axis.
+	 * @param x2 position of the arrival of the segment in the x-axis.
+	 * @param y2 position of the arrival of the segment in the y-axis.
+	 * 
+	 * @see View.TourRenderer
+	 */
+	
+	public static void drawPlain(Graphics g, int x1, int y1, int x2, int y2) {
+		g.setColor(Color.black);
+		g.drawLine(x1, y1, x2, y2);
+	}
+
 	/**
 	 * Sources : https://stackoverflow.com/questions/2027613/how-to-draw-a-directed-arrow-line-in-java
 	 * 
@@ -102,14 +149,53 @@ public class GraphicalSegment {
 	 */
 	
 	public void drawPath(Graphics g) {
-		g.setColor(Color.blue);
-		int x1 = coordinatesDeparture.x;
-		int y1 = coordinatesDeparture.y;
-		int x2 = coordinatesArrival.x;
-		int y2 = coordinatesArrival.y;
+		drawPath(g, coordinatesDeparture.x, coordinatesDeparture.y, coordinatesArrival.x, coordinatesArrival.y);
+	}
+
+	/**
+	 * Draws a segment used on a tour, from its positions on screen, without creating a graphical segment.
+	 * 
+	 * @param g an object of the graphics class.
+	 * @param x1 position of the departure of the segment in the x-axis.
+	 * @param y1 position of the departure of the segment in the y-axis.
+	 * @param x2 position of the arrival of the segment in the x-axis.
+	 * @param y2 position of the arrival of the segment in the y-axis.
+	 */
+	
+	public static void drawPath(Graphics g, int x1, int y1, int x2, int y2) {
+		Path2D.Float line = new Path2D.Float();
+		Path2D.Float arrow = new Path2D.Float();
+		appendPath(line, arrow, x1, y1, x2, y2);
+		Graphics2D g2 = (Graphics2D) g;
+		g2.setColor(Color.blue);
+		g2.setStroke(new BasicStroke(3));
+		g2.draw(line);
+		g2.fill(arrow);
+	}
+
+	/**
+	 * Adds a segment used on a tour to the shapes of a path: its line, and the head of its arrow.
+	 * The head is not added for a segment of length 0, which has no direction.
+	 * 
+	 * @param lines the shape of the lines of the path, drawn with a stroke of width 3.
+	 * @param arrows the shape of the heads of the arrows of the path, filled.
+	 * @param x1 position of the departure of the segment in the x-axis.
+	 * @param y1 position of the departure of the segment in the y-axis.
+	 * @param x2 position of the arrival of the segment in the x-axis.
+	 * @param y2 position of the arrival of the segment in the y-axis.
+	 * 
+	 * @see View.TourOverlay
+	 */
+	
+	public static void appendPath(Path2D lines, Path2D arrows, int x1, int y1, int x2, int y2) {
+		lines.moveTo(x1, y1);
+		lines.lineTo(x2, y2);
 		int d = 6;
 		int h = 6;
 	    int dx = x2 - x1, dy = y2 - y1;
+	    if (dx == 0 && dy == 0) {
+	    	return;
+	    }
 	    double D = Math.sqrt(dx*dx + dy*dy);
 	    double xm = D - d, xn = xm, ym = h, yn = -h, x;
 	    double sin = dy / D, cos = dx / D;
@@ -122,13 +208,10 @@ public class GraphicalSegment {
 	    yn = xn*sin + yn*cos + y1;
 	    xn = x;
 
-	    int[] xpoints = {x2, (int) xm, (int) xn};
-	    int[] ypoints = {y2, (int) ym, (int) yn};
-
-	    Graphics2D g2= (Graphics2D) g;
-	    g2.setStroke(new BasicStroke(3));
-	    g2.draw(new Line2D.Float(x1, y1, x2, y2));
-	    g.fillPolygon(xpoints, ypoints, 3);
+	    arrows.moveTo(x2, y2);
+	    arrows.lineTo((int) xm, (int) ym);
+	    arrows.lineTo((int) xn, (int) yn);
+	    arrows.closePath();
 	}
 
 
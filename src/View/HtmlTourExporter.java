@@ -0,0 +1,143 @@
+package View;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import Model.Path;
+import Model.Segment;
+import Model.Tour;
+
+/**
+ * HtmlTourExporter writes the road map of a tour in an HTML page, readable in a browser.
+ *
+ * For each stop of the tour, the page gives the roads to follow to reach it, its arrival time,
+ * its departure time and its duration. Consecutive segments of the same road are gathered
+ * in a single instruction.
+ *
+ * @author H4122
+ *
+ * @see View.TourExporter
+ */
+public class HtmlTourExporter extends TourExporter {
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param tour The computed tour to export.
+	 */
+	public HtmlTourExporter(Tour tour) {
+		super(tour);
+	}
+
+	@Override
+	public String getExtension() {
+		return "html";
+	}
+
+	@Override
+	protected void writeHeader() throws IOException {
+		out.write("<html><head><meta charset=\"UTF-8\"></head><body><h1>Delivery Road Map :</h1>\n");
+	}
+
+	@Override
+	protected void writeStop(int index) throws IOException {
+		if (index == 0) {
+			out.write("<h2> Tour Departure </h2>\n<p> Near road : <br> <ul>");
+			for (Segment segment : getStop(0).getOriginatedSegments()) {
+				out.write("<li>");
+				writeEscaped(segment.getName());
+				out.write("</li>");
+			}
+			out.write("</ul></p>\n<h4> Departure Time: </h4><ul><li>");
+			out.write(formatTime(getDepartureTime(0)));
+			out.write("</li></ul>\n");
+			return;
+		}
+		if (index == getNbStops() - 1) {
+			out.write("<h2> Tour Arrival </h2>\n<p> Road to follow : <br> <ul>");
+			writeRoad(getNextPath(index - 1));
+			out.write("</ul>You have now finished your Tour Congratulation!<br><br>Arrival Time : ");
+			out.write(formatTime(getArrivalTime(index)));
+			out.write("</p>\n");
+			return;
+		}
+		out.write("<h3> Stop n");
+		out.write(Integer.toString(index));
+		out.write(" (");
+		out.write(getStopType(index));
+		out.write(" of request ");
+		out.write(Integer.toString(Math.abs(getRequestNumber(index))));
+		out.write(")</h3>\n<p> Road to follow : <br> <ul>");
+		writeRoad(getNextPath(index - 1));
+		out.write("</ul><br><h4>Arrival Time:</h4><ul><li> ");
+		out.write(formatTime(getArrivalTime(index)));
+		out.write("</li></ul><h4> Departure Time: </h4><ul><li>");
+		out.write(formatTime(getDepartureTime(index)));
+		out.write("</li></ul><br>Stop duration : ");
+		out.write(Integer.toString((int) getStop(index).getStopDuration()));
+		out.write(" seconds <br></p>\n");
+	}
+
+	@Override
+	protected void writeFooter() throws IOException {
+		out.write("</body></html>\n");
+	}
+
+	/**
+	 * Writes the instructions to follow a path, one instruction for each road.
+	 *
+	 * @param path The path between two stops, null if it is unknown.
+	 *
+	 * @throws IOException If the file cannot be written.
+	 */
+	private void writeRoad(Path path) throws IOException {
+		if (path == null || isUnreachable(path)) {
+			out.write("<li>No road leads to this stop</li>");
+			return;
+		}
+		ArrayList<Segment> segments = path.getPathSegments();
+		int i = 0;
+		while (i < segments.size()) {
+			String name = segments.get(i).getName();
+			float length = 0;
+			while (i < segments.size() && segments.get(i).getName().equals(name)) {
+				length += segments.get(i).getLength();
+				i++;
+			}
+			out.write(i < segments.size() ? "<li> Follow " : "<li>Finally, follow ");
+			writeEscaped(name);
+			out.write(" for ");
+			out.write(Integer.toString(Math.round(length)));
+			out.write(i < segments.size() ? " meters, then</li>" : " meters </li>");
+		}
+	}
+
+	/**
+	 * Writes a text, replacing the characters reserved by HTML.
+	 *
+	 * @param text A name read from the map file.
+	 *
+	 * @throws IOException If the file cannot be written.
+	 */
+	private void writeEscaped(String text) throws IOException {
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			switch (c) {
+			case '<':
+				out.write("&lt;");
+				break;
+			case '>':
+				out.write("&gt;");
+				break;
+			case '&':
+				out.write("&amp;");
+				break;
+			case '"':
+				out.write("&quot;");
+				break;
+			default:
+				out.write(c);
+			}
+		}
+	}
+}
@@ -17,7 +17,7 @@ import Ressources.FileDrop;
 
 /**
  * LandingPage is the landing page of the application. It allows us to load an
- * XML file that corresponds to the Map. The LandingPage extends a JFrame.
+ * XML file or a binary map file that corresponds to the Map. The LandingPage extends a JFrame.
  * 
  * A LandingPage characterises by :
  * <ul>
@@ -28,6 +28,7 @@ import Ressources.FileDrop;
  *
  * @see Model.Map
  * @see Controller.Controller
+ * @see Controller.BinaryMapFile
  */
 public class LandingPage extends JFrame {
 
@@ -176,7 +177,7 @@ public class LandingPage extends JFrame {
 						// Implementing the FileChooser
 
 						JFileChooser fileChooser = new JFileChooser(FileSystemView.getFileSystemView().getHomeDirectory());
-						FileFilter filter = new FileNameExtensionFilter("XML files", "xml");
+						FileFilter filter = new FileNameExtensionFilter("Map files (XML, compressed XML or binary)", "xml", "gz", "map");
 						fileChooser.setFileFilter(filter);
 
 						int returnValue = fileChooser.showOpenDialog(null);
@@ -195,7 +195,7 @@ public class LoadRequests extends JFrame {
 						// Implementing the FileChooser
 
 						JFileChooser fileChooser = new JFileChooser(FileSystemView.getFileSystemView().getHomeDirectory());
-						FileFilter filter = new FileNameExtensionFilter("XML files", "xml");
+						FileFilter filter = new FileNameExtensionFilter("XML files (compressed or not)", "xml", "gz");
 						fileChooser.setFileFilter(filter);
 						// fileChooser.addChoosableFileFilter(filter);
 
@@ -0,0 +1,112 @@
+package View;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+
+import Controller.FileLoader;
+import ObserverDP.Observable;
+import ObserverDP.Observer;
+
+/**
+ * LoadingDialog is the dialog displayed while a file is loaded. It shows the progress of the loading
+ * and allows to cancel it. The LoadingDialog extends a JDialog.
+ *
+ * A LoadingDialog characterises by :
+ * <ul>
+ * <li>The loader of the file, observed to update the progress bar.</li>
+ * <li>A progress bar.</li>
+ * </ul>
+ *
+ * The dialog is modal: the other windows do not react to the user during the loading, but they keep
+ * being painted. The dialog closes itself at the end of the loading.
+ *
+ * @author H4122
+ *
+ * @see Controller.FileLoader
+ * @see Controller.Controller#loadFile(String)
+ */
+public class LoadingDialog extends JDialog implements Observer {
+
+	private static final long serialVersionUID = 1L;
+	private FileLoader loader;
+	private JProgressBar progressBar;
+
+	/**
+	 * Class constructor. Creates the dialog, which is displayed by setVisible(true).
+	 *
+	 * @param loader The loader of the file, whose progress is displayed.
+	 */
+	public LoadingDialog(FileLoader loader) {
+		super((JDialog) null, "Loading", true);
+		this.loader = loader;
+		loader.addObserver(this);
+		setSize(450, 150);
+		setLocationRelativeTo(null);
+		setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
+
+		JLabel label = new JLabel("Loading " + new File(loader.getFileName()).getName() + "...");
+		label.setFont(new Font("Verdana", Font.PLAIN, 14));
+
+		progressBar = new JProgressBar(0, 100);
+		progressBar.setStringPainted(true);
+		progressBar.setPreferredSize(new Dimension(400, 25));
+
+		JButton cancel = new JButton("Cancel");
+		cancel.setBackground(new Color(159, 226, 191));
+		cancel.addActionListener(new ActionListener() {
+			/**
+			 * Cancels the loading of the file.
+			 *
+			 * @param e is an ActionEvent. Here, a click on the button.
+			 */
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				LoadingDialog.this.loader.cancel();
+			}
+		});
+		addWindowListener(new WindowAdapter() {
+			@Override
+			public void windowClosing(WindowEvent e) {
+				LoadingDialog.this.loader.cancel();
+			}
+		});
+
+		JPanel panel = new JPanel(new BorderLayout(10, 10));
+		panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+		panel.add(label, BorderLayout.NORTH);
+		panel.add(progressBar, BorderLayout.CENTER);
+		JPanel buttonPanel = new JPanel();
+		buttonPanel.add(cancel);
+		panel.add(buttonPanel, BorderLayout.SOUTH);
+		add(panel);
+	}
+
+	/**
+	 * Updates the progress bar, and closes the dialog at the end of the loading.
+	 *
+	 * @param observed The loader of the file.
+	 * @param arg "loadProgress" or "loadEnd".
+	 */
+	@Override
+	public void update(Observable observed, Object arg) {
+		if (arg.equals("loadProgress")) {
+			progressBar.setValue(loader.getProgress());
+		} else if (arg.equals("loadEnd")) {
+			dispose();
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package View;
+
+import java.util.IdentityHashMap;
+
+import Model.Intersection;
+import Model.Map;
+import Model.MapBoundaries;
+
+/**
+ * MapProjection keeps the position on screen of each intersection of a map, so that the map can be
+ * painted and clicked without converting the coordinates again.
+ *
+ * A projection is composed of:
+ * <ul>
+ * <li>The map and its boundaries.</li>
+ * <li>The width and the height in pixels of the drawing of the map.</li>
+ * <li>The x and the y position on screen of each intersection, and its id, indexed by the index of
+ * the intersection in the map.</li>
+ * <li>The index of each stop already projected.</li>
+ * </ul>
+ *
+ * The positions are only computed when the projection is created or resized. A stop is a copy of
+ * an intersection of the map: its index is found from its id the first time it is projected, and kept
+ * in the projection without modifying the stop.
+ *
+ * @author H4122
+ *
+ * @see Model.Intersection#getIndex()
+ * @see View.DrawnMap#getPositionOnScreen(double, double)
+ */
+public class MapProjection {
+
+	private Map map;
+	private MapBoundaries mapBoundaries;
+	private int width;
+	private int height;
+	private int[] x;
+	private int[] y;
+	private long[] ids;
+	private IdentityHashMap<Intersection, Integer> stopIndexes = new IdentityHashMap<Intersection, Integer>();
+
+	/**
+	 * Class constructor. Computes the position on screen of all the intersections of the map.
+	 *
+	 * @param map The map to draw.
+	 * @param mapBoundaries The boundaries of the map.
+	 * @param width The width in pixels of the drawing of the map.
+	 * @param height The height in pixels of the drawing of the map.
+	 */
+	public MapProjection(Map map, MapBoundaries mapBoundaries, int width, int height) {
+		this.map = map;
+		this.mapBoundaries = mapBoundaries;
+		resize(width, height);
+	}
+
+	/**
+	 * Changes the size of the drawing of the map and computes again the positions of the intersections.
+	 *
+	 * @param width The new width in pixels of the drawing of the map.
+	 * @param height The new height in pixels of the drawing of the map.
+	 */
+	public void resize(int width, int height) {
+		this.width = width;
+		this.height = height;
+		int size = map.getIntersections().size();
+		x = new int[size];
+		y = new int[size];
+		ids = new long[size];
+		for (Intersection intersection : map.getIntersections().values()) {
+			int index = intersection.getIndex();
+			x[index] = projectX(intersection.getLongitude());
+			y[index] = projectY(intersection.getLatitude());
+			ids[index] = intersection.getId();
+		}
+	}
+
+	/**
+	 * @param longitude A longitude on the map.
+	 * @return The x position on screen of this longitude.
+	 */
+	public int projectX(double longitude) {
+		float mapLongitudeStart = mapBoundaries.getMinLong();
+		float mapLongitude = mapBoundaries.getMaxLong() - mapLongitudeStart;
+		return (int) (width * ((longitude - mapLongitudeStart) / mapLongitude));
+	}
+
+	/**
+	 * @param latitude A latitude on the map.
+	 * @return The y position on screen of this latitude.
+	 */
+	public int projectY(double latitude) {
+		float mapLatitudeStart = mapBoundaries.getMaxLat();
+		float mapLatitude = mapLatitudeStart - mapBoundaries.getMinLat();
+		return (int) (height * ((mapLatitudeStart - latitude) / mapLatitude));
+	}
+
+	/**
+	 * @param intersection An intersection or a stop.
+	 * @return The x position on screen of the intersection.
+	 */
+	public int getX(Intersection intersection) {
+		int index = indexOf(intersection);
+		return index >= 0 ? x[index] : projectX(intersection.getLongitude());
+	}
+
+	/**
+	 * @param intersection An intersection or a stop.
+	 * @return The y position on screen of the intersection.
+	 */
+	public int getY(Intersection intersection) {
+		int index = indexOf(intersection);
+		return index >= 0 ? y[index] : projectY(intersection.getLatitude());
+	}
+
+	/**
+	 * Gives the index of an intersection in the projected map. The index of a stop is the one of
+	 * the intersection of the map that has its id, kept by the projection.
+	 *
+	 * @param intersection An intersection or a stop.
+	 * @return The index of the intersection, -1 if no intersection of the map has its id.
+	 */
+	private int indexOf(Intersection intersection) {
+		int index = intersection.getIndex();
+		if (index >= 0 && index < ids.length && ids[index] == intersection.getId()) {
+			return index;
+		}
+		synchronized (stopIndexes) {
+			Integer stopIndex = stopIndexes.get(intersection);
+			if (stopIndex == null) {
+				Intersection mapIntersection = map.getIntersectionById(intersection.getId());
+				stopIndex = mapIntersection == null ? -1 : mapIntersection.getIndex();
+				stopIndexes.put(intersection, stopIndex);
+			}
+			return stopIndex;
+		}
+	}
+}
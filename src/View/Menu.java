@@ -8,22 +8,24 @@ import java.awt.Font;
 import java.awt.Point;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.swing.BoxLayout;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JToolBar;
+import javax.swing.SwingUtilities;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import Controller.Controller;
-import Model.Segment;
 import Model.Stop;
 
 /**
@@ -45,7 +47,10 @@ import Model.Stop;
  * <li>A JButton undo to undo a modification.</li>
  * <li>A JButton redo to redo a modification.</li>
  * <li>A JButton cancel to cancel when doing a modification.</li>
- * <li>A JButton download to download the roadmap.</li>
+ * <li>A JButton download to export the roadmap in an HTML, GeoJSON or CSV file.</li>
+ * <li>A JButton shareTour to share the requests of the tour between several vehicles.</li>
+ * <li>A JCheckBox automaticPlacement to place the new requests at the cheapest position of the tour.</li>
+ * <li>A JCheckBox servedAreaRouting to search the paths of the tour only around its stops.</li>
  * </ul>
  * 
  * The menu is called when a map is loaded.<br/>
@@ -75,8 +80,25 @@ public class Menu extends JFrame {
 	private JButton redo = new JButton("Redo");
 	private JButton cancel = new JButton("Cancel");
 	private JButton download = new JButton("DownLoad Road Map");
+	private JButton shareTour = new JButton("Share between vehicles");
+	private JCheckBox automaticPlacement = new JCheckBox("Automatic placement");
+	private JCheckBox servedAreaRouting = new JCheckBox("Route on served area");
 	private static final long serialVersionUID = 1L;
 
+	/**
+	 * The largest number of vehicles the user can choose to share the tour.
+	 */
+	private static final int MAX_FLEET_SIZE = 10;
+
+	/**
+	 * The thread writing the exported files, one file at a time.
+	 */
+	private static final ExecutorService EXPORT_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "tour-export");
+		thread.setDaemon(true);
+		return thread;
+	});
+
 	/**
 	 * Class constructor.
 	 * Creates a menu and sets its parameters (size, background ..).
@@ -312,7 +334,7 @@ public class Menu extends JFrame {
 		download.addActionListener(new ActionListener() {
 
 			/**
-			 * Download an html file containing the road map.
+			 * Export the road map in a file chosen by the user.
 			 * 
 			 * @param e is an ActionEvent. Here, a click on the button.
 			 * 
@@ -320,11 +342,35 @@ public class Menu extends JFrame {
 
 			@Override
 			public void actionPerformed(ActionEvent e) {
-				try {
-					generateHtmlFile();
-				} catch (IOException e1) {
-					// TODO Auto-generated catch block
-					e1.printStackTrace();
+				exportTour();
+			}
+		});
+
+		shareTour.setBackground(new Color(159, 226, 191));
+		shareTour.addActionListener(new ActionListener() {
+
+			/**
+			 * Reset the last pointClicked. Asks the number of vehicles and shares the
+			 * requests of the tour between them.
+			 * 
+			 * @param e is an ActionEvent. Here, a click on the button.
+			 * 
+			 * @see View.DrawnMap#pointClicked
+			 * @see Controller.Controller#shareTour
+			 */
+
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				drawnMap.pointClicked = new Point();
+				Integer[] sizes = new Integer[MAX_FLEET_SIZE - 1];
+				for (int i = 0; i < sizes.length; i++) {
+					sizes[i] = i + 2;
+				}
+				Integer fleetSize = (Integer) JOptionPane.showInputDialog(Menu.this, "Number of vehicles:",
+						"Share between vehicles", JOptionPane.QUESTION_MESSAGE, null, sizes,
+						Math.max(2, controller.getFleetSize()));
+				if (fleetSize != null) {
+					controller.shareTour(fleetSize);
 				}
 			}
 		});
@@ -364,7 +410,44 @@ public class Menu extends JFrame {
 		menu.add(undo);
 		menu.add(redo);
 		menu.add(cancel);
+		automaticPlacement.addActionListener(new ActionListener() {
+
+			/**
+			 * Switches between the automatic placement of the new requests and the manual
+			 * selection of their predecessors.
+			 * 
+			 * @param e is an ActionEvent. Here, a click on the check box.
+			 * 
+			 * @see Controller.Controller#setAutomaticInsertion
+			 */
+
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				controller.setAutomaticInsertion(automaticPlacement.isSelected());
+			}
+		});
+
+		servedAreaRouting.addActionListener(new ActionListener() {
+
+			/**
+			 * Switches between the search of the paths around the stops of the tour 
+			 * and the search on the whole map.
+			 * 
+			 * @param e is an ActionEvent. Here, a click on the check box.
+			 * 
+			 * @see Controller.Controller#setRegionRouting
+			 */
+
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				controller.setRegionRouting(servedAreaRouting.isSelected());
+			}
+		});
+
 		menu.add(download);
+		menu.add(shareTour);
+		menu.add(automaticPlacement);
+		menu.add(servedAreaRouting);
 		cancel.setVisible(false);
 		undo.setEnabled(false);
 		redo.setEnabled(false);
@@ -374,81 +457,67 @@ public class Menu extends JFrame {
 	}
 
 	/**
-	 * Generate an html file containing the road map with all the stops, the paths,
-	 * the departure and arrival times.
+	 * Exports the road map of the computed tour in a file chosen by the user. The format of the file
+	 * (HTML, GeoJSON or CSV) is given by the filter chosen or by the extension typed.
+	 * The file is written in a background thread, the download button being disabled meanwhile.
+	 * An HTML road map is opened in the browser at the end.
 	 * 
+	 * @see View.TourExporter
 	 */
-
-	@SuppressWarnings("deprecation")
-	public void generateHtmlFile() throws IOException {
-		File f = new File("Road_Map.html");
-		BufferedWriter bw = new BufferedWriter(new FileWriter(f));
-		bw.write("<html><body><h1>Delivery Road Map :</h1>");
-		bw.write("<h2> Tour Departure </h2>");
-		bw.write("<p> Near road : <br> <ul>");
-		for (Segment seg : roadMap.getController().getMap().getTour().getTourDeparture().getOriginatedSegments()) {
-			bw.write("<li>" + seg.getName() + "</li>");
+	public void exportTour() {
+		JFileChooser chooser = new JFileChooser(new File(System.getProperty("user.dir")));
+		FileNameExtensionFilter html = new FileNameExtensionFilter("HTML road map (*.html)", "html");
+		FileNameExtensionFilter geoJson = new FileNameExtensionFilter("GeoJSON tour (*.geojson)", "geojson", "json");
+		FileNameExtensionFilter csv = new FileNameExtensionFilter("CSV stops (*.csv)", "csv");
+		chooser.addChoosableFileFilter(html);
+		chooser.addChoosableFileFilter(geoJson);
+		chooser.addChoosableFileFilter(csv);
+		chooser.setAcceptAllFileFilterUsed(false);
+		chooser.setFileFilter(html);
+		chooser.setSelectedFile(new File("Road_Map.html"));
+		if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+			return;
 		}
-		bw.write("</ul><p>");
-		bw.write("<h4> Departure Time: </h4><ul><li>"+ roadMap.getController().getMap().getTour().getDepartureTime().getHours()+":"
-				+ roadMap.getController().getMap().getTour().getDepartureTime().getMinutes() + ":"
-				+ roadMap.getController().getMap().getTour().getDepartureTime().getSeconds() + "</ul></li>");
-		int index = 1;
-		for (int ind= 1 ; ind<roadMap.getController().getMap().getTour().getOrderedTravel().size()-1; ind++) {
-			Stop stop= roadMap.getController().getMap().getTour().getOrderedTravel().get(ind);
-			bw.write("<h3> Stop n" + index + "</h3>");
-			bw.write("<p> Road to follow : <br> <ul>");
-			for (int i = 0; i < stop.getNextPath().getPathSegments().size() - 1; i++) {
-				if (i >= 1 && !stop.getNextPath().getPathSegments().get(i).getName()
-						.equals(stop.getNextPath().getPathSegments().get(i - 1).getName()))
-					bw.write("<li> Follow " + stop.getNextPath().getPathSegments().get(i).getName() + " for "
-							+ stop.getNextPath().getPathSegments().get(i).getLength() + " meters , then</li>");
-			}
-			bw.write("<li>Finally, follow "
-					+ stop.getNextPath().getPathSegments().get(stop.getNextPath().getPathSegments().size() - 1)
-							.getName()
-					+ " for " + stop.getNextPath().getPathSegments()
-							.get(stop.getNextPath().getPathSegments().size() - 1).getLength()
-					+ " meters </li>");
-
-			index++;
-			bw.write("</ul>");
-			Calendar calendar = Calendar.getInstance();
-			calendar.setTime(stop.getArrivalTime());
-			calendar.add(Calendar.SECOND, (int) stop.getStopDuration());
-			Date arrivalTime = calendar.getTime();
-
-			bw.write("<br><h4>Arrival Time:</h4><ul><li> " + stop.getArrivalTime().getHours() + ":" + stop.getArrivalTime().getMinutes()
-					+ ":" + stop.getArrivalTime().getSeconds() + "</ul></li><h4> Departure Time: </h4><ul><li>" + arrivalTime.getHours() + ":"
-					+ arrivalTime.getMinutes() + ":" + stop.getArrivalTime().getSeconds() + "</ul></li><br>");
-			bw.write("Stop duration : " + stop.getStopDuration() + " seconds <br></p>");
-		}
-
-		bw.write("<h2> Tour Arrival </h2>");
-		bw.write("<p> Near road : <br> <ul>");
-		Stop finalStop = roadMap.getController().getMap().getTour().getOrderedTravel()
-				.get(roadMap.getController().getMap().getTour().getOrderedTravel().size() - 1);
-		for (int i = 0; i < finalStop.getNextPath().getPathSegments().size() - 1; i++) {
-			if (i >= 1 && !finalStop.getNextPath().getPathSegments().get(i).getName()
-					.equals(finalStop.getNextPath().getPathSegments().get(i - 1).getName()))
-				bw.write("<li> Follow " + finalStop.getNextPath().getPathSegments().get(i).getName() + "for "
-						+ finalStop.getNextPath().getPathSegments().get(i).getLength() + " meters , then</li>");
+		File chosen = chooser.getSelectedFile();
+		FileNameExtensionFilter format = html.accept(chosen) ? html
+				: geoJson.accept(chosen) ? geoJson
+				: csv.accept(chosen) ? csv : (FileNameExtensionFilter) chooser.getFileFilter();
+		TourExporter exporter;
+		if (format == csv) {
+			exporter = new CsvTourExporter(controller.getMap().getTour());
+		} else if (format == geoJson) {
+			exporter = new GeoJsonTourExporter(controller.getMap().getTour());
+		} else {
+			exporter = new HtmlTourExporter(controller.getMap().getTour());
 		}
-		bw.write("<li>Finally, follow "
-				+ finalStop.getNextPath().getPathSegments().get(finalStop.getNextPath().getPathSegments().size() - 1)
-						.getName()
-				+ " for " + finalStop.getNextPath().getPathSegments()
-						.get(finalStop.getNextPath().getPathSegments().size() - 1).getLength()
-				+ " meters </li>");
-		bw.write("You have now finished your Tour Congratulation!<br><br>");
-
-		bw.write("Arrival Time : " + roadMap.getController().getMap().getTour().getArrivalTime().getHours() + ":"
-				+ roadMap.getController().getMap().getTour().getArrivalTime().getMinutes() + ":"
-				+ roadMap.getController().getMap().getTour().getArrivalTime().getSeconds() + "</p>");
-		bw.write("</body></html>");
-		bw.close();
-
-		Desktop.getDesktop().browse(f.toURI());
+		File file = format.accept(chosen) ? chosen
+				: new File(chosen.getParentFile(), chosen.getName() + "." + exporter.getExtension());
+
+		download.setEnabled(false);
+		EXPORT_EXECUTOR.submit(() -> {
+			Exception error = null;
+			try (FileOutputStream stream = new FileOutputStream(file)) {
+				exporter.export(stream);
+			} catch (Exception e) {
+				// any failure is reported, otherwise the download button would stay disabled
+				error = e;
+			}
+			Exception result = error;
+			SwingUtilities.invokeLater(() -> {
+				download.setEnabled(true);
+				if (result != null) {
+					String reason = result.getMessage() != null ? result.getMessage() : result.toString();
+					JOptionPane.showMessageDialog(this, "The road map could not be exported: " + reason,
+							"Error", JOptionPane.ERROR_MESSAGE);
+				} else if (exporter instanceof HtmlTourExporter && Desktop.isDesktopSupported()) {
+					try {
+						Desktop.getDesktop().browse(file.toURI());
+					} catch (IOException e) {
+						e.printStackTrace();
+					}
+				}
+			});
+		});
 	}
 
 	public void setVisibleCancel() {
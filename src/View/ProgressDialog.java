@@ -0,0 +1,116 @@
+package View;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+
+/**
+ * ProgressDialog is the dialog displayed while a long computation runs in the background.
+ * It allows to cancel the computation. The ProgressDialog extends a JDialog.
+ *
+ * A ProgressDialog characterises by :
+ * <ul>
+ * <li>A progress bar, without any percentage since the length of the computation is unknown.</li>
+ * <li>The action cancelling the computation.</li>
+ * <li>An indication about the cancellation of the computation by the user.</li>
+ * </ul>
+ *
+ * The dialog is modal: the other windows do not react to the user during the computation, but they keep
+ * being painted. The dialog must be closed with dispose() at the end of the computation.
+ *
+ * @author H4122
+ *
+ * @see View.LoadingDialog
+ * @see Controller.ComputedTourState#shareTour(int)
+ */
+public class ProgressDialog extends JDialog {
+
+	private static final long serialVersionUID = 1L;
+	private Runnable cancelAction;
+	private volatile boolean cancelled;
+
+	/**
+	 * Class constructor. Creates the dialog, which is displayed by setVisible(true).
+	 *
+	 * @param message The description of the computation.
+	 */
+	public ProgressDialog(String message) {
+		super((JDialog) null, "Please wait", true);
+		setSize(450, 150);
+		setLocationRelativeTo(null);
+		setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
+
+		JLabel label = new JLabel(message);
+		label.setFont(new Font("Verdana", Font.PLAIN, 14));
+
+		JProgressBar progressBar = new JProgressBar();
+		progressBar.setIndeterminate(true);
+		progressBar.setPreferredSize(new Dimension(400, 25));
+
+		JButton cancel = new JButton("Cancel");
+		cancel.setBackground(new Color(159, 226, 191));
+		cancel.addActionListener(new ActionListener() {
+			/**
+			 * Cancels the computation.
+			 *
+			 * @param e is an ActionEvent. Here, a click on the button.
+			 */
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				cancel();
+			}
+		});
+		addWindowListener(new WindowAdapter() {
+			@Override
+			public void windowClosing(WindowEvent e) {
+				cancel();
+			}
+		});
+
+		JPanel panel = new JPanel(new BorderLayout(10, 10));
+		panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+		panel.add(label, BorderLayout.NORTH);
+		panel.add(progressBar, BorderLayout.CENTER);
+		JPanel buttonPanel = new JPanel();
+		buttonPanel.add(cancel);
+		panel.add(buttonPanel, BorderLayout.SOUTH);
+		add(panel);
+	}
+
+	/**
+	 * @param cancelAction The action cancelling the computation, run when the user cancels it.
+	 */
+	public void setCancelAction(Runnable cancelAction) {
+		this.cancelAction = cancelAction;
+	}
+
+	/**
+	 * @return TRUE if the computation was cancelled by the user.
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Cancels the computation and closes the dialog.
+	 */
+	private void cancel() {
+		cancelled = true;
+		if (cancelAction != null) {
+			cancelAction.run();
+		}
+		dispose();
+	}
+}
@@ -0,0 +1,97 @@
+package View;
+
+import java.awt.Rectangle;
+
+import javax.swing.JComponent;
+import javax.swing.Timer;
+
+/**
+ * RepaintScheduler gathers the repaints asked for a component, so that it is repainted at most once by
+ * frame, and only in the regions that changed.
+ *
+ * A scheduler is composed of:
+ * <ul>
+ * <li>The component to repaint.</li>
+ * <li>The rectangle containing all the regions to repaint, or an indication that the whole component
+ * must be repainted.</li>
+ * <li>A timer that repaints the component at the next frame, and the time of the last frame.</li>
+ * </ul>
+ *
+ * The repaints can be asked from any thread: the component is repainted by the timer, in the Swing
+ * thread.
+ *
+ * @author H4122
+ *
+ * @see View.DrawnMap
+ */
+public class RepaintScheduler {
+
+	/**
+	 * The minimum time in milliseconds between two repaints (about 60 frames by second).
+	 */
+	public static final int FRAME_INTERVAL = 16;
+
+	private JComponent component;
+	private Rectangle dirtyRegion;
+	private boolean dirtyComponent = false;
+	private long lastFrame = 0;
+	private Timer timer;
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param component The component to repaint.
+	 */
+	public RepaintScheduler(JComponent component) {
+		this.component = component;
+		timer = new Timer(FRAME_INTERVAL, e -> repaintNow());
+		timer.setRepeats(false);
+	}
+
+	/**
+	 * Asks to repaint a region of the component at the next frame.
+	 *
+	 * @param region The region, in the coordinates of the component.
+	 */
+	public synchronized void repaint(Rectangle region) {
+		if (region == null || region.isEmpty()) {
+			return;
+		}
+		dirtyRegion = dirtyRegion == null ? new Rectangle(region) : dirtyRegion.union(region);
+		schedule();
+	}
+
+	/**
+	 * Asks to repaint the whole component at the next frame.
+	 */
+	public synchronized void repaintAll() {
+		dirtyComponent = true;
+		schedule();
+	}
+
+	/**
+	 * Starts the timer if no repaint is waiting. The repaint is immediate if the last frame is older than
+	 * FRAME_INTERVAL.
+	 */
+	private void schedule() {
+		if (!timer.isRunning()) {
+			long elapsed = System.currentTimeMillis() - lastFrame;
+			timer.setInitialDelay((int) Math.max(0, FRAME_INTERVAL - elapsed));
+			timer.start();
+		}
+	}
+
+	/**
+	 * Repaints the regions gathered since the last frame.
+	 */
+	private synchronized void repaintNow() {
+		lastFrame = System.currentTimeMillis();
+		if (dirtyComponent) {
+			component.repaint();
+		} else if (dirtyRegion != null) {
+			component.repaint(dirtyRegion);
+		}
+		dirtyComponent = false;
+		dirtyRegion = null;
+	}
+}
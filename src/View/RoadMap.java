@@ -3,22 +3,30 @@ package View;
 import java.awt.Color;
 import java.awt.Component;
 import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.IdentityHashMap;
+import javax.swing.AbstractListModel;
 import javax.swing.BorderFactory;
-import javax.swing.BoxLayout;
-import javax.swing.JLabel;
+import javax.swing.JComponent;
+import javax.swing.JList;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
-import javax.swing.JTextPane;
+import javax.swing.ListCellRenderer;
+import javax.swing.ListSelectionModel;
+import javax.swing.UIManager;
+import javax.swing.plaf.basic.BasicGraphicsUtils;
 import Controller.Controller;
 import Model.Request;
 import Model.Stop;
+import Model.Tour;
 /**
  * RoadMap is the class that displays the list of requests and their stops.
  * When the tour is computed, it displays all the stops in the visiting order.
@@ -28,14 +36,15 @@ import Model.Stop;
  * <ul>
  * <li>A Controller.</li>
  * <li>A DrawnMap which displays the map.</li>
- * <li>A JTextPane containing the texts.</li>
- * <li>A JScrollPane which contains the previous JTextPane to allow to scroll into the list.</li>
- * <li>A JPanel containing the JScrollPane.</li>
- * <li>A String array that contains the text of the list of requests/stops . </li>
- * <li>A Map&lt;JPanel, Request&gt; requestsPanel that links a panel to a request. </li>
- * <li>A  Map&lt;JPanel, Stop&gt; stopPanel that links a panel to a stop. </li>
+ * <li>A JList of the requests, or of the stops of the tour once it is computed, read from the tour.</li>
+ * <li>A JScrollPane which contains the previous JList to allow to scroll into the list.</li>
+ * <li>The row of each request or stop of the list, and the color of each row.</li>
  * </ul>
  * 
+ * Only the rows visible in the JScrollPane are drawn, all of the same size: the list opens and scrolls
+ * at the same speed whatever the number of requests. The request or stop selected on the drawnMap is
+ * selected in the list from its row, and it is drawn in red.<br/>
+ * 
  * The menu is called when a map is loaded.<br/>
  * 
  * 
@@ -53,20 +62,25 @@ public class RoadMap extends JPanel implements MouseListener, ObserverDP.Observe
 
 	private static final long serialVersionUID = 1L;
 
+	/**
+	 * The size in pixels of a row of the list.
+	 */
+	private static final int ROW_WIDTH = 400;
+	private static final int ROW_HEIGHT = 90;
+
 	private Controller controller;
 	private DrawnMap drawnMap;
-	private JTextPane jTextPane = new JTextPane();
 	private JScrollPane scrollPane = new JScrollPane();
-	public JPanel panel = new JPanel();
-	private String array = "";
-	private Map<JPanel, Request> requestsPanel = new LinkedHashMap<>();
-	private Map<JPanel, Stop> stopPanel = new LinkedHashMap<>();
+	private RoadMapModel model = new RoadMapModel();
+	private JList<Object> list = new JList<Object>(model);
+	private IdentityHashMap<Object, Integer> rows = new IdentityHashMap<Object, Integer>();
+	private int[] rowColors = new int[0];
 
 
 	/**
 	 * Class constructor.
 	 * Creates a roadMap that can interacts with the drawnMap.
-	 * Sets the dimensions of the roadmap and its components (scrollPane and jTextPane).
+	 * Sets the dimensions of the roadmap and its components (scrollPane and list).
 	 * Adds a mouse listener in order to react to the clicks of the user.
 	 * 
 	 * @param controller It tells the view what to do depending on the user's actions.
@@ -79,14 +93,17 @@ public class RoadMap extends JPanel implements MouseListener, ObserverDP.Observe
 		this.drawnMap = drawnMap;
 		this.controller.getMap().getTour().addObserver(this);
 		this.controller.getMap().addObserver(this);
-		panel.setLayout(new BoxLayout(panel, BoxLayout.PAGE_AXIS));
-		addMouseListener(this);
+		list.setFixedCellWidth(ROW_WIDTH);
+		list.setFixedCellHeight(ROW_HEIGHT);
+		list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+		list.setSelectionBackground(Color.red);
+		list.setCellRenderer(new RoadMapRenderer());
+		list.addMouseListener(this);
 		Dimension d = new Dimension(450, 600);
-		jTextPane.setPreferredSize(d);
-		jTextPane.setEditable(false);
 		scrollPane.setPreferredSize(d);
-		scrollPane.setViewportView(panel);
+		scrollPane.setViewportView(list);
 		scrollPane.setBorder(BorderFactory.createTitledBorder("Requests's List"));
+		scrollPane.getVerticalScrollBar().setUnitIncrement(ROW_HEIGHT / 3);
 		scrollPane.setVisible(true);
 		this.add(scrollPane);
 
@@ -97,24 +114,112 @@ public class RoadMap extends JPanel implements MouseListener, ObserverDP.Observe
 		return controller;
 	}
 
-	public Map<JPanel, Request> getRequestsPanel() {
-		return requestsPanel;
+	public JList<Object> getList() {
+		return list;
 	}
 
-	public void setRequestsPanel(Map<JPanel, Request> requestsPanel) {
-		this.requestsPanel = requestsPanel;
-	}
+	/**
+	 * RoadMapModel gives to the list the requests of the tour, or its stops in the visiting order once
+	 * it is computed. The elements are read from the tour when a row is drawn, they are not copied.
+	 * 
+	 * @author H4122
+	 * 
+	 * @see Model.Tour#getOrderedTravel()
+	 * @see Model.Tour#getTourRequests()
+	 */
+	private class RoadMapModel extends AbstractListModel<Object> {
+
+		private static final long serialVersionUID = 1L;
+
+		private int size = 0;
 
-	public Map<JPanel, Stop> getStopPanel() {
-		return stopPanel;
+		@Override
+		public int getSize() {
+			return size;
+		}
+
+		@Override
+		public Object getElementAt(int index) {
+			Tour tour = controller.getMap().getTour();
+			return isTourComputed() ? tour.getOrderedTravel().get(index) : tour.getTourRequests().get(index);
+		}
+
+		/**
+		 * Tells the list that all its rows have changed.
+		 */
+		public void reload() {
+			if (size > 0) {
+				fireIntervalRemoved(this, 0, size - 1);
+			}
+			Tour tour = controller.getMap().getTour();
+			size = isTourComputed() ? tour.getOrderedTravel().size() : tour.getTourRequests().size();
+			if (size > 0) {
+				fireIntervalAdded(this, 0, size - 1);
+			}
+		}
 	}
 
-	public void setStopPanel(Map<JPanel, Stop> stopPanel) {
-		this.stopPanel = stopPanel;
+	/**
+	 * RoadMapRenderer draws a row of the list: the lines of text of a request or of a stop, on the color
+	 * of its request. A single component draws all the rows, and the text is drawn line by line, without
+	 * being parsed as HTML, so that a row is drawn as fast as it is scrolled.
+	 * 
+	 * @author H4122
+	 */
+	private class RoadMapRenderer extends JComponent implements ListCellRenderer<Object> {
+
+		private static final long serialVersionUID = 1L;
+
+		private String[] lines = new String[0];
+
+		public RoadMapRenderer() {
+			setOpaque(true);
+			setFont(UIManager.getFont("Label.font"));
+		}
+
+		@Override
+		public Component getListCellRendererComponent(JList<? extends Object> list, Object value, int index,
+				boolean isSelected, boolean cellHasFocus) {
+			int color = index < rowColors.length ? rowColors[index] : -1;
+			if (isSelected) {
+				setBackground(Color.red);
+			} else if (color >= 0) {
+				setBackground(drawnMap.getColors().get(color % drawnMap.getColors().size()));
+			} else {
+				setBackground(list.getBackground());
+			}
+			setForeground(color >= 0 || isSelected ? Color.white : list.getForeground());
+			lines = getRowLines(index);
+			return this;
+		}
+
+		/**
+		 * Draws the lines of the row, left aligned in a block centered in the row.
+		 * 
+		 * @param g the Graphics of the list.
+		 */
+		@Override
+		protected void paintComponent(Graphics g) {
+			g.setColor(getBackground());
+			g.fillRect(0, 0, getWidth(), getHeight());
+			g.setColor(getForeground());
+			g.setFont(getFont());
+			FontMetrics metrics = g.getFontMetrics();
+			float width = 0;
+			for (String line : lines) {
+				width = Math.max(width, BasicGraphicsUtils.getStringWidth(this, metrics, line));
+			}
+			float x = Math.max(0, (getWidth() - width) / 2);
+			float y = 5 + metrics.getAscent();
+			for (String line : lines) {
+				BasicGraphicsUtils.drawString(this, (Graphics2D) g, line, x, y);
+				y += metrics.getHeight();
+			}
+		}
 	}
-	
+
 	/**
-	 * Loads the requests in the panel.
+	 * Loads the requests in the list.
 	 * It displays a list of requests with a different color for each request.
 	 * A request has a pickup and a delivery stops with their coordinates.
 	 * 
@@ -123,167 +228,128 @@ public class RoadMap extends JPanel implements MouseListener, ObserverDP.Observe
 	 * It displays the closest road and the arrival and departure time of each stops.
 	 * It also shows the tour departure with the departure and arrival times of the tour.
 	 * 
+	 * The rows of the requests and the stops, and their colors, are computed once here: the texts are
+	 * only computed when a row is drawn.
+	 * 
 	 */
 
-	@SuppressWarnings("deprecation")
 	public void LoadRequestsInPanel() {
-		panel.removeAll();
-
-		int iterator = 0;
-		if (!controller.getMap().getTour().getOrderedTravel().isEmpty()) {
-			panel.setPreferredSize(new Dimension(400, 90 * controller.getMap().getTour().getOrderedTravel().size()));
+		Tour tour = controller.getMap().getTour();
+		rows.clear();
+		if (isTourComputed()) {
 			drawnMap.tourCalculated = true;
-
-			array = "<html><body>Tour Departure: <br>";
-			array += "Near to: "
-					+ controller.getMap().getTour().getTourDeparture().getOriginatedSegments().get(0).getName();
-			array += "<br>Departure Time: " + controller.getMap().getTour().getDepartureTime().getHours() + ":"
-					+ controller.getMap().getTour().getDepartureTime().getMinutes() + ":"
-					+ controller.getMap().getTour().getDepartureTime().getSeconds();
-
-			JPanel dep = new JPanel();
-			JLabel labelDep = new JLabel(array);
-			dep.addMouseListener(this);
-			dep.add(labelDep);
-			panel.add(dep);
-			for (int i = 1; i < controller.getMap().getTour().getOrderedTravel().size() - 1; i++) {
-				Stop stop = controller.getMap().getTour().getOrderedTravel().get(i);
-				array = "<html><body>Stop " + (iterator + 1) + ": <br>";
-				array += "Near to: " + stop.getOriginatedSegments().get(0).getName();
-				if (stop.getOriginatedSegments().size() > 1)
-					array += "<br> And to: " + stop.getOriginatedSegments().get(1).getName();
-
-				Calendar calendar = Calendar.getInstance();
-				calendar.setTime(stop.getArrivalTime());
-				calendar.add(Calendar.SECOND, (int) stop.getStopDuration());
-				Date arrivalTime = calendar.getTime();
-
-				array += "<br>Arrival Time: " + stop.getArrivalTime().getHours() + ":"
-						+ stop.getArrivalTime().getMinutes() + ":" + stop.getArrivalTime().getSeconds()
-						+ ", Departure Time: " + arrivalTime.getHours() + ":" + arrivalTime.getMinutes() + ":"
-						+ stop.getArrivalTime().getSeconds() + "<br>";
-
-				Color c = panel.getBackground();
-				int index = 0;
-				for (Request r : controller.getMap().getTour().getTourRequests()) {
-					if (stop.equals(r.getPickupStop()) || stop.equals(r.getDeliveryStop())) {
-						c = drawnMap.getColors().get(index);
-					}
-					index++;
-
+			ArrayList<Stop> orderedTravel = tour.getOrderedTravel();
+			rowColors = new int[orderedTravel.size()];
+			for (int i = 1; i < orderedTravel.size() - 1; i++) {
+				rows.put(orderedTravel.get(i), i);
+			}
+			Arrays.fill(rowColors, -1);
+			int index = 0;
+			for (Request r : tour.getTourRequests()) {
+				Integer pickupRow = rows.get(r.getPickupStop());
+				Integer deliveryRow = rows.get(r.getDeliveryStop());
+				if (pickupRow != null) {
+					rowColors[pickupRow] = index;
 				}
-
-				JPanel pane = new JPanel();
-				pane.setBackground(c);
-				JLabel label = new JLabel(array);
-				label.setForeground(Color.white);
-				pane.addMouseListener(this);
-				pane.add(label);
-				stopPanel.put(pane, stop);
-				panel.add(pane);
-				iterator++;
-
+				if (deliveryRow != null) {
+					rowColors[deliveryRow] = index;
+				}
+				index++;
 			}
-			array = "<html><body>Tour Arrival: <br>";
-			array += "Near to: "
-					+ controller.getMap().getTour().getTourDeparture().getOriginatedSegments().get(0).getName();
-			array += "<br>Arrival Time: " + controller.getMap().getTour().getArrivalTime().getHours() + ":"
-					+ controller.getMap().getTour().getArrivalTime().getMinutes() + ":"
-					+ controller.getMap().getTour().getArrivalTime().getSeconds();
-
-			JPanel arrival = new JPanel();
-			JLabel labelArrival = new JLabel(array);
-			arrival.addMouseListener(this);
-			arrival.add(labelArrival);
-			panel.add(arrival);
 		} else {
-			if (array != "") {
-				array = "";
-			}
-			ArrayList<Request> ListRequests = this.controller.getMap().getTour().getTourRequests();
-			panel.setPreferredSize(new Dimension(400, 90 * ListRequests.size()));
-			for (Request request : ListRequests) {
-
-				Color c = drawnMap.getColors().get(iterator);
-				array = "<html><body>Request  " + (iterator + 1) + ": <br><br>";
-				array += "Pickup Point : Longitude :" + request.getPickupStop().getLongitude() + ", Latitude :"
-						+ request.getPickupStop().getLatitude() + "<br>";
-				array += "Delivery Point : Longitude :" + request.getDeliveryStop().getLongitude() + ", Latitude :"
-						+ request.getDeliveryStop().getLatitude() + "<br></body></html>";
-
-				JPanel pane = new JPanel();
-				pane.setBackground(c);
-				JLabel label = new JLabel(array);
-				label.setForeground(Color.white);
-				pane.addMouseListener(this);
-				pane.add(label);
-
-				requestsPanel.put(pane, request);
-				panel.add(pane);
-				iterator++;
-
+			ArrayList<Request> listRequests = tour.getTourRequests();
+			rowColors = new int[listRequests.size()];
+			for (int i = 0; i < listRequests.size(); i++) {
+				rows.put(listRequests.get(i), i);
+				rowColors[i] = i;
 			}
 		}
+		model.reload();
 		drawnMap.repaint = true;
 
 	}
-	
+
+	/**
+	 * @return TRUE if the list displays the stops of the computed tour, FALSE if it displays the requests.
+	 */
+	private boolean isTourComputed() {
+		return !controller.getMap().getTour().getOrderedTravel().isEmpty();
+	}
+
+	/**
+	 * Gives the text of a row: the times and the roads near a stop of the tour, or the positions of
+	 * the stops of a request.
+	 * 
+	 * @param index The row.
+	 * @return The lines of text of the row.
+	 */
+
+	@SuppressWarnings("deprecation")
+	private String[] getRowLines(int index) {
+		Tour tour = controller.getMap().getTour();
+		if (!isTourComputed()) {
+			Request request = tour.getTourRequests().get(index);
+			return new String[] { "Request n " + (index + 1) + ":", "",
+					"Pickup Point : Longitude :" + request.getPickupStop().getLongitude() + ", Latitude :"
+							+ request.getPickupStop().getLatitude(),
+					"Delivery Point : Longitude :" + request.getDeliveryStop().getLongitude() + ", Latitude :"
+							+ request.getDeliveryStop().getLatitude() };
+		}
+		if (index == 0) {
+			return new String[] { "Tour Departure:",
+					"Near to: " + tour.getTourDeparture().getOriginatedSegments().get(0).getName(),
+					"Departure Time: " + tour.getDepartureTime().getHours() + ":" + tour.getDepartureTime().getMinutes()
+							+ ":" + tour.getDepartureTime().getSeconds() };
+		}
+		if (index == tour.getOrderedTravel().size() - 1) {
+			return new String[] { "Tour Arrival:",
+					"Near to: " + tour.getTourDeparture().getOriginatedSegments().get(0).getName(),
+					"Arrival Time: " + tour.getArrivalTime().getHours() + ":" + tour.getArrivalTime().getMinutes() + ":"
+							+ tour.getArrivalTime().getSeconds() };
+		}
+		Stop stop = tour.getOrderedTravel().get(index);
+		ArrayList<String> lines = new ArrayList<String>();
+		lines.add("Stop n" + index + ":");
+		lines.add("Near to: " + stop.getOriginatedSegments().get(0).getName());
+		if (stop.getOriginatedSegments().size() > 1)
+			lines.add("And to: " + stop.getOriginatedSegments().get(1).getName());
+
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTime(stop.getArrivalTime());
+		calendar.add(Calendar.SECOND, (int) stop.getStopDuration());
+		Date arrivalTime = calendar.getTime();
+
+		lines.add("Arrival Time: " + stop.getArrivalTime().getHours() + ":" + stop.getArrivalTime().getMinutes() + ":"
+				+ stop.getArrivalTime().getSeconds() + ", Departure Time: " + arrivalTime.getHours() + ":"
+				+ arrivalTime.getMinutes() + ":" + stop.getArrivalTime().getSeconds());
+		return lines.toArray(new String[lines.size()]);
+	}
+
 	/**
 	 * Handles the click on a request on the drawnMap.
-	 * It will set the background of the request selected in red on the roadMap.
+	 * It selects the row of the request, or of the stop clicked once the tour is computed, and scrolls
+	 * the list to it.
 	 * 
 	 * @param request selected in the drawnMap.
 	 * 
 	 */
 
 	public void clickedOnMap(Request request) {
-		for (Component tmp : panel.getComponents()) {
-			if (!controller.getMap().getTour().getOrderedTravel().isEmpty()) {
-				int index = 0;
-				Color c = panel.getBackground();
-				if (tmp.getBackground() == Color.red) {
-					for (Request r : controller.getMap().getTour().getTourRequests()) {
-						if (stopPanel.get(tmp).equals(r.getPickupStop())
-								|| stopPanel.get(tmp).equals(r.getDeliveryStop())) {
-							c = drawnMap.getColors().get(index);
-							tmp.setBackground(c);
-						}
-						index++;
-					}
-					
-				}
-
-			} else {
-				int index = 0;
-				Color c = panel.getBackground();
-				if (tmp.getBackground() == Color.red) {
-					for (Request r : controller.getMap().getTour().getTourRequests()) {
-						if (requestsPanel.get(tmp).equals(r)) {
-							c = drawnMap.getColors().get(index);
-							tmp.setBackground(c);
-						}
-						index++;
-					}
-				}
-
-			}
-
-		}
-
-		for (JPanel tmp : requestsPanel.keySet()) {
-			Request requests = requestsPanel.get(tmp);
-			if (requests == drawnMap.requestClicked) {
-				tmp.setBackground(Color.red);
-			}
-		}
-
-		for (JPanel tmp : stopPanel.keySet()) {
-			Stop stop = stopPanel.get(tmp);
-			if (stop == drawnMap.intersectionClicked) {
-				tmp.setBackground(Color.red);
-			}
+		Integer row = rows.get(isTourComputed() ? drawnMap.intersectionClicked : drawnMap.requestClicked);
+		if (row == null) {
+			list.clearSelection();
+			return;
 		}
+		list.setSelectedIndex(row);
+		list.ensureIndexIsVisible(row);
+	}
 
+	/**
+	 * Unselects the request or the stop selected in the list, when the click on the drawnMap is not on
+	 * a stop.
+	 */
+	public void clearSelection() {
+		list.clearSelection();
 	}
 	
 	/**
@@ -298,14 +364,12 @@ public class RoadMap extends JPanel implements MouseListener, ObserverDP.Observe
 	 */
 	@Override
 	public void update(ObserverDP.Observable observed, Object arg) {
-		panel.removeAll();
 		LoadRequestsInPanel();
-		revalidate();
 	}
 	
 	/**
 	 * Handles the click on the roadMap.
-	 * It will set the background of the request selected in red.
+	 * It will select the request clicked, drawn in red.
 	 * At the same time, it associates the pointClicked to the request selected in the drawnMap.
 	 * In that way, the request will be highlighted on the drawnMap as well.
 	 * 
@@ -315,57 +379,24 @@ public class RoadMap extends JPanel implements MouseListener, ObserverDP.Observe
 
 	@Override
 	public void mouseClicked(MouseEvent arg0) {
-		for (Component tmp : panel.getComponents()) {
-			if (!controller.getMap().getTour().getOrderedTravel().isEmpty()) {
-				int index = 0;
-				Color c = panel.getBackground();
-				if (tmp.getBackground() == Color.red) {
-					for (Request r : controller.getMap().getTour().getTourRequests()) {
-						if (stopPanel.get(tmp).equals(r.getPickupStop())
-								|| stopPanel.get(tmp).equals(r.getDeliveryStop())) {
-							c = drawnMap.getColors().get(index);
-							tmp.setBackground(c);
-						}
-						index++;
-					}
-					
-				}
-
-			} else {
-				int index = 0;
-				Color c = panel.getBackground();
-				if (tmp.getBackground() == Color.red) {
-					for (Request r : controller.getMap().getTour().getTourRequests()) {
-						if (requestsPanel.get(tmp).equals(r)) {
-							c = drawnMap.getColors().get(index);
-							tmp.setBackground(c);
-						}
-						index++;
-					}
-				}
-
-			}
+		int row = list.locationToIndex(arg0.getPoint());
+		if (row < 0 || !list.getCellBounds(row, row).contains(arg0.getPoint())) {
+			return;
 		}
 		drawnMap.clicked = true;
 		drawnMap.pointSelected = true;
-		if (!controller.getMap().getTour().getOrderedTravel().isEmpty()) {
+		Tour tour = controller.getMap().getTour();
+		if (isTourComputed()) {
 			drawnMap.tourCalculated = true;
-			JPanel tmp = (JPanel) arg0.getComponent();
-			drawnMap.pointClicked = drawnMap.getPositionOnScreen(stopPanel.get(tmp).getLongitude(),
-					stopPanel.get(tmp).getLatitude());
-			drawnMap.repaint();
-			LoadRequestsInPanel();
-			revalidate();
-			arg0.getComponent().setBackground(Color.red);
+			Stop stop = tour.getOrderedTravel().get(row);
+			drawnMap.pointClicked = drawnMap.getPositionOnScreen(stop.getLongitude(), stop.getLatitude());
 		} else {
-			JPanel tmp = (JPanel) arg0.getComponent();
-			drawnMap.pointClicked = drawnMap.getPositionOnScreen(requestsPanel.get(tmp).getPickupStop().getLongitude(),
-					requestsPanel.get(tmp).getPickupStop().getLatitude());
-			drawnMap.repaint();
-			LoadRequestsInPanel();
-			revalidate();
-			arg0.getComponent().setBackground(Color.red);
+			Request request = tour.getTourRequests().get(row);
+			drawnMap.pointClicked = drawnMap.getPositionOnScreen(request.getPickupStop().getLongitude(),
+					request.getPickupStop().getLatitude());
 		}
+		drawnMap.repaint();
+		list.setSelectedIndex(row);
 	}
 
 	@Override
@@ -392,4 +423,4 @@ public class RoadMap extends JPanel implements MouseListener, ObserverDP.Observe
 
 	}
 
-}
+}
\ No newline at end of file
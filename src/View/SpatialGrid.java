@@ -0,0 +1,147 @@
+package View;
+
+import java.util.Arrays;
+
+/**
+ * SpatialGrid is an index of elements drawn on the map, so that the elements near a position on screen
+ * are found without looking at all the elements of the map.
+ *
+ * A grid is composed of:
+ * <ul>
+ * <li>The rectangle covered by the elements, cut in square cells.</li>
+ * <li>The numbers of the elements whose bounding box crosses each cell, stored cell after cell
+ * in a single array.</li>
+ * </ul>
+ *
+ * The elements are numbered from 0, in the order of the list they are drawn from. The grid is built once,
+ * as the positions of the elements of the map do not change.
+ *
+ * @author H4122
+ *
+ * @see View.DrawnMap
+ */
+public class SpatialGrid {
+
+	private int cellSize;
+	private int minX;
+	private int minY;
+	private int columns;
+	private int rows;
+	private int[] cellStart;
+	private int[] elements;
+
+	/**
+	 * Class constructor. Puts each element in all the cells crossed by its bounding box.
+	 *
+	 * @param minX The left side of the bounding box of each element.
+	 * @param minY The top side of the bounding box of each element.
+	 * @param maxX The right side of the bounding box of each element.
+	 * @param maxY The bottom side of the bounding box of each element.
+	 * @param cellSize The side of a cell in pixels.
+	 */
+	public SpatialGrid(int[] minX, int[] minY, int[] maxX, int[] maxY, int cellSize) {
+		int count = minX.length;
+		this.cellSize = cellSize;
+		this.minX = Integer.MAX_VALUE;
+		this.minY = Integer.MAX_VALUE;
+		int gridMaxX = Integer.MIN_VALUE;
+		int gridMaxY = Integer.MIN_VALUE;
+		for (int i = 0; i < count; i++) {
+			this.minX = Math.min(this.minX, minX[i]);
+			this.minY = Math.min(this.minY, minY[i]);
+			gridMaxX = Math.max(gridMaxX, maxX[i]);
+			gridMaxY = Math.max(gridMaxY, maxY[i]);
+		}
+		if (count == 0) {
+			this.minX = 0;
+			this.minY = 0;
+			gridMaxX = 0;
+			gridMaxY = 0;
+		}
+		this.columns = (gridMaxX - this.minX) / cellSize + 1;
+		this.rows = (gridMaxY - this.minY) / cellSize + 1;
+
+		// counts the elements of each cell, then fills the cells
+		cellStart = new int[columns * rows + 1];
+		for (int i = 0; i < count; i++) {
+			for (int row = row(minY[i]); row <= row(maxY[i]); row++) {
+				for (int column = column(minX[i]); column <= column(maxX[i]); column++) {
+					cellStart[row * columns + column + 1]++;
+				}
+			}
+		}
+		for (int cell = 0; cell < columns * rows; cell++) {
+			cellStart[cell + 1] += cellStart[cell];
+		}
+		elements = new int[cellStart[columns * rows]];
+		int[] filled = Arrays.copyOf(cellStart, columns * rows);
+		for (int i = 0; i < count; i++) {
+			for (int row = row(minY[i]); row <= row(maxY[i]); row++) {
+				for (int column = column(minX[i]); column <= column(maxX[i]); column++) {
+					elements[filled[row * columns + column]++] = i;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gives the elements whose bounding box may be at less than a distance from a position.
+	 * The caller checks the exact distance to each of them.
+	 *
+	 * @param x The x position on screen.
+	 * @param y The y position on screen.
+	 * @param distance The distance in pixels.
+	 * @return The numbers of the elements, sorted and without duplicates.
+	 */
+	public int[] query(float x, float y, float distance) {
+		return query((int) Math.floor(x - distance), (int) Math.floor(y - distance), (int) Math.ceil(x + distance),
+				(int) Math.ceil(y + distance));
+	}
+
+	/**
+	 * Gives the elements whose bounding box may cross a rectangle, such as the part of the map visible
+	 * on screen.
+	 *
+	 * @param minX The left side of the rectangle.
+	 * @param minY The top side of the rectangle.
+	 * @param maxX The right side of the rectangle.
+	 * @param maxY The bottom side of the rectangle.
+	 * @return The numbers of the elements, sorted and without duplicates.
+	 */
+	public int[] query(int minX, int minY, int maxX, int maxY) {
+		int firstColumn = Math.max(0, column(minX));
+		int lastColumn = Math.min(columns - 1, column(maxX));
+		int firstRow = Math.max(0, row(minY));
+		int lastRow = Math.min(rows - 1, row(maxY));
+		if (firstColumn > lastColumn || firstRow > lastRow) {
+			return new int[0];
+		}
+		int size = 0;
+		for (int row = firstRow; row <= lastRow; row++) {
+			size += cellStart[row * columns + lastColumn + 1] - cellStart[row * columns + firstColumn];
+		}
+		int[] found = new int[size];
+		int index = 0;
+		for (int row = firstRow; row <= lastRow; row++) {
+			for (int i = cellStart[row * columns + firstColumn]; i < cellStart[row * columns + lastColumn + 1]; i++) {
+				found[index++] = elements[i];
+			}
+		}
+		Arrays.sort(found);
+		int distinct = 0;
+		for (int i = 0; i < found.length; i++) {
+			if (distinct == 0 || found[distinct - 1] != found[i]) {
+				found[distinct++] = found[i];
+			}
+		}
+		return Arrays.copyOf(found, distinct);
+	}
+
+	private int column(int x) {
+		return Math.floorDiv(x - minX, cellSize);
+	}
+
+	private int row(int y) {
+		return Math.floorDiv(y - minY, cellSize);
+	}
+}
@@ -0,0 +1,239 @@
+package View;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.IdentityHashMap;
+
+import Model.Path;
+import Model.Request;
+import Model.Segment;
+import Model.Stop;
+import Model.Tour;
+
+/**
+ * TourExporter writes a computed tour in a file, so that the road map can be used outside of the application.
+ * Each format of file is written by a descendant of this class.
+ *
+ * A tour exporter is composed of:
+ * <ul>
+ * <li>The stops of the tour in the visiting order, with the path leaving each stop and the time
+ * when the deliverer reaches it. They are copied when the exporter is created.</li>
+ * <li>The number of the request of each stop, negative for a delivery stop.</li>
+ * <li>The departure and the arrival time of the tour.</li>
+ * <li>The writer of the file, once the export is started.</li>
+ * </ul>
+ *
+ * The exporter is created on the event dispatch thread, then the file can be written in another thread
+ * while the tour is modified. The file is streamed stop by stop through a large buffer: no text
+ * of the whole tour is built in memory.
+ *
+ * @author H4122
+ *
+ * @see View.HtmlTourExporter
+ * @see View.GeoJsonTourExporter
+ * @see View.CsvTourExporter
+ * @see View.Menu#exportTour()
+ */
+public abstract class TourExporter {
+
+	/**
+	 * The size in chars of the buffer of the writer.
+	 */
+	public static final int BUFFER_SIZE = 64 * 1024;
+
+	protected Writer out;
+	private Stop[] stops;
+	private Path[] nextPaths;
+	private Date[] arrivalTimes;
+	private int[] requestNumbers;
+	private Date departureTime;
+	private Date arrivalTime;
+	private SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss");
+
+	/**
+	 * Class constructor. Copies the stops of the tour, so that it can be modified during the export.
+	 *
+	 * @param tour A computed tour: the first and the last stops of its ordered travel are the tour departure.
+	 */
+	public TourExporter(Tour tour) {
+		ArrayList<Stop> orderedTravel = tour.getOrderedTravel();
+		int size = orderedTravel.size();
+		this.stops = orderedTravel.toArray(new Stop[size]);
+		this.nextPaths = new Path[size];
+		this.arrivalTimes = new Date[size];
+		this.requestNumbers = new int[size];
+		IdentityHashMap<Stop, Integer> requestOfStop = new IdentityHashMap<Stop, Integer>();
+		int number = 1;
+		for (Request request : tour.getTourRequests()) {
+			requestOfStop.put(request.getPickupStop(), number);
+			requestOfStop.put(request.getDeliveryStop(), -number);
+			number++;
+		}
+		for (int i = 0; i < size; i++) {
+			nextPaths[i] = stops[i].getNextPath();
+			arrivalTimes[i] = stops[i].getArrivalTime();
+			Integer request = requestOfStop.get(stops[i]);
+			requestNumbers[i] = (i == 0 || i == size - 1 || request == null) ? 0 : request;
+		}
+		this.departureTime = tour.getDepartureTime();
+		this.arrivalTime = tour.getArrivalTime();
+	}
+
+	/**
+	 * @return The extension of the files written by this exporter, without the dot.
+	 */
+	public abstract String getExtension();
+
+	/**
+	 * Writes the tour in a stream. The stream is closed at the end.
+	 *
+	 * @param stream The stream of the file, which receives the tour encoded in UTF-8.
+	 *
+	 * @throws IOException If the file cannot be written.
+	 */
+	public void export(OutputStream stream) throws IOException {
+		try (Writer writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+			out = writer;
+			writeHeader();
+			for (int i = 0; i < stops.length; i++) {
+				writeStop(i);
+			}
+			writeFooter();
+		} finally {
+			out = null;
+		}
+	}
+
+	/**
+	 * Writes the beginning of the file, before the first stop.
+	 *
+	 * @throws IOException If the file cannot be written.
+	 */
+	protected abstract void writeHeader() throws IOException;
+
+	/**
+	 * Writes a stop of the tour, and the path leaving it if it is not the last one.
+	 *
+	 * @param index The position of the stop in the tour: 0 is the tour departure,
+	 * getNbStops()-1 is the arrival at the tour departure.
+	 *
+	 * @throws IOException If the file cannot be written.
+	 */
+	protected abstract void writeStop(int index) throws IOException;
+
+	/**
+	 * Writes the end of the file, after the last stop.
+	 *
+	 * @throws IOException If the file cannot be written.
+	 */
+	protected abstract void writeFooter() throws IOException;
+
+	/**
+	 * @return The number of stops of the tour, the tour departure being counted at the beginning and at the end.
+	 */
+	protected int getNbStops() {
+		return stops.length;
+	}
+
+	/**
+	 * @param index The position of a stop in the tour.
+	 * @return The stop.
+	 */
+	protected Stop getStop(int index) {
+		return stops[index];
+	}
+
+	/**
+	 * @param index The position of a stop in the tour.
+	 * @return The path from the stop to the next one, null for the last stop.
+	 */
+	protected Path getNextPath(int index) {
+		return index < stops.length - 1 ? nextPaths[index] : null;
+	}
+
+	/**
+	 * @param index The position of a stop in the tour.
+	 * @return The number of the request of the stop, starting from 1, negative for a delivery stop,
+	 * 0 for the tour departure.
+	 */
+	protected int getRequestNumber(int index) {
+		return requestNumbers[index];
+	}
+
+	/**
+	 * @param index The position of a stop in the tour.
+	 * @return "departure", "pickup", "delivery" or "arrival".
+	 */
+	protected String getStopType(int index) {
+		if (index == 0) {
+			return "departure";
+		} else if (index == stops.length - 1) {
+			return "arrival";
+		}
+		return requestNumbers[index] < 0 ? "delivery" : "pickup";
+	}
+
+	/**
+	 * @param index The position of a stop in the tour.
+	 * @return The time when the deliverer reaches the stop.
+	 */
+	protected Date getArrivalTime(int index) {
+		if (index == 0) {
+			return departureTime;
+		} else if (index == stops.length - 1) {
+			return arrivalTime;
+		}
+		return arrivalTimes[index];
+	}
+
+	/**
+	 * @param index The position of a stop in the tour.
+	 * @return The time when the deliverer leaves the stop, that is its arrival time plus its duration.
+	 */
+	protected Date getDepartureTime(int index) {
+		Date arrival = getArrivalTime(index);
+		if (index == 0 || index == stops.length - 1) {
+			return arrival;
+		}
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTime(arrival);
+		calendar.add(Calendar.SECOND, (int) stops[index].getStopDuration());
+		return calendar.getTime();
+	}
+
+	/**
+	 * @param time A time of the tour.
+	 * @return The time in hh:mm:ss format, an empty String if it is null.
+	 */
+	protected String formatTime(Date time) {
+		return time == null ? "" : timeFormat.format(time);
+	}
+
+	/**
+	 * @param path A path of the tour.
+	 * @return TRUE if no road leads from the departure stop to the arrival stop of the path.
+	 */
+	protected static boolean isUnreachable(Path path) {
+		return path.getPathDuration() == Float.MAX_VALUE;
+	}
+
+	/**
+	 * @param path A path of the tour.
+	 * @return The length of the path in meters.
+	 */
+	protected static float getLength(Path path) {
+		float length = 0;
+		for (Segment segment : path.getPathSegments()) {
+			length += segment.getLength();
+		}
+		return length;
+	}
+}
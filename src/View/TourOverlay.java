@@ -0,0 +1,173 @@
+package View;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.awt.Stroke;
+import java.awt.Transparency;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import Model.Path;
+import Model.Segment;
+import Model.Stop;
+import Model.Tour;
+
+/**
+ * TourOverlay keeps the shapes of the paths of a computed tour, so that the tour is drawn on the map
+ * without projecting and building its segments again at each repaint.
+ *
+ * An overlay is composed of:
+ * <ul>
+ * <li>The ordered travel it was built from, and its number of stops.</li>
+ * <li>For each path between two stops, the shape of the lines of its segments, the shape of the
+ * heads of their arrows, and the rectangle containing both.</li>
+ * <li>The image of all the paths, drawn at the first repaint.</li>
+ * </ul>
+ *
+ * The overlay is built from the positions of a MapProjection: it must be built again when the tour is
+ * computed or modified, and when the map is zoomed. Between two modifications, a repaint only copies the
+ * image of the paths. When the tour is too large on screen to be kept in an image, only the paths
+ * crossing the visible part of the map are drawn.
+ *
+ * @author H4122
+ *
+ * @see View.DrawnMap
+ * @see View.GraphicalSegment#appendPath(Path2D, Path2D, int, int, int, int)
+ * @see Model.Tour#getOrderedTravel()
+ */
+public class TourOverlay {
+
+	/**
+	 * The stroke of the lines of the paths.
+	 */
+	private static final BasicStroke PATH_STROKE = new BasicStroke(3);
+
+	/**
+	 * The distance in pixels by which the stroke and the heads of the arrows may go past the ends of the
+	 * segments.
+	 */
+	private static final int BOUNDS_MARGIN = 8;
+
+	/**
+	 * The maximum number of pixels of the image of the paths (about 16 MB).
+	 */
+	private static final long IMAGE_MAX_PIXELS = 4L * 1024 * 1024;
+
+	private ArrayList<Stop> orderedTravel;
+	private int nbStops;
+	private ArrayList<Path2D.Float> lines = new ArrayList<Path2D.Float>();
+	private ArrayList<Path2D.Float> arrows = new ArrayList<Path2D.Float>();
+	private ArrayList<Rectangle> bounds = new ArrayList<Rectangle>();
+	private Rectangle tourBounds;
+	private BufferedImage image;
+
+	/**
+	 * Class constructor. Builds the shapes of all the paths of the tour. A path is only built once,
+	 * even if the tour departure is both the first and the last stop.
+	 *
+	 * @param tour The tour to draw.
+	 * @param projection The positions on screen of the intersections of the map.
+	 */
+	public TourOverlay(Tour tour, MapProjection projection) {
+		orderedTravel = tour.getOrderedTravel();
+		nbStops = orderedTravel.size();
+		Set<Path> builtPaths = Collections.newSetFromMap(new IdentityHashMap<Path, Boolean>());
+		for (Stop stop : orderedTravel) {
+			Path path = stop.getNextPath();
+			if (path == null || !builtPaths.add(path) || path.getPathSegments().isEmpty()) {
+				continue;
+			}
+			Path2D.Float pathLines = new Path2D.Float();
+			Path2D.Float pathArrows = new Path2D.Float();
+			for (Segment segment : path.getPathSegments()) {
+				GraphicalSegment.appendPath(pathLines, pathArrows, projection.getX(segment.getDepartureIntersection()),
+						projection.getY(segment.getDepartureIntersection()),
+						projection.getX(segment.getArrivalIntersection()),
+						projection.getY(segment.getArrivalIntersection()));
+			}
+			Rectangle pathBounds = pathLines.getBounds();
+			pathBounds.grow(BOUNDS_MARGIN, BOUNDS_MARGIN);
+			lines.add(pathLines);
+			arrows.add(pathArrows);
+			bounds.add(pathBounds);
+			tourBounds = tourBounds == null ? pathBounds : tourBounds.union(pathBounds);
+		}
+	}
+
+	/**
+	 * @param tour A tour.
+	 * @return TRUE if the overlay was built from the current ordered travel of the tour.
+	 */
+	public boolean isBuiltFrom(Tour tour) {
+		return tour.getOrderedTravel() == orderedTravel && orderedTravel.size() == nbStops;
+	}
+
+	/**
+	 * @return The shape of the lines of each path, drawn with a stroke of width 3.
+	 */
+	public ArrayList<Path2D.Float> getLines() {
+		return lines;
+	}
+
+	/**
+	 * @return The shape of the heads of the arrows of each path, filled.
+	 */
+	public ArrayList<Path2D.Float> getArrows() {
+		return arrows;
+	}
+
+	/**
+	 * Draws the paths of the tour that cross the visible part of the map.
+	 *
+	 * @param g2 The Graphics to draw on, whose origin is the top left corner of the map.
+	 * @param visible The visible part of the map.
+	 * @param configuration The configuration of the screen, to create an image fast to copy on it. Null
+	 * when not known.
+	 */
+	public void draw(Graphics2D g2, Rectangle visible, GraphicsConfiguration configuration) {
+		if (tourBounds == null || !tourBounds.intersects(visible)) {
+			return;
+		}
+		if (image == null && (long) tourBounds.width * tourBounds.height <= IMAGE_MAX_PIXELS) {
+			image = configuration != null
+					? configuration.createCompatibleImage(tourBounds.width, tourBounds.height, Transparency.TRANSLUCENT)
+					: new BufferedImage(tourBounds.width, tourBounds.height, BufferedImage.TYPE_INT_ARGB);
+			Graphics2D imageGraphics = image.createGraphics();
+			imageGraphics.setRenderingHints(g2.getRenderingHints());
+			imageGraphics.translate(-tourBounds.x, -tourBounds.y);
+			drawPaths(imageGraphics, tourBounds);
+			imageGraphics.dispose();
+		}
+		if (image != null) {
+			g2.drawImage(image, tourBounds.x, tourBounds.y, null);
+		} else {
+			drawPaths(g2, visible);
+		}
+	}
+
+	/**
+	 * Draws the shapes of the paths that cross a rectangle, without keeping them in an image.
+	 *
+	 * @param g2 The Graphics to draw on, whose origin is the top left corner of the map.
+	 * @param visible The rectangle.
+	 */
+	public void drawPaths(Graphics2D g2, Rectangle visible) {
+		Stroke stroke = g2.getStroke();
+		g2.setColor(Color.blue);
+		g2.setStroke(PATH_STROKE);
+		for (int i = 0; i < lines.size(); i++) {
+			if (bounds.get(i).intersects(visible)) {
+				g2.draw(lines.get(i));
+				g2.fill(arrows.get(i));
+			}
+		}
+		g2.setStroke(stroke);
+	}
+}
@@ -0,0 +1,524 @@
+package View;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.imageio.ImageIO;
+
+import Model.Intersection;
+import Model.Map;
+import Model.Request;
+import Model.Segment;
+import Model.Stop;
+import Model.Tour;
+import Ressources.FileDrop;
+
+/**
+ * TourRenderer draws a map and a tour in a PNG image or in an SVG file, without any window, so that
+ * the road maps can be drawn by batch jobs.
+ *
+ * A renderer is composed of:
+ * <ul>
+ * <li>The width and the height in pixels of the drawing.</li>
+ * <li>The base layer of the drawing: the positions of the intersections and the ends of the segments
+ * of the map, computed with a MapProjection of this size. It is drawn once, then copied under each tour
+ * of the same map.</li>
+ * <li>The shapes of the paths of the tour, kept in a TourOverlay.</li>
+ * <li>The position of the tour departure, and the position, the type and the color of each stop of
+ * the requests.</li>
+ * </ul>
+ *
+ * The map is drawn as the DrawnMap draws it when it is not zoomed: an intersection is only drawn once
+ * for each pixel, and a segment whose ends are on the same or on neighbouring pixels is not drawn.
+ * Everything is projected when the renderer is created: the drawing can then be done in another thread
+ * while the tour is modified, and several renderers can draw at the same time.
+ *
+ * @author H4122
+ *
+ * @see View.DrawnMap
+ * @see View.GraphicalIntersection
+ * @see View.GraphicalSegment
+ * @see View.TourOverlay
+ */
+public class TourRenderer {
+
+	/**
+	 * The size in chars of the buffer of the writer of the SVG files.
+	 */
+	public static final int BUFFER_SIZE = 64 * 1024;
+
+	private static String departureIconData;
+
+	private int width;
+	private int height;
+	private BaseLayer baseLayer;
+	private TourOverlay tourOverlay;
+	private Point departure;
+	private int[] stopX;
+	private int[] stopY;
+	private String[] stopTypes;
+	private Color[] stopColors;
+
+	/**
+	 * Class constructor. Projects the map and the tour on a drawing of the size in parameters.
+	 *
+	 * @param map The map of the tour.
+	 * @param tour The tour to draw, computed or not.
+	 * @param width The width in pixels of the drawing.
+	 * @param height The height in pixels of the drawing.
+	 *
+	 * @throws Exception If the size is not positive, or if the map has no intersection.
+	 */
+	public TourRenderer(Map map, Tour tour, int width, int height) throws Exception {
+		this(createBaseLayer(map, width, height), tour);
+	}
+
+	/**
+	 * Class constructor. Projects a tour on a base layer already drawn for its map.
+	 *
+	 * @param baseLayer The map projected on the drawing.
+	 * @param tour The tour to draw, computed or not.
+	 */
+	private TourRenderer(BaseLayer baseLayer, Tour tour) {
+		this.width = baseLayer.width;
+		this.height = baseLayer.height;
+		this.baseLayer = baseLayer;
+		MapProjection projection = baseLayer.projection;
+
+		tourOverlay = new TourOverlay(tour, projection);
+		Stop tourDeparture = tour.getTourDeparture();
+		if (tourDeparture != null) {
+			departure = new Point(projection.getX(tourDeparture), projection.getY(tourDeparture));
+		}
+		ArrayList<Color> colors = DrawnMap.defaultColors();
+		int nbStops = 2 * tour.getTourRequests().size();
+		stopX = new int[nbStops];
+		stopY = new int[nbStops];
+		stopTypes = new String[nbStops];
+		stopColors = new Color[nbStops];
+		int stop = 0;
+		for (Request request : tour.getTourRequests()) {
+			Color color = colors.get(stop / 2 % colors.size());
+			for (Stop requestStop : new Stop[] { request.getPickupStop(), request.getDeliveryStop() }) {
+				stopX[stop] = projection.getX(requestStop);
+				stopY[stop] = projection.getY(requestStop);
+				stopTypes[stop] = requestStop == request.getPickupStop() ? "Pickup" : "Delivery";
+				stopColors[stop] = color;
+				stop++;
+			}
+		}
+	}
+
+	/**
+	 * Projects a map on a drawing of the size in parameters.
+	 *
+	 * @param map The map to draw.
+	 * @param width The width in pixels of the drawing.
+	 * @param height The height in pixels of the drawing.
+	 * @return The base layer of the drawings of the tours of this map.
+	 *
+	 * @throws Exception If the size is not positive, or if the map has no intersection.
+	 */
+	private static BaseLayer createBaseLayer(Map map, int width, int height) throws Exception {
+		if (width <= 0 || height <= 0) {
+			throw new Exception("The size of the drawing must be positive");
+		}
+		if (map.getIntersections().isEmpty()) {
+			throw new Exception("The map has no intersection to draw");
+		}
+		return new BaseLayer(map, width, height);
+	}
+
+	/**
+	 * @return The width in pixels of the drawing.
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return The height in pixels of the drawing.
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Draws the map, the paths of the tour, the tour departure and the stops of the requests.
+	 *
+	 * @param g2 The Graphics to draw on, whose origin is the top left corner of the drawing.
+	 */
+	public void draw(Graphics2D g2) {
+		baseLayer.draw(g2);
+		drawTour(g2);
+	}
+
+	/**
+	 * Draws the paths of the tour, the tour departure and the stops of the requests over the map.
+	 *
+	 * @param g2 The Graphics to draw on, whose origin is the top left corner of the drawing.
+	 */
+	private void drawTour(Graphics2D g2) {
+		g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		tourOverlay.drawPaths(g2, new Rectangle(0, 0, width, height));
+		if (departure != null) {
+			GraphicalIntersection.drawDeparture(g2, null, departure.x, departure.y);
+		}
+		for (int i = 0; i < stopX.length; i++) {
+			GraphicalIntersection.drawStopRequest(g2, stopX[i], stopY[i], stopTypes[i], stopColors[i]);
+		}
+	}
+
+	/**
+	 * @return A new image of the drawing, the tour being drawn on a copy of the image of the map.
+	 */
+	public BufferedImage renderImage() {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g2 = image.createGraphics();
+		g2.drawImage(baseLayer.getImage(), 0, 0, null);
+		drawTour(g2);
+		g2.dispose();
+		return image;
+	}
+
+	/**
+	 * Writes the drawing in a PNG image. The stream is closed at the end.
+	 *
+	 * @param stream The stream of the file.
+	 *
+	 * @throws IOException If the file cannot be written.
+	 */
+	public void writePng(OutputStream stream) throws IOException {
+		try (OutputStream out = stream) {
+			if (!ImageIO.write(renderImage(), "png", out)) {
+				throw new IOException("No writer of PNG images is available");
+			}
+		}
+	}
+
+	/**
+	 * Writes the drawing in an SVG file, with the same shapes and colors as the PNG image. The segments
+	 * of the map, its intersections, the lines and the arrows of the tour are each written in a single
+	 * path. The stream is closed at the end.
+	 *
+	 * @param stream The stream of the file, which receives the drawing encoded in UTF-8.
+	 *
+	 * @throws IOException If the file cannot be written.
+	 */
+	public void writeSvg(OutputStream stream) throws IOException {
+		try (Writer out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+			out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+			out.write("<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\" width=\""
+					+ width + "\" height=\"" + height + "\" viewBox=\"0 0 " + width + " " + height + "\">\n");
+			out.write(baseLayer.getSvg());
+			out.write("<path fill=\"none\" stroke=\"#0000ff\" stroke-width=\"3\" d=\"");
+			for (Path2D.Float lines : tourOverlay.getLines()) {
+				writePathData(out, lines);
+			}
+			out.write("\"/>\n<path fill=\"#0000ff\" d=\"");
+			for (Path2D.Float arrows : tourOverlay.getArrows()) {
+				writePathData(out, arrows);
+			}
+			out.write("\"/>\n");
+
+			if (departure != null) {
+				Rectangle bounds = GraphicalIntersection.getDepartureBounds(departure.x, departure.y);
+				out.write("<image x=\"" + bounds.x + "\" y=\"" + bounds.y + "\" width=\"" + bounds.width + "\" height=\""
+						+ bounds.height + "\" xlink:href=\"data:image/png;base64," + getDepartureIconData() + "\"/>\n");
+			}
+			for (int i = 0; i < stopX.length; i++) {
+				String color = String.format("#%06x", stopColors[i].getRGB() & 0xFFFFFF);
+				if ("Pickup".equals(stopTypes[i])) {
+					out.write("<circle cx=\"" + stopX[i] + ".5\" cy=\"" + stopY[i] + ".5\" r=\"6.5\" fill=\"" + color
+							+ "\"/>\n");
+				} else {
+					out.write("<rect x=\"" + (stopX[i] - 6) + "\" y=\"" + (stopY[i] - 6)
+							+ "\" width=\"13\" height=\"13\" fill=\"" + color + "\"/>\n");
+				}
+			}
+			out.write("</svg>\n");
+		}
+	}
+
+	/**
+	 * Writes the outline of a shape in the attribute d of an SVG path. The coordinates are rounded to a
+	 * tenth of pixel.
+	 *
+	 * @param out The writer of the file.
+	 * @param shape The shape, made of lines.
+	 *
+	 * @throws IOException If the file cannot be written.
+	 */
+	private static void writePathData(Writer out, Shape shape) throws IOException {
+		float[] coordinates = new float[6];
+		for (PathIterator iterator = shape.getPathIterator(null); !iterator.isDone(); iterator.next()) {
+			switch (iterator.currentSegment(coordinates)) {
+			case PathIterator.SEG_MOVETO:
+				out.write("M" + formatCoordinate(coordinates[0]) + " " + formatCoordinate(coordinates[1]));
+				break;
+			case PathIterator.SEG_LINETO:
+				out.write("L" + formatCoordinate(coordinates[0]) + " " + formatCoordinate(coordinates[1]));
+				break;
+			case PathIterator.SEG_CLOSE:
+				out.write("Z");
+				break;
+			default:
+				break;
+			}
+		}
+	}
+
+	/**
+	 * @param coordinate A coordinate on the drawing.
+	 * @return The coordinate rounded to a tenth of pixel, without exponent whatever the locale.
+	 */
+	private static String formatCoordinate(float coordinate) {
+		long tenths = Math.round(coordinate * 10.0);
+		String sign = tenths < 0 ? "-" : "";
+		tenths = Math.abs(tenths);
+		return tenths % 10 == 0 ? sign + tenths / 10 : sign + tenths / 10 + "." + tenths % 10;
+	}
+
+	/**
+	 * The image is only read the first time, by one thread when several tours are written at the same time.
+	 *
+	 * @return The image of the tour departure, encoded in base 64.
+	 *
+	 * @throws IOException If the image cannot be read.
+	 */
+	private static synchronized String getDepartureIconData() throws IOException {
+		if (departureIconData == null) {
+			try (InputStream in = FileDrop.class.getResourceAsStream(GraphicalIntersection.DEPARTURE_ICON)) {
+				if (in == null) {
+					throw new IOException("The image " + GraphicalIntersection.DEPARTURE_ICON + " is missing");
+				}
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				byte[] buffer = new byte[8192];
+				for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+					bytes.write(buffer, 0, read);
+				}
+				departureIconData = Base64.getEncoder().encodeToString(bytes.toByteArray());
+			}
+		}
+		return departureIconData;
+	}
+
+	/**
+	 * Draws several tours of a map in parallel, one file by tour, for example the tours of a fleet.
+	 * The map is projected once for all the tours, then the tours are projected in the calling thread,
+	 * and the files are written by a thread for each processor. The files are named tour1, tour2... 
+	 * in the order of the list.
+	 *
+	 * @param map The map of the tours.
+	 * @param tours The tours to draw.
+	 * @param width The width in pixels of the drawings.
+	 * @param height The height in pixels of the drawings.
+	 * @param directory The directory of the files, created if it does not exist.
+	 * @param extension "png" or "svg".
+	 * @return The files written, in the order of the tours.
+	 *
+	 * @throws Exception If the extension is not known, if the directory cannot be created, or if a file
+	 * cannot be written.
+	 *
+	 * @see Model.Map#getFleetTours()
+	 */
+	public static ArrayList<File> renderAll(Map map, List<Tour> tours, int width, int height, File directory,
+			String extension) throws Exception {
+		if (!extension.equals("png") && !extension.equals("svg")) {
+			throw new Exception("Unknown format of image: " + extension);
+		}
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new Exception("The directory " + directory + " cannot be created");
+		}
+		BaseLayer baseLayer = createBaseLayer(map, width, height);
+		ArrayList<TourRenderer> renderers = new ArrayList<TourRenderer>();
+		ArrayList<File> files = new ArrayList<File>();
+		for (int i = 0; i < tours.size(); i++) {
+			renderers.add(new TourRenderer(baseLayer, tours.get(i)));
+			files.add(new File(directory, "tour" + (i + 1) + "." + extension));
+		}
+		ExecutorService executor = Executors
+				.newFixedThreadPool(Math.max(1, Math.min(tours.size(), Runtime.getRuntime().availableProcessors())));
+		try {
+			ArrayList<Future<?>> writes = new ArrayList<Future<?>>();
+			for (int i = 0; i < renderers.size(); i++) {
+				TourRenderer renderer = renderers.get(i);
+				File file = files.get(i);
+				writes.add(executor.submit(() -> {
+					if (extension.equals("png")) {
+						renderer.writePng(new FileOutputStream(file));
+					} else {
+						renderer.writeSvg(new FileOutputStream(file));
+					}
+					return null;
+				}));
+			}
+			for (Future<?> write : writes) {
+				try {
+					write.get();
+				} catch (ExecutionException e) {
+					throw new Exception("A tour could not be drawn: " + e.getCause().getMessage(), e.getCause());
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		return files;
+	}
+
+	/**
+	 * The map projected on a drawing, shared by the renderers of the tours of this map. The image and
+	 * the SVG elements of the map are only built the first time they are needed, by one thread when
+	 * several tours are drawn at the same time.
+	 */
+	private static class BaseLayer {
+		private int width;
+		private int height;
+		private MapProjection projection;
+		private int[] intersectionX;
+		private int[] intersectionY;
+		private int[] segmentEnds;
+		private BufferedImage image;
+		private String svg;
+
+		/**
+		 * Class constructor. Projects the map on a drawing of the size in parameters.
+		 *
+		 * @param map The map to draw, with at least one intersection.
+		 * @param width The width in pixels of the drawing.
+		 * @param height The height in pixels of the drawing.
+		 */
+		BaseLayer(Map map, int width, int height) {
+			this.width = width;
+			this.height = height;
+			projection = new MapProjection(map, map.computeMapBoundaries(), width, height);
+			projectMap(map.getIntersections().values());
+		}
+
+		/**
+		 * Keeps the intersections and the segments of the map that are visible on the drawing. A segment is
+		 * not kept when the segment in the other direction, between the same points, is already kept.
+		 *
+		 * @param intersections The intersections of the map.
+		 */
+		private void projectMap(Collection<Intersection> intersections) {
+			BitSet drawnPixels = new BitSet((width + 1) * (height + 1));
+			int[] x = new int[intersections.size()];
+			int[] y = new int[intersections.size()];
+			int nbPoints = 0;
+			for (Intersection intersection : intersections) {
+				x[nbPoints] = projection.getX(intersection);
+				y[nbPoints] = projection.getY(intersection);
+				int pixel = y[nbPoints] * (width + 1) + x[nbPoints];
+				if (!drawnPixels.get(pixel)) {
+					drawnPixels.set(pixel);
+					nbPoints++;
+				}
+			}
+			intersectionX = Arrays.copyOf(x, nbPoints);
+			intersectionY = Arrays.copyOf(y, nbPoints);
+
+			ArrayList<int[]> segments = new ArrayList<int[]>();
+			HashSet<Long> drawnPairs = new HashSet<Long>();
+			for (Intersection intersection : intersections) {
+				Point start = new Point(projection.getX(intersection), projection.getY(intersection));
+				for (Segment segment : intersection.getOriginatedSegments()) {
+					Intersection arrival = segment.getArrivalIntersection();
+					Point end = new Point(projection.getX(arrival), projection.getY(arrival));
+					if ((Math.abs(start.x - end.x) > 1 || Math.abs(start.y - end.y) > 1)
+							&& !drawnPairs.contains(DrawnMap.pointPairKey(end, start))) {
+						drawnPairs.add(DrawnMap.pointPairKey(start, end));
+						segments.add(new int[] { start.x, start.y, end.x, end.y });
+					}
+				}
+			}
+			segmentEnds = new int[4 * segments.size()];
+			for (int i = 0; i < segments.size(); i++) {
+				System.arraycopy(segments.get(i), 0, segmentEnds, 4 * i, 4);
+			}
+		}
+
+		/**
+		 * Draws the background, the intersections and the segments of the map.
+		 *
+		 * @param g2 The Graphics to draw on, whose origin is the top left corner of the drawing.
+		 */
+		void draw(Graphics2D g2) {
+			g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+			g2.setColor(Color.white);
+			g2.fillRect(0, 0, width, height);
+			for (int i = 0; i < intersectionX.length; i++) {
+				GraphicalIntersection.drawPlain(g2, intersectionX[i], intersectionY[i]);
+			}
+			for (int i = 0; i < segmentEnds.length; i += 4) {
+				GraphicalSegment.drawPlain(g2, segmentEnds[i], segmentEnds[i + 1], segmentEnds[i + 2],
+						segmentEnds[i + 3]);
+			}
+		}
+
+		/**
+		 * @return The image of the map. It must not be modified.
+		 */
+		synchronized BufferedImage getImage() {
+			if (image == null) {
+				image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+				Graphics2D g2 = image.createGraphics();
+				draw(g2);
+				g2.dispose();
+			}
+			return image;
+		}
+
+		/**
+		 * @return The SVG elements of the background, the intersections and the segments of the map.
+		 */
+		synchronized String getSvg() {
+			if (svg == null) {
+				StringBuilder out = new StringBuilder();
+				out.append("<rect width=\"" + width + "\" height=\"" + height + "\" fill=\"#ffffff\"/>\n");
+				out.append("<path fill=\"#000000\" d=\"");
+				for (int i = 0; i < intersectionX.length; i++) {
+					// the oval of GraphicalIntersection.drawPlain, of diameter 3 from (x-1, y-1)
+					out.append("M" + (intersectionX[i] - 1) + " " + intersectionY[i]
+							+ ".5a1.5 1.5 0 1 0 3 0a1.5 1.5 0 1 0 -3 0");
+				}
+				out.append("\"/>\n<path fill=\"none\" stroke=\"#000000\" stroke-width=\"1\" d=\"");
+				for (int i = 0; i < segmentEnds.length; i += 4) {
+					out.append("M" + segmentEnds[i] + " " + segmentEnds[i + 1] + "L" + segmentEnds[i + 2] + " "
+							+ segmentEnds[i + 3]);
+				}
+				out.append("\"/>\n");
+				svg = out.toString();
+			}
+			return svg;
+		}
+	}
+}